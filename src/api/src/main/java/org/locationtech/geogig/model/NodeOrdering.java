@@ -10,4 +10,13 @@ public abstract class NodeOrdering extends Ordering<Node> implements Serializabl
     public abstract @Override int compare(Node left, Node right);
 
     public abstract int bucket(final Node ref, final int depth);
+
+    /**
+     * @return whether the trees sorted by this ordering place their nodes in the bucket given by
+     *         {@link #bucket}, so two trees can be compared by pairing their buckets by index.
+     *         Defaults to {@code true}.
+     */
+    public boolean supportsBucketPairing() {
+        return true;
+    }
 }
@@ -15,8 +15,10 @@ import java.util.SortedSet;
 import java.util.function.BooleanSupplier;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.model.impl.STRTreeBuilder;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
 
@@ -125,4 +127,67 @@ public interface RevTreeBuilder {
         return QuadTreeBuilder.create(source, target, original, maxBounds);
     }
 
+    /**
+     * Creates a quad-tree builder with explicit structural parameters, as used by adaptive
+     * quad-tree indexes.
+     * 
+     * @param maxDepth the quad-tree max depth, or {@code null} to compute it out of the max bounds
+     * @param levelCapacities the per depth leaf capacity, or {@code null} for the default fixed
+     *        capacity
+     */
+    public static RevTreeBuilder quadBuilder(@NonNull ObjectStore source,
+            @NonNull ObjectStore target, @NonNull RevTree original, @NonNull Envelope maxBounds,
+            @Nullable Integer maxDepth, @Nullable int[] levelCapacities) {
+        return QuadTreeBuilder.create(source, target, original, maxBounds, maxDepth,
+                levelCapacities);
+    }
+
+    /**
+     * Creates an STR packed R-tree builder
+     * 
+     * @param leafCapacity max number of features per leaf tree
+     * @param fanout max number of buckets per bucket tree
+     */
+    public static RevTreeBuilder rtreeBuilder(@NonNull ObjectStore source,
+            @NonNull ObjectStore target, @NonNull RevTree original, int leafCapacity,
+            int fanout) {
+        return STRTreeBuilder.create(source, target, original, leafCapacity, fanout);
+    }
+
+    /**
+     * Creates an attribute index tree builder, whose nodes are sorted by the value of the
+     * {@code attributeName} materialized attribute
+     * 
+     * @param attributeName the materialized attribute to sort nodes by
+     * @param leafCapacity max number of features per leaf tree
+     * @param fanout max number of buckets per bucket tree
+     */
+    public static RevTreeBuilder attributeBuilder(@NonNull ObjectStore source,
+            @NonNull ObjectStore target, @NonNull RevTree original,
+            @NonNull String attributeName, int leafCapacity, int fanout) {
+        return AttributeTreeBuilder.create(source, target, original, attributeName, leafCapacity,
+                fanout);
+    }
+
+    /**
+     * Creates a temporal index tree builder, whose nodes are sorted by the value of the
+     * {@code startAttributeName} materialized attribute, and whose buckets span the time range of
+     * their nodes validity period
+     * 
+     * @param startAttributeName the materialized attribute holding the start of the validity
+     *        period
+     * @param endAttributeName the materialized attribute holding the end of the validity period,
+     *        or {@code null} if the validity is the time instant given by
+     *        {@code startAttributeName}
+     * @param leafCapacity max number of features per leaf tree
+     * @param fanout max number of buckets per bucket tree
+     */
+    public static RevTreeBuilder temporalBuilder(@NonNull ObjectStore source,
+            @NonNull ObjectStore target, @NonNull RevTree original,
+            @NonNull String startAttributeName, @Nullable String endAttributeName,
+            int leafCapacity, int fanout) {
+        return AttributeTreeBuilder.create(source, target, original, startAttributeName,
+                endAttributeName, leafCapacity, fanout);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Lists;
+
+import lombok.NonNull;
+
+/**
+ * A {@link RevTreeBuilder} that creates a B+tree like {@link RevTree} where nodes are sorted by
+ * the value of a single attribute, as used by attribute indexes.
+ * <p>
+ * The attribute value is taken from the node's {@link IndexInfo#getMaterializedAttribute
+ * materialized attributes}, and mapped to a {@link #sortKey(Object) sort key} of type
+ * {@code double}. All nodes are sorted by key and packed into leaf trees of up to
+ * {@code leafCapacity} nodes, and those into bucket trees of up to {@code fanout} buckets.
+ * <p>
+ * Since {@link Bucket} can only carry an envelope, <b>the bounds of the buckets in an attribute
+ * tree are not spatial bounds, but the range of sort keys of the nodes under the bucket</b>,
+ * encoded as an envelope whose {@code x} ordinates are the min and max keys, and {@code y}
+ * ordinates are zero. This allows to prune whole subtrees by key range during a tree traversal.
+ * Feature nodes keep their own spatial bounds.
+ * <p>
+ * Bucket bounds are stored with float32 precision, rounded outwards, so a bucket key range always
+ * contains the keys of its nodes but may be slightly wider. Pruning by key range is hence
+ * conservative: it never skips a matching subtree, but may visit some that don't match, and
+ * callers shall still compare the values of the nodes they find.
+ * <p>
+ * Nodes with a {@code null} value are kept in leaf and bucket trees of their own, sorted after all
+ * the others, whose buckets have no key range.
+ * <p>
+ * Optionally, an {@code endAttributeName} can be given for values that define an interval, like
+ * the validity period of a feature given by a start and an end time attributes, as used by
+ * temporal indexes. In that case nodes are still sorted by the start value, but the key range of
+ * a bucket spans from the lowest start to the highest end value of its nodes, so that any query
+ * range that intersects a node interval also intersects its bucket key range. A {@code null} end
+ * value means the interval is open ended, and a {@code null} start value with a non {@code null}
+ * end value that it's open started.
+ *
+ * @see PackedTreeBuilder
+ */
+public class AttributeTreeBuilder extends PackedTreeBuilder {
+
+    /**
+     * Default max number of nodes in a leaf tree
+     */
+    public static final int DEFAULT_LEAF_CAPACITY = 256;
+
+    /**
+     * Default max number of buckets in a bucket tree
+     */
+    public static final int DEFAULT_FANOUT = 64;
+
+    /**
+     * Number of leading characters of a string value mapped to its sort key, each one taking 16
+     * bits. Nodes are sorted by the exact {@code double} key, but bucket key ranges are stored
+     * with float32 precision, so strings sharing a shorter prefix may fall in the same range
+     */
+    private static final int STRING_KEY_CHARS = 3;
+
+    private final String attributeName;
+
+    private final @Nullable String endAttributeName;
+
+    protected AttributeTreeBuilder(@NonNull ObjectStore source, @NonNull ObjectStore target,
+            @NonNull RevTree original, @NonNull String attributeName,
+            @Nullable String endAttributeName, int leafCapacity, int fanout) {
+        super(source, target, original, leafCapacity, fanout);
+        this.attributeName = attributeName;
+        this.endAttributeName = endAttributeName;
+    }
+
+    /**
+     * @param source the store where to get the {@code original} tree's internal trees from
+     * @param target the store where to save the built trees to
+     * @param original the tree whose nodes to start from
+     * @param attributeName the name of the materialized attribute to sort nodes by
+     * @param leafCapacity max number of nodes in a leaf tree
+     * @param fanout max number of buckets in a bucket tree
+     */
+    public static AttributeTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original,
+            final @NonNull String attributeName, final int leafCapacity, final int fanout) {
+        return create(source, target, original, attributeName, null, leafCapacity, fanout);
+    }
+
+    /**
+     * @param source the store where to get the {@code original} tree's internal trees from
+     * @param target the store where to save the built trees to
+     * @param original the tree whose nodes to start from
+     * @param attributeName the name of the materialized attribute to sort nodes by, and the start
+     *        of the node intervals if {@code endAttributeName} is provided
+     * @param endAttributeName the name of the materialized attribute holding the end of the node
+     *        intervals, or {@code null} if values are not intervals
+     * @param leafCapacity max number of nodes in a leaf tree
+     * @param fanout max number of buckets in a bucket tree
+     */
+    public static AttributeTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original,
+            final @NonNull String attributeName, final @Nullable String endAttributeName,
+            final int leafCapacity, final int fanout) {
+        return new AttributeTreeBuilder(source, target, original, attributeName,
+                endAttributeName, leafCapacity, fanout);
+    }
+
+    /**
+     * Maps an attribute value to a {@code double} sort key, such that for any two values of the
+     * same type {@code v1 < v2} implies {@code sortKey(v1) <= sortKey(v2)}.
+     * <p>
+     * Numbers map to their {@code double} value, dates to their milliseconds since the epoch,
+     * booleans to {@code 0} or {@code 1}, and strings to a number made out of their first three
+     * characters. Keys are clamped to the float32 range, as bucket bounds are stored with float32
+     * precision; within that range keys are not rounded, so nodes are sorted by their exact key,
+     * but distinct keys may share the same float32 bucket bound.
+     *
+     * @return the sort key, or {@code null} if the value is {@code null} or its type is not
+     *         {@link #isSupported(Class) supported}
+     */
+    public static @Nullable Double sortKey(@Nullable Object value) {
+        final double key;
+        if (value instanceof Number) {
+            key = ((Number) value).doubleValue();
+        } else if (value instanceof java.util.Date) {
+            key = ((java.util.Date) value).getTime();
+        } else if (value instanceof Boolean) {
+            key = ((Boolean) value).booleanValue() ? 1 : 0;
+        } else if (value instanceof Character) {
+            key = stringKey(value.toString());
+        } else if (value instanceof CharSequence) {
+            key = stringKey((CharSequence) value);
+        } else {
+            return null;
+        }
+        if (Double.isNaN(key)) {
+            return null;
+        }
+        return Double.valueOf(Math.max(-Float.MAX_VALUE, Math.min(Float.MAX_VALUE, key)));
+    }
+
+    private static double stringKey(CharSequence value) {
+        double key = 0;
+        for (int i = 0; i < STRING_KEY_CHARS; i++) {
+            int c = i < value.length() ? value.charAt(i) : 0;
+            key = key * 65536 + c;
+        }
+        return key;
+    }
+
+    /**
+     * @return whether values of the given type can be mapped to a {@link #sortKey sort key}
+     */
+    public static boolean isSupported(Class<?> binding) {
+        return Number.class.isAssignableFrom(binding)
+                || java.util.Date.class.isAssignableFrom(binding)
+                || Boolean.class.equals(binding) || Character.class.equals(binding)
+                || CharSequence.class.isAssignableFrom(binding);
+    }
+
+    /**
+     * @return the envelope used as bounds for a bucket whose nodes span the given key range
+     */
+    public static Envelope keyRange(double minKey, double maxKey) {
+        return new Envelope(minKey, maxKey, 0, 0);
+    }
+
+    private @Nullable Double key(Node node) {
+        return sortKey(IndexInfo.getMaterializedAttribute(attributeName, node));
+    }
+
+    /**
+     * @return the key range of the node, or {@code null} if it has no value
+     */
+    private @Nullable Envelope keyRange(Node node) {
+        final Double key = key(node);
+        if (endAttributeName == null) {
+            return key == null ? null : keyRange(key, key);
+        }
+        final Double endKey = sortKey(IndexInfo.getMaterializedAttribute(endAttributeName, node));
+        if (key == null && endKey == null) {
+            return null;
+        }
+        double min = key == null ? -Float.MAX_VALUE : key.doubleValue();
+        double max = endKey == null ? Float.MAX_VALUE : endKey.doubleValue();
+        return keyRange(Math.min(min, max), Math.max(min, max));
+    }
+
+    /**
+     * @return the {@link #keyRange(Node) key range} of the node
+     */
+    protected @Override @Nullable Envelope bounds(Node node) {
+        return keyRange(node);
+    }
+
+    /**
+     * Partitions the nodes sorted by key, with {@code null} start keys last
+     */
+    protected @Override List<List<Node>> partitionNodes(List<Node> nodes, int capacity) {
+        final Comparator<Node> keyOrder = Comparator
+                .comparing(this::key, Comparator.nullsLast(Comparator.<Double> naturalOrder()))
+                .thenComparing(CanonicalNodeOrder.INSTANCE);
+
+        List<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(keyOrder);
+        return Lists.partition(sorted, capacity);
+    }
+
+    /**
+     * Partitions the trees in the order given, which is already by key
+     */
+    protected @Override List<List<Packed>> partitionTrees(List<Packed> trees, int capacity) {
+        return Lists.partition(trees, capacity);
+    }
+}
@@ -0,0 +1,641 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeOrdering;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Lists;
+
+import lombok.NonNull;
+
+/**
+ * Base class for {@link RevTreeBuilder}s that create balanced trees out of groups of up to
+ * {@code leafCapacity} close nodes each, and groups of up to {@code fanout} close child trees
+ * each, as opposed to the fixed bucket subdivisions of {@link CanonicalTreeBuilder} and
+ * {@link QuadTreeBuilder}.
+ * <p>
+ * Subclasses define the {@link #bounds(Node) bounds} of each node, and how nodes are
+ * {@link #partitionNodes partitioned} into leaf trees and child trees into bucket trees. The
+ * bounds of a bucket are the union of the bounds of its contents. Nodes with no bounds are kept in
+ * subtrees of their own, whose buckets have no bounds either.
+ * <p>
+ * Building out of an empty or leaf original tree, or with changes to more than a quarter of its
+ * nodes, bulk loads the whole tree. Otherwise only the paths to the leaf trees affected by the
+ * changes are rebuilt: added nodes are routed to the child tree whose bounds need the least
+ * enlargement to include them, and removed nodes to all the child trees whose bounds intersect
+ * their own. Trees over capacity are split, empty trees are dropped, and the height of the tree
+ * only changes at the root, so it stays balanced. If a removed node is not found where its bounds
+ * say, the whole tree is bulk loaded instead.
+ * <p>
+ * Leaf tree nodes are always sorted in {@link CanonicalNodeOrder canonical order}, but bucket
+ * indexes are just the position of the child tree in its parent, so there's no bucket index to
+ * pair the buckets of two packed trees by. Diff traversals using {@link #nodeOrdering()} compare
+ * two packed trees through {@code PackedTreeDiff} instead.
+ * <p>
+ * Index trees contain only feature nodes, hence so do the trees built by these builders.
+ * <p>
+ * The mutator methods are thread safe, so the builder can be fed from a parallel tree walk.
+ */
+public abstract class PackedTreeBuilder implements RevTreeBuilder {
+
+    private static final NodeOrdering NODE_ORDERING = new PackedNodeOrdering();
+
+    protected final ObjectStore source;
+
+    protected final ObjectStore target;
+
+    protected final int leafCapacity;
+
+    protected final int fanout;
+
+    private RevTree original;
+
+    /**
+     * Nodes added since the {@link #original} tree, by name
+     */
+    private final Map<String, Node> puts = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes of the {@link #original} tree removed, by name
+     */
+    private final Map<String, Node> removes = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean disposed = new AtomicBoolean(false);
+
+    protected PackedTreeBuilder(@NonNull ObjectStore source, @NonNull ObjectStore target,
+            @NonNull RevTree original, int leafCapacity, int fanout) {
+        checkArgument(leafCapacity > 1, "leaf capacity must be > 1: %s", leafCapacity);
+        checkArgument(fanout > 1, "fanout must be > 1: %s", fanout);
+        this.source = source;
+        this.target = target;
+        this.leafCapacity = leafCapacity;
+        this.fanout = fanout;
+        original(original);
+    }
+
+    /**
+     * @return the node ordering for packed trees, which doesn't
+     *         {@link NodeOrdering#supportsBucketPairing() support bucket pairing}, so diff
+     *         traversals compare packed trees by their contents rather than by bucket index
+     */
+    public static NodeOrdering nodeOrdering() {
+        return NODE_ORDERING;
+    }
+
+    /**
+     * @return the bounds used to group the node with others, or {@code null} if it has none
+     */
+    protected abstract @Nullable Envelope bounds(Node node);
+
+    /**
+     * Partitions {@code nodes}, all of which have {@link #bounds(Node) bounds}, in groups of up to
+     * {@code capacity} close nodes each
+     */
+    protected abstract List<List<Node>> partitionNodes(List<Node> nodes, int capacity);
+
+    /**
+     * Partitions {@code trees}, all of which have bounds, in groups of up to {@code capacity}
+     * close trees each
+     */
+    protected abstract List<List<Packed>> partitionTrees(List<Packed> trees, int capacity);
+
+    /**
+     * Resets the state of this builder to the {@code original} tree
+     */
+    public @Override PackedTreeBuilder original(@NonNull RevTree original) {
+        checkState(!disposed.get(), "TreeBuilder is already disposed");
+        this.original = original;
+        puts.clear();
+        removes.clear();
+        return this;
+    }
+
+    /**
+     * Adds a node. Nodes are located by their bounds, so a node of the
+     * {@link #original(RevTree) original} tree shall be replaced through
+     * {@link #update(Node, Node)} or {@link #remove(Node) removed} first.
+     */
+    public @Override boolean put(final @NonNull Node node) {
+        checkState(!disposed.get(), "TreeBuilder is already disposed");
+        Node previous = puts.put(node.getName(), node);
+        return !node.equals(previous);
+    }
+
+    /**
+     * Removes a node, which must have the same bounds it has in the original tree. Whether it
+     * exists is only checked when the tree is {@link #build() built}.
+     */
+    public @Override boolean remove(@NonNull Node node) {
+        checkState(!disposed.get(), "TreeBuilder is already disposed");
+        if (null == puts.remove(node.getName())) {
+            removes.put(node.getName(), node);
+        }
+        return true;
+    }
+
+    public @Override boolean update(@NonNull Node oldNode, @NonNull Node newNode) {
+        checkState(!disposed.get(), "TreeBuilder is already disposed");
+        remove(oldNode);
+        put(newNode);
+        return !oldNode.equals(newNode);
+    }
+
+    public @Override RevTree build() {
+        return build(() -> false);
+    }
+
+    public @Override void dispose() {
+        if (!disposed.getAndSet(true)) {
+            puts.clear();
+            removes.clear();
+        }
+    }
+
+    public @Override @Nullable RevTree build(@NonNull BooleanSupplier abortFlag) {
+        checkState(!disposed.getAndSet(true), "TreeBuilder is already disposed");
+        try {
+            if (puts.isEmpty() && removes.isEmpty()) {
+                if (original.isEmpty()) {
+                    target.put(RevTree.EMPTY);
+                }
+                return original;
+            }
+            final long changes = puts.size() + removes.size();
+            if (original.bucketsSize() > 0 && changes <= original.size() / 4) {
+                Set<String> removed = new HashSet<>();
+                List<Packed> level = apply(original, new Envelope(), height(original),
+                        new ArrayList<>(puts.values()), new ArrayList<>(removes.values()),
+                        removed, abortFlag);
+                if (level == null) {
+                    return null;
+                }
+                if (removed.size() == removes.size()) {
+                    return root(level, abortFlag);
+                }
+                // some node is not where its bounds say, bulk load instead
+            }
+            return repack(abortFlag);
+        } finally {
+            puts.clear();
+            removes.clear();
+        }
+    }
+
+    private @Nullable RevTree repack(BooleanSupplier abortFlag) {
+        Map<String, Node> nodes = new HashMap<>();
+        collectNodes(original, nodes);
+        for (Node node : removes.values()) {
+            checkState(null != nodes.remove(node.getName()),
+                    "Node %s is not in the original tree", node);
+        }
+        nodes.putAll(puts);
+        List<Packed> leaves = leaves(new ArrayList<>(nodes.values()), leafCapacity, abortFlag);
+        return leaves == null ? null : root(leaves, abortFlag);
+    }
+
+    private void collectNodes(RevTree tree, Map<String, Node> nodes) {
+        tree.forEachFeature(n -> nodes.put(n.getName(), n));
+        if (tree.bucketsSize() > 0) {
+            List<ObjectId> bucketIds = new ArrayList<>(tree.bucketsSize());
+            tree.forEachBucket(b -> bucketIds.add(b.getObjectId()));
+            source.getAll(bucketIds, BulkOpListener.NOOP_LISTENER, RevTree.class)
+                    .forEachRemaining(child -> collectNodes(child, nodes));
+        }
+    }
+
+    /**
+     * Creates the bucket trees on top of {@code level} up to a single root, and removes the top
+     * levels that have a single bucket. The root is the only tree whose children may be a mix of
+     * trees with and without bounds.
+     */
+    private @Nullable RevTree root(List<Packed> level, BooleanSupplier abortFlag) {
+        if (level.isEmpty()) {
+            target.put(RevTree.EMPTY);
+            return RevTree.EMPTY;
+        }
+        while (level.size() > fanout) {
+            level = parents(level, fanout, abortFlag);
+            if (level == null) {
+                return null;
+            }
+        }
+        RevTree root = level.size() == 1 ? level.get(0).tree : bucketTree(level).tree;
+        while (root.bucketsSize() == 1) {
+            ObjectId childId = root.getBuckets().iterator().next().getObjectId();
+            RevTree child = target.getIfPresent(childId, RevTree.class);
+            root = child == null ? source.getTree(childId) : child;
+        }
+        return root;
+    }
+
+    private int height(RevTree tree) {
+        int height = 0;
+        while (tree.bucketsSize() > 0) {
+            tree = source.getTree(tree.getBuckets().iterator().next().getObjectId());
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Applies the changes routed to a subtree
+     *
+     * @param bounds the bounds of the subtree
+     * @param height the height of the subtree, zero for a leaf tree
+     * @param removed where to record the names of the removed nodes found
+     * @return the trees replacing the subtree, all of its same height, a list with only the
+     *         subtree itself if it didn't change, or {@code null} if {@code abortFlag} was raised
+     */
+    private @Nullable List<Packed> apply(RevTree tree, Envelope bounds, int height,
+            List<Node> puts, List<Node> removes, Set<String> removed,
+            BooleanSupplier abortFlag) {
+        if (abortFlag.getAsBoolean()) {
+            return null;
+        }
+        if (tree.bucketsSize() == 0) {
+            return applyLeaf(tree, bounds, puts, removes, removed, abortFlag);
+        }
+        final List<Bucket> buckets = Lists.newArrayList(tree.getBuckets());
+        final List<Envelope> bucketBounds = new ArrayList<>(buckets.size());
+        buckets.forEach(b -> bucketBounds.add(b.bounds().orElse(null)));
+
+        Map<Integer, List<Node>> childPuts = new TreeMap<>();
+        Map<Integer, List<Node>> childRemoves = new TreeMap<>();
+        List<Node> orphans = new ArrayList<>();
+        for (Node node : puts) {
+            int index = choose(bounds(node), bucketBounds);
+            if (index == -1) {
+                orphans.add(node);
+            } else {
+                childPuts.computeIfAbsent(index, i -> new ArrayList<>()).add(node);
+            }
+        }
+        for (Node node : removes) {
+            final @Nullable Envelope nodeBounds = bounds(node);
+            for (int i = 0; i < bucketBounds.size(); i++) {
+                Envelope b = bucketBounds.get(i);
+                if (nodeBounds == null ? b == null : b != null && b.intersects(nodeBounds)) {
+                    childRemoves.computeIfAbsent(i, k -> new ArrayList<>()).add(node);
+                }
+            }
+        }
+
+        final SortedSet<Integer> affected = new TreeSet<>(childPuts.keySet());
+        affected.addAll(childRemoves.keySet());
+        final Map<ObjectId, RevTree> children = load(affected.stream()
+                .map(i -> buckets.get(i).getObjectId()).collect(toList()));
+
+        // the trees replacing each changed child, all of the same height
+        final Map<Integer, List<Packed>> replaced = new HashMap<>();
+        long size = tree.size();
+        int numTrees = tree.numTrees();
+        for (int i : affected) {
+            RevTree child = children.get(buckets.get(i).getObjectId());
+            List<Packed> replacement = apply(child, boundsOrEmpty(bucketBounds.get(i)),
+                    height - 1, childPuts.getOrDefault(i, Collections.emptyList()),
+                    childRemoves.getOrDefault(i, Collections.emptyList()), removed, abortFlag);
+            if (replacement == null) {
+                return null;
+            }
+            if (replacement.size() == 1 && replacement.get(0).tree.getId().equals(child.getId())) {
+                continue;
+            }
+            replaced.put(i, replacement);
+            size -= child.size();
+            numTrees -= child.numTrees();
+            for (Packed p : replacement) {
+                size += p.tree.size();
+                numTrees += p.tree.numTrees();
+            }
+        }
+        // nodes that can't go to any child make up new child trees of the same height
+        List<Packed> orphanTrees = leaves(orphans, leafCapacity, abortFlag);
+        for (int h = 1; h < height && orphanTrees != null; h++) {
+            orphanTrees = parents(orphanTrees, fanout, abortFlag);
+        }
+        if (orphanTrees == null) {
+            return null;
+        }
+        if (replaced.isEmpty() && orphanTrees.isEmpty()) {
+            return Collections.singletonList(new Packed(tree, bounds));
+        }
+        for (Packed p : orphanTrees) {
+            size += p.tree.size();
+            numTrees += p.tree.numTrees();
+        }
+
+        // the resulting child trees in order, null for the unchanged ones
+        final List<Packed> result = new ArrayList<>();
+        final List<ObjectId> ids = new ArrayList<>();
+        final List<Envelope> resultBounds = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            List<Packed> replacement = replaced.get(i);
+            if (replacement == null) {
+                result.add(null);
+                ids.add(buckets.get(i).getObjectId());
+                resultBounds.add(boundsOrEmpty(bucketBounds.get(i)));
+            } else {
+                for (Packed p : replacement) {
+                    result.add(p);
+                    ids.add(p.tree.getId());
+                    resultBounds.add(p.bounds);
+                }
+            }
+        }
+        for (Packed p : orphanTrees) {
+            result.add(p);
+            ids.add(p.tree.getId());
+            resultBounds.add(p.bounds);
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (ids.size() <= fanout) {
+            return Collections.singletonList(bucketTree(ids, resultBounds, size, numTrees));
+        }
+        // too many children, split this tree in several ones of the same height
+        final List<ObjectId> unchangedIds = new ArrayList<>();
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                unchangedIds.add(ids.get(i));
+            }
+        }
+        final Map<ObjectId, RevTree> unchanged = load(unchangedIds);
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                result.set(i, new Packed(unchanged.get(ids.get(i)), resultBounds.get(i)));
+            }
+        }
+        return parents(result, splitCapacity(result.size(), fanout), abortFlag);
+    }
+
+    private @Nullable List<Packed> applyLeaf(RevTree tree, Envelope bounds, List<Node> puts,
+            List<Node> removes, Set<String> removed, BooleanSupplier abortFlag) {
+        Map<String, Node> nodes = new HashMap<>();
+        tree.forEachFeature(n -> nodes.put(n.getName(), n));
+        // Node.equals() doesn't account for bounds and extra data, rebuilding a leaf with equal
+        // contents results in the same tree anyway
+        boolean changed = !puts.isEmpty();
+        for (Node node : removes) {
+            if (null != nodes.remove(node.getName())) {
+                removed.add(node.getName());
+                changed = true;
+            }
+        }
+        puts.forEach(node -> nodes.put(node.getName(), node));
+        if (!changed) {
+            return Collections.singletonList(new Packed(tree, bounds));
+        }
+        return leaves(new ArrayList<>(nodes.values()), splitCapacity(nodes.size(), leafCapacity),
+                abortFlag);
+    }
+
+    /**
+     * @return the index of the bucket whose bounds need the least enlargement to include
+     *         {@code nodeBounds}, or of the last bucket with no bounds if {@code nodeBounds} is
+     *         {@code null}; {@code -1} if there's no bucket with or without bounds, respectively
+     */
+    private static int choose(@Nullable Envelope nodeBounds, List<Envelope> bucketBounds) {
+        int best = -1;
+        double bestArea = 0, bestMargin = 0, bestSize = 0;
+        for (int i = 0; i < bucketBounds.size(); i++) {
+            final Envelope b = bucketBounds.get(i);
+            if (nodeBounds == null || b == null) {
+                if (nodeBounds == null && b == null) {
+                    best = i;
+                }
+                continue;
+            }
+            Envelope expanded = new Envelope(b);
+            expanded.expandToInclude(nodeBounds);
+            // the margin breaks ties for zero area bounds, like those of point or key ranges
+            double area = expanded.getArea() - b.getArea();
+            double margin = expanded.getWidth() + expanded.getHeight() - b.getWidth()
+                    - b.getHeight();
+            double size = b.getArea() + b.getWidth() + b.getHeight();
+            if (best == -1 || area < bestArea || (area == bestArea
+                    && (margin < bestMargin || (margin == bestMargin && size < bestSize)))) {
+                best = i;
+                bestArea = area;
+                bestMargin = margin;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the capacity that splits {@code size} items in the least number of groups of up to
+     *         {@code maxCapacity} items, with the same number of items each
+     */
+    private static int splitCapacity(int size, int maxCapacity) {
+        if (size <= maxCapacity) {
+            return maxCapacity;
+        }
+        int groups = (size + maxCapacity - 1) / maxCapacity;
+        return (size + groups - 1) / groups;
+    }
+
+    private Map<ObjectId, RevTree> load(List<ObjectId> ids) {
+        Map<ObjectId, RevTree> trees = new HashMap<>();
+        source.getAll(ids, BulkOpListener.NOOP_LISTENER, RevTree.class)
+                .forEachRemaining(t -> trees.put(t.getId(), t));
+        return trees;
+    }
+
+    private static Envelope boundsOrEmpty(@Nullable Envelope bounds) {
+        return bounds == null ? new Envelope() : bounds;
+    }
+
+    /**
+     * Creates and saves leaf trees out of {@code nodes}
+     *
+     * @return the leaf trees, or {@code null} if {@code abortFlag} was raised
+     */
+    private @Nullable List<Packed> leaves(List<Node> nodes, int capacity,
+            BooleanSupplier abortFlag) {
+        List<Packed> leaves = new ArrayList<>();
+        for (List<Node> leafNodes : partition(nodes, capacity, this::bounds,
+                CanonicalNodeOrder.INSTANCE, this::partitionNodes)) {
+            if (abortFlag.getAsBoolean()) {
+                return null;
+            }
+            leaves.add(leaf(leafNodes));
+        }
+        return leaves;
+    }
+
+    /**
+     * Creates and saves bucket trees out of {@code children}
+     *
+     * @return the bucket trees, or {@code null} if {@code abortFlag} was raised
+     */
+    private @Nullable List<Packed> parents(List<Packed> children, int capacity,
+            BooleanSupplier abortFlag) {
+        List<Packed> parents = new ArrayList<>();
+        for (List<Packed> group : partition(children, capacity,
+                p -> p.bounds.isNull() ? null : p.bounds, Packed.ID_ORDER,
+                this::partitionTrees)) {
+            if (abortFlag.getAsBoolean()) {
+                return null;
+            }
+            parents.add(bucketTree(group));
+        }
+        return parents;
+    }
+
+    /**
+     * Partitions items with bounds with {@code partitioner}, and items with no bounds in
+     * {@code order}, so that they end up in groups of their own
+     */
+    private static <T> List<List<T>> partition(List<T> items, int capacity,
+            Function<T, Envelope> boundsFunction, Comparator<? super T> order,
+            BiFunction<List<T>, Integer, List<List<T>>> partitioner) {
+        List<T> bounded = new ArrayList<>(items.size());
+        List<T> unbounded = new ArrayList<>();
+        for (T item : items) {
+            (boundsFunction.apply(item) == null ? unbounded : bounded).add(item);
+        }
+        List<List<T>> groups = new ArrayList<>();
+        if (!bounded.isEmpty()) {
+            groups.addAll(partitioner.apply(bounded, capacity));
+        }
+        if (!unbounded.isEmpty()) {
+            unbounded.sort(order);
+            groups.addAll(Lists.partition(unbounded, capacity));
+        }
+        return groups;
+    }
+
+    /**
+     * Creates and saves a leaf tree for the given nodes
+     */
+    private Packed leaf(List<Node> leafNodes) {
+        List<Node> features = new ArrayList<>(leafNodes);
+        features.sort(CanonicalNodeOrder.INSTANCE);
+        Envelope bounds = new Envelope();
+        for (Node node : features) {
+            Envelope nodeBounds = bounds(node);
+            if (nodeBounds != null) {
+                bounds.expandToInclude(nodeBounds);
+            }
+        }
+        RevTree tree = RevTreeBuilder.build(features.size(), 0, null, features, null);
+        target.put(tree);
+        return new Packed(tree, bounds);
+    }
+
+    /**
+     * Creates and saves a bucket tree for the given child trees
+     */
+    private Packed bucketTree(List<Packed> children) {
+        List<ObjectId> ids = new ArrayList<>(children.size());
+        List<Envelope> bounds = new ArrayList<>(children.size());
+        long size = 0;
+        int childTreeCount = 0;
+        for (Packed child : children) {
+            ids.add(child.tree.getId());
+            bounds.add(child.bounds);
+            size += child.tree.size();
+            childTreeCount += child.tree.numTrees();
+        }
+        return bucketTree(ids, bounds, size, childTreeCount);
+    }
+
+    private Packed bucketTree(List<ObjectId> childIds, List<Envelope> childBounds, long size,
+            int childTreeCount) {
+        final RevObjectFactory factory = RevObjectFactory.defaultInstance();
+        SortedSet<Bucket> buckets = new TreeSet<>();
+        Envelope bounds = new Envelope();
+        for (int i = 0; i < childIds.size(); i++) {
+            Envelope b = childBounds.get(i);
+            buckets.add(factory.createBucket(childIds.get(i), i, b.isNull() ? null : b));
+            bounds.expandToInclude(b);
+        }
+        RevTree tree = RevTreeBuilder.build(size, childTreeCount, null, null, buckets);
+        target.put(tree);
+        return new Packed(tree, bounds);
+    }
+
+    /**
+     * A tree already saved to the target store, and the bounds its parent bucket shall have
+     */
+    protected static class Packed {
+
+        static final Comparator<Packed> ID_ORDER = Comparator.comparing(p -> p.tree.getId());
+
+        final RevTree tree;
+
+        /**
+         * The union of the bounds of the tree contents, {@link Envelope#isNull() null} if none
+         * has bounds
+         */
+        final Envelope bounds;
+
+        Packed(RevTree tree, Envelope bounds) {
+            this.tree = tree;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * Orders nodes canonically, as leaf trees are sorted. A node's bucket in a packed tree depends
+     * on its bounds or key and the other nodes in the tree rather than on the node alone, so the
+     * canonical {@link #bucket} doesn't tell where it is and bucket pairing is not supported.
+     */
+    private static class PackedNodeOrdering extends NodeOrdering {
+
+        private static final long serialVersionUID = 1L;
+
+        public @Override int compare(Node left, Node right) {
+            return CanonicalNodeOrder.INSTANCE.compare(left, right);
+        }
+
+        public @Override int bucket(Node ref, int depth) {
+            return CanonicalNodeOrder.INSTANCE.bucket(ref, depth);
+        }
+
+        public @Override boolean supportsBucketPairing() {
+            return false;
+        }
+    }
+}
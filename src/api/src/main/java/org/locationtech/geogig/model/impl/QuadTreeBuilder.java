@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.model.impl;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeOrdering;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
@@ -36,10 +37,20 @@ public class QuadTreeBuilder extends AbstractTreeBuilder implements RevTreeBuild
             final @NonNull ObjectStore target, final @NonNull RevTree original,
             final @NonNull Envelope maxBounds) {
 
+        return create(source, target, original, maxBounds, null, null);
+    }
+
+    public static QuadTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original,
+            final @NonNull Envelope maxBounds, final @Nullable Integer maxDepth,
+            final @Nullable int[] levelCapacities) {
+
         ClusteringStrategy strategy = ClusteringStrategyBuilder//
                 .quadTree(source)//
                 .original(original)//
                 .maxBounds(maxBounds)//
+                .maxDepth(maxDepth == null ? -1 : maxDepth.intValue())//
+                .levelCapacities(levelCapacities)//
                 .build();
         return new QuadTreeBuilder(target, RevTree.EMPTY, strategy);
     }
@@ -47,4 +58,14 @@ public class QuadTreeBuilder extends AbstractTreeBuilder implements RevTreeBuild
     public static NodeOrdering nodeOrdering(Envelope maxBounds) {
         return ClusteringStrategyBuilder.quadTreeOrdering(maxBounds);
     }
+
+    /**
+     * @param maxDepth the quad-tree max depth, or {@code null} to compute it out of the max bounds
+     */
+    public static NodeOrdering nodeOrdering(Envelope maxBounds, @Nullable Integer maxDepth) {
+        if (maxDepth == null) {
+            return ClusteringStrategyBuilder.quadTreeOrdering(maxBounds);
+        }
+        return ClusteringStrategyBuilder.quadTreeOrdering(maxBounds, maxDepth.intValue());
+    }
 }
@@ -0,0 +1,131 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Lists;
+
+import lombok.NonNull;
+
+/**
+ * A {@link RevTreeBuilder} that creates an R-tree like {@link RevTree} whose structure is computed
+ * with the Sort-Tile-Recursive (STR) bulk loading algorithm.
+ * <p>
+ * As opposed to the quad-tree, whose buckets are fixed subdivisions of a max bounds envelope, the
+ * leaf trees of an STR tree contain up to {@code leafCapacity} spatially close nodes each, and the
+ * bucket trees group up to {@code fanout} spatially close child trees each, with the bucket bounds
+ * being the actual bounds of its contents. Bulk loading leads to fully packed, balanced trees with
+ * minimal bucket overlap regardless of the data distribution, and later changes are routed to the
+ * leaf trees whose bounds are closest to the changed nodes.
+ *
+ * @see PackedTreeBuilder
+ */
+public class STRTreeBuilder extends PackedTreeBuilder {
+
+    /**
+     * Default max number of nodes in a leaf tree
+     */
+    public static final int DEFAULT_LEAF_CAPACITY = 128;
+
+    /**
+     * Default max number of buckets in a bucket tree
+     */
+    public static final int DEFAULT_FANOUT = 32;
+
+    protected STRTreeBuilder(@NonNull ObjectStore source, @NonNull ObjectStore target,
+            @NonNull RevTree original, int leafCapacity, int fanout) {
+        super(source, target, original, leafCapacity, fanout);
+    }
+
+    public static STRTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original) {
+        return create(source, target, original, DEFAULT_LEAF_CAPACITY, DEFAULT_FANOUT);
+    }
+
+    /**
+     * @param source the store where to get the {@code original} tree's internal trees from
+     * @param target the store where to save the built trees to
+     * @param original the tree whose nodes to start from
+     * @param leafCapacity max number of nodes in a leaf tree
+     * @param fanout max number of buckets in a bucket tree
+     */
+    public static STRTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original,
+            final int leafCapacity, final int fanout) {
+        return new STRTreeBuilder(source, target, original, leafCapacity, fanout);
+    }
+
+    protected @Override @Nullable Envelope bounds(Node node) {
+        return node.bounds().orElse(null);
+    }
+
+    protected @Override List<List<Node>> partitionNodes(List<Node> nodes, int capacity) {
+        return strPartition(nodes, this::bounds, CanonicalNodeOrder.INSTANCE, capacity);
+    }
+
+    protected @Override List<List<Packed>> partitionTrees(List<Packed> trees, int capacity) {
+        return strPartition(trees, p -> p.bounds, Packed.ID_ORDER, capacity);
+    }
+
+    /**
+     * Partitions {@code items} in groups of up to {@code capacity} spatially close items each,
+     * following the Sort-Tile-Recursive algorithm: items are sorted by the x ordinate of their
+     * center and split into {@code ceil(sqrt(ceil(N/capacity)))} vertical slices, then each slice
+     * is sorted by the y ordinate of the items center and split into groups of {@code capacity}
+     * items. Items with no bounds are sorted last.
+     * <p>
+     * {@code tieBreaker} makes the result independent of the order of the input items for equal
+     * centers.
+     */
+    static <T> List<List<T>> strPartition(List<T> items, Function<T, Envelope> boundsFunction,
+            Comparator<? super T> tieBreaker, final int capacity) {
+
+        final int size = items.size();
+        final int groupCount = (size + capacity - 1) / capacity;
+        final int sliceCount = (int) Math.ceil(Math.sqrt(groupCount));
+        final int sliceSize = sliceCount * capacity;
+
+        Comparator<T> byX = Comparator.<T> comparingDouble(t -> centre(boundsFunction.apply(t), 0))
+                .thenComparing(tieBreaker);
+        Comparator<T> byY = Comparator.<T> comparingDouble(t -> centre(boundsFunction.apply(t), 1))
+                .thenComparing(tieBreaker);
+
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(byX);
+
+        List<List<T>> groups = new ArrayList<>(groupCount);
+        for (List<T> slice : Lists.partition(sorted, sliceSize)) {
+            List<T> sortedSlice = new ArrayList<>(slice);
+            sortedSlice.sort(byY);
+            groups.addAll(Lists.partition(sortedSlice, capacity));
+        }
+        return groups;
+    }
+
+    private static double centre(@Nullable Envelope bounds, int ordinate) {
+        if (bounds == null || bounds.isNull()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return ordinate == 0 ? (bounds.getMinX() + bounds.getMaxX()) / 2d
+                : (bounds.getMinY() + bounds.getMaxY()) / 2d;
+    }
+}
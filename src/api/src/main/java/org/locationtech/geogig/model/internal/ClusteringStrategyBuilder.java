@@ -14,6 +14,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Objects;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeOrdering;
 import org.locationtech.geogig.model.RevObjects;
@@ -85,6 +86,10 @@ public abstract class ClusteringStrategyBuilder {
         return QuadTreeClusteringStrategyBuilder.buildNodeOrdering(maxBounds);
     }
 
+    public static NodeOrdering quadTreeOrdering(Envelope maxBounds, int maxDepth) {
+        return QuadTreeClusteringStrategyBuilder.buildNodeOrdering(maxBounds, maxDepth);
+    }
+
     public static class CanonicalClusteringStrategyBuilder extends ClusteringStrategyBuilder {
 
         CanonicalClusteringStrategyBuilder(ObjectStore treeStore) {
@@ -108,6 +113,8 @@ public abstract class ClusteringStrategyBuilder {
 
         private int maxDepth = -1;
 
+        private int[] levelCapacities;
+
         /**
          * Absolute max depth, to set a hard limit for when too many nodes fall on the same bucket
          * indefinitely or almost indefinitely.
@@ -141,25 +148,38 @@ public abstract class ClusteringStrategyBuilder {
         }
 
         public static NodeOrdering buildNodeOrdering(@NonNull Envelope maxBounds) {
+            return buildNodeOrdering(maxBounds, -1);
+        }
+
+        /**
+         * @param maxDepth the quad-tree max depth, or a negative value to compute it out of the
+         *        max bounds precision
+         */
+        public static NodeOrdering buildNodeOrdering(@NonNull Envelope maxBounds, int maxDepth) {
             Envelope preciseBounds = RevObjects.makePrecise(maxBounds);
-            int maxDepth = Quadrant.findMaxDepth(preciseBounds,
-                    QuadTreeClusteringStrategyBuilder.ABSOLUTE_MAX_DEPTH);
+            int depth = resolveMaxDepth(preciseBounds, maxDepth);
             return new QuadTreeClusteringStrategy(RevTree.EMPTY, new HeapDAGStorageProvider(null),
-                    preciseBounds, maxDepth);
+                    preciseBounds, depth);
+        }
+
+        /**
+         * @return {@code requestedMaxDepth} if it's not negative, otherwise the max depth allowed
+         *         by the float32 precision of {@code preciseBounds}
+         */
+        static int resolveMaxDepth(Envelope preciseBounds, int requestedMaxDepth) {
+            if (requestedMaxDepth > -1) {
+                return requestedMaxDepth;
+            }
+            return Quadrant.findMaxDepth(preciseBounds,
+                    QuadTreeClusteringStrategyBuilder.ABSOLUTE_MAX_DEPTH);
         }
 
         protected @Override ClusteringStrategy buildInternal(DAGStorageProvider dagStoreProvider) {
             checkState(maxBounds != null, "QuadTree max bounds was not set");
             Envelope preciseBounds = RevObjects.makePrecise(maxBounds);
-            int maxDepth;
-            if (this.maxDepth > -1) {
-                maxDepth = this.maxDepth;
-            } else {
-                maxDepth = Quadrant.findMaxDepth(preciseBounds,
-                        QuadTreeClusteringStrategyBuilder.ABSOLUTE_MAX_DEPTH);
-            }
+            int maxDepth = resolveMaxDepth(preciseBounds, this.maxDepth);
             return new QuadTreeClusteringStrategy(original, dagStoreProvider, preciseBounds,
-                    maxDepth);
+                    maxDepth, levelCapacities);
         }
 
         public QuadTreeClusteringStrategyBuilder maxBounds(@NonNull Envelope maxBounds) {
@@ -168,10 +188,27 @@ public abstract class ClusteringStrategyBuilder {
             return this;
         }
 
-        @VisibleForTesting
+        /**
+         * @param maxDepth the quad-tree max depth, or a negative value to compute it out of the
+         *        max bounds precision
+         */
         public QuadTreeClusteringStrategyBuilder maxDepth(int maxDepth) {
             this.maxDepth = maxDepth;
             return this;
         }
+
+        /**
+         * @param levelCapacities the per depth leaf capacity, or {@code null} to use the default
+         *        fixed capacity
+         */
+        public QuadTreeClusteringStrategyBuilder levelCapacities(@Nullable int[] levelCapacities) {
+            if (levelCapacities != null) {
+                for (int c : levelCapacities) {
+                    checkArgument(c > 0, "level capacities must be positive: %s", c);
+                }
+            }
+            this.levelCapacities = levelCapacities == null ? null : levelCapacities.clone();
+            return this;
+        }
     }
 }
@@ -77,6 +77,12 @@ final class QuadTreeClusteringStrategy extends ClusteringStrategy {
 
     private final int maxDepth;
 
+    /**
+     * Optional per depth leaf capacity, if {@code null} {@link #normalizedSizeLimit()} is used for
+     * all depths
+     */
+    private final @Nullable int[] levelCapacities;
+
     /**
      * Enable/disable the experimental feature to collapse and expand DAGs
      */
@@ -84,9 +90,15 @@ final class QuadTreeClusteringStrategy extends ClusteringStrategy {
 
     QuadTreeClusteringStrategy(RevTree original, DAGStorageProvider storageProvider,
             Envelope maxBounds, int maxDepth) {
+        this(original, storageProvider, maxBounds, maxDepth, null);
+    }
+
+    QuadTreeClusteringStrategy(RevTree original, DAGStorageProvider storageProvider,
+            Envelope maxBounds, int maxDepth, @Nullable int[] levelCapacities) {
         super(original, storageProvider);
         this.maxBounds = maxBounds;
         this.maxDepth = maxDepth;
+        this.levelCapacities = levelCapacities == null ? null : levelCapacities.clone();
     }
 
     public Envelope getMaxBounds() {
@@ -218,7 +230,7 @@ final class QuadTreeClusteringStrategy extends ClusteringStrategy {
                 // already know we're inside a canonical (unpromotables) tree
                 normalizedSizeLimit = 512;
             } else {
-                normalizedSizeLimit = normalizedSizeLimit();
+                normalizedSizeLimit = normalizedSizeLimit(rootId.depthLength());
                 // it may be a quad wit sub-quads instead of an unpromotables tree
                 boolean isValidQuad = originalTree.bucketsSize() > 0;
                 for (Quadrant q : Quadrant.VALUES) {
@@ -267,7 +279,7 @@ final class QuadTreeClusteringStrategy extends ClusteringStrategy {
             targetId = dagId;
         } else {
             targetId = TreeId.valueOf(quadrantsByDepth);
-            boolean overflown = size > normalizedSizeLimit();
+            boolean overflown = size > normalizedSizeLimit(targetId.depthLength());
             if (overflown) {
                 int unpromotableBucketIndex = unpromotableBucketIndex();
                 if (targetId.leafBucket() != unpromotableBucketIndex) {
@@ -320,10 +332,16 @@ final class QuadTreeClusteringStrategy extends ClusteringStrategy {
     }
 
     /**
-     * @see #normalizedSizeLimit()
+     * @return the leaf capacity for the given depth if the strategy was created with per level
+     *         capacities (i.e. an adaptive quad-tree), or {@link #normalizedSizeLimit()} otherwise.
+     *         Depths deeper than the last configured level use the last level's capacity.
      */
     public @Override int normalizedSizeLimit(final int depthIndex) {
-        return normalizedSizeLimit();
+        final int[] capacities = this.levelCapacities;
+        if (capacities == null || capacities.length == 0) {
+            return normalizedSizeLimit();
+        }
+        return capacities[Math.min(depthIndex, capacities.length - 1)];
     }
 
     protected @Override Comparator<NodeId> getNodeOrdering() {
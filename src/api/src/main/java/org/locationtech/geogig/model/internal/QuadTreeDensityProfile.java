@@ -0,0 +1,273 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import lombok.NonNull;
+
+/**
+ * Collects a per depth histogram of how many features fall on each quadrant of a quad-tree, in
+ * order to compute the structural parameters of an adaptive quad-tree (max bounds, max depth, and
+ * per level leaf capacity) that better suit the data distribution than the fixed defaults.
+ * <p>
+ * Quadrants are identified at each depth by the path of bucket numbers from the root, packed two
+ * bits per level on a {@code long}, hence the sampling depth is limited to {@link #MAX_SAMPLE_DEPTH}.
+ * <p>
+ * Instances are thread safe, so they can be fed from a parallel tree walk.
+ */
+public final class QuadTreeDensityProfile {
+
+    /**
+     * Max depth at which quadrant counts are collected
+     */
+    public static final int MAX_SAMPLE_DEPTH = 16;
+
+    /**
+     * Default leaf capacity, matches {@link QuadTreeClusteringStrategy#normalizedSizeLimit()}
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    /**
+     * Upper limit for the capacity of a leaf tree at any depth
+     */
+    public static final int MAX_CAPACITY = 1024;
+
+    private final Envelope maxBounds;
+
+    private final int sampleDepth;
+
+    /**
+     * Per depth quadrant counts, at index {@code N} the counts for depth index {@code N}
+     */
+    private final Map<Long, int[]>[] quadCounts;
+
+    private final Envelope dataBounds = new Envelope();
+
+    private long size;
+
+    @SuppressWarnings("unchecked")
+    public QuadTreeDensityProfile(@NonNull Envelope maxBounds, int sampleDepth) {
+        checkArgument(!maxBounds.isNull(), "maxBounds is not initialized");
+        checkArgument(sampleDepth > 0 && sampleDepth <= MAX_SAMPLE_DEPTH,
+                "sample depth must be between 1 and %s: %s", MAX_SAMPLE_DEPTH, sampleDepth);
+        this.maxBounds = RevObjects.makePrecise(maxBounds);
+        this.sampleDepth = sampleDepth;
+        this.quadCounts = new Map[sampleDepth];
+        for (int d = 0; d < sampleDepth; d++) {
+            quadCounts[d] = new HashMap<>();
+        }
+    }
+
+    /**
+     * Computes the sample depth to use for a quad-tree of the given max bounds, as the lower of
+     * {@link #MAX_SAMPLE_DEPTH} and the depth allowed by the float32 precision of the bounds.
+     */
+    public static int defaultSampleDepth(@NonNull Envelope maxBounds) {
+        return Math.max(1, Math.min(MAX_SAMPLE_DEPTH, precisionMaxDepth(maxBounds)));
+    }
+
+    /**
+     * @return the max depth a quad-tree with the given max bounds can have given the float32
+     *         precision of node bounds
+     */
+    public static int precisionMaxDepth(@NonNull Envelope maxBounds) {
+        Envelope precise = RevObjects.makePrecise(maxBounds);
+        return Quadrant.findMaxDepth(precise,
+                ClusteringStrategyBuilder.QuadTreeClusteringStrategyBuilder.ABSOLUTE_MAX_DEPTH);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getSampleDepth() {
+        return sampleDepth;
+    }
+
+    /**
+     * Adds the bounds of a feature to the profile, null or empty bounds are ignored, as they're
+     * not added to a quad-tree either.
+     */
+    public synchronized void add(@Nullable Envelope bounds) {
+        if (bounds == null || bounds.isNull()) {
+            return;
+        }
+        size++;
+        dataBounds.expandToInclude(bounds);
+
+        final Envelope parent = new Envelope(this.maxBounds);
+        final Envelope quad = new Envelope();
+        long path = 0L;
+        for (int depthIndex = 0; depthIndex < sampleDepth; depthIndex++) {
+            Quadrant match = null;
+            for (Quadrant q : Quadrant.VALUES) {
+                q.slice(parent, quad);
+                if (quad.contains(bounds)) {
+                    match = q;
+                    break;
+                }
+            }
+            if (match == null) {
+                // unpromotable from this depth on
+                break;
+            }
+            path = (path << 2) | match.getBucketNumber();
+            quadCounts[depthIndex].computeIfAbsent(Long.valueOf(path), k -> new int[1])[0]++;
+            parent.init(quad);
+        }
+    }
+
+    /**
+     * @return the bounds of all the features added so far, or a null envelope if none has been
+     *         added
+     */
+    public synchronized Envelope getDataBounds() {
+        return new Envelope(dataBounds);
+    }
+
+    /**
+     * @return the number of non empty quadrants at the given depth index
+     */
+    public synchronized int occupiedQuadrants(int depthIndex) {
+        checkDepth(depthIndex);
+        return quadCounts[depthIndex].size();
+    }
+
+    /**
+     * @return the number of features that fit on a single quadrant at the given depth index
+     */
+    public synchronized long promotableSize(int depthIndex) {
+        checkDepth(depthIndex);
+        long count = 0;
+        for (int[] c : quadCounts[depthIndex].values()) {
+            count += c[0];
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of features in the most populated quadrant at the given depth index
+     */
+    public synchronized int maxQuadrantSize(int depthIndex) {
+        checkDepth(depthIndex);
+        int max = 0;
+        for (int[] c : quadCounts[depthIndex].values()) {
+            max = Math.max(max, c[0]);
+        }
+        return max;
+    }
+
+    private void checkDepth(int depthIndex) {
+        checkArgument(depthIndex >= 0 && depthIndex < sampleDepth,
+                "depth index shall be between 0 and %s: %s", sampleDepth - 1, depthIndex);
+    }
+
+    /**
+     * Computes the max depth of the quad-tree out of the data density: the depth at which the
+     * most populated quadrant fits in a leaf tree of {@code capacity} nodes, plus one level of
+     * slack for the data to grow, and never deeper than {@code precisionMaxDepth}.
+     * <p>
+     * If even the most populated quadrant at the sample depth overflows, returns
+     * {@code precisionMaxDepth}, the data is too dense to be resolved by sampling.
+     */
+    public synchronized int computeMaxDepth(final int capacity, final int precisionMaxDepth) {
+        for (int d = 0; d < sampleDepth; d++) {
+            if (maxQuadrantSize(d) <= capacity) {
+                int depth = d + 2;
+                return Math.max(1, Math.min(depth, precisionMaxDepth));
+            }
+        }
+        return precisionMaxDepth;
+    }
+
+    /**
+     * Computes the leaf capacity for each depth of a quad-tree of the given max depth.
+     * <p>
+     * The capacity at depth {@code N} is derived from the mean occupancy of the non empty
+     * quadrants at depth {@code N+1}. Splitting a full leaf of {@code baseCapacity} nodes evenly
+     * results in four children with {@code baseCapacity/4} nodes each. Where the data is sparser
+     * than that, splitting produces nearly empty trees and long single-bucket paths, so the
+     * capacity is raised proportionally (up to {@link #MAX_CAPACITY}) to keep those nodes on a
+     * shallower leaf. Dense levels keep {@code baseCapacity}, letting them split as usual.
+     *
+     * @return an array of {@code maxDepth + 1} capacities, one per depth
+     */
+    public synchronized int[] computeLevelCapacities(final int baseCapacity, final int maxDepth) {
+        checkArgument(baseCapacity > 0);
+        checkArgument(maxDepth > 0);
+        final int[] capacities = new int[maxDepth + 1];
+        final double balancedOccupancy = baseCapacity / 4d;
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            // the children quadrants of a tree at depth N are at depth index N
+            final int childDepthIndex = depth;
+            int capacity = baseCapacity;
+            if (childDepthIndex < sampleDepth) {
+                int occupied = occupiedQuadrants(childDepthIndex);
+                if (occupied > 0) {
+                    double meanOccupancy = (double) promotableSize(childDepthIndex) / occupied;
+                    capacity = capacity(baseCapacity, balancedOccupancy, meanOccupancy);
+                }
+            } else if (depth > 0) {
+                capacity = capacities[depth - 1];
+            }
+            capacities[depth] = capacity;
+        }
+        return capacities;
+    }
+
+    @VisibleForTesting
+    static int capacity(int baseCapacity, double balancedOccupancy, double meanOccupancy) {
+        if (meanOccupancy >= balancedOccupancy) {
+            return baseCapacity;
+        }
+        double factor = balancedOccupancy / Math.max(1d, meanOccupancy);
+        long capacity = Math.round(baseCapacity * factor);
+        return (int) Math.min(MAX_CAPACITY, capacity);
+    }
+
+    /**
+     * Computes the quad-tree max bounds out of the data bounds, so that the first split points
+     * follow the data extent rather than the CRS area of validity. The data bounds are expanded by
+     * {@code growFactor} of their width and height on each side to make room for the data to
+     * grow, and clipped to {@code crsBounds}.
+     *
+     * @return the adaptive max bounds, or {@code crsBounds} if {@code dataBounds} is null or empty
+     */
+    public static Envelope computeMaxBounds(@Nullable Envelope dataBounds,
+            @NonNull Envelope crsBounds, double growFactor) {
+        if (dataBounds == null || dataBounds.isNull()) {
+            return new Envelope(crsBounds);
+        }
+        Envelope bounds = new Envelope(dataBounds);
+        double dx = Math.max(bounds.getWidth() * growFactor, 1e-6);
+        double dy = Math.max(bounds.getHeight() * growFactor, 1e-6);
+        bounds.expandBy(dx, dy);
+        Envelope clipped = bounds.intersection(crsBounds);
+        if (clipped.isNull()) {
+            return new Envelope(crsBounds);
+        }
+        Envelope rounded = new Envelope(//
+                Math.floor(clipped.getMinX()), //
+                Math.ceil(clipped.getMaxX()), //
+                Math.floor(clipped.getMinY()), //
+                Math.ceil(clipped.getMaxY()));
+        return rounded.intersection(crsBounds);
+    }
+}
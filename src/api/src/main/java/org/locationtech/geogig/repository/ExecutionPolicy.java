@@ -0,0 +1,343 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.storage.ConfigDatabase;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Defines how the parallel parts of the operations that traverse or build trees (like diffs, tree
+ * builds, and packing objects to send to a remote) are executed.
+ * <p>
+ * A policy owns a fixed number of threads ({@code poolSize}), split in "lanes" of
+ * {@code operationParallelism} threads each. Each operation runs entirely in a single lane, hence
+ * it can't use more than {@code operationParallelism} threads, and operations are assigned to the
+ * lane with the least running operations. So with a pool of 16 threads and an operation
+ * parallelism of 4, a large diff takes at most 4 threads while up to 3 other operations run
+ * unaffected in the other lanes. By default both are the number of available processors, meaning
+ * a single lane shared by all operations.
+ * <p>
+ * Nested operations (i.e. started from a task already running in one of the policy's lanes) run
+ * in the same lane as the outer one.
+ * <p>
+ * An {@code ioBound} policy is meant for object stores where threads mostly wait on I/O (e.g.
+ * network databases), and multiplies the number of threads of each lane by
+ * {@link #IO_BOUND_FACTOR}. It also provides an {@link #ioExecutor() executor} for blocking
+ * producer tasks that run alongside an operation, which creates threads on demand.
+ * <p>
+ * The {@link #defaultPolicy() default policy} is used unless an operation is given a specific one,
+ * and is configured through the following System properties:
+ * <ul>
+ * <li>{@code geogig.executor.poolSize}: total number of threads, defaults to the number of
+ * available processors, with a minimum of 2.
+ * <li>{@code geogig.executor.operationParallelism}: max number of threads per operation, defaults
+ * to {@code poolSize}.
+ * <li>{@code geogig.executor.ioBound}: whether the policy is {@code ioBound}, defaults to
+ * {@code false}.
+ * </ul>
+ * Applications can also {@link #setDefault replace} it, for example a server could do so with a
+ * policy that has a lower {@code operationParallelism} so that a large request doesn't take all
+ * the threads while many small ones wait behind it.
+ * <p>
+ * A repository can override those settings through the {@code executor.poolSize},
+ * {@code executor.operationParallelism}, and {@code executor.ioBound} config keys, in which case
+ * its operations run with the policy {@link #of(ConfigDatabase) resolved} from its config. This
+ * allows, for instance, to give a repository backed by a network database an {@code ioBound}
+ * policy while the ones in local storage keep using the default one. Repositories configured
+ * with the same settings share the same policy.
+ */
+public @Slf4j final class ExecutionPolicy {
+
+    /**
+     * Factor the number of threads of each lane is multiplied by in {@code ioBound} policies
+     */
+    public static final int IO_BOUND_FACTOR = 4;
+
+    public static final String POOL_SIZE_KEY = "executor.poolSize";
+
+    public static final String OPERATION_PARALLELISM_KEY = "executor.operationParallelism";
+
+    public static final String IO_BOUND_KEY = "executor.ioBound";
+
+    private static volatile ExecutionPolicy defaultPolicy;
+
+    /**
+     * Policies created out of repository config settings, by name, which is given by the settings
+     */
+    private static final Map<String, ExecutionPolicy> CONFIGURED = new ConcurrentHashMap<>();
+
+    /**
+     * Resolved policy by repository config, expiring so that config changes are eventually picked
+     * up without reading the config, which may live in a remote database, for every operation
+     */
+    private static final LoadingCache<ConfigDatabase, ExecutionPolicy> BY_CONFIG = CacheBuilder
+            .newBuilder()//
+            .weakKeys()//
+            .expireAfterWrite(30, TimeUnit.SECONDS)//
+            .build(CacheLoader.from(ExecutionPolicy::resolve));
+
+    private final String name;
+
+    private final int poolSize;
+
+    private final int operationParallelism;
+
+    private final boolean ioBound;
+
+    private final ForkJoinPool[] lanes;
+
+    private final AtomicInteger[] runningOperations;
+
+    private final AtomicInteger nextLane = new AtomicInteger();
+
+    private final ExecutorService ioExecutor;
+
+    private ExecutionPolicy(String name, int poolSize, int operationParallelism,
+            boolean ioBound) {
+        this.name = name;
+        this.poolSize = poolSize;
+        this.operationParallelism = operationParallelism;
+        this.ioBound = ioBound;
+
+        final int numLanes = Math.max(1, poolSize / operationParallelism);
+        final int laneParallelism = ioBound ? operationParallelism * IO_BOUND_FACTOR
+                : operationParallelism;
+        final UncaughtExceptionHandler eh = (t, e) -> log
+                .error("Uncaught ForkJoinPool exception at thread " + t.getName(), e);
+
+        this.lanes = new ForkJoinPool[numLanes];
+        this.runningOperations = new AtomicInteger[numLanes];
+        for (int i = 0; i < numLanes; i++) {
+            final String threadPrefix = String.format("%s-%d-", name, i);
+            ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+                final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                        .newThread(pool);
+                worker.setName(threadPrefix + worker.getPoolIndex());
+                return worker;
+            };
+            // default LIFO mode, tree builds and diff walks fork and join recursive tasks
+            lanes[i] = new ForkJoinPool(laneParallelism, threadFactory, eh, false);
+            runningOperations[i] = new AtomicInteger();
+        }
+        this.ioExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat(name + "-io-%d").build());
+    }
+
+    /**
+     * Creates a new execution policy
+     *
+     * @param name the policy name, used as prefix for the thread names
+     * @param poolSize the total number of threads, excluding the ones of the {@link #ioExecutor()}
+     * @param operationParallelism the max number of threads a single operation can use, at most
+     *        {@code poolSize}
+     * @param ioBound whether the operations executed with this policy are mostly I/O bound
+     */
+    public static ExecutionPolicy create(@NonNull String name, int poolSize,
+            int operationParallelism, boolean ioBound) {
+        checkArgument(poolSize > 0, "poolSize must be > 0");
+        checkArgument(operationParallelism > 0 && operationParallelism <= poolSize,
+                "operationParallelism must be > 0 and <= poolSize");
+        return new ExecutionPolicy(name, poolSize, operationParallelism, ioBound);
+    }
+
+    /**
+     * @return the policy used by operations that weren't given a specific one
+     */
+    public static ExecutionPolicy defaultPolicy() {
+        ExecutionPolicy policy = defaultPolicy;
+        if (policy == null) {
+            synchronized (ExecutionPolicy.class) {
+                policy = defaultPolicy;
+                if (policy == null) {
+                    int poolSize = Integer.getInteger("geogig.executor.poolSize",
+                            Math.max(2, Runtime.getRuntime().availableProcessors()));
+                    int operationParallelism = Integer
+                            .getInteger("geogig.executor.operationParallelism", poolSize);
+                    boolean ioBound = Boolean.getBoolean("geogig.executor.ioBound");
+                    policy = create("geogig-shared", poolSize,
+                            Math.min(poolSize, operationParallelism), ioBound);
+                    defaultPolicy = policy;
+                }
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Returns the policy for the repository the given config belongs to, which is the
+     * {@link #defaultPolicy() default policy} unless the repository config overrides any of its
+     * settings. Settings not present in the repository config are taken from the default policy,
+     * except {@code operationParallelism} which defaults to {@code poolSize} if the latter is set.
+     * <p>
+     * Changes to the config settings are picked up within 30 seconds.
+     *
+     * @throws IllegalArgumentException if the config settings are invalid
+     */
+    public static ExecutionPolicy of(@Nullable ConfigDatabase config) {
+        if (config == null) {
+            return defaultPolicy();
+        }
+        try {
+            return BY_CONFIG.getUnchecked(config);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * @return the policy for the context's repository
+     * @see #of(ConfigDatabase)
+     */
+    public static ExecutionPolicy of(@NonNull Context context) {
+        return of(context.configDatabase());
+    }
+
+    private static ExecutionPolicy resolve(ConfigDatabase config) {
+        final ExecutionPolicy defaults = defaultPolicy();
+        final Optional<Integer> poolSize = config.get(POOL_SIZE_KEY, Integer.class);
+        final Optional<Integer> parallelism = config.get(OPERATION_PARALLELISM_KEY,
+                Integer.class);
+        final Optional<Boolean> ioBound = config.get(IO_BOUND_KEY, Boolean.class);
+
+        final int size = poolSize.orElse(defaults.poolSize);
+        final int operationParallelism = parallelism.orElse(
+                poolSize.isPresent() ? size : Math.min(size, defaults.operationParallelism));
+        final boolean io = ioBound.orElse(defaults.ioBound);
+        if (size == defaults.poolSize && operationParallelism == defaults.operationParallelism
+                && io == defaults.ioBound) {
+            return defaults;
+        }
+        checkArgument(size > 0, "%s must be > 0", POOL_SIZE_KEY);
+        checkArgument(operationParallelism > 0 && operationParallelism <= size,
+                "%s must be > 0 and <= %s", OPERATION_PARALLELISM_KEY, POOL_SIZE_KEY);
+        final String name = String.format("geogig-%dx%d%s", size, operationParallelism,
+                io ? "-io" : "");
+        return CONFIGURED.computeIfAbsent(name,
+                n -> create(n, size, operationParallelism, io));
+    }
+
+    /**
+     * Replaces the default policy. Operations already running with the previous default policy
+     * keep running on it, it's up to the caller to {@link #shutdown()} it if no longer needed.
+     *
+     * @return the previous default policy
+     */
+    public static ExecutionPolicy setDefault(@NonNull ExecutionPolicy policy) {
+        ExecutionPolicy previous = defaultPolicy();
+        defaultPolicy = policy;
+        return previous;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getOperationParallelism() {
+        return operationParallelism;
+    }
+
+    public boolean isIoBound() {
+        return ioBound;
+    }
+
+    /**
+     * Runs the given task, which is the root task of an operation, in the lane with the least
+     * running operations, or in the calling thread's lane if already running in one of this
+     * policy's lanes, and returns its result upon completion.
+     */
+    public <T> T invoke(@NonNull ForkJoinTask<T> task) {
+        final ForkJoinPool current = ForkJoinTask.getPool();
+        for (ForkJoinPool lane : lanes) {
+            if (lane == current) {
+                return task.invoke();
+            }
+        }
+        final int lane = leastBusyLane();
+        runningOperations[lane].incrementAndGet();
+        try {
+            return lanes[lane].invoke(task);
+        } finally {
+            runningOperations[lane].decrementAndGet();
+        }
+    }
+
+    private int leastBusyLane() {
+        final int numLanes = lanes.length;
+        if (numLanes == 1) {
+            return 0;
+        }
+        // start at a different lane each time to spread operations among equally busy lanes
+        final int start = Math.floorMod(nextLane.getAndIncrement(), numLanes);
+        int lane = start;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < numLanes; i++) {
+            int candidate = (start + i) % numLanes;
+            int running = runningOperations[candidate].get();
+            if (running < min) {
+                min = running;
+                lane = candidate;
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * @return an executor for tasks that run alongside an operation and spend most of their time
+     *         blocked, like producers feeding a queue or prefetching objects, which creates daemon
+     *         threads on demand and reuses idle ones
+     */
+    public ExecutorService ioExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Shuts down the policy's threads, once all running tasks are finished
+     */
+    public void shutdown() {
+        for (ForkJoinPool lane : lanes) {
+            lane.shutdown();
+        }
+        ioExecutor.shutdown();
+    }
+
+    public @Override String toString() {
+        return String.format("%s[poolSize: %d, operationParallelism: %d, ioBound: %s]", name,
+                poolSize, operationParallelism, ioBound);
+    }
+}
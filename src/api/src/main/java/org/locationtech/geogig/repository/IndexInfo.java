@@ -31,7 +31,7 @@ import lombok.ToString;
 
 public @ToString final class IndexInfo {
     public static enum IndexType {
-        QUADTREE
+        QUADTREE, RTREE, ATTRIBUTE, TEMPORAL
     }
 
     /**
@@ -40,6 +40,59 @@ public @ToString final class IndexInfo {
      */
     public static final String MD_QUAD_MAX_BOUNDS = "QUAD_MAX_BOUNDS";
 
+    /**
+     * Key by which a quad-tree index built in adaptive mode flags so in its {@link #getMetadata()
+     * metadata}, as a {@link Boolean}. Adaptive indexes get their {@link #MD_QUAD_MAX_BOUNDS max
+     * bounds}, {@link #MD_QUAD_MAX_DEPTH max depth}, and {@link #MD_QUAD_LEVEL_CAPACITY per level
+     * capacity} computed out of the indexed data density, and recomputed whenever the index is
+     * fully rebuilt.
+     */
+    public static final String MD_QUAD_ADAPTIVE = "QUAD_ADAPTIVE";
+
+    /**
+     * Key by which the quad-tree max depth is stored in the index {@link #getMetadata() metadata}
+     * as an {@link Integer}. If not present, the max depth is computed out of the
+     * {@link #MD_QUAD_MAX_BOUNDS max bounds} precision.
+     */
+    public static final String MD_QUAD_MAX_DEPTH = "QUAD_MAX_DEPTH";
+
+    /**
+     * Key by which the upper limit for the {@link #MD_QUAD_MAX_BOUNDS max bounds} of an
+     * {@link #MD_QUAD_ADAPTIVE adaptive} quad-tree (the bounds given by the user, or the area of
+     * validity of the layer's CRS) is stored in the index {@link #getMetadata() metadata} as an
+     * {@link Envelope}, since the max bounds themselves are tightened to the data. If not present,
+     * the limit is the CRS area of validity.
+     */
+    public static final String MD_QUAD_BOUNDS_LIMIT = "QUAD_BOUNDS_LIMIT";
+
+    /**
+     * Key by which the quad-tree per level leaf capacity is stored in the index
+     * {@link #getMetadata() metadata} as an {@code int[]}, where the value at index {@code N} is
+     * the maximum number of features a tree at depth {@code N} holds before being split into
+     * quadrants. If not present, the quad-tree uses a fixed capacity for all levels.
+     */
+    public static final String MD_QUAD_LEVEL_CAPACITY = "QUAD_LEVEL_CAPACITY";
+
+    /**
+     * Key by which the R-tree, attribute, and temporal index max number of features per leaf tree
+     * is stored in the index {@link #getMetadata() metadata} as an {@link Integer}.
+     */
+    public static final String MD_RTREE_LEAF_CAPACITY = "RTREE_LEAF_CAPACITY";
+
+    /**
+     * Key by which the R-tree, attribute, and temporal index max number of buckets per bucket tree
+     * is stored in the index {@link #getMetadata() metadata} as an {@link Integer}.
+     */
+    public static final String MD_RTREE_FANOUT = "RTREE_FANOUT";
+
+    /**
+     * Key by which a temporal index stores the name of the attribute holding the end of the
+     * features validity period in the index {@link #getMetadata() metadata}, as a {@link String}.
+     * The {@link #getAttributeName() index attribute} holds the start of the period. If not
+     * present, the features validity is the time instant given by the index attribute.
+     */
+    public static final String MD_TEMPORAL_END_ATTRIBUTE = "TEMPORAL_END_ATTRIBUTE";
+
     /**
      * Key by which the feature attribute values is stored on {@link Node#getExtraData()} for
      * materialized index {@link RevTree}s.
@@ -145,6 +198,16 @@ public @ToString final class IndexInfo {
         if (attNames != null) {
             availableAttNames = Sets.newHashSet(attNames);
         }
+        if (IndexType.ATTRIBUTE == info.getIndexType()
+                || IndexType.TEMPORAL == info.getIndexType()) {
+            // attribute index trees are sorted by the materialized indexed attribute value
+            availableAttNames = Sets.newHashSet(availableAttNames);
+            availableAttNames.add(info.getAttributeName());
+            final @Nullable String endAttribute = getEndAttributeName(info);
+            if (endAttribute != null) {
+                availableAttNames.add(endAttribute);
+            }
+        }
         return availableAttNames;
     }
 
@@ -165,4 +228,32 @@ public @ToString final class IndexInfo {
         Envelope maxBounds = (Envelope) info.getMetadata().get(IndexInfo.MD_QUAD_MAX_BOUNDS);
         return maxBounds;
     }
+
+    public static boolean isAdaptive(IndexInfo info) {
+        return Boolean.TRUE.equals(info.getMetadata().get(IndexInfo.MD_QUAD_ADAPTIVE));
+    }
+
+    public static @Nullable Integer getMaxDepth(IndexInfo info) {
+        Integer maxDepth = (Integer) info.getMetadata().get(IndexInfo.MD_QUAD_MAX_DEPTH);
+        return maxDepth;
+    }
+
+    public static @Nullable int[] getLevelCapacities(IndexInfo info) {
+        int[] capacities = (int[]) info.getMetadata().get(IndexInfo.MD_QUAD_LEVEL_CAPACITY);
+        return capacities;
+    }
+
+    public static @Nullable Integer getLeafCapacity(IndexInfo info) {
+        Integer capacity = (Integer) info.getMetadata().get(IndexInfo.MD_RTREE_LEAF_CAPACITY);
+        return capacity;
+    }
+
+    public static @Nullable Integer getFanout(IndexInfo info) {
+        Integer fanout = (Integer) info.getMetadata().get(IndexInfo.MD_RTREE_FANOUT);
+        return fanout;
+    }
+
+    public static @Nullable String getEndAttributeName(IndexInfo info) {
+        return (String) info.getMetadata().get(IndexInfo.MD_TEMPORAL_END_ATTRIBUTE);
+    }
 }
@@ -77,6 +77,9 @@ public interface ConflictsDatabase extends Store {
 
     /**
      * Adds the provided conflicts to the database for the given namespace.
+     * <p>
+     * {@code conflicts} may be arbitrarily large, implementations shall consume it as a stream and
+     * not hold all of its elements in memory at once.
      */
     public void addConflicts(@Nullable String namespace, Iterable<Conflict> conflicts);
 
@@ -18,6 +18,7 @@ import org.locationtech.geogig.cli.plumbing.RebuildGraph;
 import org.locationtech.geogig.cli.plumbing.RevList;
 import org.locationtech.geogig.cli.plumbing.RevParse;
 import org.locationtech.geogig.cli.plumbing.ShowRef;
+import org.locationtech.geogig.cli.plumbing.UpdateCommitGraph;
 import org.locationtech.geogig.cli.plumbing.VerifyPatch;
 import org.locationtech.geogig.cli.plumbing.WalkGraph;
 import org.locationtech.geogig.cli.porcelain.Add;
@@ -95,6 +96,7 @@ import picocli.CommandLine.Spec;
                 , Tag.class//
                 , WalkGraph.class//
                 , RebuildGraph.class//
+                , UpdateCommitGraph.class//
                 , IndexCommandProxy.class//
         }//
 )
@@ -0,0 +1,45 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.cli.plumbing;
+
+import java.io.IOException;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.plumbing.UpdateCommitGraphOp;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Updates the commit graph index with the history of all the refs, optionally computing the
+ * changed paths filters that speed up path limited log and blame, and the per feature history
+ * index.
+ * 
+ * @see UpdateCommitGraphOp
+ */
+@Command(name = "update-commit-graph", description = "Updates the commit graph index.")
+public class UpdateCommitGraph extends AbstractCommand implements CLICommand {
+
+    @Option(names = "--changed-paths", description = "Compute the changed paths filters of the commits that don't have one.")
+    private boolean changedPaths = false;
+
+    @Option(names = "--feature-history", description = "Build or update the per feature history index used by blame and path limited log.")
+    private boolean featureHistory = false;
+
+    public @Override void runInternal(GeogigCLI cli) throws IOException {
+        CommitGraphIndex index = cli.getGeogig().command(UpdateCommitGraphOp.class)
+                .setChangedPaths(changedPaths).setFeatureHistory(featureHistory)
+                .setProgressListener(cli.getProgressListener()).call();
+        cli.getConsole().println(index.size() + " commits indexed.");
+    }
+}
@@ -101,7 +101,7 @@ public class Diff extends AbstractCommand implements CLICommand {
         List<String> paths = removeEmptyPaths();
         if (bounds) {
             DiffBounds diff = geogig.command(DiffBounds.class).setOldVersion(oldVersion)
-                    .setNewVersion(newVersion).setCompareIndex(cached);
+                    .setNewVersion(newVersion).setCompareIndex(cached).setCacheResults(true);
             diff.setPathFilters(paths);
             DiffSummary<Envelope, Envelope> diffBounds = diff.call();
             BoundsDiffPrinter.print(geogig, cli.getConsole(), diffBounds);
@@ -115,7 +115,7 @@ public class Diff extends AbstractCommand implements CLICommand {
                 newVersion = cached ? Ref.STAGE_HEAD : Ref.WORK_HEAD;
             }
             DiffCount cdiff = geogig.command(DiffCount.class).setOldVersion(oldVersion)
-                    .setNewVersion(newVersion);
+                    .setNewVersion(newVersion).setCacheResults(true);
             cdiff.setFilter(paths);
             DiffObjectCount count = cdiff.call();
             Console console = cli.getConsole();
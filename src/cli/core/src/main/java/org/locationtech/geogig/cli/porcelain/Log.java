@@ -382,7 +382,7 @@ public class Log extends AbstractCommand implements CLICommand {
                         : ObjectId.NULL.toString();
                 String newSpec = commit.getId().toString();
                 DiffObjectCount diffCount = geogig.command(DiffCount.class).setOldVersion(oldSpec)
-                        .setNewVersion(newSpec).call();
+                        .setNewVersion(newSpec).setCacheResults(true).call();
 
                 long featuresAdded = diffCount.getFeaturesAdded();
                 long featuresChanged = diffCount.getFeaturesChanged();
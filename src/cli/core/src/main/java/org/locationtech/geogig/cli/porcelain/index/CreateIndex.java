@@ -18,8 +18,12 @@ import org.locationtech.geogig.cli.CommandFailedException;
 import org.locationtech.geogig.cli.GeogigCLI;
 import org.locationtech.geogig.cli.InvalidParameterException;
 import org.locationtech.geogig.cli.annotation.RequiresRepository;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
+import org.locationtech.geogig.porcelain.index.CreateRTree;
+import org.locationtech.geogig.porcelain.index.CreateTemporalIndex;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.jts.geom.Envelope;
@@ -28,7 +32,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 @RequiresRepository(true)
-@Command(name = "create", aliases = "cr", description = "Creates a spatial index for the specified feature tree")
+@Command(name = "create", aliases = "cr", description = "Creates an index for the specified feature tree")
 public class CreateIndex extends AbstractCommand implements CLICommand {
 
     @Option(names = "--tree", required = true, description = "Name or path of the feature tree to create the index for.")
@@ -48,6 +52,15 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
     @Option(names = "--bounds", description = "If specified, the max bounds of the spatial index will be set to this parameter. <minx,miny,maxx,maxy>")
     private String bbox;
 
+    @Option(names = "--adaptive", description = "If specified, the max bounds, max depth, and per level node capacity of the quad-tree are computed out of the data density.")
+    private boolean adaptive;
+
+    @Option(names = "--type", description = "Type of index to create, either QUADTREE (default), RTREE, ATTRIBUTE, or TEMPORAL. RTREE indexes are STR packed and need no max bounds. ATTRIBUTE indexes sort features by the value of the non geometry attribute given by --attribute. TEMPORAL indexes sort features by the date/time attribute given by --attribute, optionally with --end-attribute as the end of their validity period.")
+    private IndexType indexType = IndexType.QUADTREE;
+
+    @Option(names = "--end-attribute", description = "Date/time attribute holding the end of the features validity period, only applies to TEMPORAL indexes.")
+    private String endAttribute;
+
     protected @Override void runInternal(GeogigCLI cli)
             throws InvalidParameterException, CommandFailedException, IOException {
 
@@ -55,16 +68,67 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
 
         Envelope envelope = SpatialOps.parseNonReferencedBBOX(bbox);
 
+        if (endAttribute != null && IndexType.TEMPORAL != indexType) {
+            throw new InvalidParameterException("--end-attribute only applies to TEMPORAL indexes");
+        }
         Index index;
         try {
-            index = repo.command(CreateQuadTree.class)//
-                    .setTreeRefSpec(treeRefSpec)//
-                    .setGeometryAttributeName(attribute)//
-                    .setExtraAttributes(extraAttributes)//
-                    .setIndexHistory(indexHistory)//
-                    .setBounds(envelope)//
-                    .setProgressListener(cli.getProgressListener())//
-                    .call();
+            if (IndexType.TEMPORAL == indexType) {
+                if (envelope != null || adaptive) {
+                    throw new InvalidParameterException(
+                            "--bounds and --adaptive only apply to QUADTREE indexes");
+                }
+                if (attribute == null) {
+                    throw new InvalidParameterException(
+                            "--attribute is mandatory for TEMPORAL indexes");
+                }
+                index = repo.command(CreateTemporalIndex.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setAttributeName(attribute)//
+                        .setEndAttributeName(endAttribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            } else if (IndexType.ATTRIBUTE == indexType) {
+                if (envelope != null || adaptive) {
+                    throw new InvalidParameterException(
+                            "--bounds and --adaptive only apply to QUADTREE indexes");
+                }
+                if (attribute == null) {
+                    throw new InvalidParameterException(
+                            "--attribute is mandatory for ATTRIBUTE indexes");
+                }
+                index = repo.command(CreateAttributeIndex.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setAttributeName(attribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            } else if (IndexType.RTREE == indexType) {
+                if (envelope != null || adaptive) {
+                    throw new InvalidParameterException(
+                            "--bounds and --adaptive only apply to QUADTREE indexes");
+                }
+                index = repo.command(CreateRTree.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setGeometryAttributeName(attribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            } else {
+                index = repo.command(CreateQuadTree.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setGeometryAttributeName(attribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setBounds(envelope)//
+                        .setAdaptive(adaptive)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            }
         } catch (IllegalStateException e) {
             throw new CommandFailedException(e.getMessage(), true);
         } catch (IllegalArgumentException e) {
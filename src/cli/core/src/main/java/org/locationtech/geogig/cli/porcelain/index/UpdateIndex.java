@@ -55,6 +55,9 @@ public class UpdateIndex extends AbstractCommand implements CLICommand {
     @Option(names = "--index-history", description = "If specified, indexes will be rebuilt for all commits in the history.")
     private boolean indexHistory = false;
 
+    @Option(names = "--adaptive", arity = "0..1", description = "Turns the adaptive quad-tree mode on or off. If not specified the index keeps its current mode.")
+    private Boolean adaptive;
+
     protected @Override void runInternal(GeogigCLI cli)
             throws InvalidParameterException, CommandFailedException, IOException {
 
@@ -64,16 +67,18 @@ public class UpdateIndex extends AbstractCommand implements CLICommand {
 
         Index index;
         try {
-            index = repo.command(UpdateIndexOp.class)//
+            UpdateIndexOp command = repo.command(UpdateIndexOp.class)//
                     .setTreeRefSpec(treeRefSpec)//
                     .setAttributeName(attribute)//
                     .setExtraAttributes(extraAttributes)//
                     .setOverwrite(overwrite)//
                     .setAdd(add)//
                     .setIndexHistory(indexHistory)//
-                    .setBounds(envelope)//
-                    .setProgressListener(cli.getProgressListener())//
-                    .call();
+                    .setBounds(envelope);
+            if (adaptive != null) {
+                command.setAdaptive(adaptive.booleanValue());
+            }
+            index = command.setProgressListener(cli.getProgressListener()).call();
         } catch (IllegalStateException e) {
             throw new CommandFailedException(e);
         } catch (IllegalArgumentException e) {
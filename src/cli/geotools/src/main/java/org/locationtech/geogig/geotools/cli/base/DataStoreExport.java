@@ -10,6 +10,7 @@
 package org.locationtech.geogig.geotools.cli.base;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -42,6 +43,7 @@ import org.locationtech.geogig.plumbing.ResolveObjectType;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.Repository;
 import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -149,10 +151,22 @@ public abstract class DataStoreExport extends AbstractCommand implements CLIComm
         }
 
         ExportOp op = cli.getGeogig().command(ExportOp.class).setFeatureStore(featureStore)
-                .setPath(sourceTreeIsh).setFilterFeatureTypeId(featureTypeId).setAlter(alter);
+                .setPath(sourceTreeIsh).setFilterFeatureTypeId(featureTypeId).setAlter(alter)
+                .setParallelism(
+                        ExecutionPolicy.of(cli.getGeogig().getContext()).getOperationParallelism());
         if (defaultType) {
             op.exportDefaultFeatureType();
         }
+        final int writers = getConcurrentWriters();
+        if (writers > 1) {
+            op.setFeatureStore(() -> {
+                try {
+                    return (SimpleFeatureStore) dataStore.getFeatureSource(tableName);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).setConcurrentWriters(writers);
+        }
 
         Function<Feature, Optional<Feature>> transformingFunction = getTransformingFunction(
                 outputFeatureType);
@@ -179,6 +193,15 @@ public abstract class DataStoreExport extends AbstractCommand implements CLIComm
         cli.getConsole().println(sourceTreeIsh + " exported successfully to " + tableName);
     }
 
+    /**
+     * Returns how many threads write the features at the same time, each one through its own
+     * transaction. Defaults to {@code 1}, subclasses for data stores that support concurrent
+     * transactions may return more.
+     */
+    protected int getConcurrentWriters() {
+        return 1;
+    }
+
     /**
      * Returns a transforming function that will be run against all features to be exported. The
      * function may return {@code Optional.empty()}, which prevents that particular feature from
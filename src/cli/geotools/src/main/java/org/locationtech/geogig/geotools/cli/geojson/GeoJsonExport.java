@@ -40,6 +40,7 @@ import org.locationtech.geogig.plumbing.ResolveObjectType;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.impl.GeoGIG;
 import org.opengis.feature.simple.SimpleFeatureType;
 
@@ -121,7 +122,9 @@ public class GeoJsonExport extends AbstractGeoJsonCommand implements CLICommand
         }
         final SimpleFeatureStore featureStore = (SimpleFeatureStore) featureSource;
         ExportOp op = cli.getGeogig().command(ExportOp.class).setFeatureStore(featureStore)
-                .setPath(path).setFilterFeatureTypeId(featureTypeId).setAlter(alter);
+                .setPath(path).setFilterFeatureTypeId(featureTypeId).setAlter(alter)
+                .setParallelism(
+                        ExecutionPolicy.of(cli.getGeogig().getContext()).getOperationParallelism());
 
         op.setTransactional(false);
         if (defaultType) {
@@ -25,6 +25,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
 
 /**
@@ -38,12 +39,20 @@ public class PGExport extends DataStoreExport implements CLICommand {
 
     public @ParentCommand PGCommandProxy commonArgs;
 
+    @Option(names = "--writers", description = "Number of database connections writing features at the same time (default: 1)")
+    public int writers = 1;
+
     final PGSupport support = new PGSupport();
 
     protected @Override DataStore getDataStore() {
         return support.getDataStore(commonArgs);
     }
 
+    protected @Override int getConcurrentWriters() {
+        checkParameter(writers > 0, "--writers must be > 0");
+        return writers;
+    }
+
     /**
      * Transforms all features to use a feature id that is compatible with postgres.
      * 
@@ -46,6 +46,7 @@ import org.locationtech.geogig.plumbing.ResolveObjectType;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.impl.GeoGIG;
 import org.opengis.feature.Feature;
 import org.opengis.feature.GeometryAttribute;
@@ -159,7 +160,9 @@ public class ShpExport extends AbstractShpCommand implements CLICommand {
         final SimpleFeatureStore featureStore = (SimpleFeatureStore) featureSource;
         ExportOp op = cli.getGeogig().command(ExportOp.class).setFeatureStore(featureStore)
                 .setPath(path).setFilterFeatureTypeId(featureTypeId).setAlter(alter)
-                .setFeatureTypeConversionFunction(function);
+                .setFeatureTypeConversionFunction(function)
+                .setParallelism(
+                        ExecutionPolicy.of(cli.getGeogig().getContext()).getOperationParallelism());
         // shapefile transactions are memory bound, so avoid them
         op.setTransactional(false);
         if (defaultType) {
@@ -15,6 +15,11 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex.AheadBehind;
+
+import com.google.common.collect.ImmutableList;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -34,4 +39,32 @@ public @RequiredArgsConstructor class CommitGraph {
         return context.command(FindCommonAncestor.class).setLeftId(left).setRightId(right).call();
     }
 
+    /**
+     * @return whether {@code ancestor} is reachable from {@code descendant}
+     */
+    public boolean isAncestor(@NonNull ObjectId ancestor, @NonNull ObjectId descendant) {
+        return index(ancestor, descendant).isAncestor(ancestor, descendant);
+    }
+
+    /**
+     * @return the number of commits reachable from {@code left} and not from {@code right}, and
+     *         vice versa
+     */
+    public AheadBehind aheadBehind(@NonNull ObjectId left, @NonNull ObjectId right) {
+        return index(left, right).aheadBehind(left, right);
+    }
+
+    /**
+     * @return the repository's commit graph index, making sure it contains both commits
+     * @throws IllegalArgumentException if any of the commits doesn't exist
+     */
+    private CommitGraphIndex index(ObjectId c1, ObjectId c2) {
+        ObjectDatabase odb = context.objectDatabase();
+        CommitGraphIndex index = CommitGraphIndex.of(odb.getBlobStore());
+        if (!index.contains(c1) || !index.contains(c2)) {
+            index.update(odb, ImmutableList.of(c1, c2));
+        }
+        return index;
+    }
+
 }
@@ -0,0 +1,139 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.hooks.builtin;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.hooks.CannotRunGeogigOperationException;
+import org.locationtech.geogig.hooks.CommandHook;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.UpdateRefs;
+import org.locationtech.geogig.repository.Command;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.RefChange;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hooks into {@link UpdateRefs} to add the commits a ref update made reachable to the
+ * {@link CommitGraphIndex}, so that it's kept up to date after commits, merges, fetches, etc.
+ * <p>
+ * The changed paths filters of the new commits require diffing their trees, so they're computed
+ * afterwards on a background thread, to keep them out of the ref update. Until then, path limited
+ * log queries just compare the trees of those commits.
+ * <p>
+ * If the repository has a {@link FeatureHistoryIndex}, the feature versions set by those commits
+ * are added to it too.
+ */
+@Slf4j(topic = "geogig.hooks")
+public class UpdateCommitGraphHook implements CommandHook {
+
+    private static final ExecutorService CHANGED_PATHS_EXECUTOR = Executors
+            .newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("geogig-commit-graph-changed-paths-%d").build());
+
+    public @Override boolean appliesTo(Class<? extends AbstractGeoGigOp<?>> clazz) {
+        return UpdateRefs.class.equals(clazz);
+    }
+
+    public @Override <C extends Command<?>> C pre(C command)
+            throws CannotRunGeogigOperationException {
+        return command;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <T> T post(Command<T> command, @Nullable Object retVal,
+            @Nullable RuntimeException exception) throws Exception {
+        if (exception != null) {
+            return (T) retVal;
+        }
+        final Context context = command.context();
+        final Optional<CommitGraphIndex> index = CommitGraphIndex.of(context);
+        if (!index.isPresent()) {
+            return (T) retVal;
+        }
+        final Set<ObjectId> tips = findTips(command, retVal);
+        if (!tips.isEmpty()) {
+            try {
+                index.get().update(context.objectDatabase(), tips);
+            } catch (RuntimeException e) {
+                log.error("Error updating the commit graph index for {}", tips, e);
+                return (T) retVal;
+            }
+            final ObjectDatabase odb = context.objectDatabase();
+            CHANGED_PATHS_EXECUTOR.execute(() -> {
+                try {
+                    index.get().updateChangedPaths(odb, tips);
+                } catch (RuntimeException e) {
+                    // e.g. the repository was closed, the filters are just an optimization
+                    log.debug("Error computing the changed paths filters of {}", tips, e);
+                }
+            });
+            FeatureHistoryIndex.of(context).ifPresent(history -> {
+                try {
+                    history.update(context.objectDatabase(), index.get(), tips,
+                            new DefaultProgressListener());
+                } catch (RuntimeException e) {
+                    log.error("Error updating the feature history index for {}", tips, e);
+                }
+            });
+        }
+        return (T) retVal;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ObjectId> findTips(Command<?> command, Object retVal) {
+        Preconditions.checkState(command instanceof UpdateRefs);
+        List<RefChange> updated = (List<RefChange>) retVal;
+
+        return updated.stream().map(RefChange::newValue).filter(Optional::isPresent)
+                .map(Optional::get).filter(this::isCommitRef).map(Ref::getObjectId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return whether the ref may point to a commit in the repository history, non commit ids are
+     *         ignored by the index update; the refs to work in progress, like
+     *         {@link Ref#WORK_HEAD WORK_HEAD} or {@link Ref#MERGE_HEAD MERGE_HEAD}, and the ones
+     *         outside {@link Ref#REFS_PREFIX refs/} are skipped, like {@link UpdateIndexesHook}
+     *         does
+     */
+    private boolean isCommitRef(@NonNull Ref ref) {
+        ObjectId objectId = ref.getObjectId();
+        if (objectId.isNull() || RevTree.EMPTY_TREE_ID.equals(objectId)) {
+            return false;
+        }
+        if (ref instanceof SymRef) {
+            return false;
+        }
+        if (UpdateIndexesHook.WORK_REFS.contains(Ref.simpleName(ref.getName()))) {
+            return false;
+        }
+        return Ref.isChild(Ref.REFS_PREFIX, ref.getName());
+    }
+}
@@ -51,7 +51,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j(topic = "geogig.hooks")
 public class UpdateIndexesHook implements CommandHook {
 
-    private static final ImmutableSet<String> WORK_REFS = ImmutableSet.of(HEAD, STAGE_HEAD,
+    /**
+     * Names of the refs that point to work in progress rather than to history
+     */
+    static final ImmutableSet<String> WORK_REFS = ImmutableSet.of(HEAD, STAGE_HEAD,
             WORK_HEAD, MERGE_HEAD, CHERRY_PICK_HEAD, ORIG_HEAD);
 
     public @Override boolean appliesTo(Class<? extends AbstractGeoGigOp<?>> clazz) {
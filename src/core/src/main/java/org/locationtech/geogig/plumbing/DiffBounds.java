@@ -14,6 +14,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bounded;
@@ -22,6 +23,7 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.DiffResultCache;
 import org.locationtech.geogig.plumbing.diff.DiffSummary;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
@@ -29,6 +31,7 @@ import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -37,7 +40,11 @@ import lombok.NonNull;
 
 /**
  * Computes the bounds of the difference between the two trees instead of the actual diffs.
- * 
+ * <p>
+ * If {@link #setCacheResults(boolean) asked to}, and no path filters are given, the results for
+ * the two trees and for each pair of changed subtrees are memoized in the repository's
+ * {@link DiffResultCache}, unless any of the two trees is the {@code WORK_HEAD} or
+ * {@code STAGE_HEAD} one.
  */
 public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>> {
 
@@ -51,6 +58,8 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
 
     private boolean compareStaged;
 
+    private boolean cacheResults;
+
     public DiffBounds setLeftSource(ObjectStore leftSource) {
         this.leftSource = leftSource;
         return this;
@@ -81,6 +90,15 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
         return this;
     }
 
+    /**
+     * @param cacheResults whether to take the results from, and add them to, the repository's
+     *        {@link DiffResultCache}, defaults to {@code false}
+     */
+    public DiffBounds setCacheResults(boolean cacheResults) {
+        this.cacheResults = cacheResults;
+        return this;
+    }
+
     public DiffBounds setPathFilters(@Nullable final List<String> pathFilters) {
         if (null == pathFilters) {
             this.pathFilters = Collections.emptyList();
@@ -108,14 +126,38 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
         RevTree left = resolveTree(oldTree, oldVersion, leftSource);
         RevTree right = resolveTree(newTree, newVersion, rightSource);
 
+        final boolean cacheable = cacheResults && pathFilters.isEmpty()
+                && !DiffResultCache.isTransient(oldVersion)
+                && !DiffResultCache.isTransient(newVersion);
+        final DiffResultCache cache = cacheable ? DiffResultCache.of(context()).orElse(null)
+                : null;
+        if (cache != null) {
+            Optional<DiffSummary<Envelope, Envelope>> cached = cache.getBounds(left.getId(),
+                    right.getId());
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         PreOrderDiffWalk visitor = new PreOrderDiffWalk(left, right, leftSource, rightSource);
-        BoundsWalk walk = new BoundsWalk(leftSource, rightSource);
+        BoundsWalk walk = new BoundsWalk(leftSource, rightSource, cache);
         PreOrderDiffWalk.Consumer consumer = walk;
         if (!pathFilters.isEmpty()) {
             consumer = new PathFilteringDiffConsumer(pathFilters, walk);
         }
         visitor.walk(consumer);
         DiffSummary<Envelope, Envelope> diffBounds = walk.getResult();
+
+        if (cache != null) {
+            cache.putBounds(left.getId(), right.getId(), diffBounds, walk.changes());
+            try {
+                cache.flush();
+            } catch (RuntimeException e) {
+                // the cache is an optimization, failing to persist it shall not fail the operation
+                LoggerFactory.getLogger(DiffBounds.class).warn("Error saving diff result cache",
+                        e);
+            }
+        }
         return diffBounds;
     }
 
@@ -159,14 +201,21 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
 
         private final ObjectStore leftSource, rightSource;
 
-        public BoundsWalk(@NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource) {
+        private final @Nullable DiffResultCache cache;
+
+        private final AtomicLong changes = new AtomicLong();
+
+        public BoundsWalk(@NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource,
+                @Nullable DiffResultCache cache) {
             this.leftSource = leftSource;
             this.rightSource = rightSource;
+            this.cache = cache;
             leftEnv = new ThreadSafeEnvelope();
             rightEnv = new ThreadSafeEnvelope();
         }
 
         public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            changes.incrementAndGet();
             Envelope leftHelper = getEnv(left, leftSource);
             Envelope rightHelper = getEnv(right, rightSource);
 
@@ -192,25 +241,44 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
                 leftEnv.expandToInclude(leftHelper);
                 return false;
             }
+            if (cache != null && !NodeRef.ROOT.equals(left.name())) {
+                DiffSummary<Envelope, Envelope> subtreeBounds = subtreeBounds(left.getObjectId(),
+                        right.getObjectId());
+                leftEnv.expandToInclude(subtreeBounds.getLeft());
+                rightEnv.expandToInclude(subtreeBounds.getRight());
+                return false;
+            }
             return true;
         }
 
+        private DiffSummary<Envelope, Envelope> subtreeBounds(ObjectId leftId, ObjectId rightId) {
+            Optional<DiffSummary<Envelope, Envelope>> cached = cache.getBounds(leftId, rightId);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+            RevTree leftTree = leftSource.getTree(leftId);
+            RevTree rightTree = rightSource.getTree(rightId);
+            BoundsWalk subtreeWalk = new BoundsWalk(leftSource, rightSource, cache);
+            new PreOrderDiffWalk(leftTree, rightTree, leftSource, rightSource).walk(subtreeWalk);
+            DiffSummary<Envelope, Envelope> subtreeBounds = subtreeWalk.getResult();
+            changes.addAndGet(subtreeWalk.changes());
+            cache.putBounds(leftId, rightId, subtreeBounds, subtreeWalk.changes());
+            return subtreeBounds;
+        }
+
+        /**
+         * @return the number of changed features walked so far
+         */
+        public long changes() {
+            return changes.get();
+        }
+
         public @Override void endTree(NodeRef left, NodeRef right) {
             String name = left == null ? right.name() : left.name();
             if (NodeRef.ROOT.equals(name)) {
                 Envelope lbounds = new Envelope(this.leftEnv);
                 Envelope rbounds = new Envelope(this.rightEnv);
-                Envelope merged;
-                if (lbounds.isNull()) {
-                    merged = rbounds;
-                } else if (rbounds.isNull()) {
-                    merged = lbounds;
-                } else {
-                    merged = new Envelope(lbounds);
-                    merged.expandToInclude(rbounds);
-                }
-                this.diffBoundsResult = new DiffSummary<Envelope, Envelope>(lbounds, rbounds,
-                        merged);
+                this.diffBoundsResult = DiffResultCache.summary(lbounds, rbounds);
             }
         }
 
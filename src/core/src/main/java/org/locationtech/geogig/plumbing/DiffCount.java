@@ -18,16 +18,24 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.DiffCountConsumer;
+import org.locationtech.geogig.plumbing.diff.DiffResultCache;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 
 /**
  * Counts differences between two trees.
+ * <p>
+ * If {@link #setCacheResults(boolean) asked to}, and no path filters are given, the results for
+ * the two trees and for each pair of changed subtrees are memoized in the repository's
+ * {@link DiffResultCache}, unless any of the two trees is given as the {@code WORK_HEAD} or
+ * {@code STAGE_HEAD} ref spec. Counts done while changing the working tree or the staging area
+ * shall not ask for it, as their trees are replaced right away.
  * 
  * @see DiffCountConsumer
  */
@@ -43,6 +51,8 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
 
     private RevTree oldTree, newTree;
 
+    private boolean cacheResults;
+
     public DiffCount setOldVersion(String refSpec) {
         this.oldRefSpec = refSpec;
         this.oldTreeId = null;
@@ -87,6 +97,15 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         return this;
     }
 
+    /**
+     * @param cacheResults whether to take the results from, and add them to, the repository's
+     *        {@link DiffResultCache}, defaults to {@code false}
+     */
+    public DiffCount setCacheResults(boolean cacheResults) {
+        this.cacheResults = cacheResults;
+        return this;
+    }
+
     /**
      * @param path the path filter to use during the diff operation
      * @return {@code this}
@@ -123,10 +142,23 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         final RevTree oldTree = getTree(oldRefSpec, oldTreeId, this.oldTree, leftSource);
         final RevTree newTree = getTree(newRefSpec, newTreeId, this.newTree, rightSource);
 
+        final boolean cacheable = cacheResults && pathFilters.isEmpty()
+                && !DiffResultCache.isTransient(oldRefSpec)
+                && !DiffResultCache.isTransient(newRefSpec);
+        final DiffResultCache cache = cacheable ? DiffResultCache.of(context()).orElse(null)
+                : null;
+        if (cache != null) {
+            Optional<DiffObjectCount> cached = cache.getCount(oldTree.getId(), newTree.getId());
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         DiffObjectCount diffCount;
         PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource, rightSource);
 
-        DiffCountConsumer counter = new DiffCountConsumer(leftSource, rightSource);
+        DiffCountConsumer counter = new DiffCountConsumer(leftSource, rightSource)
+                .setCache(cache);
         PreOrderDiffWalk.Consumer filter = counter;
         if (!pathFilters.isEmpty()) {
             filter = new PathFilteringDiffConsumer(pathFilters, counter);
@@ -134,9 +166,22 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         visitor.walk(filter);
         diffCount = counter.get();
 
+        if (cache != null) {
+            cache.putCount(oldTree.getId(), newTree.getId(), diffCount);
+            flush(cache);
+        }
         return diffCount;
     }
 
+    private void flush(DiffResultCache cache) {
+        try {
+            cache.flush();
+        } catch (RuntimeException e) {
+            // the cache is an optimization, failing to persist it shall not fail the operation
+            LoggerFactory.getLogger(DiffCount.class).warn("Error saving diff result cache", e);
+        }
+    }
+
     /**
      * @return the tree referenced by the old ref, or the head of the index.
      */
@@ -18,15 +18,13 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
 import org.locationtech.geogig.model.DiffEntry;
 import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.NodeOrdering;
@@ -34,13 +32,19 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.BoundsFilteringDiffConsumer;
+import org.locationtech.geogig.plumbing.diff.CursorFilteringDiffConsumer;
+import org.locationtech.geogig.plumbing.diff.DiffCursor;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.ForwardingConsumer;
+import org.locationtech.geogig.plumbing.diff.SpatialIndexDiffConsumer;
+import org.locationtech.geogig.repository.ExecutionPolicy;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
@@ -52,7 +56,6 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Compares the content and metadata links of blobs found via two tree objects on the repository's
@@ -91,7 +94,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean preserveIterationOrder = false;
 
-    private static ExecutorService producerThreads;
+    private @Nullable ExecutionPolicy executionPolicy;
 
     private Stats stats;
 
@@ -101,11 +104,9 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private ForwardingConsumer wrapper;
 
-    static {
-        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
-                .setNameFormat("geogig-difftree-pool-%d").build();
-        producerThreads = Executors.newCachedThreadPool(threadFactory);
-    }
+    private @Nullable DiffCursor cursor;
+
+    private boolean useSpatialIndex = true;
 
     /**
      * Constructs a new instance of the {@code DiffTree} operation with the given parameters.
@@ -211,11 +212,36 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Sets a bounding box the reported nodes shall intersect. Trees that are indexed by a
+     * {@link IndexType#QUADTREE quad-tree} at both sides of the diff are compared through their
+     * index trees unless {@link #setUseSpatialIndex(boolean) disabled}.
+     */
     public DiffTree setBoundsFilter(@Nullable Envelope bounds) {
         this.boundsFilter = bounds;
         return this;
     }
 
+    /**
+     * Whether to compare the feature trees through their {@link IndexType#QUADTREE quad-tree}
+     * indexes when a {@link #setBoundsFilter bounds filter} is set, defaults to {@code true}.
+     * <p>
+     * Index trees are bucketed spatially, so the buckets outside the bounds filter are skipped,
+     * whereas almost every bucket of a canonical tree spans the whole layer. The reported
+     * {@link DiffEntry diff entries} are the same, but the features of an indexed tree are reported
+     * in the index order rather than the canonical one.
+     * <p>
+     * Indexes are only used for recursive diffs of the repository trees, in the canonical node
+     * order, without a {@link #setCursor cursor}, and with path filters no deeper than the trees
+     * being compared.
+     * 
+     * @see SpatialIndexDiffConsumer
+     */
+    public DiffTree setUseSpatialIndex(boolean useSpatialIndex) {
+        this.useSpatialIndex = useSpatialIndex;
+        return this;
+    }
+
     public DiffTree setCustomFilter(@Nullable Predicate<Bounded> customFilter) {
         this.customFilter = customFilter;
         return this;
@@ -226,6 +252,23 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Resumes the diff right after the given cursor position, skipping the subtrees and buckets
+     * that come before it without traversing them. Requires a recursive diff in the canonical node
+     * order, and implies {@link #setPreserveIterationOrder(boolean) preserveIterationOrder}, since
+     * a cursor is only meaningful if the diff is reported in a consistent order.
+     * 
+     * @see DiffCursor#after(DiffEntry)
+     */
+    public DiffTree setCursor(@Nullable DiffCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    private boolean preserveIterationOrder() {
+        return preserveIterationOrder || cursor != null;
+    }
+
     public DiffTree setConsumerWrapper(PreOrderDiffWalk.ForwardingConsumer wrapper) {
         this.wrapper = wrapper;
         return this;
@@ -238,11 +281,26 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return call();
     }
 
+    /**
+     * Walks the diff between the two trees calling back the given consumer directly instead of
+     * producing {@link DiffEntry} instances, applying the same path, bounds, change type, custom,
+     * and max diffs filters than {@link #call()}.
+     * <p>
+     * Unless {@link #setPreserveIterationOrder(boolean) preserveIterationOrder} is {@code true} or
+     * a {@link #setCursor cursor} is set, the consumer may be called concurrently by several
+     * threads.
+     */
     public void call(PreOrderDiffWalk.Consumer consumer) {
         checkArgument(oldRefSpec != null || oldTreeId != null || oldTree != null,
                 "old version not specified");
         checkArgument(newRefSpec != null || oldTreeId != null || newTree != null,
                 "new version not specified");
+        checkArgument(cursor == null || recursive,
+                "diff cursors are only supported for recursive diffs");
+        checkArgument(
+                cursor == null || nodeOrdering == null
+                        || nodeOrdering instanceof CanonicalNodeOrder,
+                "diff cursors are only supported with the canonical node order");
         final ObjectStore leftSource;
         final ObjectStore rightSource;
 
@@ -251,13 +309,86 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
         final RevTree oldTree = resolveTree(oldRefSpec, this.oldTreeId, this.oldTree, leftSource);
         final RevTree newTree = resolveTree(newRefSpec, this.newTreeId, this.newTree, rightSource);
+        final ExecutionPolicy policy = executionPolicy();
 
         final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
-                rightSource, preserveIterationOrder);
+                rightSource, preserveIterationOrder());
         visitor.setDefaultMetadataId(this.metadataId);
+        visitor.reportFeatures(reportFeatures);
+        visitor.executionPolicy(policy);
+        if (this.nodeOrdering != null) {
+            visitor.nodeOrder(nodeOrdering);
+        }
+        consumer = applyFilters(consumer);
+        SpatialIndexDiffConsumer indexConsumer = spatialIndexConsumer(leftSource, rightSource,
+                policy);
+        if (indexConsumer != null) {
+            indexConsumer.setDelegate(consumer);
+            consumer = indexConsumer;
+        }
         visitor.walk(consumer);
     }
 
+    /**
+     * @return the consumer that walks the quad-tree index trees of the indexed feature trees
+     *         instead of the canonical ones, if a bounds filter is set and indexes can be used
+     */
+    private @Nullable SpatialIndexDiffConsumer spatialIndexConsumer(ObjectStore leftSource,
+            ObjectStore rightSource, ExecutionPolicy policy) {
+        if (!useSpatialIndex || boundsFilter == null || !recursive || !reportFeatures
+                || cursor != null) {
+            return null;
+        }
+        if (this.leftSource != null || this.rightSource != null) {
+            // can't tell whether the repository indexes apply to foreign trees
+            return null;
+        }
+        if (nodeOrdering != null && !(nodeOrdering instanceof CanonicalNodeOrder)) {
+            return null;
+        }
+        // index trees can't be pruned by feature path
+        if (pathFilters.stream().anyMatch(p -> p.indexOf(NodeRef.PATH_SEPARATOR) != -1)) {
+            return null;
+        }
+        final IndexDatabase indexdb = indexDatabase();
+        if (indexdb == null || indexdb.getIndexInfos().stream()
+                .noneMatch(i -> IndexType.QUADTREE == i.getIndexType())) {
+            return null;
+        }
+        return new SpatialIndexDiffConsumer(boundsFilter, leftSource, rightSource, indexdb)
+                .preserveIterationOrder(preserveIterationOrder()).executionPolicy(policy);
+    }
+
+    /**
+     * @return the policy set through {@link #setExecutionPolicy}, or the repository's one
+     */
+    private ExecutionPolicy executionPolicy() {
+        ExecutionPolicy policy = this.executionPolicy;
+        return policy == null ? ExecutionPolicy.of(configDatabase()) : policy;
+    }
+
+    private Consumer applyFilters(Consumer consumer) {
+        if (limit != null) {// evaluated the latest
+            consumer = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(consumer, limit);
+        }
+        if (cursor != null) {
+            consumer = new CursorFilteringDiffConsumer(cursor, consumer);
+        }
+        if (customFilter != null) {
+            consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
+        }
+        if (changeTypeFilter != null) {
+            consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
+        }
+        if (boundsFilter != null) {
+            consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer);
+        }
+        if (!pathFilters.isEmpty()) {// evaluated the former
+            consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
+        }
+        return consumer;
+    }
+
     /**
      * Finds differences between the two specified trees.
      * 
@@ -269,6 +400,12 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 "old version not specified");
         checkArgument(newRefSpec != null || oldTreeId != null || newTree != null,
                 "new version not specified");
+        checkArgument(cursor == null || recursive,
+                "diff cursors are only supported for recursive diffs");
+        checkArgument(
+                cursor == null || nodeOrdering == null
+                        || nodeOrdering instanceof CanonicalNodeOrder,
+                "diff cursors are only supported with the canonical node order");
 
         final ObjectStore leftSource;
         final ObjectStore rightSource;
@@ -282,11 +419,13 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         if (oldTree.equals(newTree)) {
             return AutoCloseableIterator.emptyIterator();
         }
+        final ExecutionPolicy policy = executionPolicy();
 
         final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
-                rightSource, preserveIterationOrder);
+                rightSource, preserveIterationOrder());
         visitor.setDefaultMetadataId(this.metadataId);
         visitor.reportFeatures(reportFeatures);
+        visitor.executionPolicy(policy);
         if (this.nodeOrdering != null) {
             visitor.nodeOrder(nodeOrdering);
         }
@@ -296,6 +435,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         diffProducer.setReportTrees(this.reportTrees);
         diffProducer.setRecursive(this.recursive);
 
+        final @Nullable SpatialIndexDiffConsumer indexConsumer = spatialIndexConsumer(leftSource,
+                rightSource, policy);
         final List<RuntimeException> producerErrors = new LinkedList<>();
         if (recordStats) {
             stats = new Stats();
@@ -306,20 +447,10 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 if (recordStats) {
                     consumer = new AcceptedFeaturesStatsConsumer(consumer, stats);
                 }
-                if (limit != null) {// evaluated the latest
-                    consumer = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(consumer, limit);
-                }
-                if (customFilter != null) {
-                    consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
-                }
-                if (changeTypeFilter != null) {
-                    consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
-                }
-                if (boundsFilter != null) {
-                    consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer);
-                }
-                if (!pathFilters.isEmpty()) {// evaluated the former
-                    consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
+                consumer = applyFilters(consumer);
+                if (indexConsumer != null) {
+                    indexConsumer.setDelegate(consumer);
+                    consumer = indexConsumer;
                 }
                 if (recordStats) {
                     consumer = new StatsConsumer(consumer, stats);
@@ -340,7 +471,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 }
             }
         };
-        producerThreads.submit(producer);
+        policy.ioExecutor().submit(producer);
 
         AutoCloseableIterator<DiffEntry> consumerIterator = new AutoCloseableIterator<DiffEntry>() {
 
@@ -373,6 +504,9 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
             }
 
             public @Override void close() {
+                if (indexConsumer != null) {
+                    indexConsumer.abortTraversal();
+                }
                 visitor.abortTraversal();
                 // free up any threads waiting for the queue to be unblocked
                 queue.clear();
@@ -630,6 +764,17 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Sets the policy to execute the diff walk and its producer thread with, defaults to the
+     * repository's {@link ExecutionPolicy#of policy}. If the
+     * {@link #setPreserveIterationOrder(boolean) iteration order is preserved} the walk runs on a
+     * single thread of its own, and only the producer thread and bucket prefetching use the policy.
+     */
+    public DiffTree setExecutionPolicy(@Nullable ExecutionPolicy executionPolicy) {
+        this.executionPolicy = executionPolicy;
+        return this;
+    }
+
     public static class Stats {
         public final AtomicLong allTrees = new AtomicLong(), acceptedTrees = new AtomicLong(),
                 allBuckets = new AtomicLong(), acceptedBuckets = new AtomicLong(),
@@ -25,11 +25,21 @@ import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.GraphDatabase.Direction;
 import org.locationtech.geogig.storage.GraphDatabase.GraphEdge;
 import org.locationtech.geogig.storage.GraphDatabase.GraphNode;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
 
 import com.google.common.base.Preconditions;
 
 /**
  * Finds the common {@link RevCommit commit} ancestor of two commits.
+ * <p>
+ * When both commits are in the repository's {@link CommitGraphIndex} and the graph sources have
+ * not been overridden, the ancestor is found using the index generation numbers, otherwise the
+ * {@link GraphDatabase} is walked.
+ * <p>
+ * Both approaches find a common ancestor that's not an ancestor of any other common ancestor. When
+ * there are several of them, as after criss-cross merges, both pick the first one in
+ * {@link CommitGraphIndex#mergeBaseOrder merge base order}, the most recent one, so the result
+ * doesn't depend on whether the index exists.
  */
 public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
@@ -41,6 +51,8 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
     private Supplier<GraphDatabase> rightSource = () -> graphDatabase();
 
+    private boolean defaultSources = true;
+
     /**
      * @param left the left {@link ObjectId}
      */
@@ -51,11 +63,13 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
     public FindCommonAncestor setLeftSource(GraphDatabase leftGraph) {
         this.leftSource = leftGraph == null ? () -> graphDatabase() : () -> leftGraph;
+        this.defaultSources &= leftGraph == null;
         return this;
     }
 
     public FindCommonAncestor setRightSource(GraphDatabase rightGraph) {
         this.rightSource = rightGraph == null ? () -> graphDatabase() : () -> rightGraph;
+        this.defaultSources &= rightGraph == null;
         return this;
     }
 
@@ -100,7 +114,15 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
         getProgressListener().started();
 
-        Optional<ObjectId> ancestor = findLowestCommonAncestor(left, right);
+        final CommitGraphIndex index = defaultSources
+                ? CommitGraphIndex.of(context()).orElse(null)
+                : null;
+        Optional<ObjectId> ancestor;
+        if (index != null && index.contains(left) && index.contains(right)) {
+            ancestor = index.mergeBase(left, right);
+        } else {
+            ancestor = findLowestCommonAncestor(left, right);
+        }
 
         getProgressListener().complete();
 
@@ -145,11 +167,17 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
         }
         verifyAncestors(potentialCommonAncestors, leftSet, rightSet);
 
-        Optional<ObjectId> ancestor = Optional.empty();
-        if (potentialCommonAncestors.size() > 0) {
-            ancestor = Optional.of(potentialCommonAncestors.get(0).getIdentifier());
-        }
-        return ancestor;
+        return potentialCommonAncestors.stream().map(GraphNode::getIdentifier)
+                .min(CommitGraphIndex.mergeBaseOrder(this::timestamp));
+    }
+
+    /**
+     * @return the committer timestamp of the commit, or {@link Long#MIN_VALUE} if it's not in the
+     *         object database (e.g. it comes from another repository's graph)
+     */
+    private long timestamp(ObjectId commitId) {
+        RevCommit commit = objectDatabase().getIfPresent(commitId, RevCommit.class);
+        return commit == null ? Long.MIN_VALUE : commit.getCommitter().getTimestamp();
     }
 
     /**
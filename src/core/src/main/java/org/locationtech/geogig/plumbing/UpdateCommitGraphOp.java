@@ -0,0 +1,74 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex;
+
+/**
+ * Adds the history of all the refs to the {@link CommitGraphIndex}, and optionally computes the
+ * changed paths filters of the indexed commits that don't have one yet, and the
+ * {@link FeatureHistoryIndex}.
+ * <p>
+ * The index is kept up to date on every ref update, this operation is meant to build it for
+ * repositories created before it existed, or to backfill the changed paths filters of commits
+ * added in bulk, like by a clone. The feature history index is only maintained once it's been
+ * built through this operation.
+ *
+ * @return the commit graph index
+ */
+public class UpdateCommitGraphOp extends AbstractGeoGigOp<CommitGraphIndex> {
+
+    private boolean changedPaths;
+
+    private boolean featureHistory;
+
+    /**
+     * @param changedPaths whether to compute the missing changed paths filters, defaults to
+     *        {@code false}
+     */
+    public UpdateCommitGraphOp setChangedPaths(boolean changedPaths) {
+        this.changedPaths = changedPaths;
+        return this;
+    }
+
+    /**
+     * @param featureHistory whether to build or update the {@link FeatureHistoryIndex}, defaults
+     *        to {@code false}
+     */
+    public UpdateCommitGraphOp setFeatureHistory(boolean featureHistory) {
+        this.featureHistory = featureHistory;
+        return this;
+    }
+
+    protected @Override CommitGraphIndex _call() {
+        final ObjectDatabase odb = objectDatabase();
+        final CommitGraphIndex index = CommitGraphIndex.of(odb.getBlobStore());
+
+        Set<ObjectId> tips = command(ForEachRef.class).call().stream().map(Ref::getObjectId)
+                .filter(id -> !id.isNull()).collect(Collectors.toSet());
+        index.update(odb, tips);
+        if (changedPaths) {
+            index.updateChangedPaths(odb, getProgressListener());
+        }
+        if (featureHistory) {
+            FeatureHistoryIndex.of(odb.getBlobStore()).update(odb, index, tips,
+                    getProgressListener());
+        }
+        return index;
+    }
+}
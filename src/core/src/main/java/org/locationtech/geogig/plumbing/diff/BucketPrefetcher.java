@@ -0,0 +1,210 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.ExecutionPolicy;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+/**
+ * Asynchronously fetches bucket trees ahead of a {@link PreOrderDiffWalk} traversal, so that the
+ * trees of the next level are already being requested while the current one is processed.
+ * <p>
+ * Each call to {@link #prefetch} issues a single {@link ObjectStore#getAll bulk request} on the
+ * walk's {@link ExecutionPolicy#ioExecutor() I/O executor}, hence not blocking the traversal's
+ * fork join pool threads. The walk tasks then {@link #take} the prefetched trees they need and
+ * fetch only the missing ones, waiting for the in-flight ones through
+ * {@link CompletableFuture#join()}, which is fork join pool aware.
+ * <p>
+ * The number of trees either in flight or fetched but not yet taken is bounded by
+ * {@code maxTrees}. When the budget is exhausted the oldest fetched trees are discarded, as they
+ * most probably belong to subtrees the walk consumer decided to skip, and if all of them are still
+ * in flight no more trees are prefetched until some are taken. The ids of the trees already taken
+ * are purged from the eviction queue as it grows, so its size is bounded by {@code maxTrees} too.
+ */
+final class BucketPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BucketPrefetcher.class);
+
+    /**
+     * Default max number of prefetched trees, can be overridden through the
+     * {@code geogig.diff.prefetchTrees} System property, a value of zero disables prefetching
+     */
+    static final int DEFAULT_MAX_TREES = Integer.getInteger("geogig.diff.prefetchTrees", 1024);
+
+    private final Executor executor;
+
+    private final int maxTrees;
+
+    private final Semaphore budget;
+
+    private final ConcurrentMap<ObjectId, CompletableFuture<RevTree>> trees =
+            new ConcurrentHashMap<>();
+
+    private final Queue<ObjectId> prefetchOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of ids in {@link #prefetchOrder}, which may include already taken ones
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    BucketPrefetcher(final int maxTrees, @NonNull Executor executor) {
+        this.maxTrees = maxTrees;
+        this.budget = new Semaphore(maxTrees);
+        this.executor = executor;
+    }
+
+    /**
+     * Requests the trees with the given ids to {@code source} in the background, up to the
+     * available budget; the ones already prefetched or in flight are ignored.
+     */
+    public void prefetch(@NonNull ObjectStore source, @NonNull Iterable<ObjectId> ids) {
+        final List<ObjectId> batch = new ArrayList<>();
+        for (ObjectId id : ids) {
+            if (trees.containsKey(id)) {
+                continue;
+            }
+            if (!budget.tryAcquire() && !(evictOldest() && budget.tryAcquire())) {
+                break;
+            }
+            if (null == trees.putIfAbsent(id, new CompletableFuture<>())) {
+                enqueue(id);
+                batch.add(id);
+            } else {
+                budget.release();
+            }
+        }
+        if (!batch.isEmpty()) {
+            executor.execute(() -> fetch(source, batch));
+        }
+    }
+
+    private void enqueue(ObjectId id) {
+        prefetchOrder.add(id);
+        if (queued.incrementAndGet() > 2 * maxTrees) {
+            purgeTaken();
+        }
+    }
+
+    /**
+     * Removes the ids of the trees already taken from {@link #prefetchOrder}. Since at most
+     * {@code maxTrees} ids are left and this is only called once the queue doubles that size, the
+     * amortized cost per prefetched tree is constant
+     */
+    private synchronized void purgeTaken() {
+        if (queued.get() > 2 * maxTrees) {
+            prefetchOrder.removeIf(id -> !trees.containsKey(id));
+            queued.set(prefetchOrder.size());
+        }
+    }
+
+    private void fetch(ObjectStore source, List<ObjectId> batch) {
+        try {
+            Iterator<RevTree> fetched = source.getAll(batch, NOOP_LISTENER, RevTree.class);
+            while (fetched.hasNext()) {
+                RevTree tree = fetched.next();
+                CompletableFuture<RevTree> future = trees.get(tree.getId());
+                if (future != null) {
+                    future.complete(tree);
+                }
+            }
+        } catch (RuntimeException e) {
+            // the walk tasks will fetch the trees themselves and deal with the error
+            log.debug("Error prefetching bucket trees", e);
+        } finally {
+            // anything not found is to be fetched by the walk tasks
+            for (ObjectId id : batch) {
+                CompletableFuture<RevTree> future = trees.get(id);
+                if (future != null) {
+                    future.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the oldest prefetched tree that's not in flight
+     *
+     * @return {@code true} if a budget permit was released
+     */
+    private boolean evictOldest() {
+        ObjectId id;
+        while ((id = prefetchOrder.poll()) != null) {
+            queued.decrementAndGet();
+            CompletableFuture<RevTree> future = trees.get(id);
+            if (future == null) {
+                continue;// already taken
+            }
+            if (!future.isDone()) {
+                // still in flight, so are the ones prefetched after it most probably
+                prefetchOrder.add(id);
+                queued.incrementAndGet();
+                return false;
+            }
+            if (trees.remove(id, future)) {
+                budget.release();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes and returns the prefetched trees for the given ids, waiting for the ones in flight;
+     * ids that were not prefetched, or could not be, are not present in the returned map
+     */
+    public Map<ObjectId, RevTree> take(@NonNull Iterable<ObjectId> ids) {
+        Map<ObjectId, RevTree> taken = new HashMap<>();
+        for (ObjectId id : ids) {
+            @Nullable
+            CompletableFuture<RevTree> future = trees.remove(id);
+            if (future != null) {
+                budget.release();
+                RevTree tree = future.join();
+                if (tree != null) {
+                    taken.put(id, tree);
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Discards all prefetched trees, to be called once the walk is finished
+     */
+    public void clear() {
+        trees.values().forEach(f -> f.complete(null));
+        trees.clear();
+        prefetchOrder.clear();
+        queued.set(0);
+    }
+}
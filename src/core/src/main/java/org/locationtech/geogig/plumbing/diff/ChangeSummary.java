@@ -0,0 +1,222 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.DiffCount;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+
+import lombok.NonNull;
+
+/**
+ * The number of changes between two root trees, broken down by the top level tree paths that
+ * changed, as reported by {@code StatusOp} for the staged (HEAD to STAGE_HEAD) and unstaged
+ * (STAGE_HEAD to WORK_HEAD) changes.
+ * <p>
+ * A summary is only valid for the pair of root tree ids it was computed for, so callers persist
+ * the last one computed (see {@link #encode()} and {@link #decode(String)}) and answer from it as
+ * long as the refs still point to the same trees, {@link #compute computing} a new one otherwise.
+ * Computing a summary only walks the top level trees whose ids differ between both roots, and the
+ * count of each one of them is taken from the {@link DiffResultCache} if it has already been
+ * computed, so after inserting to, deleting from, staging or committing a few feature trees, only
+ * those are counted again.
+ * <p>
+ * Root trees with direct feature children or buckets are summarized as a single change at the
+ * {@link NodeRef#ROOT root} path.
+ */
+public class ChangeSummary {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeSummary.class);
+
+    private final ObjectId leftTree, rightTree;
+
+    private final SortedMap<String, DiffObjectCount> paths;
+
+    ChangeSummary(@NonNull ObjectId leftTree, @NonNull ObjectId rightTree,
+            @NonNull SortedMap<String, DiffObjectCount> paths) {
+        this.leftTree = leftTree;
+        this.rightTree = rightTree;
+        this.paths = Collections.unmodifiableSortedMap(paths);
+    }
+
+    public ObjectId getLeftTree() {
+        return leftTree;
+    }
+
+    public ObjectId getRightTree() {
+        return rightTree;
+    }
+
+    /**
+     * @return whether this summary was computed for the given pair of root trees
+     */
+    public boolean isSummaryOf(@NonNull ObjectId leftTree, @NonNull ObjectId rightTree) {
+        return this.leftTree.equals(leftTree) && this.rightTree.equals(rightTree);
+    }
+
+    /**
+     * @return the count of changes of each changed top level tree, by tree path, sorted by path
+     */
+    public SortedMap<String, DiffObjectCount> getPaths() {
+        return paths;
+    }
+
+    /**
+     * @return the total count of changes, the same as {@link DiffCount} would return for the two
+     *         root trees
+     */
+    public DiffObjectCount getCount() {
+        DiffObjectCount total = new DiffObjectCount();
+        paths.values().forEach(c -> add(total, c));
+        return total;
+    }
+
+    /**
+     * Computes the summary of changes between {@code left} and {@code right}
+     */
+    public static ChangeSummary compute(@NonNull Context context, @NonNull RevTree left,
+            @NonNull RevTree right) {
+        final SortedMap<String, DiffObjectCount> paths = new TreeMap<>();
+        if (left.getId().equals(right.getId())) {
+            return new ChangeSummary(left.getId(), right.getId(), paths);
+        }
+        if (hasFeaturesOrBuckets(left) || hasFeaturesOrBuckets(right)) {
+            // root trees are replaced by every change, there's no point in caching their count
+            DiffObjectCount count = context.command(DiffCount.class).setOldTree(left)
+                    .setNewTree(right).call();
+            if (count.count() > 0) {
+                paths.put(NodeRef.ROOT, count);
+            }
+            return new ChangeSummary(left.getId(), right.getId(), paths);
+        }
+        final ObjectStore store = context.objectDatabase();
+        final Map<String, ObjectId> leftTrees = trees(left, store);
+        final Map<String, ObjectId> rightTrees = trees(right, store);
+
+        TreeSet<String> names = new TreeSet<>(leftTrees.keySet());
+        names.addAll(rightTrees.keySet());
+        for (String name : names) {
+            final ObjectId leftId = leftTrees.get(name);
+            final ObjectId rightId = rightTrees.get(name);
+            if (leftId != null && leftId.equals(rightId)) {
+                continue;
+            }
+            DiffObjectCount count;
+            if (leftId == null || rightId == null) {
+                // same as DiffCountConsumer does for added and removed trees
+                count = new DiffObjectCount();
+                long size = store.getTree(leftId == null ? rightId : leftId).size();
+                if (leftId == null) {
+                    count.addedTrees(1);
+                    count.addedFeatures(size);
+                } else {
+                    count.removedTrees(1);
+                    count.removedFeatures(size);
+                }
+            } else {
+                count = context.command(DiffCount.class).setOldTree(leftId).setNewTree(rightId)
+                        .setCacheResults(true).call();
+                count.changedTrees(1);
+            }
+            paths.put(name, count);
+        }
+        return new ChangeSummary(left.getId(), right.getId(), paths);
+    }
+
+    private static boolean hasFeaturesOrBuckets(RevTree tree) {
+        return tree.featuresSize() > 0 || tree.bucketsSize() > 0;
+    }
+
+    private static Map<String, ObjectId> trees(RevTree root, ObjectStore store) {
+        Map<String, ObjectId> trees = new HashMap<>();
+        new DepthTreeIterator(NodeRef.ROOT, ObjectId.NULL, root, store, Strategy.TREES_ONLY)
+                .forEachRemaining(ref -> trees.put(ref.name(), ref.getObjectId()));
+        return trees;
+    }
+
+    /**
+     * @return the text representation of this summary, one line with the root tree ids followed by
+     *         one line per path
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(leftTree).append('\t').append(rightTree).append('\n');
+        paths.forEach((path, c) -> {
+            sb.append(path).append('\t').append(c.getFeaturesAdded()).append(',')
+                    .append(c.getFeaturesRemoved()).append(',').append(c.getFeaturesChanged())
+                    .append(',').append(c.getTreesAdded()).append(',').append(c.getTreesRemoved())
+                    .append(',').append(c.getTreesChanged()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    /**
+     * @return the summary encoded as by {@link #encode()}, or {@link Optional#empty() empty} if
+     *         it's malformed
+     */
+    public static Optional<ChangeSummary> decode(@NonNull String encoded) {
+        try {
+            List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(encoded);
+            checkArgument(!lines.isEmpty());
+            List<String> ids = Splitter.on('\t').splitToList(lines.get(0));
+            checkArgument(ids.size() == 2);
+            SortedMap<String, DiffObjectCount> paths = new TreeMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                List<String> parts = Splitter.on('\t').splitToList(line);
+                checkArgument(parts.size() == 2);
+                long[] c = Splitter.on(',').splitToList(parts.get(1)).stream()
+                        .mapToLong(Long::parseLong).toArray();
+                checkArgument(c.length == 6);
+                DiffObjectCount count = new DiffObjectCount();
+                count.addedFeatures(c[0]);
+                count.removedFeatures(c[1]);
+                count.changedFeatures(c[2]);
+                count.addedTrees((int) c[3]);
+                count.removedTrees((int) c[4]);
+                count.changedTrees((int) c[5]);
+                paths.put(parts.get(0), count);
+            }
+            return Optional.of(new ChangeSummary(ObjectId.valueOf(ids.get(0)),
+                    ObjectId.valueOf(ids.get(1)), paths));
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed change summary", e);
+            return Optional.empty();
+        }
+    }
+
+    private static void add(DiffObjectCount total, DiffObjectCount c) {
+        total.addedFeatures(c.getFeaturesAdded());
+        total.removedFeatures(c.getFeaturesRemoved());
+        total.changedFeatures(c.getFeaturesChanged());
+        total.addedTrees(c.getTreesAdded());
+        total.removedTrees(c.getTreesRemoved());
+        total.changedTrees(c.getTreesChanged());
+    }
+}
@@ -0,0 +1,169 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+
+import lombok.NonNull;
+
+/**
+ * A {@link PreOrderDiffWalk.Consumer} decorator that skips all the nodes and buckets that the walk
+ * reports up to and including the position of a {@link DiffCursor}, delegating only the ones that
+ * come after it.
+ * <p>
+ * Skipped trees and buckets are not traversed, and the trees and buckets in the cursor path are
+ * traversed but not delegated, so the delegate sees the same calls it would see after the
+ * cursor's node on a full walk.
+ * <p>
+ * Assumes the walk uses the canonical node order and that trees don't mix features and subtrees,
+ * as is the case of repository trees, where the root tree contains only feature type trees, and
+ * those contain only features. This consumer keeps no mutable state, so it can be used in parallel
+ * walks.
+ */
+public final class CursorFilteringDiffConsumer extends PreOrderDiffWalk.ForwardingConsumer {
+
+    private static enum Position {
+        BEFORE, EQUAL, AFTER
+    }
+
+    private final List<String> cursorPath;
+
+    /**
+     * {@code parentPaths[i]} is the path of the tree containing {@code cursorPath.get(i)}
+     */
+    private final String[] parentPaths;
+
+    /**
+     * {@code buckets[i]} are the canonical bucket indexes of {@code cursorPath.get(i)} at each
+     * depth
+     */
+    private final int[][] buckets;
+
+    public CursorFilteringDiffConsumer(@NonNull DiffCursor cursor,
+            @NonNull PreOrderDiffWalk.Consumer delegate) {
+        super(delegate);
+        this.cursorPath = cursor.pathElements();
+        final int depth = cursorPath.size();
+        this.parentPaths = new String[depth];
+        this.buckets = new int[depth][];
+        String parent = NodeRef.ROOT;
+        for (int i = 0; i < depth; i++) {
+            parentPaths[i] = parent;
+            buckets[i] = CanonicalNodeNameOrder.allBuckets(cursorPath.get(i));
+            parent = NodeRef.appendChild(parent, cursorPath.get(i));
+        }
+    }
+
+    public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+        if (Position.AFTER == position(left, right)) {
+            super.feature(left, right);
+        }
+        return true;
+    }
+
+    public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+        if (isRoot(left, right)) {
+            return super.tree(left, right);
+        }
+        switch (position(left, right)) {
+        case AFTER:
+            return super.tree(left, right);
+        case EQUAL:
+            // on the cursor path, traverse it to reach the cursor position
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    public @Override void endTree(@Nullable NodeRef left, @Nullable NodeRef right) {
+        if (isRoot(left, right) || Position.AFTER == position(left, right)) {
+            super.endTree(left, right);
+        }
+    }
+
+    public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
+            BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+        if (Position.BEFORE == position(leftParent, rightParent, bucketIndex)) {
+            return false;
+        }
+        return super.bucket(leftParent, rightParent, bucketIndex, left, right);
+    }
+
+    public @Override void endBucket(NodeRef leftParent, NodeRef rightParent,
+            BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+        if (Position.BEFORE != position(leftParent, rightParent, bucketIndex)) {
+            super.endBucket(leftParent, rightParent, bucketIndex, left, right);
+        }
+    }
+
+    private boolean isRoot(@Nullable NodeRef left, @Nullable NodeRef right) {
+        return (left == null ? right : left).getParentPath() == null;
+    }
+
+    /**
+     * @return the index in the cursor path of the element that's a sibling of a node with the
+     *         given parent path, or {@code -1} if the parent is not in the cursor path
+     */
+    private int cursorIndex(String parentPath) {
+        final int index = parentPath.isEmpty() ? 0 : 1 + count(parentPath, '/');
+        if (index < parentPaths.length && parentPaths[index].equals(parentPath)) {
+            return index;
+        }
+        return -1;
+    }
+
+    private static int count(String s, char c) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Position position(@Nullable NodeRef left, @Nullable NodeRef right) {
+        final NodeRef node = left == null ? right : left;
+        final int index = cursorIndex(node.getParentPath());
+        if (index == -1) {
+            // the parent tree is past the cursor, otherwise it'd have not been traversed
+            return Position.AFTER;
+        }
+        final int c = CanonicalNodeNameOrder.INSTANCE.compare(node.name(), cursorPath.get(index));
+        return c < 0 ? Position.BEFORE : (c == 0 ? Position.EQUAL : Position.AFTER);
+    }
+
+    private Position position(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex) {
+        final NodeRef parent = leftParent == null ? rightParent : leftParent;
+        final int index = cursorIndex(parent.path());
+        if (index == -1) {
+            return Position.AFTER;
+        }
+        final int[] cursorBuckets = buckets[index];
+        final int[] indexPath = bucketIndex.getIndexPath();
+        // the cursor's buckets are known up to the canonical order's max depth, deeper buckets
+        // under the cursor path are traversed and their nodes compared by name
+        final int depthLength = Math.min(indexPath.length, cursorBuckets.length);
+        for (int depth = 0; depth < depthLength; depth++) {
+            int c = Integer.compare(indexPath[depth], cursorBuckets[depth]);
+            if (c != 0) {
+                return c < 0 ? Position.BEFORE : Position.AFTER;
+            }
+        }
+        return Position.EQUAL;
+    }
+}
@@ -9,8 +9,11 @@
  */
 package org.locationtech.geogig.plumbing.diff;
 
+import java.util.Optional;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
@@ -25,6 +28,11 @@ import org.locationtech.geogig.storage.ObjectStore;
  * <p>
  * Use {@link DiffCountConsumer#get() consumer.get()} after {@link PreOrderDiffWalk#walk(Consumer)
  * visitor.walk(consumer)} to get the resulting {@link DiffObjectCount}.
+ * <p>
+ * If a {@link #setCache(DiffResultCache) cache} is provided, the count of each pair of changed
+ * subtrees (e.g. feature type trees) is taken from the cache, or computed separately and added to
+ * the cache, so that later diffs involving the same subtree pair don't need to traverse them
+ * again.
  */
 public class DiffCountConsumer extends PreOrderDiffWalk.AbstractConsumer {
 
@@ -34,6 +42,8 @@ public class DiffCountConsumer extends PreOrderDiffWalk.AbstractConsumer {
 
     private ObjectStore rightSource;
 
+    private @Nullable DiffResultCache cache;
+
     public DiffCountConsumer(ObjectStore db) {
         this(db, db);
     }
@@ -43,6 +53,14 @@ public class DiffCountConsumer extends PreOrderDiffWalk.AbstractConsumer {
         this.rightSource = rightSource;
     }
 
+    /**
+     * Sets the cache where to get and put the counts of changed subtree pairs
+     */
+    public DiffCountConsumer setCache(@Nullable DiffResultCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
     public DiffObjectCount get() {
         return count;
     }
@@ -76,9 +94,37 @@ public class DiffCountConsumer extends PreOrderDiffWalk.AbstractConsumer {
         }
 
         count.changedTrees(1);// the tree changed, or this method wouldn't have been called
+        if (cache != null) {
+            add(subtreeCount(left.getObjectId(), right.getObjectId()));
+            return false;
+        }
         return true;
     }
 
+    private DiffObjectCount subtreeCount(ObjectId leftId, ObjectId rightId) {
+        Optional<DiffObjectCount> cached = cache.getCount(leftId, rightId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        RevTree leftTree = leftSource.getTree(leftId);
+        RevTree rightTree = rightSource.getTree(rightId);
+        DiffCountConsumer subtreeCounter = new DiffCountConsumer(leftSource, rightSource)
+                .setCache(cache);
+        new PreOrderDiffWalk(leftTree, rightTree, leftSource, rightSource).walk(subtreeCounter);
+        DiffObjectCount subtreeCount = subtreeCounter.get();
+        cache.putCount(leftId, rightId, subtreeCount);
+        return subtreeCount;
+    }
+
+    private void add(DiffObjectCount c) {
+        count.addedFeatures(c.getFeaturesAdded());
+        count.removedFeatures(c.getFeaturesRemoved());
+        count.changedFeatures(c.getFeaturesChanged());
+        count.addedTrees(c.getTreesAdded());
+        count.removedTrees(c.getTreesRemoved());
+        count.changedTrees(c.getTreesChanged());
+    }
+
     public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
             BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
 
@@ -0,0 +1,112 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
+
+import lombok.NonNull;
+
+/**
+ * A position in the canonical order in which a diff walk reports the differences between two
+ * trees, used to resume a diff right after the last {@link DiffEntry} a previous one returned.
+ * <p>
+ * The walk visits the children of each tree in {@link CanonicalNodeNameOrder canonical order},
+ * hence the position of any node relative to the cursor can be determined out of its path alone:
+ * at each level of the cursor path, nodes and buckets that sort before the cursor path element
+ * are entirely skipped, without loading their trees, and those that sort after it are reported.
+ * This makes resuming a diff at any position cost about the same as starting it.
+ * <p>
+ * The cursor doesn't depend on the trees being compared, so it can be used to resume a diff
+ * between any two trees, and can be transferred as an opaque {@link #toToken() token}, for
+ * example to page through a diff from a web client.
+ *
+ * @see CursorFilteringDiffConsumer
+ */
+public final class DiffCursor {
+
+    private final String path;
+
+    private DiffCursor(String path) {
+        checkArgument(!path.isEmpty(), "cursor path can't be empty");
+        this.path = path;
+    }
+
+    /**
+     * @param path the full path of the last reported node; if it's a tree, the diff resumes with
+     *        its contents, as they come right after it in the walk order
+     */
+    public static DiffCursor of(@NonNull String path) {
+        return new DiffCursor(path);
+    }
+
+    /**
+     * @return a cursor to resume a diff right after the given entry
+     */
+    public static DiffCursor after(@NonNull DiffEntry entry) {
+        NodeRef node = entry.getNewObject() == null ? entry.getOldObject()
+                : entry.getNewObject();
+        return new DiffCursor(node.path());
+    }
+
+    /**
+     * Parses a token created with {@link #toToken()}
+     *
+     * @throws IllegalArgumentException if the token is not a valid cursor token
+     */
+    public static DiffCursor parse(@NonNull String token) {
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid diff cursor: " + token);
+        }
+        checkArgument(!decoded.isEmpty(), "Invalid diff cursor: %s", token);
+        return new DiffCursor(decoded);
+    }
+
+    /**
+     * @return an opaque, URL safe, representation of this cursor
+     */
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    List<String> pathElements() {
+        return NodeRef.split(path);
+    }
+
+    public @Override boolean equals(Object o) {
+        if (!(o instanceof DiffCursor)) {
+            return false;
+        }
+        return path.equals(((DiffCursor) o).path);
+    }
+
+    public @Override int hashCode() {
+        return path.hashCode();
+    }
+
+    public @Override String toString() {
+        return String.format("DiffCursor[%s]", path);
+    }
+}
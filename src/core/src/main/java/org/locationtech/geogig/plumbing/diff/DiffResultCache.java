@@ -0,0 +1,370 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.impl.Blobs;
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import lombok.NonNull;
+
+/**
+ * A size bounded, least recently used, cache of {@link DiffObjectCount diff counts} and
+ * {@link DiffSummary diff bounds} keyed by the pair of tree ids they were computed for, persisted
+ * to a repository's {@link BlobStore}.
+ * <p>
+ * Since trees are immutable, the result of counting or computing the bounds of the differences
+ * between two trees never changes, and can be reused by any later diff between the same trees, or
+ * between any two trees that contain them (e.g. the feature type trees that didn't change between
+ * two commits other than the ones being compared).
+ * <p>
+ * The cache is loaded lazily the first time it's accessed, and written back on {@link #flush()} if
+ * it has been modified. Like {@link org.locationtech.geogig.storage.impl.CommitGraphIndex
+ * CommitGraphIndex}, it's stored in two layers: a base blob, {@link #BLOB_NAME diff_cache}, with
+ * all the entries, and a tip blob, {@link #TIP_BLOB_NAME diff_cache.tip}, with the ones added
+ * since the base was last written. Flushing only rewrites the tip, and the tip is merged into the
+ * base once it grows past a tenth of the cache size, so the cost of a flush is proportional to the
+ * number of recent misses rather than to the size of the cache. There's a single instance per
+ * {@link BlobStore}, obtained through {@link #of(Context)} or {@link #of(BlobStore)}.
+ * <p>
+ * Results that were cheap to compute, those involving less than a given number of changed
+ * features, are kept in memory but not persisted, so that small diffs don't write to the blob
+ * store. The threshold defaults to {@code 1000} and can be overridden through the
+ * {@code geogig.diff.cacheMinChanges} System property.
+ * <p>
+ * Results involving the root trees of {@link Ref#WORK_HEAD WORK_HEAD} or {@link Ref#STAGE_HEAD
+ * STAGE_HEAD} are not to be cached, as those trees are replaced by every change to the working
+ * tree or the staging area and their entries would only evict useful ones. Callers know which
+ * trees they're comparing, so it's up to them to not use the cache for those, as the commands
+ * that use it only do when asked to.
+ * <p>
+ * The max number of cached tree pairs defaults to {@code 4096} and can be overridden through the
+ * {@code geogig.diff.cacheSize} System property, a value of zero disables the cache.
+ */
+public class DiffResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiffResultCache.class);
+
+    static final String BLOB_NAME = "diff_cache";
+
+    static final String TIP_BLOB_NAME = "diff_cache.tip";
+
+    private static final int MIN_TIP_MERGE_SIZE = 64;
+
+    static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("geogig.diff.cacheSize", 4096);
+
+    static final long DEFAULT_MIN_PERSISTED_CHANGES = Long.getLong("geogig.diff.cacheMinChanges",
+            1000);
+
+    private static final String NONE = "-";
+
+    private static final LoadingCache<BlobStore, DiffResultCache> INSTANCES = CacheBuilder
+            .newBuilder()//
+            .weakKeys()//
+            .build(CacheLoader.from(store -> new DiffResultCache(store, DEFAULT_MAX_ENTRIES,
+                    DEFAULT_MIN_PERSISTED_CHANGES)));
+
+    private static class Entry {
+
+        @Nullable
+        long[] count;
+
+        @Nullable
+        Envelope left, right;
+
+        boolean persistent;
+    }
+
+    private final BlobStore blobStore;
+
+    private final int maxEntries;
+
+    private final long minPersistedChanges;
+
+    private Map<String, Entry> entries;
+
+    /**
+     * Keys of the entries added or modified since the base layer was last written
+     */
+    private final Set<String> tip = new LinkedHashSet<>();
+
+    private boolean baseExists;
+
+    private boolean dirty;
+
+    @VisibleForTesting
+    DiffResultCache(@NonNull BlobStore blobStore, int maxEntries) {
+        this(blobStore, maxEntries, 0);
+    }
+
+    @VisibleForTesting
+    DiffResultCache(@NonNull BlobStore blobStore, int maxEntries, long minPersistedChanges) {
+        checkArgument(maxEntries > 0, "maxEntries must be > 0");
+        this.blobStore = blobStore;
+        this.maxEntries = maxEntries;
+        this.minPersistedChanges = minPersistedChanges;
+    }
+
+    /**
+     * @return the cache for the given blob store, or {@link Optional#empty() empty} if the blob
+     *         store is {@code null} or the cache is disabled
+     */
+    public static Optional<DiffResultCache> of(@Nullable BlobStore blobStore) {
+        if (blobStore == null || DEFAULT_MAX_ENTRIES <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(INSTANCES.getUnchecked(blobStore));
+    }
+
+    /**
+     * @return the cache for the repository's object database {@link BlobStore}, not the
+     *         transaction scoped one if {@code context} is a transaction, as cached results do not
+     *         depend on the transaction state
+     */
+    public static Optional<DiffResultCache> of(@NonNull Context context) {
+        ObjectDatabase odb = context.objectDatabase();
+        return of(odb == null ? null : odb.getBlobStore());
+    }
+
+    /**
+     * @return whether {@code refSpec} names the root tree of {@link Ref#WORK_HEAD WORK_HEAD} or
+     *         {@link Ref#STAGE_HEAD STAGE_HEAD}, whose diff results are not to be cached
+     */
+    public static boolean isTransient(@Nullable String refSpec) {
+        return Ref.WORK_HEAD.equals(refSpec) || Ref.STAGE_HEAD.equals(refSpec);
+    }
+
+    public synchronized Optional<DiffObjectCount> getCount(@NonNull ObjectId left,
+            @NonNull ObjectId right) {
+        Entry entry = entries().get(key(left, right));
+        if (entry == null || entry.count == null) {
+            return Optional.empty();
+        }
+        long[] c = entry.count;
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(c[0]);
+        count.removedFeatures(c[1]);
+        count.changedFeatures(c[2]);
+        count.addedTrees((int) c[3]);
+        count.removedTrees((int) c[4]);
+        count.changedTrees((int) c[5]);
+        return Optional.of(count);
+    }
+
+    public synchronized void putCount(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull DiffObjectCount count) {
+        entry(left, right, count.featureCount()).count = new long[] { count.getFeaturesAdded(),
+                count.getFeaturesRemoved(), count.getFeaturesChanged(), count.getTreesAdded(),
+                count.getTreesRemoved(), count.getTreesChanged() };
+    }
+
+    public synchronized Optional<DiffSummary<Envelope, Envelope>> getBounds(
+            @NonNull ObjectId left, @NonNull ObjectId right) {
+        Entry entry = entries().get(key(left, right));
+        if (entry == null || entry.left == null) {
+            return Optional.empty();
+        }
+        return Optional.of(summary(new Envelope(entry.left), new Envelope(entry.right)));
+    }
+
+    /**
+     * @param changes the number of changed features walked to compute the bounds, to tell whether
+     *        they're worth persisting
+     */
+    public synchronized void putBounds(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull DiffSummary<Envelope, Envelope> bounds, long changes) {
+        Entry entry = entry(left, right, changes);
+        entry.left = new Envelope(bounds.getLeft());
+        entry.right = new Envelope(bounds.getRight());
+    }
+
+    /**
+     * Writes the cached results worth persisting to the blob store, if they changed since the last
+     * flush; only the tip layer is written unless it's grown enough to be merged into the base
+     * layer
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        tip.retainAll(entries.keySet());// drop evicted ones
+        if (!baseExists || tip.size() > Math.max(MIN_TIP_MERGE_SIZE, maxEntries / 10)) {
+            write(BLOB_NAME, key -> entries.get(key).persistent);
+            blobStore.removeBlob(TIP_BLOB_NAME);
+            tip.clear();
+            baseExists = true;
+        } else {
+            write(TIP_BLOB_NAME, tip::contains);
+        }
+        dirty = false;
+    }
+
+    private void write(String blobName, Predicate<String> keys) {
+        StringBuilder sb = new StringBuilder();
+        entries.forEach((key, entry) -> {
+            if (!keys.test(key)) {
+                return;
+            }
+            sb.append(key).append('\t');
+            if (entry.count == null) {
+                sb.append(NONE);
+            } else {
+                for (int i = 0; i < entry.count.length; i++) {
+                    sb.append(i == 0 ? "" : ",").append(entry.count[i]);
+                }
+            }
+            sb.append('\t');
+            if (entry.left == null) {
+                sb.append(NONE);
+            } else {
+                encode(entry.left, sb);
+                sb.append(';');
+                encode(entry.right, sb);
+            }
+            sb.append('\n');
+        });
+        Blobs.putBlob(blobStore, blobName, sb);
+    }
+
+    /**
+     * Creates a diff bounds summary out of the left and right bounds, whose merged result is their
+     * union
+     */
+    public static DiffSummary<Envelope, Envelope> summary(Envelope left, Envelope right) {
+        Envelope merged;
+        if (left.isNull()) {
+            merged = right;
+        } else if (right.isNull()) {
+            merged = left;
+        } else {
+            merged = new Envelope(left);
+            merged.expandToInclude(right);
+        }
+        return new DiffSummary<Envelope, Envelope>(left, right, merged);
+    }
+
+    private String key(ObjectId left, ObjectId right) {
+        return left.toString() + "/" + right.toString();
+    }
+
+    private Entry entry(ObjectId left, ObjectId right, long changes) {
+        String key = key(left, right);
+        Entry entry = entries().computeIfAbsent(key, k -> new Entry());
+        if (changes >= minPersistedChanges) {
+            entry.persistent = true;
+        }
+        if (entry.persistent) {
+            dirty = true;
+            tip.add(key);
+        }
+        return entry;
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                protected @Override boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+            baseExists = load(BLOB_NAME);
+            if (baseExists) {
+                load(TIP_BLOB_NAME);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return whether the blob exists
+     */
+    private boolean load(String blobName) {
+        final boolean tipLayer = TIP_BLOB_NAME.equals(blobName);
+        final Optional<byte[]> blob;
+        try {
+            blob = blobStore.getBlob(blobName);
+        } catch (RuntimeException e) {
+            log.warn("Unable to load the diff result cache blob {}, ignoring it", blobName, e);
+            return false;
+        }
+        for (String line : Blobs.readLines(blob)) {
+            List<String> parts = Splitter.on('\t').splitToList(line);
+            if (parts.size() != 3) {
+                continue;
+            }
+            try {
+                Entry entry = new Entry();
+                entry.persistent = true;
+                if (!NONE.equals(parts.get(1))) {
+                    entry.count = Splitter.on(',').splitToList(parts.get(1)).stream()
+                            .mapToLong(Long::parseLong).toArray();
+                    checkArgument(entry.count.length == 6);
+                }
+                if (!NONE.equals(parts.get(2))) {
+                    List<String> envs = Splitter.on(';').splitToList(parts.get(2));
+                    entry.left = decode(envs.get(0));
+                    entry.right = decode(envs.get(1));
+                }
+                entries.put(parts.get(0), entry);
+                if (tipLayer) {
+                    tip.add(parts.get(0));
+                }
+            } catch (RuntimeException e) {
+                log.debug("Ignoring malformed diff cache entry {}", line);
+            }
+        }
+        return blob.isPresent();
+    }
+
+    private static void encode(Envelope env, StringBuilder sb) {
+        if (env.isNull()) {
+            sb.append(NONE);
+        } else {
+            sb.append(env.getMinX()).append(',').append(env.getMaxX()).append(',')
+                    .append(env.getMinY()).append(',').append(env.getMaxY());
+        }
+    }
+
+    private static Envelope decode(String env) {
+        if (NONE.equals(env)) {
+            return new Envelope();
+        }
+        double[] ords = Splitter.on(',').splitToList(env).stream()
+                .mapToDouble(Double::parseDouble).toArray();
+        checkArgument(ords.length == 4);
+        return new Envelope(ords[0], ords[1], ords[2], ords[3]);
+    }
+}
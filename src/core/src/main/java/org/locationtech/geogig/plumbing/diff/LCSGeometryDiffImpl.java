@@ -11,32 +11,36 @@ package org.locationtech.geogig.plumbing.diff;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.FieldType;
 import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.Diff;
-import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.LinesToCharsResult;
 import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.Operation;
 import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.Patch;
+import org.locationtech.geogig.plumbing.diff.MyersDiff.Edit;
 import org.locationtech.geogig.storage.text.TextValueSerializer;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Polygon;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
-import com.google.common.collect.Iterators;
 
 /**
  * An class that computes differences between geometries using a Longest-Common-Subsequence
- * algorithm on string representations of them
- * 
+ * algorithm.
+ * <p>
+ * The number of deleted, added, and moved points, as well as the
+ * {@link #getDiffCoordsString() human readable} representation of the diff, are computed by
+ * diffing the sequences of coordinates of both geometries directly, optionally considering two
+ * coordinates equal if they're within a given tolerance. The patch used to
+ * {@link #applyOn(Geometry) apply} the diff and to {@link #asText() serialize} it works on the WKT
+ * representation of the geometries, and is computed lazily the first time it's needed. For large
+ * geometries the WKT is first diffed by coordinate tokens, and only the changed tokens are diffed
+ * character by character.
  */
 public class LCSGeometryDiffImpl {
 
@@ -44,8 +48,22 @@ public class LCSGeometryDiffImpl {
 
     public static final String INNER_RING_SEPARATOR = "@";
 
+    /**
+     * Max length of the WKT of both geometries for the patch to be computed with a character by
+     * character diff, larger ones are first diffed by coordinate tokens
+     */
+    private static final int CHAR_DIFF_THRESHOLD = 1000;
+
+    /**
+     * Max number of steps for the coordinates diff to find the shortest edit script, in the order
+     * of the work needed to diff two geometries of 100k coordinates with a hundred changes
+     */
+    private static final long MAX_DIFF_STEPS = 20_000_000;
+
     private LinkedList<Patch> patches;
 
+    private @Nullable Geometry oldGeom, newGeom;
+
     private DiffMatchPatch diffMatchPatch;
 
     private int totalInsertions;
@@ -57,33 +75,46 @@ public class LCSGeometryDiffImpl {
     private String diffText;
 
     public LCSGeometryDiffImpl(@Nullable Geometry oldGeom, @Nullable Geometry newGeom) {
-        String oldText = oldGeom == null ? "" : oldGeom.toText();
-        String newText = newGeom == null ? "" : newGeom.toText();
+        this(oldGeom, newGeom, 0d);
+    }
+
+    /**
+     * @param tolerance max difference in the {@code x} and {@code y} ordinates for two coordinates
+     *        to be considered equal when counting and reporting the changed points. Doesn't affect
+     *        the patch, which always turns {@code oldGeom} exactly into {@code newGeom}
+     */
+    public LCSGeometryDiffImpl(@Nullable Geometry oldGeom, @Nullable Geometry newGeom,
+            double tolerance) {
+        Preconditions.checkArgument(tolerance >= 0, "tolerance must be >= 0");
+        this.oldGeom = oldGeom;
+        this.newGeom = newGeom;
         diffMatchPatch = new DiffMatchPatch();
-        LinkedList<Diff> diffs = diffMatchPatch.diff_main(oldText, newText);
-        patches = diffMatchPatch.patch_make(diffs);
-
-        // to calculate number of edits in the geometry, we do a diffing based on a string
-        // representation of the coordinates of the geometry, instead of the WKT.
-        // This is more more practical for counting added/removed/edited points and generating a
-        // human-readable and easy-to-parse string representation of the diff.
-        // NOTE! This is limited to geometries with less than 65535 different points, and might
-        // yield wrong results for geometries over that limit.
-        // This is a temporary hack, until a better solution is developed.
-
-        oldText = geomToStringOfCoordinates(oldGeom);
-        newText = geomToStringOfCoordinates(newGeom);
-        LinesToCharsResult chars = coordsToChars(oldText, newText);
-        diffs = diffMatchPatch.diff_main(chars.chars1, chars.chars2);
-        charsToCoords(diffs, chars.lineArray);
 
+        // to calculate number of edits in the geometry, we diff the sequences of coordinates of
+        // the geometries, instead of the WKT. This is more more practical for counting
+        // added/removed/edited points and generating a human-readable and easy-to-parse string
+        // representation of the diff.
+        final List<Object> oldTokens = tokenize(oldGeom);
+        final List<Object> newTokens = tokenize(newGeom);
+        List<Edit> edits = MyersDiff.diff(oldTokens.size(), newTokens.size(),
+                (i, j) -> tokenEquals(oldTokens.get(i), newTokens.get(j), tolerance),
+                MAX_DIFF_STEPS);
+
+        List<Diff> diffs = new ArrayList<>(edits.size());
+        for (Edit e : edits) {
+            List<Object> tokens = e.operation == Operation.INSERT ? newTokens : oldTokens;
+            diffs.add(new Diff(e.operation, tokensToText(tokens.subList(e.start, e.end()))));
+        }
         processDiffs(diffs);
-
     }
 
-    private LCSGeometryDiffImpl(LinkedList<Patch> patches) {
+    private LCSGeometryDiffImpl(LinkedList<Patch> patches, int totalDeletions,
+            int totalInsertions, int replacings) {
         diffMatchPatch = new DiffMatchPatch();
         this.patches = patches;
+        this.totalDeletions = totalDeletions;
+        this.totalInsertions = totalInsertions;
+        this.replacings = replacings;
     }
 
     public LCSGeometryDiffImpl(String s) {
@@ -158,49 +189,154 @@ public class LCSGeometryDiffImpl {
         diffText = diffText.replace(" ]", "]");
     }
 
-    private String geomToStringOfCoordinates(@Nullable Geometry geom) {
+    /**
+     * Splits the geometry in the type name, its coordinates, and the {@link #SUBGEOM_SEPARATOR}
+     * and {@link #INNER_RING_SEPARATOR} tokens delimiting sub-geometries and inner rings
+     */
+    private List<Object> tokenize(@Nullable Geometry geom) {
+        List<Object> tokens = new ArrayList<>();
         if (null == geom) {
-            return "";
+            return tokens;
         }
-        final Function<Coordinate, String> printCoords = (c) -> Double.toString(c.x) + ","
-                + Double.toString(c.y);
-
-        StringBuilder sb = new StringBuilder();
-        sb.append(geom.getGeometryType() + " ");
+        tokens.add(geom.getGeometryType());
         int n = geom.getNumGeometries();
         for (int i = 0; i < n; i++) {
             Geometry subgeom = geom.getGeometryN(i);
             if (subgeom instanceof Polygon) {
                 Polygon polyg = (Polygon) subgeom;
-                Coordinate[] coords = polyg.getExteriorRing().getCoordinates();
-                Iterator<String> iter = Iterators.transform(Iterators.forArray(coords),
-                        printCoords::apply);
-                sb.append(Joiner.on(' ').join(iter));
+                addAll(polyg.getExteriorRing().getCoordinates(), tokens);
                 for (int j = 0; j < polyg.getNumInteriorRing(); j++) {
-                    coords = polyg.getInteriorRingN(j).getCoordinates();
-                    iter = Iterators.transform(Iterators.forArray(coords), printCoords::apply);
-                    sb.append(" " + INNER_RING_SEPARATOR + " ");
-                    sb.append(Joiner.on(' ').join(iter));
+                    tokens.add(INNER_RING_SEPARATOR);
+                    addAll(polyg.getInteriorRingN(j).getCoordinates(), tokens);
                 }
                 if (i < n - 1) {
-                    sb.append(" " + SUBGEOM_SEPARATOR + " ");
+                    tokens.add(SUBGEOM_SEPARATOR);
                 }
             } else {
-                Coordinate[] coords = subgeom.getCoordinates();
-                Iterator<String> iter = Iterators.transform(Iterators.forArray(coords),
-                        printCoords::apply);
-                sb.append(Joiner.on(' ').join(iter));
-                sb.append(" " + SUBGEOM_SEPARATOR + " ");
+                addAll(subgeom.getCoordinates(), tokens);
+                tokens.add(SUBGEOM_SEPARATOR);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addAll(Coordinate[] coords, List<Object> tokens) {
+        for (Coordinate c : coords) {
+            tokens.add(c);
+        }
+    }
+
+    private static boolean tokenEquals(Object t1, Object t2, double tolerance) {
+        if (t1 instanceof Coordinate && t2 instanceof Coordinate) {
+            return ((Coordinate) t1).equals2D((Coordinate) t2, tolerance);
+        }
+        return t1.equals(t2);
+    }
+
+    private static String tokensToText(List<Object> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (Object token : tokens) {
+            String text;
+            if (token instanceof Coordinate) {
+                Coordinate c = (Coordinate) token;
+                text = Double.toString(c.x) + "," + Double.toString(c.y);
+            } else {
+                text = (String) token;
+            }
+            sb.append(text);
+            if (text.length() > 2) {
+                sb.append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the patch that turns the WKT of the old geometry into the WKT of the new one,
+     *         computing it if this diff was created out of the geometries
+     */
+    private synchronized LinkedList<Patch> patches() {
+        if (patches == null) {
+            String oldText = oldGeom == null ? "" : oldGeom.toText();
+            String newText = newGeom == null ? "" : newGeom.toText();
+            LinkedList<Diff> diffs;
+            if (oldText.length() + newText.length() <= CHAR_DIFF_THRESHOLD) {
+                diffs = diffMatchPatch.diff_main(oldText, newText);
+            } else {
+                diffs = wktTokenDiff(oldText, newText);
+            }
+            patches = diffMatchPatch.patch_make(diffs);
+            oldGeom = null;
+            newGeom = null;
+        }
+        return patches;
+    }
+
+    /**
+     * Diffs the WKT of two geometries by tokens ending at each comma (i.e. coordinates, for the
+     * most part), then refines each replaced run of tokens with a character diff. The result is
+     * equivalent to a character diff, but its cost depends on the number of coordinates and
+     * changes, rather than on the length of the texts.
+     */
+    private LinkedList<Diff> wktTokenDiff(String oldText, String newText) {
+        final List<String> oldTokens = splitWkt(oldText);
+        final List<String> newTokens = splitWkt(newText);
+        final Map<String, Integer> ids = new HashMap<>();
+        final int[] oldIds = intern(oldTokens, ids);
+        final int[] newIds = intern(newTokens, ids);
+        List<Edit> edits = MyersDiff.diff(oldIds.length, newIds.length,
+                (i, j) -> oldIds[i] == newIds[j], MAX_DIFF_STEPS);
+
+        LinkedList<Diff> diffs = new LinkedList<>();
+        for (int i = 0; i < edits.size(); i++) {
+            Edit e = edits.get(i);
+            if (e.operation == Operation.DELETE && i < edits.size() - 1
+                    && edits.get(i + 1).operation == Operation.INSERT) {
+                Edit insert = edits.get(++i);
+                diffs.addAll(diffMatchPatch.diff_main(join(oldTokens, e), join(newTokens, insert),
+                        false));
+            } else {
+                List<String> tokens = e.operation == Operation.INSERT ? newTokens : oldTokens;
+                diffs.add(new Diff(e.operation, join(tokens, e)));
             }
         }
+        diffMatchPatch.diff_cleanupMerge(diffs);
+        return diffs;
+    }
 
-        String s = sb.toString().trim();
-        return s;
+    private static List<String> splitWkt(String wkt) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < wkt.length(); i++) {
+            if (wkt.charAt(i) == ',') {
+                tokens.add(wkt.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < wkt.length()) {
+            tokens.add(wkt.substring(start));
+        }
+        return tokens;
+    }
+
+    private static int[] intern(List<String> tokens, Map<String, Integer> ids) {
+        int[] interned = new int[tokens.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = ids.computeIfAbsent(tokens.get(i), t -> ids.size());
+        }
+        return interned;
+    }
 
+    private static String join(List<String> tokens, Edit edit) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = edit.start; i < edit.end(); i++) {
+            sb.append(tokens.get(i));
+        }
+        return sb.toString();
     }
 
     public LCSGeometryDiffImpl reversed() {
-        LinkedList<Patch> reversedPatches = diffMatchPatch.patch_deepCopy(patches);
+        LinkedList<Patch> reversedPatches = diffMatchPatch.patch_deepCopy(patches());
         for (Patch patch : reversedPatches) {
             LinkedList<Diff> diffs = patch.diffs;
             for (Diff diff : diffs) {
@@ -211,13 +347,18 @@ public class LCSGeometryDiffImpl {
                 }
             }
         }
-        return new LCSGeometryDiffImpl(reversedPatches);
+        return new LCSGeometryDiffImpl(reversedPatches, totalInsertions, totalDeletions,
+                replacings);
     }
 
     public boolean canBeAppliedOn(@Nullable Geometry obj) {
         String wkt = obj == null ? "" : obj.toText();
-        Object[] res = diffMatchPatch.patch_apply(patches, wkt);
-        boolean[] bool = (boolean[]) res[1];
+        Object[] res = diffMatchPatch.patch_apply(patches(), wkt);
+        return allApplied(res);
+    }
+
+    private static boolean allApplied(Object[] patchApplyResult) {
+        boolean[] bool = (boolean[]) patchApplyResult[1];
         for (int i = 0; i < bool.length; i++) {
             if (!bool[i]) {
                 return false;
@@ -228,9 +369,10 @@ public class LCSGeometryDiffImpl {
 
     @Nullable
     public Geometry applyOn(@Nullable Geometry obj) {
-        Preconditions.checkState(canBeAppliedOn(obj));
         String wkt = obj == null ? "" : obj.toText();
-        String res = (String) diffMatchPatch.patch_apply(patches, wkt)[0];
+        Object[] applied = diffMatchPatch.patch_apply(patches(), wkt);
+        Preconditions.checkState(allApplied(applied));
+        String res = (String) applied[0];
         if (!res.isEmpty()) {
             return (Geometry) TextValueSerializer.fromString(FieldType.forBinding(Geometry.class),
                     res);
@@ -261,7 +403,7 @@ public class LCSGeometryDiffImpl {
         sb.append('/');
         sb.append(Integer.toString(replacings));
         sb.append('\t');
-        sb.append(diffMatchPatch.patch_toText(patches).replace("\n", "\\n"));
+        sb.append(diffMatchPatch.patch_toText(patches()).replace("\n", "\\n"));
         return sb.toString();
     }
 
@@ -270,12 +412,14 @@ public class LCSGeometryDiffImpl {
             return false;
         }
         LCSGeometryDiffImpl d = (LCSGeometryDiffImpl) o;
-        if (this.patches.size() != d.patches.size()) {
+        final LinkedList<Patch> patches = patches();
+        final LinkedList<Patch> otherPatches = d.patches();
+        if (patches.size() != otherPatches.size()) {
             return false;
         }
-        for (int i = 0; i < d.patches.size(); i++) {
+        for (int i = 0; i < otherPatches.size(); i++) {
             Patch patchA = patches.get(i);
-            Patch patchB = d.patches.get(i);
+            Patch patchB = otherPatches.get(i);
             if (!patchA.equals(patchB)) {
                 return false;
             }
@@ -283,54 +427,6 @@ public class LCSGeometryDiffImpl {
         return true;
     }
 
-    // ========================================================================================
-    // These 2 methods are meant to be used to split a text containing a representation of
-    // coordinate in a geometry into chunks representing points that can be then hashed
-    // as characters.
-    // They are just an adapted version of the diff_lineToChars method in diff_match_patch, using a
-    // different split character and some extra behaviour
-
-    protected LinesToCharsResult coordsToChars(String text1, String text2) {
-        List<String> lineArray = new ArrayList<String>();
-        Map<String, Integer> lineHash = new HashMap<String, Integer>();
-        lineArray.add("");
-
-        String chars1 = splitAndHash(text1, lineArray, lineHash, ' ');
-        String chars2 = splitAndHash(text2, lineArray, lineHash, ' ');
-        return new LinesToCharsResult(chars1, chars2, lineArray);
-    }
-
-    private String splitAndHash(String text, List<String> lineArray, Map<String, Integer> lineHash,
-            char splitChar) {
-        StringBuilder chars = new StringBuilder();
-        Iterable<String> tokens = Splitter.on(" ").split(text);
-        for (String token : tokens) {
-            if (lineHash.containsKey(token)) {
-                chars.append(String.valueOf((char) (int) lineHash.get(token)));
-            } else {
-                lineArray.add(token);
-                lineHash.put(token, lineArray.size() - 1);
-                chars.append(String.valueOf((char) (lineArray.size() - 1)));
-            }
-        }
-        return chars.toString();
-    }
-
-    protected void charsToCoords(LinkedList<Diff> diffs, List<String> lineArray) {
-        StringBuilder text;
-        for (Diff diff : diffs) {
-            text = new StringBuilder();
-            for (int y = 0; y < diff.text.length(); y++) {
-                String coordText = lineArray.get(diff.text.charAt(y));
-                text.append(coordText);
-                if (coordText.length() > 2) {
-                    text.append(' ');
-                }
-            }
-            diff.text = text.toString();
-        }
-    }
-
     /**
      * Returns a string with a human-readable version of this geometry diff. It is basically a
      * collection of coordinates, using the following syntax:
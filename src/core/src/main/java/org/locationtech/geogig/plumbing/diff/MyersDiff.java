@@ -0,0 +1,293 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.Operation;
+
+/**
+ * Computes the shortest edit script between two sequences of elements given only an equality
+ * predicate on their indexes, using Myers' O(ND) algorithm with the linear space "middle snake"
+ * refinement, the same one {@link DiffMatchPatch} uses for strings.
+ * <p>
+ * Since elements are only compared through the {@link Equality} predicate, the sequences can be
+ * anything, like coordinates compared with a tolerance, or tokens of a larger text.
+ * <p>
+ * The resulting {@link Edit edits} are normalized so that adjacent edits of the same kind are
+ * merged, and between two {@link Operation#EQUAL equal} runs there's at most one
+ * {@link Operation#DELETE delete} followed by at most one {@link Operation#INSERT insert}.
+ * <p>
+ * The work is bounded by a budget of steps, where a step is either visiting a diagonal of the edit
+ * graph or comparing two elements. If the budget is exhausted before the shortest edit script is
+ * found, the remaining unresolved ranges are reported as a deletion followed by an insertion, hence
+ * the result is still a valid, though not minimal, edit script. Unlike a time limit, this makes the
+ * result deterministic.
+ */
+final class MyersDiff {
+
+    /**
+     * Equality predicate for the elements at index {@code i} of the first sequence and index
+     * {@code j} of the second one
+     */
+    @FunctionalInterface
+    static interface Equality {
+        boolean equal(int i, int j);
+    }
+
+    /**
+     * A run of {@code length} elements starting at {@code start}, which is an index on the first
+     * sequence for {@link Operation#EQUAL} and {@link Operation#DELETE} edits, and on the second
+     * sequence for {@link Operation#INSERT} edits.
+     */
+    static final class Edit {
+
+        final Operation operation;
+
+        final int start;
+
+        int length;
+
+        Edit(Operation operation, int start, int length) {
+            this.operation = operation;
+            this.start = start;
+            this.length = length;
+        }
+
+        int end() {
+            return start + length;
+        }
+
+        public @Override String toString() {
+            return String.format("%s[%d:%d]", operation, start, end());
+        }
+    }
+
+    private final Equality eq;
+
+    /**
+     * Remaining steps of the budget
+     */
+    private long steps;
+
+    private final List<Edit> edits = new ArrayList<>();
+
+    private MyersDiff(Equality eq, long maxSteps) {
+        this.eq = eq;
+        this.steps = maxSteps;
+    }
+
+    /**
+     * @param n the length of the first sequence
+     * @param m the length of the second sequence
+     * @param eq equality predicate for elements of both sequences
+     * @param maxSteps max number of steps after which to stop looking for the shortest edit
+     *        script; the common prefix and suffix of the sequences are always found regardless
+     * @return the edits to turn the first sequence into the second one
+     */
+    static List<Edit> diff(final int n, final int m, final Equality eq, final long maxSteps) {
+        MyersDiff diff = new MyersDiff(eq, maxSteps);
+        diff.diff(0, n, 0, m);
+        return diff.normalize();
+    }
+
+    private void diff(int a0, int a1, int b0, int b1) {
+        final int prefixStart = a0;
+        while (a0 < a1 && b0 < b1 && eq.equal(a0, b0)) {
+            a0++;
+            b0++;
+        }
+        add(Operation.EQUAL, prefixStart, a0 - prefixStart);
+
+        int suffix = 0;
+        while (a0 < a1 - suffix && b0 < b1 - suffix && eq.equal(a1 - suffix - 1, b1 - suffix - 1)) {
+            suffix++;
+        }
+        a1 -= suffix;
+        b1 -= suffix;
+
+        if (a0 == a1) {
+            add(Operation.INSERT, b0, b1 - b0);
+        } else if (b0 == b1) {
+            add(Operation.DELETE, a0, a1 - a0);
+        } else {
+            bisect(a0, a1, b0, b1);
+        }
+        add(Operation.EQUAL, a1, suffix);
+    }
+
+    /**
+     * Finds the middle snake of the edit graph for the given ranges, and recursively diffs the
+     * ranges before and after it
+     */
+    private void bisect(final int a0, final int a1, final int b0, final int b1) {
+        final int n = a1 - a0;
+        final int m = b1 - b0;
+        final int maxD = (n + m + 1) / 2;
+        final int vOffset = maxD;
+        final int vLength = 2 * maxD + 2;
+        final int[] v1 = new int[vLength];
+        final int[] v2 = new int[vLength];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+        final int delta = n - m;
+        // If the total number of elements is odd, then the front path will collide with the
+        // reverse path
+        final boolean front = (delta % 2 != 0);
+        // Offsets for start and end of k loop, prevents mapping of space beyond the grid
+        int k1start = 0, k1end = 0, k2start = 0, k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            if (steps <= 0) {
+                break;
+            }
+            // charge the diagonals visited in both directions, snakes are charged as they grow
+            steps -= 2 * (d + 1);
+            // Walk the front path one step
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                final int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+                    x1 = v1[k1Offset + 1];
+                } else {
+                    x1 = v1[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && eq.equal(a0 + x1, b0 + y1)) {
+                    x1++;
+                    y1++;
+                    steps--;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;// ran off the right of the graph
+                } else if (y1 > m) {
+                    k1start += 2;// ran off the bottom of the graph
+                } else if (front) {
+                    int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+                        // Mirror x2 onto top-left coordinate system
+                        int x2 = n - v2[k2Offset];
+                        if (x1 >= x2) {
+                            split(a0, a1, b0, b1, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+            // Walk the reverse path one step
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                final int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+                    x2 = v2[k2Offset + 1];
+                } else {
+                    x2 = v2[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && eq.equal(a1 - x2 - 1, b1 - y2 - 1)) {
+                    x2++;
+                    y2++;
+                    steps--;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = vOffset + x1 - k1Offset;
+                        // Mirror x2 onto top-left coordinate system
+                        x2 = n - x2;
+                        if (x1 >= x2) {
+                            split(a0, a1, b0, b1, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        // Ran out of steps or no commonality at all
+        add(Operation.DELETE, a0, n);
+        add(Operation.INSERT, b0, m);
+    }
+
+    private void split(int a0, int a1, int b0, int b1, int x, int y) {
+        diff(a0, a0 + x, b0, b0 + y);
+        diff(a0 + x, a1, b0 + y, b1);
+    }
+
+    private void add(Operation op, int start, int length) {
+        if (length == 0) {
+            return;
+        }
+        Edit last = edits.isEmpty() ? null : edits.get(edits.size() - 1);
+        if (last != null && last.operation == op && last.end() == start) {
+            last.length += length;
+        } else {
+            edits.add(new Edit(op, start, length));
+        }
+    }
+
+    /**
+     * Merges the edits between equal runs into a single delete followed by a single insert. This
+     * is possible because the deleted elements between two equal runs are contiguous in the first
+     * sequence, and so are the inserted ones in the second sequence.
+     */
+    private List<Edit> normalize() {
+        List<Edit> normalized = new ArrayList<>(edits.size());
+        Edit delete = null, insert = null;
+        for (Edit e : edits) {
+            switch (e.operation) {
+            case DELETE:
+                if (delete == null) {
+                    delete = new Edit(Operation.DELETE, e.start, e.length);
+                } else {
+                    delete.length += e.length;
+                }
+                break;
+            case INSERT:
+                if (insert == null) {
+                    insert = new Edit(Operation.INSERT, e.start, e.length);
+                } else {
+                    insert.length += e.length;
+                }
+                break;
+            case EQUAL:
+                flush(normalized, delete, insert);
+                delete = insert = null;
+                Edit last = normalized.isEmpty() ? null : normalized.get(normalized.size() - 1);
+                if (last != null && last.operation == Operation.EQUAL) {
+                    last.length += e.length;
+                } else {
+                    normalized.add(new Edit(Operation.EQUAL, e.start, e.length));
+                }
+                break;
+            }
+        }
+        flush(normalized, delete, insert);
+        return normalized;
+    }
+
+    private void flush(List<Edit> normalized, Edit delete, Edit insert) {
+        if (delete != null) {
+            normalized.add(delete);
+        }
+        if (insert != null) {
+            normalized.add(insert);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.PackedTreeBuilder;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import lombok.NonNull;
+
+/**
+ * Computes the difference between two trees built by a {@link PackedTreeBuilder}, like R-tree,
+ * attribute, and temporal index trees.
+ * <p>
+ * The buckets of a packed tree are not indexed by a function of the nodes they contain, so they
+ * can't be paired by bucket index as {@link PreOrderDiffWalk} does for other trees. Instead, both
+ * trees are expanded level by level, starting by the tallest one, and the trees present at both
+ * sides of the same level are cancelled out. Since packed trees are balanced and updating one only
+ * rebuilds the paths to the changed leaf trees, the cost is proportional to the number of changed
+ * leaf trees rather than to the size of the trees.
+ * <p>
+ * The nodes of the leaf trees that are not cancelled out are returned in {@link CanonicalNodeOrder
+ * canonical order}, hence a node present at both sides is matched by name even if it moved to
+ * another leaf tree.
+ */
+public class PackedTreeDiff {
+
+    private final ObjectStore leftSource;
+
+    private final ObjectStore rightSource;
+
+    public PackedTreeDiff(@NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource) {
+        this.leftSource = leftSource;
+        this.rightSource = rightSource;
+    }
+
+    public Result diff(@NonNull RevTree left, @NonNull RevTree right) {
+        Map<ObjectId, RevTree> leftLevel = level(left);
+        Map<ObjectId, RevTree> rightLevel = level(right);
+        int leftHeight = height(left, leftSource);
+        int rightHeight = height(right, rightSource);
+
+        final Set<ObjectId> rightTrees = new HashSet<>();
+        cancel(leftLevel, rightLevel);
+        rightTrees.addAll(rightLevel.keySet());
+        while ((leftHeight > 0 || rightHeight > 0)
+                && !(leftLevel.isEmpty() && rightLevel.isEmpty())) {
+            final int height = Math.max(leftHeight, rightHeight);
+            if (leftHeight == height) {
+                leftLevel = children(leftLevel, leftSource);
+                leftHeight--;
+            }
+            if (rightHeight == height) {
+                rightLevel = children(rightLevel, rightSource);
+                rightHeight--;
+            }
+            cancel(leftLevel, rightLevel);
+            rightTrees.addAll(rightLevel.keySet());
+        }
+        return new Result(nodes(leftLevel, leftSource), nodes(rightLevel, rightSource),
+                rightTrees);
+    }
+
+    private Map<ObjectId, RevTree> level(RevTree root) {
+        Map<ObjectId, RevTree> level = new HashMap<>();
+        if (!root.isEmpty()) {
+            level.put(root.getId(), root);
+        }
+        return level;
+    }
+
+    /**
+     * @return the height of the tree, given packed trees are balanced
+     */
+    private int height(RevTree tree, ObjectStore source) {
+        int height = 0;
+        while (tree.bucketsSize() > 0) {
+            tree = source.getTree(tree.getBuckets().iterator().next().getObjectId());
+            height++;
+        }
+        return height;
+    }
+
+    private void cancel(Map<ObjectId, RevTree> left, Map<ObjectId, RevTree> right) {
+        Set<ObjectId> common = new HashSet<>(left.keySet());
+        common.retainAll(right.keySet());
+        left.keySet().removeAll(common);
+        right.keySet().removeAll(common);
+    }
+
+    private Map<ObjectId, RevTree> children(Map<ObjectId, RevTree> level, ObjectStore source) {
+        Map<ObjectId, RevTree> children = new HashMap<>();
+        List<ObjectId> bucketIds = new ArrayList<>();
+        for (RevTree tree : level.values()) {
+            if (tree.bucketsSize() == 0) {
+                children.put(tree.getId(), tree);
+            } else {
+                tree.forEachBucket(b -> bucketIds.add(b.getObjectId()));
+            }
+        }
+        source.getAll(bucketIds, BulkOpListener.NOOP_LISTENER, RevTree.class)
+                .forEachRemaining(t -> children.put(t.getId(), t));
+        return children;
+    }
+
+    private List<Node> nodes(Map<ObjectId, RevTree> level, ObjectStore source) {
+        List<Node> nodes = new ArrayList<>();
+        while (!level.isEmpty()) {
+            level.values().forEach(tree -> tree.forEachFeature(nodes::add));
+            level.values().removeIf(tree -> tree.bucketsSize() == 0);
+            level = children(level, source);
+        }
+        nodes.sort(CanonicalNodeOrder.INSTANCE);
+        return nodes;
+    }
+
+    public static class Result {
+
+        private final List<Node> leftNodes;
+
+        private final List<Node> rightNodes;
+
+        private final Set<ObjectId> rightTrees;
+
+        Result(List<Node> leftNodes, List<Node> rightNodes, Set<ObjectId> rightTrees) {
+            this.leftNodes = Collections.unmodifiableList(leftNodes);
+            this.rightNodes = Collections.unmodifiableList(rightNodes);
+            this.rightTrees = Collections.unmodifiableSet(rightTrees);
+        }
+
+        /**
+         * @return the nodes of the left tree that may have been removed or changed, in canonical
+         *         order
+         */
+        public List<Node> getLeftNodes() {
+            return leftNodes;
+        }
+
+        /**
+         * @return the nodes of the right tree that may have been added or changed, in canonical
+         *         order
+         */
+        public List<Node> getRightNodes() {
+            return rightNodes;
+        }
+
+        /**
+         * @return the ids of the trees of the right tree, including the root, that are not at
+         *         the same level of the left tree, and hence may be missing from it
+         */
+        public Set<ObjectId> getRightTrees() {
+            return rightTrees;
+        }
+    }
+}
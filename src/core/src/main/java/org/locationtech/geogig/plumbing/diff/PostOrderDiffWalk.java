@@ -22,6 +22,7 @@ import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Predicate;
@@ -33,15 +34,50 @@ import com.google.common.base.Predicates;
  * <p>
  * Skipping whole subtrees can be achieved by passing a {@link Predicate Predicate<Bounded>} that
  * will be evaluated for each pair of tree {@link Node nodes} or {@link Bucket buckets}.
+ * <p>
+ * By default the walk runs on a single thread and the consumer gets called in strict post-order.
+ * If the consumer is thread safe, that can be indicated through {@link #threadSafeConsumer(boolean)
+ * threadSafeConsumer(true)}, in which case sibling subtrees are walked in parallel using the
+ * walk's {@link #executionPolicy(ExecutionPolicy) execution policy}, and the consumer gets called
+ * concurrently. The post-order contract still holds for each subtree: a tree or bucket is reported
+ * only once all its children have been reported, but the order among siblings is unspecified.
  */
 public class PostOrderDiffWalk {
     private static final Predicate<Bounded> ACEPT_ALL = Predicates.alwaysTrue();
 
-    private PreOrderDiffWalk inOrder;
+    private final RevTree left, right;
+
+    private final ObjectStore leftSource, rightSource;
+
+    private boolean threadSafeConsumer;
+
+    private @Nullable ExecutionPolicy executionPolicy;
 
     public PostOrderDiffWalk(RevTree left, RevTree right, ObjectStore leftSource,
             ObjectStore rightSource) {
-        this.inOrder = new PreOrderDiffWalk(left, right, leftSource, rightSource);
+        this.left = left;
+        this.right = right;
+        this.leftSource = leftSource;
+        this.rightSource = rightSource;
+    }
+
+    /**
+     * Sets whether the consumer and filter given to {@link #walk} can be called concurrently,
+     * allowing the walk to process sibling subtrees in parallel. Defaults to {@code false}.
+     */
+    public PostOrderDiffWalk threadSafeConsumer(boolean threadSafe) {
+        this.threadSafeConsumer = threadSafe;
+        return this;
+    }
+
+    /**
+     * Sets the policy to execute the walk with when the consumer is
+     * {@link #threadSafeConsumer(boolean) thread safe}, defaults to
+     * {@link ExecutionPolicy#defaultPolicy()}.
+     */
+    public PostOrderDiffWalk executionPolicy(@Nullable ExecutionPolicy policy) {
+        this.executionPolicy = policy;
+        return this;
     }
 
     public final void walk(final Consumer consumer) {
@@ -49,6 +85,15 @@ public class PostOrderDiffWalk {
     }
 
     public final void walk(final Predicate<Bounded> filter, final Consumer consumer) {
+        final PreOrderDiffWalk inOrder;
+        if (threadSafeConsumer) {
+            inOrder = new PreOrderDiffWalk(left, right, leftSource, rightSource)
+                    .executionPolicy(executionPolicy);
+        } else {
+            final boolean preserveIterationOrder = true;
+            inOrder = new PreOrderDiffWalk(left, right, leftSource, rightSource,
+                    preserveIterationOrder);
+        }
         DepthFirstConsumer depthFirstConsumer = new DepthFirstConsumer(filter, consumer);
         inOrder.walk(depthFirstConsumer);
     }
@@ -119,9 +164,8 @@ public class PostOrderDiffWalk {
 
         /**
          * Implementation detail: {@link PreOrderDiffWalk} may call in this consumer's tree/endtree
-         * bucket/endBucket methods from different threads, but the pairs of start/end calls are
-         * called from the same thread. This method prepends the thread name to the node path so
-         * there are no clashes in the "stack" map above.
+         * bucket/endBucket methods from different threads, but each tree path is visited only once
+         * per walk, so the paths don't clash in the "stack" map above.
          */
         private String treePath(NodeRef left, NodeRef right) {
             return left == null ? right.path() : left.path();
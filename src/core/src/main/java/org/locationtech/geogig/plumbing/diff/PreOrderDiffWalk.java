@@ -12,7 +12,6 @@ package org.locationtech.geogig.plumbing.diff;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Sets.newTreeSet;
 import static org.locationtech.geogig.model.RevTree.EMPTY;
 import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
@@ -20,6 +19,7 @@ import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -51,6 +51,7 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
@@ -67,7 +68,6 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Streams;
 import com.google.common.primitives.Ints;
 
 import lombok.NonNull;
@@ -92,29 +92,9 @@ public class PreOrderDiffWalk {
         return worker;
     };
 
-    // this is the same as the defaultForkJoinWorkerThreadFactory but gives the threads a
-    // different name (easier to see in debugger)
-    static ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryShared = pool -> {
-        final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
-                .newThread(pool);
-        worker.setName("PreOrderDiffWalk-shared-" + worker.getPoolIndex());
-        return worker;
-    };
-
-    private static final ForkJoinPool SHARED_FORK_JOIN_POOL;
-
     private static final int DEFAULT_PARALLELISM = Math.max(2,
             Runtime.getRuntime().availableProcessors());
 
-    static {
-        // if true, establishes local first-in-first-out scheduling mode for forked
-        // more appropriate than default locally stack-based mode when
-        // worker threads only process event-style asynchronous tasks
-        final boolean asyncMode = true;
-        SHARED_FORK_JOIN_POOL = new ForkJoinPool(DEFAULT_PARALLELISM, threadFactoryShared, null,
-                asyncMode);
-    }
-
     public NodeOrdering ORDER = CanonicalNodeOrder.INSTANCE;
 
     /**
@@ -248,7 +228,13 @@ public class PreOrderDiffWalk {
 
     private ObjectId metadataId;
 
-    private ForkJoinPool forkJoinPool;
+    /**
+     * Private pool for a specific parallelism, {@code null} if running with the
+     * {@link #executionPolicy}
+     */
+    private @Nullable ForkJoinPool forkJoinPool;
+
+    private @Nullable ExecutionPolicy executionPolicy;
 
     private CancellableConsumer walkConsumer = null;
 
@@ -256,13 +242,14 @@ public class PreOrderDiffWalk {
 
     private boolean reportFeatures = true;
 
+    private int prefetchTrees = BucketPrefetcher.DEFAULT_MAX_TREES;
+
     public PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
             @NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource) {
         this.left = left;
         this.right = right;
         this.leftSource = leftSource;
         this.rightSource = rightSource;
-        this.forkJoinPool = SHARED_FORK_JOIN_POOL;
     }
 
     public PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
@@ -279,9 +266,7 @@ public class PreOrderDiffWalk {
         this.right = right;
         this.leftSource = leftSource;
         this.rightSource = rightSource;
-        if (DEFAULT_PARALLELISM == parallelism) {
-            this.forkJoinPool = SHARED_FORK_JOIN_POOL;
-        } else {
+        if (DEFAULT_PARALLELISM != parallelism) {
             this.forkJoinPool = new ForkJoinPool(parallelism, threadFactoryPrivate, null, true);
         }
     }
@@ -315,19 +300,25 @@ public class PreOrderDiffWalk {
 
         final boolean reportFeatures;
 
+        @Nullable
+        final BucketPrefetcher prefetcher;
+
         WalkInfo(CancellableConsumer consumer, SideInfo left, SideInfo right,
-                NodeOrdering nodeOrder, boolean reportFeatures) {
+                NodeOrdering nodeOrder, boolean reportFeatures,
+                @Nullable BucketPrefetcher prefetcher) {
             this.consumer = consumer;
             this.left = left;
             this.right = right;
             this.nodeOrder = nodeOrder;
             this.reportFeatures = reportFeatures;
+            this.prefetcher = prefetcher;
         }
 
         public WalkInfo child(NodeRef leftChild, NodeRef rightChild) {
             SideInfo leftInfo = new SideInfo(left.source, leftChild);
             SideInfo rightInfo = new SideInfo(right.source, rightChild);
-            return new WalkInfo(consumer, leftInfo, rightInfo, nodeOrder, reportFeatures);
+            return new WalkInfo(consumer, leftInfo, rightInfo, nodeOrder, reportFeatures,
+                    prefetcher);
         }
     }
 
@@ -383,12 +374,20 @@ public class PreOrderDiffWalk {
         SideInfo leftInfo = new SideInfo(leftSource, leftRef);
         SideInfo rightInfo = new SideInfo(rightSource, rightRef);
 
-        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, ORDER, reportFeatures);
+        final BucketPrefetcher prefetcher = prefetchTrees > 0
+                ? new BucketPrefetcher(prefetchTrees, executionPolicy().ioExecutor())
+                : null;
+        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, ORDER, reportFeatures,
+                prefetcher);
 
         TraverseTree task = new TraverseTree(walkInfo);
 
         try {
-            forkJoinPool.invoke(task);
+            if (forkJoinPool == null) {
+                executionPolicy().invoke(task);
+            } else {
+                forkJoinPool.invoke(task);
+            }
         } catch (Exception e) {
             if (!(leftSource.isOpen() && rightSource.isOpen())) {
                 // someone closed the repo, we're ok.
@@ -399,6 +398,9 @@ public class PreOrderDiffWalk {
             }
         } finally {
             finished.set(true);
+            if (prefetcher != null) {
+                prefetcher.clear();
+            }
             cleanupForkJoinPool();
         }
     }
@@ -408,13 +410,39 @@ public class PreOrderDiffWalk {
         return this;
     }
 
+    /**
+     * Sets the max number of bucket trees to fetch ahead of the traversal while the trees at the
+     * current level are being processed, defaults to {@code 1024} or the value of the
+     * {@code geogig.diff.prefetchTrees} System property. Zero disables prefetching.
+     */
+    public PreOrderDiffWalk prefetch(int maxTrees) {
+        checkArgument(maxTrees >= 0, "maxTrees must be >= 0");
+        this.prefetchTrees = maxTrees;
+        return this;
+    }
+
     private void cleanupForkJoinPool() {
-        if (forkJoinPool == SHARED_FORK_JOIN_POOL)
+        if (forkJoinPool == null)
             return; // no need to clean up
         else
             forkJoinPool.shutdown(); // private pool needs cleaning
     }
 
+    /**
+     * Sets the policy to execute the walk with, defaults to
+     * {@link ExecutionPolicy#defaultPolicy()}. Ignored if the walk was created with a specific
+     * parallelism or to preserve the iteration order, as it runs on its own thread pool then.
+     */
+    public PreOrderDiffWalk executionPolicy(@Nullable ExecutionPolicy policy) {
+        this.executionPolicy = policy;
+        return this;
+    }
+
+    private ExecutionPolicy executionPolicy() {
+        ExecutionPolicy policy = this.executionPolicy;
+        return policy == null ? ExecutionPolicy.defaultPolicy() : policy;
+    }
+
     public void nodeOrder(@NonNull NodeOrdering nodeOrder) {
         this.ORDER = nodeOrder;
     }
@@ -528,6 +556,7 @@ public class PreOrderDiffWalk {
                     tasks.add(task);
                 }
             }
+            prefetchBuckets(tasks);
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
@@ -536,32 +565,80 @@ public class PreOrderDiffWalk {
             return tasks;
         }
 
-        private Map<ObjectId, RevTree> loadTrees(final Set<ObjectId> lbucketIds,
-                final Set<ObjectId> rbucketIds) {
+        private Map<ObjectId, RevTree> loadTrees(Set<ObjectId> lbucketIds,
+                Set<ObjectId> rbucketIds) {
 
-            final Map<ObjectId, RevTree> trees;
+            final Map<ObjectId, RevTree> trees = takePrefetched(
+                    Sets.union(lbucketIds, rbucketIds));
+            if (!trees.isEmpty()) {
+                lbucketIds = new HashSet<>(Sets.difference(lbucketIds, trees.keySet()));
+                rbucketIds = new HashSet<>(Sets.difference(rbucketIds, trees.keySet()));
+            }
 
             // get all buckets at once, to leverage ObjectStore optimizations
             if (info.left.source == info.right.source) {
                 Set<ObjectId> ids = Sets.union(lbucketIds, rbucketIds);
                 Iterator<RevTree> titer = info.left.source.getAll(ids, NOOP_LISTENER,
                         RevTree.class);
-                trees = Streams.stream(titer).collect(Collectors.toMap(t -> t.getId(), t -> t));
+                titer.forEachRemaining(t -> trees.put(t.getId(), t));
             } else {
-                trees = Streams
-                        .stream(info.left.source.getAll(lbucketIds, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
+                info.left.source.getAll(lbucketIds, NOOP_LISTENER, RevTree.class)
+                        .forEachRemaining(t -> trees.put(t.getId(), t));
 
                 // avoid re-fetching objects at both sides
                 Set<ObjectId> missingAtRight = Sets.difference(rbucketIds, lbucketIds);
-                trees.putAll(Streams.stream(
-                        info.right.source.getAll(missingAtRight, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t)));
+                info.right.source.getAll(missingAtRight, NOOP_LISTENER, RevTree.class)
+                        .forEachRemaining(t -> trees.put(t.getId(), t));
 
             }
             return trees;
         }
 
+        private Map<ObjectId, RevTree> takePrefetched(Iterable<ObjectId> ids) {
+            final BucketPrefetcher prefetcher = info.prefetcher;
+            return prefetcher == null ? new HashMap<>() : prefetcher.take(ids);
+        }
+
+        /**
+         * Requests the bucket trees of the trees to be compared by the given tasks ahead of their
+         * traversal, so that they're fetched while the current level is being processed.
+         * Buckets present at both sides are not requested since they won't be traversed.
+         */
+        private void prefetchBuckets(List<WalkAction> tasks) {
+            final BucketPrefetcher prefetcher = info.prefetcher;
+            if (prefetcher == null || tasks.isEmpty() || info.consumer.isCancelled()) {
+                return;
+            }
+            Set<ObjectId> leftIds = new HashSet<>();
+            Set<ObjectId> rightIds = new HashSet<>();
+            for (WalkAction task : tasks) {
+                task.bucketTrees(leftIds, rightIds);
+            }
+            if (leftIds.isEmpty() && rightIds.isEmpty()) {
+                return;
+            }
+            Set<ObjectId> common = new HashSet<>(Sets.intersection(leftIds, rightIds));
+            leftIds.removeAll(common);
+            rightIds.removeAll(common);
+            if (info.left.source == info.right.source) {
+                prefetcher.prefetch(info.left.source, Sets.union(leftIds, rightIds));
+            } else {
+                prefetcher.prefetch(info.left.source, leftIds);
+                prefetcher.prefetch(info.right.source, rightIds);
+            }
+        }
+
+        /**
+         * Adds the ids of the bucket trees this action will traverse, if any, to the given sets
+         */
+        void bucketTrees(Set<ObjectId> leftIds, Set<ObjectId> rightIds) {
+            // no bucket trees by default
+        }
+
+        static void addBucketIds(RevTree tree, Set<ObjectId> target) {
+            tree.forEachBucket(b -> target.add(b.getObjectId()));
+        }
+
         /**
          * Compares a bucket tree at the right side of the comparison, and a the
          * {@link RevObjects#children() children} nodes of a leaf tree at the left side of the
@@ -609,6 +686,7 @@ public class PreOrderDiffWalk {
                     tasks.add(task);
                 }
             }
+            prefetchBuckets(tasks);
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
@@ -663,6 +741,7 @@ public class PreOrderDiffWalk {
                     tasks.add(task);
                 }
             }
+            prefetchBuckets(tasks);
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
@@ -674,9 +753,12 @@ public class PreOrderDiffWalk {
                 final SortedMap<Integer, Bucket> buckets) {
             final Map<ObjectId, RevTree> bucketTrees;
             {
-                Iterable<ObjectId> ids = transform(buckets.values(), Bucket::getObjectId);
-                bucketTrees = Streams.stream(source.getAll(ids, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
+                Set<ObjectId> ids = buckets.values().stream().map(Bucket::getObjectId)
+                        .collect(Collectors.toSet());
+                bucketTrees = takePrefetched(ids);
+                Set<ObjectId> missing = new HashSet<>(Sets.difference(ids, bucketTrees.keySet()));
+                source.getAll(missing, NOOP_LISTENER, RevTree.class)
+                        .forEachRemaining(t -> bucketTrees.put(t.getId(), t));
             }
             return bucketTrees;
         }
@@ -814,6 +896,16 @@ public class PreOrderDiffWalk {
             // 4- left is bucketed and right is leaf
             final boolean leftIsLeaf = left.bucketsSize() == 0;
             final boolean rightIsLeaf = right.bucketsSize() == 0;
+            if (!info.nodeOrder.supportsBucketPairing() && !(leftIsLeaf && rightIsLeaf)
+                    && !left.isEmpty() && !right.isEmpty()) {
+                // buckets can't be paired by index (e.g. packed trees), compare the nodes of the
+                // leaf trees that are not shared by both sides instead
+                PackedTreeDiff.Result diff = new PackedTreeDiff(info.left.source,
+                        info.right.source).diff(left, right);
+                leafLeaf(diff.getLeftNodes().iterator(), diff.getRightNodes().iterator())
+                        .compute();
+                return;
+            }
             Iterator<Node> leftc = leftIsLeaf ? RevObjects.children(left, info.nodeOrder) : null;
             Iterator<Node> rightc = rightIsLeaf ? RevObjects.children(right, info.nodeOrder) : null;
 
@@ -990,6 +1082,11 @@ public class PreOrderDiffWalk {
             }
             info.consumer.endBucket(leftParent, rightParent, index, leftBucket, rightBucket);
         }
+
+        @Override void bucketTrees(Set<ObjectId> leftIds, Set<ObjectId> rightIds) {
+            addBucketIds(super.left, leftIds);
+            addBucketIds(super.right, rightIds);
+        }
     }
 
     @SuppressWarnings("serial")
@@ -1051,6 +1148,10 @@ public class PreOrderDiffWalk {
             }
             consumer.endBucket(leftParent, rightParent, index, leftBucket, null);
         }
+
+        @Override void bucketTrees(Set<ObjectId> leftIds, Set<ObjectId> rightIds) {
+            addBucketIds(leftTree, leftIds);
+        }
     }
 
     @SuppressWarnings("serial")
@@ -1112,6 +1213,10 @@ public class PreOrderDiffWalk {
             }
             consumer.endBucket(leftParent, rightParent, index, null, rightBucket);
         }
+
+        @Override void bucketTrees(Set<ObjectId> leftIds, Set<ObjectId> rightIds) {
+            addBucketIds(rightTree, rightIds);
+        }
     }
 
     /**
@@ -0,0 +1,289 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeOrdering;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.ExecutionPolicy;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.repository.impl.DepthSearch;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import lombok.NonNull;
+
+/**
+ * A {@link PreOrderDiffWalk.Consumer} decorator for diffs with a bounds filter, that walks the
+ * {@link IndexType#QUADTREE quad-tree} index trees of the changed trees that have one, instead of
+ * their canonical trees.
+ * <p>
+ * Canonical trees are bucketed by node name, so the buckets of a canonical tree usually span the
+ * whole extent of the layer and a bounds filter can hardly prune any of them, whereas the buckets
+ * of a quad-tree cover disjoint quadrants. When the delegate accepts a changed tree whose left and
+ * right versions are both indexed by a quad-tree, their index trees are compared by a nested
+ * {@link PreOrderDiffWalk} that skips the buckets not intersecting the bounds filter, the feature
+ * events it produces are converted back to the canonical tree ones and forwarded to the delegate,
+ * and the canonical trees are not traversed. Index buckets are not reported to the delegate, and
+ * the features of an indexed tree are reported in the index order.
+ * <p>
+ * A feature whose bounds changed may have moved to another quadrant, in which case the index diff
+ * reports its removal from one quadrant and its addition to another. The other side of such
+ * events is looked up on the canonical trees, so that the change is reported only once, as a
+ * modification, by the side whose bounds intersect the filter, preferring the new one.
+ */
+public final class SpatialIndexDiffConsumer extends PreOrderDiffWalk.ForwardingConsumer {
+
+    private final Envelope boundsFilter;
+
+    private final ObjectStore leftSource;
+
+    private final ObjectStore rightSource;
+
+    private final IndexDatabase indexdb;
+
+    private boolean preserveIterationOrder;
+
+    private @Nullable ExecutionPolicy executionPolicy;
+
+    private final AtomicBoolean aborted = new AtomicBoolean();
+
+    private final Set<PreOrderDiffWalk> runningWalks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param boundsFilter the bounds filter the diff is being evaluated with
+     * @param leftSource where to get the left side canonical trees from
+     * @param rightSource where to get the right side canonical trees from
+     * @param indexdb where to look up and get the index trees from
+     */
+    public SpatialIndexDiffConsumer(@NonNull Envelope boundsFilter,
+            @NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource,
+            @NonNull IndexDatabase indexdb) {
+        this.boundsFilter = boundsFilter;
+        this.leftSource = leftSource;
+        this.rightSource = rightSource;
+        this.indexdb = indexdb;
+    }
+
+    /**
+     * Whether to walk the index trees on a single thread in order, defaults to {@code false}
+     */
+    public SpatialIndexDiffConsumer preserveIterationOrder(boolean preserveIterationOrder) {
+        this.preserveIterationOrder = preserveIterationOrder;
+        return this;
+    }
+
+    /**
+     * The policy to walk the index trees with, defaults to {@link ExecutionPolicy#defaultPolicy()}
+     */
+    public SpatialIndexDiffConsumer executionPolicy(@Nullable ExecutionPolicy executionPolicy) {
+        this.executionPolicy = executionPolicy;
+        return this;
+    }
+
+    /**
+     * Aborts the index trees walks in progress, and makes this consumer abort the traversal
+     * afterwards.
+     */
+    public void abortTraversal() {
+        aborted.set(true);
+        runningWalks.forEach(PreOrderDiffWalk::abortTraversal);
+    }
+
+    public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+        return !aborted.get() && super.feature(left, right);
+    }
+
+    public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+        if (aborted.get() || !super.tree(left, right)) {
+            return false;
+        }
+        final NodeRef ref = left == null ? right : left;
+        if (ref.getParentPath() == null) {
+            return true;
+        }
+        final IndexInfo index = findQuadTree(ref.path()).orElse(null);
+        if (index == null) {
+            return true;
+        }
+        final ObjectId leftIndexTree = resolveIndexTree(index, left);
+        final ObjectId rightIndexTree = resolveIndexTree(index, right);
+        if (leftIndexTree == null || rightIndexTree == null) {
+            // not indexed at both sides, traverse the canonical trees
+            return true;
+        }
+        walkIndex(index, left, right, leftIndexTree, rightIndexTree);
+        // the changes have already been reported
+        return false;
+    }
+
+    public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
+            BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+        return !aborted.get() && super.bucket(leftParent, rightParent, bucketIndex, left, right);
+    }
+
+    private Optional<IndexInfo> findQuadTree(String treePath) {
+        return indexdb.getIndexInfos(treePath).stream()
+                .filter(i -> IndexType.QUADTREE == i.getIndexType()).findFirst();
+    }
+
+    private @Nullable ObjectId resolveIndexTree(IndexInfo index, @Nullable NodeRef canonical) {
+        if (canonical == null || RevTree.EMPTY_TREE_ID.equals(canonical.getObjectId())) {
+            return RevTree.EMPTY_TREE_ID;
+        }
+        return indexdb.resolveIndexedTree(index, canonical.getObjectId()).orElse(null);
+    }
+
+    private void walkIndex(IndexInfo index, @Nullable NodeRef left, @Nullable NodeRef right,
+            ObjectId leftIndexTree, ObjectId rightIndexTree) {
+
+        final RevTree leftIndex = getTree(leftIndexTree, indexdb);
+        final RevTree rightIndex = getTree(rightIndexTree, indexdb);
+        final NodeOrdering order = QuadTreeBuilder.nodeOrdering(IndexInfo.getMaxBounds(index),
+                IndexInfo.getMaxDepth(index));
+
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(leftIndex, rightIndex, indexdb, indexdb,
+                preserveIterationOrder);
+        walk.nodeOrder(order);
+        walk.executionPolicy(executionPolicy);
+        runningWalks.add(walk);
+        try {
+            if (!aborted.get()) {
+                walk.walk(new IndexDiffConsumer(left, right));
+            }
+        } finally {
+            runningWalks.remove(walk);
+        }
+    }
+
+    private static RevTree getTree(ObjectId treeId, ObjectStore source) {
+        return RevTree.EMPTY_TREE_ID.equals(treeId) ? RevTree.EMPTY : source.getTree(treeId);
+    }
+
+    private boolean intersects(@Nullable Bucket bucket) {
+        return bucket != null && bucket.intersects(boundsFilter);
+    }
+
+    private boolean intersects(@Nullable NodeRef node) {
+        return node != null && node.intersects(boundsFilter);
+    }
+
+    /**
+     * Converts the events of an index trees walk to the ones of the canonical trees
+     */
+    private class IndexDiffConsumer extends PreOrderDiffWalk.AbstractConsumer {
+
+        private final @Nullable NodeRef leftTree, rightTree;
+
+        private final Supplier<RevTree> leftCanonical, rightCanonical;
+
+        IndexDiffConsumer(@Nullable NodeRef leftTree, @Nullable NodeRef rightTree) {
+            this.leftTree = leftTree;
+            this.rightTree = rightTree;
+            this.leftCanonical = Suppliers.memoize(() -> canonicalTree(leftTree, leftSource));
+            this.rightCanonical = Suppliers.memoize(() -> canonicalTree(rightTree, rightSource));
+        }
+
+        public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+            // index trees only contain features, this is the call for the root trees
+            return !aborted.get();
+        }
+
+        public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
+                BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+            return !aborted.get() && (intersects(left) || intersects(right));
+        }
+
+        public @Override boolean feature(@Nullable NodeRef leftIndex,
+                @Nullable NodeRef rightIndex) {
+            if (aborted.get()) {
+                return false;
+            }
+            NodeRef left = leftIndex == null ? null : canonicalRef(leftIndex, leftTree);
+            NodeRef right = rightIndex == null ? null : canonicalRef(rightIndex, rightTree);
+            if (left == null) {
+                // either added or moved from another quadrant
+                if (!intersects(right)) {
+                    return true;
+                }
+                left = find(right.name(), leftTree, leftCanonical.get(), leftSource);
+                if (right.equals(left)) {
+                    return true;
+                }
+            } else if (right == null) {
+                // either removed or moved to another quadrant
+                if (!intersects(left)) {
+                    return true;
+                }
+                right = find(left.name(), rightTree, rightCanonical.get(), rightSource);
+                if (left.equals(right) || intersects(right)) {
+                    // unchanged, or reported by the addition to the other quadrant
+                    return true;
+                }
+            }
+            boolean continueTraversal = delegate.feature(left, right);
+            if (!continueTraversal) {
+                aborted.set(true);
+            }
+            return continueTraversal;
+        }
+
+        private @Nullable RevTree canonicalTree(@Nullable NodeRef treeRef, ObjectStore source) {
+            return treeRef == null ? null : getTree(treeRef.getObjectId(), source);
+        }
+
+        private @Nullable NodeRef find(String name, @Nullable NodeRef treeRef,
+                @Nullable RevTree tree, ObjectStore source) {
+            if (tree == null) {
+                return null;
+            }
+            Node node = new DepthSearch(source).getDirectChild(tree, name, 0).orElse(null);
+            return node == null ? null : NodeRef.create(treeRef.path(), node,
+                    treeRef.getMetadataId());
+        }
+
+        /**
+         * @return the feature node of the canonical tree for the index tree {@code ref}, without
+         *         the attribute values the index materializes
+         */
+        private NodeRef canonicalRef(NodeRef ref, NodeRef treeRef) {
+            Node node = ref.getNode();
+            Map<String, Object> extraData = node.getExtraData();
+            if (extraData.containsKey(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA)) {
+                extraData = new HashMap<>(extraData);
+                extraData.remove(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA);
+                node = RevObjectFactory.defaultInstance().createNode(node.getName(),
+                        node.getObjectId(), node.getMetadataId().orElse(ObjectId.NULL),
+                        node.getType(), node.bounds().orElse(null),
+                        extraData.isEmpty() ? null : extraData);
+            }
+            return NodeRef.create(treeRef.path(), node, treeRef.getMetadataId());
+        }
+    }
+}
@@ -12,8 +12,10 @@ package org.locationtech.geogig.plumbing.index;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -30,10 +32,14 @@ import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.jts.geom.Envelope;
 
 /**
  * Builds an index for every commit a given type tree is present at. Returns the number of trees
  * that were built.
+ * <p>
+ * Unless {@link #setMissingOnly(boolean) only missing} trees are built, the max depth and level
+ * capacities of an adaptive quad-tree index are computed again out of the type tree.
  */
 public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
 
@@ -87,11 +93,37 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
 
         if (!onlyMissing) {
             indexDatabase().clearIndex(index);
+            if (IndexInfo.isAdaptive(index)) {
+                index = reprofile(index, typeTreeRef);
+            }
         }
         int builtTrees = indexHistory(index);
         return builtTrees;
     }
 
+    /**
+     * The max depth and per level capacities of an adaptive quad-tree are computed out of the data
+     * when the index is created. Compute them again out of the tree being indexed, so that a
+     * rebuilt index fits the data as it is now.
+     * 
+     * @return the index info with the new adaptive parameters
+     */
+    private IndexInfo reprofile(IndexInfo index, NodeRef typeTreeRef) {
+        Map<String, Object> metadata = new HashMap<>(index.getMetadata());
+        Envelope boundsLimit = (Envelope) metadata.get(IndexInfo.MD_QUAD_BOUNDS_LIMIT);
+        if (boundsLimit == null) {
+            boundsLimit = IndexInfo.getMaxBounds(index);
+        }
+        RevTree canonicalTree = objectDatabase().getTree(typeTreeRef.getObjectId());
+        metadata.putAll(command(ComputeAdaptiveQuadTreeParamsOp.class)//
+                .setCanonicalTree(canonicalTree)//
+                .setMaxBounds(boundsLimit)//
+                .setProgressListener(getProgressListener())//
+                .call());
+        return indexDatabase().updateIndexInfo(index.getTreeName(), index.getAttributeName(),
+                index.getIndexType(), metadata);
+    }
+
     /**
      * Builds an index on every reachable commit in the history.
      * 
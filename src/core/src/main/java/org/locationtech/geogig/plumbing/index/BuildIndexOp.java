@@ -17,11 +17,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.geogig.model.impl.STRTreeBuilder;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.repository.IndexInfo;
@@ -144,7 +147,7 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
                 indexTree.getId());
 
         indexDatabase().addIndexedTree(index, newCanonicalTree.getId(), indexTree.getId());
-        progress.setDescription(String.format("QuadTree created. Size: %,d, time: %s",
+        progress.setDescription(String.format("Index tree created. Size: %,d, time: %s",
                 indexTree.size(), revTreeTime));
 
         progress.complete();
@@ -213,16 +216,50 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
         }
 
         final IndexType indexType = index.getIndexType();
+        final ObjectStore source = indexDatabase();
+        final ObjectStore target = source;
         final RevTreeBuilder builder;
         switch (indexType) {
-        case QUADTREE:
+        case QUADTREE: {
             final Envelope maxBounds = IndexInfo.getMaxBounds(index);
             checkState(null != maxBounds, "QuadTree index does not contain max bounds");
 
-            ObjectStore source = indexDatabase();
-            ObjectStore target = source;
-            builder = RevTreeBuilder.quadBuilder(source, target, oldIndexTree, maxBounds);
+            final @Nullable Integer maxDepth = IndexInfo.getMaxDepth(index);
+            final @Nullable int[] levelCapacities = IndexInfo.getLevelCapacities(index);
+
+            builder = RevTreeBuilder.quadBuilder(source, target, oldIndexTree, maxBounds,
+                    maxDepth, levelCapacities);
+            break;
+        }
+        case RTREE: {
+            final Integer leafCapacity = IndexInfo.getLeafCapacity(index);
+            final Integer fanout = IndexInfo.getFanout(index);
+            builder = RevTreeBuilder.rtreeBuilder(source, target, oldIndexTree,
+                    leafCapacity == null ? STRTreeBuilder.DEFAULT_LEAF_CAPACITY
+                            : leafCapacity.intValue(),
+                    fanout == null ? STRTreeBuilder.DEFAULT_FANOUT : fanout.intValue());
+            break;
+        }
+        case ATTRIBUTE: {
+            final Integer leafCapacity = IndexInfo.getLeafCapacity(index);
+            final Integer fanout = IndexInfo.getFanout(index);
+            builder = RevTreeBuilder.attributeBuilder(source, target, oldIndexTree,
+                    index.getAttributeName(),
+                    leafCapacity == null ? AttributeTreeBuilder.DEFAULT_LEAF_CAPACITY
+                            : leafCapacity.intValue(),
+                    fanout == null ? AttributeTreeBuilder.DEFAULT_FANOUT : fanout.intValue());
+            break;
+        }
+        case TEMPORAL: {
+            final Integer leafCapacity = IndexInfo.getLeafCapacity(index);
+            final Integer fanout = IndexInfo.getFanout(index);
+            builder = RevTreeBuilder.temporalBuilder(source, target, oldIndexTree,
+                    index.getAttributeName(), IndexInfo.getEndAttributeName(index),
+                    leafCapacity == null ? AttributeTreeBuilder.DEFAULT_LEAF_CAPACITY
+                            : leafCapacity.intValue(),
+                    fanout == null ? AttributeTreeBuilder.DEFAULT_FANOUT : fanout.intValue());
             break;
+        }
         default:
             throw new UnsupportedOperationException("Uknown index type: " + indexType);
         }
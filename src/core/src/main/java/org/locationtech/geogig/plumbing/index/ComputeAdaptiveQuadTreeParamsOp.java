@@ -0,0 +1,141 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.index;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.internal.QuadTreeDensityProfile;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.AbstractConsumer;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Computes the structural parameters of an adaptive quad-tree index out of the spatial
+ * distribution of the features in a canonical tree.
+ * <p>
+ * The returned map contains the index metadata entries {@link IndexInfo#MD_QUAD_ADAPTIVE},
+ * {@link IndexInfo#MD_QUAD_MAX_BOUNDS}, {@link IndexInfo#MD_QUAD_MAX_DEPTH}, and
+ * {@link IndexInfo#MD_QUAD_LEVEL_CAPACITY}, to be merged into the index metadata before building
+ * the index tree.
+ *
+ * @see QuadTreeDensityProfile
+ */
+public class ComputeAdaptiveQuadTreeParamsOp extends AbstractGeoGigOp<Map<String, Object>> {
+
+    /**
+     * Fraction of the data bounds width and height the max bounds are expanded by on each side
+     */
+    private static final double BOUNDS_GROW_FACTOR = 0.25;
+
+    private RevTree canonicalTree;
+
+    private Envelope maxBounds;
+
+    /**
+     * @param canonicalTree the canonical feature tree to compute the index parameters for
+     * @return {@code this}
+     */
+    public ComputeAdaptiveQuadTreeParamsOp setCanonicalTree(RevTree canonicalTree) {
+        this.canonicalTree = canonicalTree;
+        return this;
+    }
+
+    /**
+     * @param maxBounds the upper limit for the quad-tree max bounds, usually the area of validity
+     *        of the layer's CRS
+     * @return {@code this}
+     */
+    public ComputeAdaptiveQuadTreeParamsOp setMaxBounds(Envelope maxBounds) {
+        this.maxBounds = maxBounds;
+        return this;
+    }
+
+    protected @Override Map<String, Object> _call() {
+        checkState(canonicalTree != null, "canonical tree not provided");
+        checkState(maxBounds != null, "max bounds not provided");
+
+        final ProgressListener progress = getProgressListener();
+        progress.setDescription("Computing adaptive quad-tree parameters...");
+        final Stopwatch sw = Stopwatch.createStarted();
+
+        final Envelope dataBounds = RevObjects.boundsOf(canonicalTree);
+        final Envelope adaptiveBounds = QuadTreeDensityProfile.computeMaxBounds(dataBounds,
+                maxBounds, BOUNDS_GROW_FACTOR);
+
+        final int sampleDepth = QuadTreeDensityProfile.defaultSampleDepth(adaptiveBounds);
+        final QuadTreeDensityProfile profile = new QuadTreeDensityProfile(adaptiveBounds,
+                sampleDepth);
+
+        final ObjectDatabase db = objectDatabase();
+        final boolean preserveIterationOrder = false;
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(RevTree.EMPTY, canonicalTree, db, db,
+                preserveIterationOrder);
+        walk.walk(new DensityProfileConsumer(profile, progress));
+
+        final int capacity = QuadTreeDensityProfile.DEFAULT_CAPACITY;
+        final int precisionMaxDepth = QuadTreeDensityProfile.precisionMaxDepth(adaptiveBounds);
+        final int maxDepth = profile.computeMaxDepth(capacity, precisionMaxDepth);
+        final int[] levelCapacities = profile.computeLevelCapacities(capacity, maxDepth);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put(IndexInfo.MD_QUAD_ADAPTIVE, Boolean.TRUE);
+        params.put(IndexInfo.MD_QUAD_MAX_BOUNDS, adaptiveBounds);
+        params.put(IndexInfo.MD_QUAD_MAX_DEPTH, Integer.valueOf(maxDepth));
+        params.put(IndexInfo.MD_QUAD_LEVEL_CAPACITY, levelCapacities);
+
+        progress.setDescription(String.format(
+                "Adaptive quad-tree parameters computed in %s: bounds: %s, max depth: %d", sw.stop(),
+                adaptiveBounds, maxDepth));
+        return params;
+    }
+
+    private static class DensityProfileConsumer extends AbstractConsumer {
+
+        private final QuadTreeDensityProfile profile;
+
+        private final ProgressListener progress;
+
+        DensityProfileConsumer(QuadTreeDensityProfile profile, ProgressListener progress) {
+            this.profile = profile;
+            this.progress = progress;
+        }
+
+        public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+            return !progress.isCanceled();
+        }
+
+        public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
+                BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+            return !progress.isCanceled();
+        }
+
+        public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if (right != null) {
+                profile.add(right.bounds().orElse(null));
+            }
+            return !progress.isCanceled();
+        }
+    }
+}
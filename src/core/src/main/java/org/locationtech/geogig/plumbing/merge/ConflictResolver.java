@@ -0,0 +1,116 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A strategy to automatically resolve the feature conflicts found while merging two trees.
+ * <p>
+ * Resolvers are applied by {@link MergeTreesOp} as conflicts are found, so resolved features are
+ * part of the merged tree and never reach the conflicts database. See {@link ConflictResolvers}
+ * for the built in strategies.
+ */
+@FunctionalInterface
+public interface ConflictResolver {
+
+    /**
+     * The three versions of a conflicting feature
+     */
+    public static @Value class FeatureConflict {
+
+        private String path;
+
+        /**
+         * The common ancestor version, {@code null} if both sides added the feature
+         */
+        private @Nullable RevFeature ancestor;
+
+        /**
+         * The version in the tree being merged into, {@code null} if it was deleted
+         */
+        private @Nullable RevFeature ours;
+
+        /**
+         * The version in the tree being merged, {@code null} if it was deleted
+         */
+        private @Nullable RevFeature theirs;
+
+        /**
+         * The feature type of both {@link #ours} and {@link #theirs}, {@code null} if either was
+         * deleted or their feature types differ
+         */
+        private @Nullable RevFeatureType featureType;
+
+        /**
+         * The committer timestamp of the commit being merged into, or {@code 0} if unknown
+         */
+        private long oursTimestamp;
+
+        /**
+         * The committer timestamp of the commit being merged, or {@code 0} if unknown
+         */
+        private long theirsTimestamp;
+    }
+
+    /**
+     * The outcome of resolving a conflict: the feature to keep, or none if it shall be deleted
+     */
+    public static @Value class Resolution {
+
+        private static final Resolution DELETED = new Resolution(null);
+
+        private @Nullable RevFeature feature;
+
+        public static Resolution of(@NonNull RevFeature feature) {
+            return new Resolution(feature);
+        }
+
+        public static Resolution deleted() {
+            return DELETED;
+        }
+
+        /**
+         * @return the resolution keeping the given version, which may be {@code null} if it was
+         *         deleted
+         */
+        public static Resolution ofNullable(@Nullable RevFeature feature) {
+            return feature == null ? DELETED : new Resolution(feature);
+        }
+
+        public boolean isDeleted() {
+            return feature == null;
+        }
+    }
+
+    /**
+     * @return how to resolve the conflict, or {@link Optional#empty() empty} if this resolver
+     *         doesn't know how to, in which case the conflict is reported as usual
+     */
+    public Optional<Resolution> resolve(FeatureConflict conflict);
+
+    /**
+     * @return a resolver that tries this one first, and {@code next} for the conflicts this one
+     *         couldn't resolve
+     */
+    public default ConflictResolver orElse(@NonNull ConflictResolver next) {
+        return conflict -> {
+            Optional<Resolution> resolution = resolve(conflict);
+            return resolution.isPresent() ? resolution : next.resolve(conflict);
+        };
+    }
+}
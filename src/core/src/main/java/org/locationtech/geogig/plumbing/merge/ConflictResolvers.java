@@ -0,0 +1,148 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureBuilder;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver.FeatureConflict;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver.Resolution;
+import org.locationtech.jts.geom.Geometry;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.NonNull;
+
+/**
+ * The built in {@link ConflictResolver conflict resolution strategies}
+ */
+public class ConflictResolvers {
+
+    /**
+     * How to resolve an attribute both sides changed differently
+     */
+    public static enum AttributeStrategy {
+        /**
+         * Keep the value in the tree being merged into
+         */
+        OURS,
+        /**
+         * Keep the value in the tree being merged
+         */
+        THEIRS,
+        /**
+         * Keep the union of both geometries. Note the union may be of a different geometry type
+         * than the attribute's (e.g. the union of two disjoint polygons is a multi polygon), so
+         * it's meant for attributes of a generic or multi geometry type.
+         */
+        UNION
+    }
+
+    /**
+     * @return a resolver that keeps the version in the tree being merged into, even if it was
+     *         deleted
+     */
+    public static ConflictResolver ours() {
+        return conflict -> Optional.of(Resolution.ofNullable(conflict.getOurs()));
+    }
+
+    /**
+     * @return a resolver that keeps the version in the tree being merged, even if it was deleted
+     */
+    public static ConflictResolver theirs() {
+        return conflict -> Optional.of(Resolution.ofNullable(conflict.getTheirs()));
+    }
+
+    /**
+     * @return a resolver that keeps the version of the most recent of the merged commits, as given
+     *         by their committer timestamps, or "ours" if they're equal
+     */
+    public static ConflictResolver lastWriterWins() {
+        return conflict -> {
+            RevFeature winner = conflict.getTheirsTimestamp() > conflict.getOursTimestamp()
+                    ? conflict.getTheirs()
+                    : conflict.getOurs();
+            return Optional.of(Resolution.ofNullable(winner));
+        };
+    }
+
+    /**
+     * Returns a resolver that merges the features attribute by attribute, taking the changes of
+     * both sides and resolving the attributes both changed differently as given by
+     * {@code strategies}.
+     * <p>
+     * Conflicts where either side deleted the feature, where the two sides have different feature
+     * types, or where an attribute with no strategy was changed by both sides are left unresolved.
+     *
+     * @param strategies how to resolve each attribute, by attribute name
+     */
+    public static ConflictResolver byAttribute(@NonNull Map<String, AttributeStrategy> strategies) {
+        final Map<String, AttributeStrategy> byName = ImmutableMap.copyOf(strategies);
+        return conflict -> mergeAttributes(conflict, byName);
+    }
+
+    private static Optional<Resolution> mergeAttributes(FeatureConflict conflict,
+            Map<String, AttributeStrategy> strategies) {
+        final RevFeatureType type = conflict.getFeatureType();
+        final @Nullable RevFeature ancestor = conflict.getAncestor();
+        final RevFeature ours = conflict.getOurs();
+        final RevFeature theirs = conflict.getTheirs();
+        if (type == null || (ancestor != null && ancestor.size() != ours.size())) {
+            return Optional.empty();
+        }
+        final List<PropertyDescriptor> descriptors = type.descriptors();
+        RevFeatureBuilder builder = RevFeature.builder();
+        for (int i = 0; i < descriptors.size(); i++) {
+            final Object oursValue = ours.get(i).orElse(null);
+            final Object theirsValue = theirs.get(i).orElse(null);
+            final Object ancestorValue = ancestor == null ? null : ancestor.get(i).orElse(null);
+            final Object merged;
+            if (Objects.deepEquals(oursValue, theirsValue)
+                    || Objects.deepEquals(ancestorValue, theirsValue)) {
+                merged = oursValue;
+            } else if (Objects.deepEquals(ancestorValue, oursValue)) {
+                merged = theirsValue;
+            } else {
+                AttributeStrategy strategy = strategies.get(descriptors.get(i).getLocalName());
+                if (strategy == null) {
+                    return Optional.empty();
+                }
+                switch (strategy) {
+                case OURS:
+                    merged = oursValue;
+                    break;
+                case THEIRS:
+                    merged = theirsValue;
+                    break;
+                case UNION:
+                    if (oursValue == null || theirsValue == null) {
+                        merged = oursValue == null ? theirsValue : oursValue;
+                    } else if (oursValue instanceof Geometry && theirsValue instanceof Geometry) {
+                        merged = ((Geometry) oursValue).union((Geometry) theirsValue);
+                    } else {
+                        return Optional.empty();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown strategy: " + strategy);
+                }
+            }
+            builder.addValue(merged);
+        }
+        return Optional.of(Resolution.of(builder.build()));
+    }
+}
@@ -11,11 +11,16 @@ package org.locationtech.geogig.plumbing.merge;
 
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ConflictsDatabase;
 
 import com.google.common.base.Preconditions;
 
 import lombok.NonNull;
 
+/**
+ * Saves conflicts to the repository's {@link ConflictsDatabase}, which consumes them as a stream so
+ * that they don't need to fit in memory all at once.
+ */
 public class ConflictsWriteOp extends AbstractGeoGigOp<Void> {
 
     private Iterable<Conflict> conflicts;
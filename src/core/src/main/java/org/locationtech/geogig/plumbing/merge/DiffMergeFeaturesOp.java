@@ -154,20 +154,41 @@ public class DiffMergeFeaturesOp extends AbstractGeoGigOp<DiffMergeFeatureResult
 
         final Map<ObjectId, RevObject> objects = getObjects();
 
-        RevFeature ancestorF = (RevFeature) objects.get(commonAncestor.getObjectId());
-        RevFeature mergeIntoF = (RevFeature) objects.get(mergeInto.getObjectId());
-        RevFeature toMergeF = (RevFeature) objects.get(toMerge.getObjectId());
+        return diffMerge(commonAncestor, mergeInto, toMerge, objects);
+    }
+
+    /**
+     * Computes the result out of already fetched objects, for callers that fetch the features and
+     * feature types of many features at once. Safe to call concurrently.
+     * 
+     * @param objects the features and feature types the three versions refer to, by id
+     */
+    static DiffMergeFeatureResult diffMerge(NodeRef commonAncestor, NodeRef mergeInto,
+            NodeRef toMerge, Map<ObjectId, ? extends RevObject> objects) {
 
-        RevFeatureType ancestorT = (RevFeatureType) objects.get(commonAncestor.getMetadataId());
-        RevFeatureType mergetIntoT = (RevFeatureType) objects.get(mergeInto.getMetadataId());
-        RevFeatureType toMergeT = (RevFeatureType) objects.get(toMerge.getMetadataId());
+        RevFeature ancestorF = get(objects, commonAncestor.getObjectId());
+        RevFeature mergeIntoF = get(objects, mergeInto.getObjectId());
+        RevFeature toMergeF = get(objects, toMerge.getObjectId());
 
-        FeatureDiff mergeIntoDiff = compare(ancestorF, mergeIntoF, ancestorT, mergetIntoT);
-        FeatureDiff toMergeDiff = compare(ancestorF, toMergeF, ancestorT, toMergeT);
+        RevFeatureType ancestorT = get(objects, commonAncestor.getMetadataId());
+        RevFeatureType mergetIntoT = get(objects, mergeInto.getMetadataId());
+        RevFeatureType toMergeT = get(objects, toMerge.getMetadataId());
+
+        final String path = mergeInto.path();
+        FeatureDiff mergeIntoDiff = compare(path, ancestorF, mergeIntoF, ancestorT, mergetIntoT);
+        FeatureDiff toMergeDiff = compare(path, ancestorF, toMergeF, ancestorT, toMergeT);
 
         return new DiffMergeFeatureResult(mergeIntoDiff, toMergeDiff);
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T extends RevObject> T get(Map<ObjectId, ? extends RevObject> objects,
+            ObjectId id) {
+        RevObject object = objects.get(id);
+        checkState(object != null, "Invalid reference: %s", id);
+        return (T) object;
+    }
+
     private Map<ObjectId, RevObject> getObjects() {
 
         final ObjectId ancestorMetadataId = commonAncestor.getMetadataId();
@@ -283,10 +304,11 @@ public class DiffMergeFeaturesOp extends AbstractGeoGigOp<DiffMergeFeatureResult
         return g1.equalsExact(g2);
     }
 
-    private FeatureDiff compare(RevFeature oldRevFeature, RevFeature newRevFeature,
-            RevFeatureType oldRevFeatureType, RevFeatureType newRevFeatureType) {
+    private static FeatureDiff compare(String path, RevFeature oldRevFeature,
+            RevFeature newRevFeature, RevFeatureType oldRevFeatureType,
+            RevFeatureType newRevFeatureType) {
 
-        return new FeatureDiff(mergeInto.path(), newRevFeature, oldRevFeature, newRevFeatureType,
+        return new FeatureDiff(path, newRevFeature, oldRevFeature, newRevFeatureType,
                 oldRevFeatureType, false);
     }
 
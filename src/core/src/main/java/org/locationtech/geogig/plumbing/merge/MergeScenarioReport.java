@@ -31,7 +31,7 @@ public class MergeScenarioReport {
 
         private final AtomicLong conflicts = new AtomicLong(),
                 unconflictedFeatures = new AtomicLong(), unconflictedTrees = new AtomicLong(),
-                merged = new AtomicLong();
+                merged = new AtomicLong(), resolved = new AtomicLong();
 
         TreeReport(String treePath) {
             this.path = treePath;
@@ -42,6 +42,7 @@ public class MergeScenarioReport {
         public long getConflicts() {return conflicts.get();}
         public long getMerges() {return merged.get();}
         public long getUnconflictedFeatures() {return unconflictedFeatures.get();}
+        public long getResolved() {return resolved.get();}
         //@formatter:on
     }
 
@@ -74,6 +75,14 @@ public class MergeScenarioReport {
         treeReport.merged.incrementAndGet();
     }
 
+    /**
+     * Counts a conflict that was automatically resolved by a {@link ConflictResolver}
+     */
+    public void addResolved(String path) {
+        TreeReport treeReport = parentReport(path);
+        treeReport.resolved.incrementAndGet();
+    }
+
     public List<TreeReport> getTreeReports() {
         return new ArrayList<>(this.reportsByTree.values());
     }
@@ -121,6 +130,13 @@ public class MergeScenarioReport {
         return sum(r -> r.merged.get());
     }
 
+    /**
+     * @return the number of conflicts that were automatically resolved
+     */
+    public long getResolved() {
+        return sum(r -> r.resolved.get());
+    }
+
     public @Override String toString() {
         return String.format("Conflicts: %,d, merged: %,d, unconflicted: %,d", getConflicts(),
                 getMerged(), getUnconflicted());
@@ -64,6 +64,8 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
 
     private final ProgressListener progress;
 
+    private boolean stageChanges = true;
+
     public MergeStatusBuilder(Context context, boolean ours, List<ObjectId> commits,
             ProgressListener progress) {
         this.context = context;
@@ -91,6 +93,15 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
         return conflictMsg.toString();
     }
 
+    /**
+     * @param stageChanges whether to stage the unconflicted and merged changes when
+     *        {@link #finished() finished}, defaults to {@code true}. Set to {@code false} when the
+     *        merged tree is built by {@link MergeTreesOp} and only the conflicts need to be saved
+     */
+    public void setStageChanges(boolean stageChanges) {
+        this.stageChanges = stageChanges;
+    }
+
     public void setChanged(boolean changed) {
         this.changed.set(changed);
     }
@@ -120,14 +131,18 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
     }
 
     public @Override void unconflicted(DiffEntry diff) {
-        unconflictedBuffer.add(diff);
+        if (stageChanges) {
+            unconflictedBuffer.add(diff);
+        }
         changed.set(true);
         fastForward.set(false);
         progress.setProgress(1f + progress.getProgress());
     }
 
     public @Override void merged(FeatureInfo featureInfo) {
-        mergedBuffer.add(featureInfo);
+        if (stageChanges) {
+            mergedBuffer.add(featureInfo);
+        }
         changed.set(true);
         fastForward.set(false);
         progress.setProgress(1f + progress.getProgress());
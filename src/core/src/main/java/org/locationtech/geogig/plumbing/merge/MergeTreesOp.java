@@ -0,0 +1,525 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevTreeBuilder;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver.FeatureConflict;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver.Resolution;
+import org.locationtech.geogig.plumbing.merge.DiffMergeFeaturesOp.DiffMergeFeatureResult;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.impl.DepthSearch;
+import org.locationtech.geogig.repository.impl.SpatialOps;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Three-way merges two trees against the tree of their common ancestor, building the merged
+ * {@link RevTree} directly in the object database.
+ * <p>
+ * Instead of computing the full ancestor to "ours" and ancestor to "theirs" diffs, only the changes
+ * "theirs" introduced are walked, skipping the subtrees and buckets it didn't change, and the
+ * matching "ours" nodes are looked up as needed:
+ * <ul>
+ * <li>A subtree "theirs" changed and "ours" didn't is adopted as a whole;
+ * <li>A subtree both changed the same way is left as in "ours" without descending into it;
+ * <li>Only the subtrees both changed differently are descended into, and rebuilt out of the "ours"
+ * version applying the non conflicting changes of "theirs".
+ * </ul>
+ * Hence merging a small branch into a large and busy one scales with the size of the branch's
+ * changes, not with the size of the changes made to the target branch since they diverged.
+ * <p>
+ * Changes are classified and reported to the {@link #setConsumer consumer} the same way
+ * {@link ReportMergeScenarioOp} does. Conflicting features are left as in "ours", unless a
+ * {@link #setConflictResolver conflict resolver} is set and resolves them, in which case the
+ * resolved features are part of the merged tree and the conflicts are not reported.
+ */
+public class MergeTreesOp extends AbstractGeoGigOp<MergeTreesOp.MergeTreesResult> {
+
+    public static @Value class MergeTreesResult {
+        /**
+         * The merged tree, with the conflicting nodes as in the "ours" tree
+         */
+        private RevTree mergedTree;
+
+        private MergeScenarioReport report;
+    }
+
+    private RevTree ancestor;
+
+    private RevTree ours;
+
+    private RevTree theirs;
+
+    private MergeScenarioConsumer consumer;
+
+    private ConflictResolver conflictResolver;
+
+    private long oursTimestamp, theirsTimestamp;
+
+    /**
+     * @param ancestor the tree of the common ancestor of the trees to merge
+     */
+    public MergeTreesOp setAncestor(@NonNull RevTree ancestor) {
+        this.ancestor = ancestor;
+        return this;
+    }
+
+    /**
+     * @param ours the tree to merge into
+     */
+    public MergeTreesOp setOurs(@NonNull RevTree ours) {
+        this.ours = ours;
+        return this;
+    }
+
+    /**
+     * @param theirs the tree with the changes to merge
+     */
+    public MergeTreesOp setTheirs(@NonNull RevTree theirs) {
+        this.theirs = theirs;
+        return this;
+    }
+
+    public MergeTreesOp setConsumer(MergeScenarioConsumer consumer) {
+        this.consumer = consumer;
+        return this;
+    }
+
+    /**
+     * @param conflictResolver if given, used to resolve feature conflicts as they're found
+     */
+    public MergeTreesOp setConflictResolver(@Nullable ConflictResolver conflictResolver) {
+        this.conflictResolver = conflictResolver;
+        return this;
+    }
+
+    /**
+     * @param oursTimestamp the time the "ours" tree was committed
+     * @param theirsTimestamp the time the "theirs" tree was committed
+     * @see FeatureConflict#getOursTimestamp()
+     */
+    public MergeTreesOp setCommitTimestamps(long oursTimestamp, long theirsTimestamp) {
+        this.oursTimestamp = oursTimestamp;
+        this.theirsTimestamp = theirsTimestamp;
+        return this;
+    }
+
+    /**
+     * @return the merge result, or {@code null} if the operation was cancelled
+     */
+    protected @Override MergeTreesResult _call() {
+        checkArgument(ancestor != null, "ancestor tree not provided");
+        checkArgument(ours != null, "ours tree not provided");
+        checkArgument(theirs != null, "theirs tree not provided");
+        if (consumer == null) {
+            consumer = new MergeScenarioConsumer();
+        }
+        final MergeScenarioReport report = new MergeScenarioReport();
+        final RevTree merged;
+        if (ours.getId().equals(theirs.getId()) || ancestor.getId().equals(theirs.getId())) {
+            merged = ours;
+        } else {
+            MergeWalk merge = new MergeWalk(report);
+            new PreOrderDiffWalk(ancestor, theirs, objectDatabase(), objectDatabase(), true)
+                    .walk(merge);
+            merged = isCancelled() ? null : merge.build();
+        }
+        if (isCancelled()) {
+            return null;
+        }
+        consumer.finished();
+        return new MergeTreesResult(merged, report);
+    }
+
+    private boolean isCancelled() {
+        return consumer.isCancelled() || getProgressListener().isCanceled();
+    }
+
+    private static ChangeType changeType(@Nullable NodeRef ancestor, @Nullable NodeRef version) {
+        if (ancestor == null) {
+            return ChangeType.ADDED;
+        }
+        return version == null ? ChangeType.REMOVED : ChangeType.MODIFIED;
+    }
+
+    private static boolean same(@Nullable NodeRef n1, @Nullable NodeRef n2) {
+        if (n1 == null || n2 == null) {
+            return n1 == null && n2 == null;
+        }
+        return n1.getObjectId().equals(n2.getObjectId())
+                && n1.getMetadataId().equals(n2.getMetadataId());
+    }
+
+    private static ObjectId id(@Nullable NodeRef node) {
+        return node == null ? ObjectId.NULL : node.getObjectId();
+    }
+
+    private static ObjectId metadataId(@Nullable NodeRef node) {
+        return node == null ? ObjectId.NULL : node.getMetadataId();
+    }
+
+    /**
+     * A tree changed by both sides, rebuilt out of the "ours" version
+     */
+    private class TreeMerge {
+
+        final String path;
+
+        final @Nullable NodeRef ancestor, ours, theirs;
+
+        final RevTree oursTree;
+
+        private RevTreeBuilder builder;
+
+        TreeMerge(String path, @Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs, RevTree oursTree) {
+            this.path = path;
+            this.ancestor = ancestor;
+            this.ours = ours;
+            this.theirs = theirs;
+            this.oursTree = oursTree;
+        }
+
+        RevTreeBuilder builder() {
+            if (builder == null) {
+                builder = RevTreeBuilder.builder(objectDatabase(), oursTree);
+            }
+            return builder;
+        }
+
+        /**
+         * @return the "ours" version of the direct child of this tree with the given name
+         */
+        @Nullable
+        NodeRef oursChild(DepthSearch search, String name) {
+            if (oursTree.isEmpty()) {
+                return null;
+            }
+            Optional<Node> child = search.getDirectChild(oursTree, name, 0);
+            if (!child.isPresent()) {
+                return null;
+            }
+            Node node = child.get();
+            return NodeRef.create(path, node, node.getMetadataId().orElse(metadataId(ours)));
+        }
+
+        /**
+         * @return the metadata id of the merged tree, "theirs" if only "theirs" changed it
+         */
+        ObjectId mergedMetadataId() {
+            if (ours == null) {
+                return metadataId(theirs);
+            }
+            if (theirs != null && metadataId(ours).equals(metadataId(ancestor))) {
+                return metadataId(theirs);
+            }
+            return metadataId(ours);
+        }
+
+        /**
+         * @return the merged tree, or {@code null} if it was removed
+         */
+        @Nullable
+        RevTree build() {
+            if (builder == null) {
+                return ours == null && !path.isEmpty() ? null : oursTree;
+            }
+            RevTree tree = builder.build();
+            if (ours == null && tree.isEmpty()) {
+                return null;
+            }
+            return tree;
+        }
+    }
+
+    private class MergeWalk extends PreOrderDiffWalk.AbstractConsumer {
+
+        private static final int WRITE_BATCH_SIZE = 10_000;
+
+        private final MergeScenarioReport report;
+
+        /**
+         * Merged and resolved features not yet saved to the object database
+         */
+        private final List<RevFeature> pending = new ArrayList<>();
+
+        private final Map<ObjectId, RevFeatureType> featureTypes = new HashMap<>();
+
+        private final DepthSearch search = new DepthSearch(objectDatabase());
+
+        /**
+         * Paths of the trees whose "theirs" changes are adopted as a whole, walked only to report
+         * them
+         */
+        private final Set<String> adopted = new HashSet<>();
+
+        private final Map<String, TreeMerge> merging = new HashMap<>();
+
+        MergeWalk(MergeScenarioReport report) {
+            this.report = report;
+        }
+
+        public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if (isCancelled()) {
+                return false;
+            }
+            final NodeRef node = right == null ? left : right;
+            final String path = node.path();
+            if (node.getParentPath() == null) {
+                // root trees
+                if (ancestor.getId().equals(ours.getId())) {
+                    adopted.add(path);
+                } else {
+                    NodeRef oursRoot = NodeRef.createRoot(RevObjectFactory.defaultInstance()
+                            .createNode(NodeRef.ROOT, ours.getId(), ObjectId.NULL, TYPE.TREE,
+                                    null, null));
+                    merging.put(path, new TreeMerge(path, left, oursRoot, right, ours));
+                }
+                return true;
+            }
+            final String parentPath = node.getParentPath();
+            if (adopted.contains(parentPath)) {
+                adopted.add(path);
+                unconflicted(left, right);
+                return true;
+            }
+            final TreeMerge parent = merging.get(parentPath);
+            final NodeRef oursVersion = parent.oursChild(search, node.name());
+            if (same(oursVersion, left)) {
+                // only "theirs" changed the tree, adopt it
+                if (right == null) {
+                    parent.builder().remove(oursVersion.getNode());
+                } else {
+                    parent.builder().put(right.getNode());
+                }
+                adopted.add(path);
+                unconflicted(left, right);
+                return true;
+            }
+            if (same(oursVersion, right)) {
+                // both changed it the same way
+                return false;
+            }
+            if (changeType(left, oursVersion) != changeType(left, right)) {
+                conflict(path, id(left), id(oursVersion), id(right));
+            } else if (!metadataId(oursVersion).equals(metadataId(right))) {
+                conflict(path, metadataId(left), metadataId(oursVersion), metadataId(right));
+            }
+            RevTree oursTree = oursVersion == null ? RevTree.EMPTY
+                    : objectDatabase().getTree(oursVersion.getObjectId());
+            merging.put(path, new TreeMerge(path, left, oursVersion, right, oursTree));
+            return true;
+        }
+
+        public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if (isCancelled()) {
+                return false;
+            }
+            final NodeRef node = right == null ? left : right;
+            final String parentPath = node.getParentPath();
+            if (adopted.contains(parentPath)) {
+                unconflicted(left, right);
+                return true;
+            }
+            final TreeMerge parent = merging.get(parentPath);
+            final NodeRef oursVersion = parent.oursChild(search, node.name());
+            if (same(oursVersion, left)) {
+                // only "theirs" changed the feature
+                if (right == null) {
+                    parent.builder().remove(oursVersion.getNode());
+                } else {
+                    parent.builder().put(right.getNode());
+                }
+                unconflicted(left, right);
+            } else if (!same(oursVersion, right)) {
+                mergeFeature(parent, left, oursVersion, right);
+            }
+            return true;
+        }
+
+        private void mergeFeature(TreeMerge parent, @Nullable NodeRef ancestorVersion,
+                @Nullable NodeRef oursVersion, @Nullable NodeRef theirsVersion) {
+
+            final String path = (theirsVersion == null ? ancestorVersion : theirsVersion).path();
+            final ChangeType changeType = changeType(ancestorVersion, theirsVersion);
+            if (changeType != changeType(ancestorVersion, oursVersion)
+                    || changeType == ChangeType.ADDED) {
+                featureConflict(parent, path, ancestorVersion, oursVersion, theirsVersion);
+                return;
+            }
+            DiffMergeFeatureResult result = command(DiffMergeFeaturesOp.class)//
+                    .setCommonAncestor(ancestorVersion)//
+                    .setMergeInto(oursVersion)//
+                    .setToMerge(theirsVersion)//
+                    .call();
+            if (result.isConflict()) {
+                featureConflict(parent, path, ancestorVersion, oursVersion, theirsVersion);
+            } else if (result.isMerge()) {
+                RevFeature mergedFeature = result.mergedFeature();
+                if (mergedFeature.getId().equals(theirsVersion.getObjectId())) {
+                    parent.builder().put(theirsVersion.getNode());
+                    unconflicted(ancestorVersion, theirsVersion);
+                } else {
+                    putMerged(parent, path, oursVersion, mergedFeature);
+                    report.addMerged(path);
+                }
+            }
+            // else both changed it the same way
+        }
+
+        private void putMerged(TreeMerge parent, String path, NodeRef oursVersion,
+                RevFeature mergedFeature) {
+            pending.add(mergedFeature);
+            if (pending.size() == WRITE_BATCH_SIZE) {
+                flush();
+            }
+            Node oursNode = oursVersion.getNode();
+            Node merged = RevObjectFactory.defaultInstance().createNode(oursNode.getName(),
+                    mergedFeature.getId(), oursNode.getMetadataId().orElse(ObjectId.NULL),
+                    TYPE.FEATURE, SpatialOps.boundsOf(mergedFeature), null);
+            parent.builder().put(merged);
+            consumer.merged(FeatureInfo.insert(mergedFeature, oursVersion.getMetadataId(), path));
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                objectDatabase().putAll(pending.iterator());
+                pending.clear();
+            }
+        }
+
+        /**
+         * Resolves the conflict with the {@link #conflictResolver} if possible, reports it
+         * otherwise
+         */
+        private void featureConflict(TreeMerge parent, String path,
+                @Nullable NodeRef ancestorVersion, @Nullable NodeRef oursVersion,
+                @Nullable NodeRef theirsVersion) {
+
+            Optional<Resolution> resolution = Optional.empty();
+            if (conflictResolver != null) {
+                FeatureConflict conflict = new FeatureConflict(path, feature(ancestorVersion),
+                        feature(oursVersion), feature(theirsVersion),
+                        featureType(oursVersion, theirsVersion), oursTimestamp, theirsTimestamp);
+                resolution = conflictResolver.resolve(conflict);
+            }
+            if (!resolution.isPresent()) {
+                conflict(path, id(ancestorVersion), id(oursVersion), id(theirsVersion));
+                return;
+            }
+            final RevFeature resolved = resolution.get().getFeature();
+            if (resolved == null) {
+                if (oursVersion != null) {
+                    parent.builder().remove(oursVersion.getNode());
+                    consumer.unconflicted(new DiffEntry(oursVersion, null));
+                }
+            } else if (!resolved.getId().equals(id(oursVersion))) {
+                if (resolved.getId().equals(id(theirsVersion))) {
+                    parent.builder().put(theirsVersion.getNode());
+                    consumer.unconflicted(new DiffEntry(oursVersion, theirsVersion));
+                } else {
+                    putMerged(parent, path, oursVersion == null ? theirsVersion : oursVersion,
+                            resolved);
+                }
+            }
+            report.addResolved(path);
+        }
+
+        private @Nullable RevFeature feature(@Nullable NodeRef node) {
+            return node == null ? null : objectDatabase().getFeature(node.getObjectId());
+        }
+
+        /**
+         * @return the feature type of both versions, or {@code null} if either is missing or their
+         *         feature types differ
+         */
+        private @Nullable RevFeatureType featureType(@Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            if (ours == null || theirs == null
+                    || !ours.getMetadataId().equals(theirs.getMetadataId())) {
+                return null;
+            }
+            return featureTypes.computeIfAbsent(ours.getMetadataId(),
+                    objectDatabase()::getFeatureType);
+        }
+
+        private void unconflicted(@Nullable NodeRef left, @Nullable NodeRef right) {
+            DiffEntry diff = new DiffEntry(left, right);
+            consumer.unconflicted(diff);
+            report.addUnconflicted(diff);
+        }
+
+        private void conflict(String path, ObjectId ancestorId, ObjectId oursId,
+                ObjectId theirsId) {
+            consumer.conflicted(new Conflict(path, ancestorId, oursId, theirsId));
+            report.addConflict(path);
+        }
+
+        /**
+         * Builds the merged trees bottom up
+         */
+        RevTree build() {
+            flush();
+            if (adopted.contains(NodeRef.ROOT)) {
+                return theirs;
+            }
+            List<TreeMerge> trees = new ArrayList<>(merging.values());
+            trees.sort((t1, t2) -> Integer.compare(NodeRef.depth(t2.path),
+                    NodeRef.depth(t1.path)));
+            RevTree root = null;
+            for (TreeMerge tree : trees) {
+                final RevTree mergedTree = tree.build();
+                if (tree.path.isEmpty()) {
+                    root = mergedTree;
+                    break;
+                }
+                final TreeMerge parent = merging.get(NodeRef.parentPath(tree.path));
+                if (mergedTree == null) {
+                    if (tree.ours != null) {
+                        parent.builder().remove(tree.ours.getNode());
+                    }
+                } else if (tree.builder != null || tree.ours == null
+                        || !tree.mergedMetadataId().equals(metadataId(tree.ours))) {
+                    Node node = RevObjectFactory.defaultInstance().createNode(
+                            NodeRef.nodeFromPath(tree.path), mergedTree.getId(),
+                            tree.mergedMetadataId(), TYPE.TREE, SpatialOps.boundsOf(mergedTree),
+                            null);
+                    parent.builder().put(node);
+                }
+            }
+            return root;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevCommitBuilder;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp.MergeTreesResult;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectDatabase;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Replays a sequence of commits on top of another one, without touching the working tree, the
+ * staging area, or any ref.
+ * <p>
+ * The changes each commit introduced with respect to its first parent are three-way merged onto
+ * the tree of the last replayed commit with {@link MergeTreesOp}, and a new commit reusing the
+ * replayed commit's author and message is created out of the resulting tree. Replaying stops
+ * right before the first commit whose changes conflict with the current tip, leaving it up to the
+ * caller to apply it through the staging area and report the conflicts.
+ * <p>
+ * This is the fast path for rebase: there are no per commit staging area or working tree updates,
+ * and callers only need to update their refs once, with the {@link ReplayCommitsResult#getHead()
+ * resulting tip}.
+ */
+public class ReplayCommitsOp extends AbstractGeoGigOp<ReplayCommitsOp.ReplayCommitsResult> {
+
+    public static @Value class ReplayCommitsResult {
+        /**
+         * The last replayed commit, or the commit replaying started onto if none was replayed
+         */
+        private ObjectId head;
+
+        /**
+         * The new commits, in the order they were created
+         */
+        private List<RevCommit> replayed;
+
+        /**
+         * The commit that couldn't be replayed due to conflicts, if any
+         */
+        private @Nullable RevCommit conflicted;
+    }
+
+    private ObjectId onto;
+
+    private List<RevCommit> commits = Collections.emptyList();
+
+    /**
+     * @param onto the commit to replay the commits on top of
+     */
+    public ReplayCommitsOp setOnto(@NonNull ObjectId onto) {
+        this.onto = onto;
+        return this;
+    }
+
+    /**
+     * @param commits the commits to replay, in the order they shall be applied
+     */
+    public ReplayCommitsOp setCommits(@NonNull List<RevCommit> commits) {
+        this.commits = commits;
+        return this;
+    }
+
+    /**
+     * @return the replay result; if the operation was cancelled, it contains the commits replayed
+     *         until then
+     */
+    protected @Override ReplayCommitsResult _call() {
+        checkArgument(onto != null, "commit to replay onto not provided");
+        final ObjectDatabase db = objectDatabase();
+        final ProgressListener progress = getProgressListener();
+
+        ObjectId head = onto;
+        RevTree headTree = onto.isNull() ? RevTree.EMPTY
+                : db.getTree(db.getCommit(onto).getTreeId());
+        List<RevCommit> replayed = new ArrayList<>();
+        for (RevCommit commit : commits) {
+            if (progress.isCanceled()) {
+                break;
+            }
+            MergeTreesResult result = command(MergeTreesOp.class)//
+                    .setAncestor(parentTree(commit))//
+                    .setOurs(headTree)//
+                    .setTheirs(db.getTree(commit.getTreeId()))//
+                    .setProgressListener(progress)//
+                    .call();
+            if (result == null) {
+                break;
+            }
+            if (result.getReport().getConflicts() > 0) {
+                return new ReplayCommitsResult(head, replayed, commit);
+            }
+            headTree = result.getMergedTree();
+
+            long timestamp = platform().currentTimeMillis();
+            RevCommitBuilder builder = RevCommit.builder().init(commit);
+            builder.parentIds(head.isNull() ? Collections.emptyList()
+                    : Collections.singletonList(head));
+            builder.treeId(headTree.getId());
+            builder.committerTimestamp(timestamp);
+            builder.committerTimeZoneOffset(platform().timeZoneOffset(timestamp));
+            RevCommit newCommit = builder.build();
+            db.put(newCommit);
+
+            head = newCommit.getId();
+            replayed.add(newCommit);
+            progress.setProgress(replayed.size());
+        }
+        return new ReplayCommitsResult(head, replayed, null);
+    }
+
+    private RevTree parentTree(RevCommit commit) {
+        if (commit.getParentIds().isEmpty()) {
+            return RevTree.EMPTY;
+        }
+        ObjectDatabase db = objectDatabase();
+        return db.getTree(db.getCommit(commit.getParentIds().get(0)).getTreeId());
+    }
+}
@@ -11,24 +11,40 @@ package org.locationtech.geogig.plumbing.merge;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
 import org.locationtech.geogig.plumbing.merge.DiffMergeFeaturesOp.DiffMergeFeatureResult;
 import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.FeatureInfo;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
@@ -40,15 +56,39 @@ import com.google.common.collect.PeekingIterator;
  * another reference commit, it returns the set of changes from the common ancestor to the first
  * commit, classified according to whether they can or not be safely applied onto the reference
  * commit. Changes that will have no effect on the target commit are not included as unconflicted.
+ * <p>
+ * The changes are processed in batches of growing size. The features both histories modified
+ * within a batch, which need to be compared attribute by attribute, are fetched from the object
+ * database in a single bulk call and diffed concurrently through the operation's
+ * {@link #setExecutionPolicy execution policy}. Events are still sent to the
+ * {@link #setConsumer consumer} in path order and from the calling thread, so paging consumers get
+ * deterministic results and consumers don't need to be thread safe.
  */
 public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport> {
 
+    private static final int MIN_BATCH_SIZE = 64;
+
+    private static final int MAX_BATCH_SIZE = 4096;
+
+    /**
+     * Number of features modified by both histories in a batch below which they're diffed in the
+     * calling thread
+     */
+    private static final int PARALLEL_THRESHOLD = 32;
+
     private RevCommit toMerge;
 
     private RevCommit mergeInto;
 
     private MergeScenarioConsumer consumer = null;
 
+    private @Nullable ExecutionPolicy executionPolicy;
+
+    /**
+     * Feature types of the features diffed so far, to only fetch them once
+     */
+    private final Map<ObjectId, RevObject> featureTypes = new HashMap<>();
+
     /**
      * @param toMerge the commit with the changes to apply {@link RevCommit}
      */
@@ -70,6 +110,19 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
         return this;
     }
 
+    /**
+     * Sets the policy to run the feature comparisons with, defaults to the repository's
+     * {@link ExecutionPolicy#of policy}.
+     * <p>
+     * The two tree diffs need to be merged in path order, so each one walks its trees on a single
+     * thread of its own, they only use the policy's I/O executor for their producer thread and to
+     * prefetch buckets.
+     */
+    public ReportMergeScenarioOp setExecutionPolicy(@Nullable ExecutionPolicy executionPolicy) {
+        this.executionPolicy = executionPolicy;
+        return this;
+    }
+
     protected @Override MergeScenarioReport _call() {
         if (consumer == null) {
             consumer = new MergeScenarioConsumer();
@@ -79,15 +132,18 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
         Preconditions.checkState(ancestorOpt.isPresent(), "No ancestor commit could be found.");
 
         final ObjectId ancestor = ancestorOpt.get();
+        final ExecutionPolicy policy = executionPolicy == null
+                ? ExecutionPolicy.of(configDatabase())
+                : executionPolicy;
 
         MergeScenarioReport report = null;
 
         try (AutoCloseableIterator<DiffEntry> mergeIntoDiffs = command(DiffTree.class)
                 .setOldTree(ancestor).setReportTrees(true).setNewTree(mergeInto.getId())
-                .setPreserveIterationOrder(true).call();
+                .setPreserveIterationOrder(true).setExecutionPolicy(policy).call();
                 AutoCloseableIterator<DiffEntry> toMergeDiffs = command(DiffTree.class)
                         .setOldTree(ancestor).setReportTrees(true).setNewTree(toMerge.getId())
-                        .setPreserveIterationOrder(true).call();) {
+                        .setPreserveIterationOrder(true).setExecutionPolicy(policy).call();) {
 
             Iterator<MergeDiffRef> tupleIterator = new MergeDiffIterator(mergeIntoDiffs,
                     toMergeDiffs);
@@ -95,7 +151,7 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
             final RevCommit ancestorCommit = objectDatabase().getCommit(ancestor);
             final RevTree ancestorTree = objectDatabase().getTree(ancestorCommit.getTreeId());
 
-            report = process(tupleIterator, ancestorTree);
+            report = process(tupleIterator, ancestorTree, policy);
         }
 
         return report;
@@ -174,32 +230,43 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
     }
 
     private MergeScenarioReport process(Iterator<MergeDiffRef> tupleIterator,
-            RevTree ancestorTree) {
+            RevTree ancestorTree, ExecutionPolicy policy) {
 
         MergeScenarioReport report = new MergeScenarioReport();
-        while (tupleIterator.hasNext()) {
-            MergeDiffRef mr = tupleIterator.next();
-
-            DiffEntry ours = mr.ours();
-            DiffEntry theirs = mr.theirs();
-            if (ours == null) {
-                // Only "their" branch modified the path
-                consumer.unconflicted(theirs);
-                report.addUnconflicted(theirs);
-            } else if (theirs == null) {
-                // Only "our" branch modified the path
-                // nothing else to do
-            } else {
-                // both branches modifies the same path
-                processPossibleConflict(ours, theirs, ancestorTree, report);
-            }
-
-            if (consumer.isCancelled()) {
-                break;
+        boolean exhausted = !tupleIterator.hasNext();
+        int batchSize = MIN_BATCH_SIZE;
+        while (!exhausted && !consumer.isCancelled()) {
+            List<MergeDiffRef> batch = new ArrayList<>(batchSize);
+            Iterators.addAll(batch, Iterators.limit(tupleIterator, batchSize));
+            batchSize = Math.min(MAX_BATCH_SIZE, 2 * batchSize);
+
+            final Map<MergeDiffRef, DiffMergeFeatureResult> featureMerges;
+            featureMerges = diffMergeFeatures(batch, policy);
+
+            for (int i = 0; i < batch.size(); i++) {
+                MergeDiffRef mr = batch.get(i);
+                DiffEntry ours = mr.ours();
+                DiffEntry theirs = mr.theirs();
+                if (ours == null) {
+                    // Only "their" branch modified the path
+                    consumer.unconflicted(theirs);
+                    report.addUnconflicted(theirs);
+                } else if (theirs == null) {
+                    // Only "our" branch modified the path
+                    // nothing else to do
+                } else {
+                    // both branches modifies the same path
+                    processPossibleConflict(ours, theirs, ancestorTree, report,
+                            featureMerges.get(mr));
+                }
+                exhausted = i == batch.size() - 1 && !tupleIterator.hasNext();
+                if (consumer.isCancelled()) {
+                    break;
+                }
             }
         }
 
-        if (!consumer.isCancelled() || !tupleIterator.hasNext()) {
+        if (!consumer.isCancelled() || exhausted) {
             consumer.finished();
         }
 
@@ -207,8 +274,67 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
 
     }
 
+    private static boolean isFeatureMergeCandidate(MergeDiffRef mr) {
+        DiffEntry ours = mr.ours();
+        DiffEntry theirs = mr.theirs();
+        return ours != null && theirs != null && ours.changeType() == ChangeType.MODIFIED
+                && theirs.changeType() == ChangeType.MODIFIED
+                && TYPE.TREE != theirs.newObjectType();
+    }
+
+    /**
+     * Diffs the features modified by both histories in the batch, fetching all the features and
+     * feature types involved at once, and comparing them concurrently if there are enough of them.
+     */
+    private Map<MergeDiffRef, DiffMergeFeatureResult> diffMergeFeatures(List<MergeDiffRef> batch,
+            ExecutionPolicy policy) {
+
+        final List<MergeDiffRef> candidates = batch.stream()
+                .filter(ReportMergeScenarioOp::isFeatureMergeCandidate)
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Set<ObjectId> ids = new HashSet<>();
+        for (MergeDiffRef mr : candidates) {
+            for (NodeRef ref : new NodeRef[] { mr.theirs().getOldObject(),
+                    mr.ours().getNewObject(), mr.theirs().getNewObject() }) {
+                ids.add(ref.getObjectId());
+                if (!featureTypes.containsKey(ref.getMetadataId())) {
+                    ids.add(ref.getMetadataId());
+                }
+            }
+        }
+        final Map<ObjectId, RevObject> objects = new HashMap<>(featureTypes);
+        objectDatabase().getAll(ids, BulkOpListener.NOOP_LISTENER).forEachRemaining(o -> {
+            objects.put(o.getId(), o);
+            if (o instanceof RevFeatureType) {
+                featureTypes.put(o.getId(), o);
+            }
+        });
+
+        final Function<MergeDiffRef, DiffMergeFeatureResult> diffMerge = mr -> DiffMergeFeaturesOp
+                .diffMerge(mr.theirs().getOldObject(), mr.ours().getNewObject(),
+                        mr.theirs().getNewObject(), objects);
+
+        final List<DiffMergeFeatureResult> results;
+        if (candidates.size() < PARALLEL_THRESHOLD) {
+            results = candidates.stream().map(diffMerge).collect(Collectors.toList());
+        } else {
+            // parallel streams run in the pool of the task they're called from
+            results = policy.invoke(ForkJoinTask.adapt(() -> candidates.parallelStream()
+                    .map(diffMerge).collect(Collectors.toList())));
+        }
+        Map<MergeDiffRef, DiffMergeFeatureResult> merges = new IdentityHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            merges.put(candidates.get(i), results.get(i));
+        }
+        return merges;
+    }
+
     private void processPossibleConflict(DiffEntry oursDiff, DiffEntry theirsDiff,
-            RevTree ancestorTree, MergeScenarioReport report) {
+            RevTree ancestorTree, MergeScenarioReport report,
+            @Nullable DiffMergeFeatureResult diffMergeFeatureResult) {
 
         Preconditions.checkArgument(oursDiff.oldObject().equals(theirsDiff.oldObject()));
 
@@ -246,13 +372,7 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
                 checkForFeatureTypeConflict(ancestorVersion, oursDiff, theirsDiff, report);
                 break;
             }
-
-            DiffMergeFeatureResult diffMergeFeatureResult = command(DiffMergeFeaturesOp.class)//
-                    .setCommonAncestor(theirsDiff.getOldObject())//
-                    .setMergeInto(oursDiff.getNewObject())//
-                    .setToMerge(theirsDiff.getNewObject())//
-                    .call();
-
+            // computed in bulk by diffMergeFeatures()
             if (diffMergeFeatureResult.isConflict()) {
                 consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
                 report.addConflict(path);
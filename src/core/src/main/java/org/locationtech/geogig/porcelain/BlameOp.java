@@ -10,6 +10,7 @@
 package org.locationtech.geogig.porcelain;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -32,13 +33,19 @@ import org.locationtech.geogig.plumbing.diff.FeatureDiff;
 import org.locationtech.geogig.porcelain.BlameException.StatusCode;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex.Version;
 
 import com.google.common.base.Suppliers;
 
 /**
  * Creates a report that contains information about who was the last to change each attribute in a
  * feature
- * 
+ * <p>
+ * If the repository has a {@link FeatureHistoryIndex} covering the commit to blame from, only the
+ * indexed versions of the feature are compared, instead of walking its path filtered history.
  */
 @CanRunDuringConflict
 public class BlameOp extends AbstractGeoGigOp<BlameReport> {
@@ -84,6 +91,12 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
 
         BlameReport report = new BlameReport(featureType.get());
 
+        ObjectId startCommit = command(RevParse.class)
+                .setRefSpec(commit != null ? commit.toString() : Ref.HEAD).call().get();
+        if (blameFromIndex(report, startCommit)) {
+            return report;
+        }
+
         Iterator<RevCommit> log = command(LogOp.class).addPath(path).setUntil(commit).call();
         RevCommit commit = log.next();
         RevObjectParse revObjectParse = command(RevObjectParse.class);
@@ -100,7 +113,8 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
             }
             RevCommit commitB = log.next();
             try (AutoCloseableIterator<DiffEntry> diffs = diffOp.setNewVersion(commit.getId())
-                    .setOldVersion(commitB.getId()).setReportTrees(false).call()) {
+                    .setOldVersion(commitB.getId()).setFilter(path).setReportTrees(false)
+                    .call()) {
                 while (diffs.hasNext()) {
                     DiffEntry diff = diffs.next();
                     if (path.equals(diff.newPath())) {
@@ -131,4 +145,44 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
         }
         return report;
     }
+
+    /**
+     * Fills the report out of the versions of the feature in the {@link FeatureHistoryIndex}, if
+     * the index covers the start commit.
+     * 
+     * @return whether the report was filled
+     */
+    private boolean blameFromIndex(BlameReport report, ObjectId startCommit) {
+        Optional<CommitGraphIndex> commitGraph = CommitGraphIndex.of(context());
+        Optional<FeatureHistoryIndex> featureHistory = FeatureHistoryIndex.of(context());
+        if (!commitGraph.isPresent() || !featureHistory.isPresent()
+                || !featureHistory.get().covers(startCommit, commitGraph.get())) {
+            return false;
+        }
+        List<Version> versions = featureHistory.get().history(path, startCommit,
+                commitGraph.get());
+        if (versions.isEmpty() || versions.get(0).isRemoval()) {
+            return false;
+        }
+        ObjectDatabase db = objectDatabase();
+        for (int i = 0; !report.isComplete(); i++) {
+            Version version = versions.get(i);
+            RevCommit commit = db.getCommit(version.getCommitId());
+            Version previous = i + 1 < versions.size() ? versions.get(i + 1) : null;
+            if (previous == null || previous.isRemoval()) {
+                report.setFirstVersion(db.getFeature(version.getObjectId()), commit);
+                break;
+            }
+            if (previous.getObjectId().equals(version.getObjectId())) {
+                continue;
+            }
+            FeatureDiff featureDiff = DiffFeature.compare(path,
+                    db.getFeature(previous.getObjectId()), db.getFeature(version.getObjectId()),
+                    db.getFeatureType(previous.getMetadataId()),
+                    db.getFeatureType(version.getMetadataId()));
+            featureDiff.getDiffs().forEach((key, diff) -> report.addDiff(
+                    key.getName().toString(), Optional.ofNullable(diff.getNewValue()), commit));
+        }
+        return true;
+    }
 }
@@ -13,22 +13,22 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Optional;
 
-import org.locationtech.geogig.model.DiffEntry;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.SymRef;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.ResolveCommit;
 import org.locationtech.geogig.plumbing.UpdateRefs;
-import org.locationtech.geogig.plumbing.WriteTree2;
 import org.locationtech.geogig.plumbing.merge.ConflictsUtils;
+import org.locationtech.geogig.plumbing.merge.MergeScenarioConsumer;
 import org.locationtech.geogig.plumbing.merge.MergeScenarioReport;
-import org.locationtech.geogig.plumbing.merge.ReportCommitConflictsOp;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp.MergeTreesResult;
 import org.locationtech.geogig.repository.Conflict;
-import org.locationtech.geogig.repository.FeatureInfo;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
-import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.impl.PersistedIterable;
 
 import com.google.common.base.Supplier;
@@ -41,6 +41,11 @@ import lombok.NonNull;
  * 
  * Apply the changes introduced by an existing commit.
  * <p>
+ * The commit's changes are merged onto the branch's tree with {@link MergeTreesOp}, and the working
+ * tree and staging area are just moved to the resulting tree. If there are no conflicts the result
+ * is committed with {@link CommitOp}, reusing the cherry-picked commit's author and message.
+ * Otherwise the merged tree holds the non conflicting changes, and the conflicts are saved and
+ * reported.
  * 
  */
 public class CherryPickOp extends AbstractGeoGigOp<RevCommit> {
@@ -78,57 +83,47 @@ public class CherryPickOp extends AbstractGeoGigOp<RevCommit> {
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Commit could not be resolved: " + commit));
 
-        ObjectId headId = headRef.getObjectId();
+        final ObjectId headId = headRef.getObjectId();
+        final RevTree headTree = tree(headId);
 
         final @Cleanup PersistedIterable<Conflict> conflicts = ConflictsUtils
                 .newTemporaryConflictStream();
-        final @Cleanup PersistedIterable<DiffEntry> unconflicted = ConflictsUtils
-                .newTemporaryDiffEntryStream();
-        final @Cleanup PersistedIterable<FeatureInfo> merged = ConflictsUtils
-                .newTemporaryFeatureInfoStream();
-
-        // see if there are conflicts
-        MergeScenarioReport report = command(ReportCommitConflictsOp.class)//
-                .setCommit(commitToApply)//
-                .setOnConflict(conflicts::add)//
-                .setOnFeatureMerged(merged::add)//
-                .setOnUnconflictedChange(unconflicted::add)//
+        final MergeTreesResult result = command(MergeTreesOp.class)//
+                .setAncestor(parentTree(commitToApply))//
+                .setOurs(headTree)//
+                .setTheirs(objectDatabase().getTree(commitToApply.getTreeId()))//
+                .setConsumer(new MergeScenarioConsumer() {
+                    public @Override synchronized void conflicted(Conflict conflict) {
+                        conflicts.add(conflict);
+                    }
+                })//
+                .setProgressListener(getProgressListener())//
                 .call();
-        if (conflicts.size() > 0) {
-            geogig().conflicts().save(conflicts);
-        }
-        if (unconflicted.size() > 0) {
-            stagingArea().stage(getProgressListener(), unconflicted.iterator(),
-                    unconflicted.size());
-        }
-        if (merged.size() > 0) {
-            workingTree().insert(merged.iterator(), getProgressListener());
-            try (AutoCloseableIterator<DiffEntry> unstaged = workingTree().getUnstaged(null)) {
-                stagingArea().stage(getProgressListener(), unstaged, 0);
-            }
+        if (result == null) {
+            return null;// cancelled
         }
+        final MergeScenarioReport report = result.getReport();
+        final ObjectId mergedTreeId = result.getMergedTree().getId();
+
         if (report.getConflicts() == 0) {
-            // write new tree
-            ObjectId newTreeId = command(WriteTree2.class).call();
-            RevCommit newCommit = command(CommitOp.class).setCommit(commitToApply).call();
-            UpdateRefs cleanup = command(UpdateRefs.class).setReason("cherry-pick: no conflicts");
-            if (!newTreeId.equals(workingTree().getTree().getId())) {
-                cleanup.add(Ref.WORK_HEAD, newTreeId);
-            }
-            if (!newTreeId.equals(stagingArea().getTree().getId())) {
-                cleanup.add(Ref.STAGE_HEAD, newTreeId);
+            if (headTree.getId().equals(mergedTreeId)) {
+                throw new NothingToCommitException("Nothing to commit after " + headId);
             }
-            cleanup.call();
-
+            command(UpdateRefs.class).setReason(reason(commitToApply))//
+                    .add(Ref.WORK_HEAD, mergedTreeId)//
+                    .add(Ref.STAGE_HEAD, mergedTreeId)//
+                    .call();
+            RevCommit newCommit = command(CommitOp.class).setCommit(commitToApply).call();
             getProgressListener().complete();
-
             return newCommit;
         }
 
-        // stage changes
+        geogig().conflicts().save(conflicts);
+        // the merged tree has the non conflicting changes, and the conflicting features as in HEAD
         UpdateRefs updateRefs = command(UpdateRefs.class)
                 .setReason("cherry-pick: set up conflicts");
-        updateRefs.add(Ref.WORK_HEAD, stagingArea().getTree().getId());
+        updateRefs.add(Ref.WORK_HEAD, mergedTreeId);
+        updateRefs.add(Ref.STAGE_HEAD, mergedTreeId);
         updateRefs.add(Ref.CHERRY_PICK_HEAD, commit);
         updateRefs.add(Ref.ORIG_HEAD, headId);
         updateRefs.call();
@@ -147,4 +142,20 @@ public class CherryPickOp extends AbstractGeoGigOp<RevCommit> {
         throw new ConflictsException(conflictMsg.toString());
 
     }
+
+    private String reason(RevCommit commitToApply) {
+        return String.format("cherry-pick: commit reusing %s '%s'",
+                RevObjects.toShortString(commitToApply.getId()),
+                RevObjects.messageTitle(commitToApply.getMessage()));
+    }
+
+    private RevTree tree(ObjectId commitId) {
+        return commitId.isNull() ? RevTree.EMPTY
+                : objectDatabase().getTree(objectDatabase().getCommit(commitId).getTreeId());
+    }
+
+    private RevTree parentTree(RevCommit commit) {
+        return commit.getParentIds().isEmpty() ? RevTree.EMPTY
+                : tree(commit.getParentIds().get(0));
+    }
 }
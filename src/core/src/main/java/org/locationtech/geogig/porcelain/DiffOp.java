@@ -18,6 +18,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.DiffIndex;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.DiffWorkTree;
+import org.locationtech.geogig.plumbing.diff.DiffCursor;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 
@@ -64,6 +65,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean preserveIterationOrder;
 
+    private DiffCursor cursor;
+
     /**
      * @param compareIndex if true, the index will be used in the comparison
      */
@@ -124,6 +127,17 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Resumes the diff right after the given cursor position, only supported when comparing two
+     * revisions (i.e. not the index or working tree)
+     * 
+     * @see DiffTree#setCursor(DiffCursor)
+     */
+    public DiffOp setCursor(@Nullable DiffCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
     /**
      * Executes the diff operation.
      * 
@@ -137,6 +151,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                         oldRefSpec, newRefSpec));
         checkArgument(newRefSpec == null || oldRefSpec != null,
                 "If new rev spec is specified then old rev spec is mandatory");
+        checkArgument(cursor == null || (!cached && newRefSpec != null),
+                "diff cursors are only supported when comparing two revisions");
 
         AutoCloseableIterator<DiffEntry> iterator;
         if (cached) {
@@ -159,7 +175,7 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
             iterator = command(DiffTree.class).setOldVersion(oldRefSpec).setNewVersion(newRefSpec)
                     .setPathFilter(pathFilter).setReportTrees(reportTrees)
-                    .setPreserveIterationOrder(preserveIterationOrder).call();
+                    .setPreserveIterationOrder(preserveIterationOrder).setCursor(cursor).call();
         }
 
         return iterator;
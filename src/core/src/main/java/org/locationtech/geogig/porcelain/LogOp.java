@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.porcelain;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -19,6 +20,7 @@ import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.dsl.Geogig;
 import org.locationtech.geogig.model.NodeRef;
@@ -28,6 +30,8 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -266,8 +270,10 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             }
         }
         LogFilter filter = new LogFilter(geogig, oldestCommitId, timeRange, paths, author,
-                commiter);
-        Iterator<RevCommit> filteredCommits = Iterators.filter(history, filter);
+                commiter, CommitGraphIndex.of(context()).orElse(null), indexedCommits(
+                        firstParent ? Collections.singletonList(newestCommitId) : commits));
+        Iterator<RevCommit> filteredCommits = Iterators.filter(untilSince(history, filter),
+                filter);
         if (skip != null) {
             Iterators.advance(filteredCommits, skip.intValue());
         }
@@ -277,6 +283,55 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
         return filteredCommits;
     }
 
+    /**
+     * @return the commits reachable from {@code starts} that changed any of the paths, as recorded
+     *         by the {@link FeatureHistoryIndex}, or {@code null} if there's no such index, it
+     *         doesn't cover all the starting commits, or any of the paths is not a feature it knows
+     *         about
+     */
+    private @Nullable Set<ObjectId> indexedCommits(List<ObjectId> starts) {
+        if (paths == null) {
+            return null;
+        }
+        Optional<CommitGraphIndex> commitGraph = CommitGraphIndex.of(context());
+        Optional<FeatureHistoryIndex> featureHistory = FeatureHistoryIndex.of(context());
+        if (!commitGraph.isPresent() || !featureHistory.isPresent()) {
+            return null;
+        }
+        final CommitGraphIndex graph = commitGraph.get();
+        final FeatureHistoryIndex index = featureHistory.get();
+        if (!starts.stream().allMatch(c -> index.covers(c, graph))) {
+            return null;
+        }
+        Set<ObjectId> candidates = new HashSet<>();
+        for (String path : paths) {
+            List<FeatureHistoryIndex.Version> versions = index.versions(path);
+            if (versions.isEmpty()) {
+                // a tree path, or a feature that never existed
+                return null;
+            }
+            versions.forEach(v -> candidates.add(v.getCommitId()));
+        }
+        Set<ObjectId> reachable = new HashSet<>();
+        starts.forEach(c -> reachable.addAll(graph.reachableFrom(c, candidates)));
+        return reachable;
+    }
+
+    /**
+     * Stops traversing the history as soon as the filter reached the {@code since} commit, since
+     * it rejects all the commits that come after it, or it has seen all the commits that may match
+     */
+    private static Iterator<RevCommit> untilSince(Iterator<RevCommit> history, LogFilter filter) {
+        return new AbstractIterator<RevCommit>() {
+            protected @Override RevCommit computeNext() {
+                if (filter.isSinceReached() || filter.isExhausted() || !history.hasNext()) {
+                    return endOfData();
+                }
+                return history.next();
+            }
+        };
+    }
+
     /**
      * Iterator that traverses the commit history backwards starting from the provided commit, in
      * chronological order. It performs a reverse breadth-first search
@@ -531,6 +586,12 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
         private @NonNull Geogig repo;
 
+        private final @Nullable CommitGraphIndex commitGraph;
+
+        private final @Nullable Set<ObjectId> indexedCommits;
+
+        private final @Nullable Set<ObjectId> pendingCommits;
+
         /**
          * Constructs a new {@code LogFilter} with the given parameters.
          * 
@@ -540,11 +601,19 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
          *        of the provided paths
          * @param commiter the regexp pattern to filter author names
          * @param author the regexp pattern to filter commiter names
+         * @param commitGraph if given, its changed paths filters are used to discard the commits
+         *        that didn't change any of the {@code paths} without comparing their trees
+         * @param indexedCommits if given, the exact set of reachable commits that changed any of
+         *        the {@code paths}, as recorded by the {@link FeatureHistoryIndex}
          */
         public LogFilter(@NonNull Geogig repo, final @NonNull ObjectId oldestCommitId,
                 final @NonNull Range<Date> timeRange, final Set<String> paths, Pattern author,
-                Pattern commiter) {
+                Pattern commiter, @Nullable CommitGraphIndex commitGraph,
+                @Nullable Set<ObjectId> indexedCommits) {
             this.repo = repo;
+            this.commitGraph = commitGraph;
+            this.indexedCommits = indexedCommits;
+            this.pendingCommits = indexedCommits == null ? null : new HashSet<>(indexedCommits);
             this.oldestCommitId = oldestCommitId;
             this.timeRange = timeRange;
             this.author = author;
@@ -553,6 +622,17 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             findTreeChild = repo.commands().command(FindTreeChild.class);
         }
 
+        public boolean isSinceReached() {
+            return toReached;
+        }
+
+        /**
+         * @return whether all the commits that may match the paths have already been evaluated
+         */
+        public boolean isExhausted() {
+            return pendingCommits != null && pendingCommits.isEmpty();
+        }
+
         /**
          * @return {@code true} if the commit satisfies the filter criteria set to this op
          * @see com.google.common.base.Predicate#apply(java.lang.Object)
@@ -565,6 +645,9 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
                 toReached = true;
                 return false;
             }
+            if (pendingCommits != null) {
+                pendingCommits.remove(commit.getId());
+            }
             Optional<String> authorName = commit.getAuthor().getName();
             if (author != null && authorName.isPresent()) {
                 Matcher authorMatcher = author.matcher(authorName.get());
@@ -583,7 +666,14 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             if (!applies) {
                 return false;
             }
+            if (indexedCommits != null) {
+                return indexedCommits.contains(commit.getId());
+            }
             if (paths != null) {
+                if (commitGraph != null && paths.stream()
+                        .noneMatch(path -> commitGraph.mayHaveChanged(commit.getId(), path))) {
+                    return false;
+                }
                 applies = false;
                 // did this commit touch any of the paths?
                 RevTree commitTree = repo.objects().getTree(commit.getTreeId());
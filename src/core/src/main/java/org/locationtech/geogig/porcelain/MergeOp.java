@@ -24,16 +24,21 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.SymRef;
 import org.locationtech.geogig.plumbing.CleanRefsOp;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.ResolveBranchId;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.UpdateRefs;
 import org.locationtech.geogig.plumbing.merge.CheckMergeScenarioOp;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver;
 import org.locationtech.geogig.plumbing.merge.MergeScenarioReport;
 import org.locationtech.geogig.plumbing.merge.MergeStatusBuilder;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp.MergeTreesResult;
 import org.locationtech.geogig.plumbing.merge.ReportMergeScenarioOp;
 import org.locationtech.geogig.plumbing.merge.SaveMergeCommitMessageOp;
 import org.locationtech.geogig.repository.ProgressListener;
@@ -90,6 +95,8 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
 
     private boolean abort;
 
+    private ConflictResolver conflictResolver;
+
     /**
      * @param message the message for the merge commit
      * @return {@code this}
@@ -139,6 +146,21 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
         return this;
     }
 
+    /**
+     * Sets a strategy to automatically resolve feature conflicts as they're found, so that only the
+     * conflicts it can't resolve are saved to the conflicts database. Conflicts can't be resolved
+     * this way if the staging area has changes, in which case the merge fails with an
+     * {@link IllegalStateException} before changing anything.
+     *
+     * @param conflictResolver the conflict resolution strategy, or {@code null} for none
+     * @return {@code this}
+     * @see org.locationtech.geogig.plumbing.merge.ConflictResolvers
+     */
+    public MergeOp setConflictResolver(@Nullable ConflictResolver conflictResolver) {
+        this.conflictResolver = conflictResolver;
+        return this;
+    }
+
     /**
      * 
      * @param ours true if no commit should be made after the merge, leaving just the index with the
@@ -202,6 +224,8 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
 
         checkState(workingTree().isClean(),
                 "Merge cannot run if there are unstaged changes in the working tree");
+        checkState(conflictResolver == null || isStagingAreaClean(),
+                "Conflicts can't be resolved automatically when the staging area has changes");
 
         // capture original values in case the operation is cancelled
         origHead = currHead.get();
@@ -265,10 +289,10 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
             pairs.add(new CommitAncestorPair(commitId, ancestorCommit.get()));
 
             progress.setDescription("Possible conflicts. Creating intermediate merge status...");
-            mergeScenario = command(ReportMergeScenarioOp.class).setMergeIntoCommit(headCommit)
-                    .setToMergeCommit(targetCommit).setConsumer(mergeStatusBuilder).call();
+            mergeScenario = mergeConflicted(headCommit, targetCommit, ancestorCommit.get(),
+                    mergeStatusBuilder);
 
-            if (progress.isCanceled()) {
+            if (mergeScenario == null || progress.isCanceled()) {
                 cancel();
                 return null;
             }
@@ -315,13 +339,19 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
 
                 checkState(ancestorCommit.isPresent(), "No ancestor commit could be found.");
 
+                MergeTreesResult merged = null;
                 if (commits.size() == 1) {
-                    mergeScenario = command(ReportMergeScenarioOp.class)
-                            .setMergeIntoCommit(headCommit).setToMergeCommit(targetCommit).call();
-                    if (progress.isCanceled()) {
+                    merged = command(MergeTreesOp.class)//
+                            .setAncestor(commitTree(ancestorCommit.get()))//
+                            .setOurs(commitTree(headCommit.getId()))//
+                            .setTheirs(commitTree(targetCommit.getId()))//
+                            .setProgressListener(progress)//
+                            .call();
+                    if (merged == null || progress.isCanceled()) {
                         cancel();
                         return null;
                     }
+                    mergeScenario = merged.getReport();
                     progress.setDescription(mergeScenario.toString());
 
                     if (ancestorCommit.get().equals(headCommit.getId()) && !noFastForward) {
@@ -337,8 +367,18 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
                     return null;
                 }
 
-                // get changes
                 progress.setDescription("Staging changes...");
+                if (merged != null && !theirs && isStagingAreaClean(headCommit)) {
+                    // no possible conflicts, stage the merged tree as is
+                    stagingArea().updateStageHead(merged.getMergedTree().getId(),
+                            "merge: stage merged tree");
+                    mergeStatusBuilder.setChanged(true);
+                    mergeStatusBuilder.setFastFoward(false);
+                    workingTree().updateWorkHead(stagingArea().getTree().getId(),
+                            "merge: reset to STAGE_HEAD");
+                    continue;
+                }
+                // get changes
                 try (AutoCloseableIterator<DiffEntry> diff = command(DiffTree.class)
                         .setOldTree(ancestorCommit.get()).setNewTree(targetCommit.getId())
                         .setReportTrees(true).call()) {
@@ -368,6 +408,59 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
         return new MergeReport(mergeCommit, Optional.ofNullable(mergeScenario), oursId, pairs);
     }
 
+    /**
+     * Merges {@code targetCommit} onto {@code headCommit}, staging the merged changes and saving
+     * the conflicts found.
+     * <p>
+     * If the staging area has no changes of its own the merged tree is built by
+     * {@link MergeTreesOp} and staged as is, otherwise the merged changes are staged on top of it.
+     * 
+     * @return the merge scenario report, or {@code null} if the operation was cancelled
+     */
+    private @Nullable MergeScenarioReport mergeConflicted(RevCommit headCommit,
+            RevCommit targetCommit, ObjectId ancestorId, MergeStatusBuilder mergeStatusBuilder) {
+        if (!isStagingAreaClean(headCommit)) {
+            return command(ReportMergeScenarioOp.class).setMergeIntoCommit(headCommit)
+                    .setToMergeCommit(targetCommit).setConsumer(mergeStatusBuilder).call();
+        }
+        mergeStatusBuilder.setStageChanges(false);
+        MergeTreesResult result = command(MergeTreesOp.class)//
+                .setAncestor(commitTree(ancestorId))//
+                .setOurs(commitTree(headCommit.getId()))//
+                .setTheirs(commitTree(targetCommit.getId()))//
+                .setConsumer(mergeStatusBuilder)//
+                .setConflictResolver(conflictResolver)//
+                .setCommitTimestamps(headCommit.getCommitter().getTimestamp(),
+                        targetCommit.getCommitter().getTimestamp())//
+                .setProgressListener(getProgressListener())//
+                .call();
+        if (result == null) {
+            return null;
+        }
+        stagingArea().updateStageHead(result.getMergedTree().getId(), "merge: stage merged tree");
+        return result.getReport();
+    }
+
+    /**
+     * @return whether the staging area matches the tree of {@code HEAD}
+     */
+    private boolean isStagingAreaClean() {
+        ObjectId headTree = command(ResolveTreeish.class).setTreeish(Ref.HEAD).call()
+                .orElse(RevTree.EMPTY_TREE_ID);
+        return stagingArea().getTree().getId().equals(headTree);
+    }
+
+    private boolean isStagingAreaClean(RevCommit headCommit) {
+        return stagingArea().getTree().getId().equals(headCommit.getTreeId());
+    }
+
+    private RevTree commitTree(ObjectId commitId) {
+        final Objects objects = geogig().objects();
+        ObjectId treeId = objects.getCommit(commitId).getTreeId();
+        return RevTree.EMPTY_TREE_ID.equals(treeId) ? RevTree.EMPTY
+                : objectDatabase().getTree(treeId);
+    }
+
     private String fmt(RevCommit c) {
         String msg = c.getMessage();
         if (msg.length() > 30) {
@@ -33,6 +33,8 @@ import org.locationtech.geogig.plumbing.UpdateRefs;
 import org.locationtech.geogig.plumbing.WriteTree2;
 import org.locationtech.geogig.plumbing.merge.ConflictsUtils;
 import org.locationtech.geogig.plumbing.merge.MergeScenarioReport;
+import org.locationtech.geogig.plumbing.merge.ReplayCommitsOp;
+import org.locationtech.geogig.plumbing.merge.ReplayCommitsOp.ReplayCommitsResult;
 import org.locationtech.geogig.plumbing.merge.ReportCommitConflictsOp;
 import org.locationtech.geogig.porcelain.ResetOp.ResetMode;
 import org.locationtech.geogig.repository.Conflict;
@@ -59,7 +61,10 @@ import lombok.Cleanup;
  * 
  * -HEAD is rewinded to starting point
  * 
- * -Commits are applied. For each commit applied, the corresponding blob is deleted
+ * -Commits are applied. For each commit applied, the corresponding blob is deleted. Commits are
+ * replayed straight onto the rebased branch with {@link ReplayCommitsOp} and the working tree and
+ * staging area are only updated once the replay stops; only a commit whose changes conflict goes
+ * through the staging area
  * 
  * -A blob named 'next' keeps track of the next commit to apply between executions of the rebase
  * command, in case of conflicts
@@ -260,6 +265,7 @@ public class RebaseOp extends AbstractGeoGigOp<Boolean> {
         if (squashCommit == null) {
             boolean ret;
             do {
+                replayPendingCommits();
                 ret = applyNextCommit(true);
             } while (ret);
         }
@@ -358,6 +364,62 @@ public class RebaseOp extends AbstractGeoGigOp<Boolean> {
 
     }
 
+    /**
+     * Replays the pending commits onto {@link #rebaseHead} without going through the working tree
+     * and staging area, up to the first one that conflicts.
+     * <p>
+     * The branch is still moved through each replayed commit so that ref hooks (e.g. index
+     * updates) see all of them, but WORK_HEAD and STAGE_HEAD are only updated once, to the tree of
+     * the last one.
+     */
+    private void replayPendingCommits() {
+        final Blobs blobs = geogig().blobs();
+        final Integer next = blobs.asString(REBASE_NEXT_BLOB).map(Integer::parseInt).orElse(null);
+        if (next == null) {
+            return;
+        }
+        List<RevCommit> pending = new ArrayList<>();
+        for (int idx = next;; idx++) {
+            Optional<RevCommit> commit = blobs.asString(REBASE_BLOB_PREFIX + idx)
+                    .map(ObjectId::valueOf).map(objectDatabase()::getCommit);
+            if (!commit.isPresent()) {
+                break;
+            }
+            pending.add(commit.get());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        final ReplayCommitsResult result = command(ReplayCommitsOp.class)//
+                .setOnto(rebaseHead)//
+                .setCommits(pending)//
+                .setProgressListener(getProgressListener())//
+                .call();
+        final List<RevCommit> replayed = result.getReplayed();
+        if (replayed.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < replayed.size(); i++) {
+            final RevCommit applied = pending.get(i);
+            final RevCommit newCommit = replayed.get(i);
+            final Ref updatedBranch = new Ref(currentBranch, newCommit.getId());
+            final String reason = String.format("rebase: commit reusing %s '%s'",
+                    RevObjects.toShortString(applied.getId()),
+                    RevObjects.messageTitle(applied.getMessage()));
+            UpdateRefs updateRefs = command(UpdateRefs.class).setReason(reason)//
+                    .add(updatedBranch)//
+                    .add(new SymRef(Ref.HEAD, updatedBranch));
+            if (i == replayed.size() - 1) {
+                updateRefs.add(Ref.WORK_HEAD, newCommit.getTreeId())//
+                        .add(Ref.STAGE_HEAD, newCommit.getTreeId());
+            }
+            updateRefs.call();
+            blobs.remove(REBASE_BLOB_PREFIX + (next + i));
+        }
+        rebaseHead = result.getHead();
+        blobs.put(REBASE_NEXT_BLOB, String.valueOf(next + replayed.size()));
+    }
+
     private boolean applyNextCommit(boolean useCommitChanges) {
         org.locationtech.geogig.dsl.Blobs blobs = geogig().blobs();
         Integer idx = blobs.asString(REBASE_NEXT_BLOB).map(Integer::parseInt).orElse(null);
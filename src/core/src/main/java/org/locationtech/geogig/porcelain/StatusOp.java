@@ -11,23 +11,41 @@ package org.locationtech.geogig.porcelain;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Optional;
+import java.util.SortedMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.DiffIndex;
 import org.locationtech.geogig.plumbing.DiffWorkTree;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.diff.ChangeSummary;
 import org.locationtech.geogig.plumbing.merge.ConflictsQueryOp;
 import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.repository.StagingArea;
-import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.impl.Blobs;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 
+/**
+ * Reports the number of staged, unstaged, and conflicted changes, and gives access to them.
+ * <p>
+ * The staged and unstaged counts come from the {@link ChangeSummary change summaries} persisted to
+ * the context's {@link BlobStore} by the last call, as long as HEAD, STAGE_HEAD, and WORK_HEAD
+ * still point to the same trees, so repeated calls on an unchanged repository don't diff any
+ * tree. Otherwise the summary of the side whose trees changed is computed again, and persisted.
+ */
 @CanRunDuringConflict
 public class StatusOp extends AbstractGeoGigOp<StatusOp.StatusSummary> {
 
@@ -51,6 +69,9 @@ public class StatusOp extends AbstractGeoGigOp<StatusOp.StatusSummary> {
 
         private long countConflicted;
 
+        private SortedMap<String, DiffObjectCount> stagedPaths = Collections.emptySortedMap(),
+                unstagedPaths = Collections.emptySortedMap();
+
         public Supplier<Iterator<Conflict>> getConflicts() {
             return conflicts;
         }
@@ -74,18 +95,43 @@ public class StatusOp extends AbstractGeoGigOp<StatusOp.StatusSummary> {
         public long getCountConflicts() {
             return countConflicted;
         }
+
+        /**
+         * @return the count of staged changes of each changed top level tree, by tree path
+         */
+        public SortedMap<String, DiffObjectCount> getStagedPaths() {
+            return stagedPaths;
+        }
+
+        /**
+         * @return the count of unstaged changes of each changed top level tree, by tree path
+         */
+        public SortedMap<String, DiffObjectCount> getUnstagedPaths() {
+            return unstagedPaths;
+        }
     }
 
+    static final String STAGED_BLOB_NAME = "status.staged";
+
+    static final String UNSTAGED_BLOB_NAME = "status.unstaged";
+
     private Long limit;
 
     protected @Override StatusSummary _call() {
-        WorkingTree workTree = workingTree();
         StagingArea index = stagingArea();
 
         StatusSummary summary = new StatusSummary();
 
-        summary.countStaged = index.countStaged(null).count();
-        summary.countUnstaged = workTree.countUnstaged(null).count();
+        final RevTree head = resolveTree(Ref.HEAD);
+        final RevTree stageHead = resolveTree(Ref.STAGE_HEAD);
+        final RevTree workHead = resolveTree(Ref.WORK_HEAD);
+        ChangeSummary staged = changeSummary(STAGED_BLOB_NAME, head, stageHead);
+        ChangeSummary unstaged = changeSummary(UNSTAGED_BLOB_NAME, stageHead, workHead);
+
+        summary.countStaged = staged.getCount().count();
+        summary.countUnstaged = unstaged.getCount().count();
+        summary.stagedPaths = staged.getPaths();
+        summary.unstagedPaths = unstaged.getPaths();
         summary.countConflicted = index.countConflicted(null);
 
         final Long limit = this.limit == null ? null : this.limit;
@@ -105,6 +151,28 @@ public class StatusOp extends AbstractGeoGigOp<StatusOp.StatusSummary> {
         return summary;
     }
 
+    private RevTree resolveTree(String refSpec) {
+        Optional<ObjectId> treeId = command(ResolveTreeish.class).setTreeish(refSpec).call();
+        return treeId.isPresent() ? objectDatabase().getTree(treeId.get()) : RevTree.EMPTY;
+    }
+
+    private ChangeSummary changeSummary(String blobName, RevTree left, RevTree right) {
+        final BlobStore blobStore = context().blobStore();
+        Optional<ChangeSummary> stored = Blobs.getBlobAsString(blobStore, blobName)
+                .flatMap(ChangeSummary::decode);
+        if (stored.isPresent() && stored.get().isSummaryOf(left.getId(), right.getId())) {
+            return stored.get();
+        }
+        ChangeSummary summary = ChangeSummary.compute(context(), left, right);
+        try {
+            Blobs.putBlob(blobStore, blobName, summary.encode());
+        } catch (RuntimeException e) {
+            // the summary is an optimization, failing to persist it shall not fail the operation
+            LoggerFactory.getLogger(StatusOp.class).warn("Error saving change summary", e);
+        }
+        return summary;
+    }
+
     /**
      * @param limit {@code null} for no limit, an integer >= 0 to set a limit on the number of
      *        {@link DiffEntry} returned by {@link StatusSummary#getConflicts()},
@@ -20,6 +20,7 @@ import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.index.ComputeAdaptiveQuadTreeParamsOp;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
@@ -50,6 +51,8 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
 
     private @Nullable Envelope bounds;
 
+    private boolean adaptive;
+
     /**
      * @param typeTreeRef the {@link NodeRef} of the canonical tree to build a quadtree from
      * @return {@code this}
@@ -111,6 +114,20 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
         return this;
     }
 
+    /**
+     * Build an adaptive quad-tree, whose max bounds, max depth, and per level capacity are computed
+     * out of the spatial distribution of the features instead of using fixed values. If
+     * {@link #setBounds(Envelope) bounds} are given, they're used as the upper limit for the
+     * computed max bounds.
+     * 
+     * @param adaptive whether to build an adaptive quad-tree
+     * @return {@code this}
+     */
+    public CreateQuadTree setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
     /**
      * Performs the operation.
      * 
@@ -140,6 +157,14 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
 
         Map<String, Object> metadata = new HashMap<>();
         metadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, maxBounds);
+        if (adaptive) {
+            metadata.put(IndexInfo.MD_QUAD_BOUNDS_LIMIT, maxBounds);
+            metadata.putAll(command(ComputeAdaptiveQuadTreeParamsOp.class)//
+                    .setCanonicalTree(canonicalTypeTree)//
+                    .setMaxBounds(maxBounds)//
+                    .setProgressListener(getProgressListener())//
+                    .call());
+        }
         if (extraAttributes != null) {
             metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
         }
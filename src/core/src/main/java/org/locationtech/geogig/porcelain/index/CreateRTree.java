@@ -0,0 +1,174 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.porcelain.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.STRTreeBuilder;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+/**
+ * Creates a {@link RevTree} that represents an STR packed R-tree out of an existing canonical
+ * {@link RevTree}.
+ * <p>
+ * As opposed to a {@link CreateQuadTree quad-tree}, an R-tree needs no max bounds, its structure
+ * follows the actual data distribution.
+ *
+ * @see STRTreeBuilder
+ */
+public class CreateRTree extends AbstractGeoGigOp<Index> {
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable NodeRef typeTreeRef;
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable String treeRefSpec;
+
+    private @Nullable List<String> extraAttributes;
+
+    private boolean indexHistory;
+
+    private @Nullable String geometryAttributeName;
+
+    private int leafCapacity = STRTreeBuilder.DEFAULT_LEAF_CAPACITY;
+
+    private int fanout = STRTreeBuilder.DEFAULT_FANOUT;
+
+    /**
+     * @param typeTreeRef the {@link NodeRef} of the canonical tree to build an R-tree from
+     * @return {@code this}
+     */
+    public CreateRTree setTypeTreeRef(NodeRef typeTreeRef) {
+        this.typeTreeRef = typeTreeRef;
+        return this;
+    }
+
+    /**
+     * @param treeRefSpec the refspec of the tree to build an R-tree from
+     * @return {@code this}
+     */
+    public CreateRTree setTreeRefSpec(String treeRefSpec) {
+        this.treeRefSpec = treeRefSpec;
+        return this;
+    }
+
+    /**
+     * Optional, if given, the geometry attribute to create the R-tree index for, otherwise
+     * defaults to the feature type's default geometry attribute
+     *
+     * @param geometryAttributeName the name of the geometry attribute
+     * @return {@code this}
+     */
+    public CreateRTree setGeometryAttributeName(String geometryAttributeName) {
+        this.geometryAttributeName = geometryAttributeName;
+        return this;
+    }
+
+    /**
+     * @param extraAttributes extra attributes to keep track of in the indexed tree
+     * @return {@code this}
+     */
+    public CreateRTree setExtraAttributes(@Nullable List<String> extraAttributes) {
+        this.extraAttributes = extraAttributes;
+        return this;
+    }
+
+    /**
+     * Build the indexes for the full history of the feature tree.
+     *
+     * @param indexHistory if {@code true}, the full history of the feature tree will be built
+     * @return {@code this}
+     */
+    public CreateRTree setIndexHistory(boolean indexHistory) {
+        this.indexHistory = indexHistory;
+        return this;
+    }
+
+    /**
+     * @param leafCapacity max number of features per leaf tree, defaults to
+     *        {@link STRTreeBuilder#DEFAULT_LEAF_CAPACITY}
+     * @return {@code this}
+     */
+    public CreateRTree setLeafCapacity(int leafCapacity) {
+        this.leafCapacity = leafCapacity;
+        return this;
+    }
+
+    /**
+     * @param fanout max number of buckets per bucket tree, defaults to
+     *        {@link STRTreeBuilder#DEFAULT_FANOUT}
+     * @return {@code this}
+     */
+    public CreateRTree setFanout(int fanout) {
+        this.fanout = fanout;
+        return this;
+    }
+
+    /**
+     * Performs the operation.
+     *
+     * @return an {@link Index} that represents the newly created index
+     */
+    protected @Override Index _call() {
+        checkArgument(typeTreeRef != null || treeRefSpec != null, "No tree was provided.");
+        checkArgument(leafCapacity > 1, "leaf capacity must be > 1: %s", leafCapacity);
+        checkArgument(fanout > 1, "fanout must be > 1: %s", fanout);
+
+        final NodeRef typeTreeRef = this.typeTreeRef != null ? this.typeTreeRef
+                : IndexUtils.resolveTypeTreeRef(context(), treeRefSpec);
+        checkArgument(typeTreeRef != null, "Can't find feature tree '%s'", treeRefSpec);
+        final RevTree canonicalTypeTree = objectDatabase().getTree(typeTreeRef.getObjectId());
+        final RevFeatureType featureType = objectDatabase()
+                .getFeatureType(typeTreeRef.getMetadataId());
+
+        final PropertyDescriptor geometryAtt = IndexUtils.resolveGeometryAttribute(featureType,
+                geometryAttributeName);
+        final @Nullable String[] extraAttributes = IndexUtils
+                .resolveMaterializedAttributeNames(featureType, this.extraAttributes);
+
+        final String treeName = typeTreeRef.path();
+        final String attributeName = geometryAtt.getLocalName();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(IndexInfo.MD_RTREE_LEAF_CAPACITY, Integer.valueOf(leafCapacity));
+        metadata.put(IndexInfo.MD_RTREE_FANOUT, Integer.valueOf(fanout));
+        if (extraAttributes != null) {
+            metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
+        }
+
+        Index index = command(CreateIndexOp.class)//
+                .setTreeName(treeName)//
+                .setAttributeName(attributeName)//
+                .setCanonicalTypeTree(canonicalTypeTree)//
+                .setFeatureTypeId(featureType.getId())//
+                .setIndexType(IndexType.RTREE)//
+                .setMetadata(metadata)//
+                .setIndexHistory(indexHistory)//
+                .setProgressListener(getProgressListener())//
+                .call();
+
+        return index;
+    }
+}
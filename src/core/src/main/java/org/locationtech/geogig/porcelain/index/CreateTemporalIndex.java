@@ -0,0 +1,197 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.porcelain.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+/**
+ * Creates a {@link RevTree} that represents a temporal index out of an existing canonical
+ * {@link RevTree}, with its feature nodes sorted by the value of a date/time attribute.
+ * <p>
+ * The features validity can either be a time instant given by a single attribute, or a time
+ * period given by a start and an {@link #setEndAttributeName end} attributes. Temporal indexes
+ * allow to resolve temporal ({@code DURING}, {@code AFTER}, {@code BEFORE}, etc.) as well as
+ * comparison filters on those attributes without scanning the whole feature tree. Since index
+ * nodes keep their bounds, spatial filters are still evaluated against the index nodes, making
+ * space-time queries avoid fetching features out of the query period and extent.
+ *
+ * @see AttributeTreeBuilder
+ */
+public class CreateTemporalIndex extends AbstractGeoGigOp<Index> {
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable NodeRef typeTreeRef;
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable String treeRefSpec;
+
+    private @Nullable List<String> extraAttributes;
+
+    private boolean indexHistory;
+
+    private String attributeName;
+
+    private @Nullable String endAttributeName;
+
+    private int leafCapacity = AttributeTreeBuilder.DEFAULT_LEAF_CAPACITY;
+
+    private int fanout = AttributeTreeBuilder.DEFAULT_FANOUT;
+
+    /**
+     * @param typeTreeRef the {@link NodeRef} of the canonical tree to build the index from
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setTypeTreeRef(NodeRef typeTreeRef) {
+        this.typeTreeRef = typeTreeRef;
+        return this;
+    }
+
+    /**
+     * @param treeRefSpec the refspec of the tree to build the index from
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setTreeRefSpec(String treeRefSpec) {
+        this.treeRefSpec = treeRefSpec;
+        return this;
+    }
+
+    /**
+     * Mandatory, the date/time attribute to create the index for, holding either the time
+     * instant or the start of the time period of the features validity
+     *
+     * @param attributeName the name of the attribute
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+        return this;
+    }
+
+    /**
+     * Optional, the date/time attribute holding the end of the time period of the features
+     * validity. A {@code null} value for a feature means its validity period is open ended.
+     *
+     * @param endAttributeName the name of the attribute
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setEndAttributeName(@Nullable String endAttributeName) {
+        this.endAttributeName = endAttributeName;
+        return this;
+    }
+
+    /**
+     * @param extraAttributes extra attributes to keep track of in the indexed tree
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setExtraAttributes(@Nullable List<String> extraAttributes) {
+        this.extraAttributes = extraAttributes;
+        return this;
+    }
+
+    /**
+     * Build the indexes for the full history of the feature tree.
+     *
+     * @param indexHistory if {@code true}, the full history of the feature tree will be built
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setIndexHistory(boolean indexHistory) {
+        this.indexHistory = indexHistory;
+        return this;
+    }
+
+    /**
+     * @param leafCapacity max number of features per leaf tree, defaults to
+     *        {@link AttributeTreeBuilder#DEFAULT_LEAF_CAPACITY}
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setLeafCapacity(int leafCapacity) {
+        this.leafCapacity = leafCapacity;
+        return this;
+    }
+
+    /**
+     * @param fanout max number of buckets per bucket tree, defaults to
+     *        {@link AttributeTreeBuilder#DEFAULT_FANOUT}
+     * @return {@code this}
+     */
+    public CreateTemporalIndex setFanout(int fanout) {
+        this.fanout = fanout;
+        return this;
+    }
+
+    /**
+     * Performs the operation.
+     *
+     * @return an {@link Index} that represents the newly created index
+     */
+    protected @Override Index _call() {
+        checkArgument(typeTreeRef != null || treeRefSpec != null, "No tree was provided.");
+        checkArgument(attributeName != null, "No attribute name was provided.");
+        checkArgument(leafCapacity > 1, "leaf capacity must be > 1: %s", leafCapacity);
+        checkArgument(fanout > 1, "fanout must be > 1: %s", fanout);
+
+        final NodeRef typeTreeRef = this.typeTreeRef != null ? this.typeTreeRef
+                : IndexUtils.resolveTypeTreeRef(context(), treeRefSpec);
+        checkArgument(typeTreeRef != null, "Can't find feature tree '%s'", treeRefSpec);
+        final RevTree canonicalTypeTree = objectDatabase().getTree(typeTreeRef.getObjectId());
+        final RevFeatureType featureType = objectDatabase()
+                .getFeatureType(typeTreeRef.getMetadataId());
+
+        final PropertyDescriptor attribute = IndexUtils.resolveTemporalAttribute(featureType,
+                attributeName);
+        final @Nullable PropertyDescriptor endAttribute = endAttributeName == null ? null
+                : IndexUtils.resolveTemporalAttribute(featureType, endAttributeName);
+        final @Nullable String[] extraAttributes = IndexUtils
+                .resolveMaterializedAttributeNames(featureType, this.extraAttributes);
+
+        final String treeName = typeTreeRef.path();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(IndexInfo.MD_RTREE_LEAF_CAPACITY, Integer.valueOf(leafCapacity));
+        metadata.put(IndexInfo.MD_RTREE_FANOUT, Integer.valueOf(fanout));
+        if (endAttribute != null) {
+            metadata.put(IndexInfo.MD_TEMPORAL_END_ATTRIBUTE, endAttribute.getLocalName());
+        }
+        if (extraAttributes != null) {
+            metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
+        }
+
+        Index index = command(CreateIndexOp.class)//
+                .setTreeName(treeName)//
+                .setAttributeName(attribute.getLocalName())//
+                .setCanonicalTypeTree(canonicalTypeTree)//
+                .setFeatureTypeId(featureType.getId())//
+                .setIndexType(IndexType.TEMPORAL)//
+                .setMetadata(metadata)//
+                .setIndexHistory(indexHistory)//
+                .setProgressListener(getProgressListener())//
+                .call();
+
+        return index;
+    }
+}
@@ -22,6 +22,7 @@ import org.locationtech.geogig.feature.FeatureType;
 import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
 import org.locationtech.geogig.plumbing.FindFeatureTypeTrees;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
@@ -166,4 +167,49 @@ public class IndexUtils {
         }
         return descriptor;
     }
+
+    /**
+     * Resolves the non geometry attribute of a feature type to create an attribute index for.
+     * 
+     * @param featureType the feature type
+     * @param attributeName the name of the attribute
+     * @return the {@link PropertyDescriptor} of the attribute
+     * @throws IllegalArgumentException if the attribute does not exist, is a geometry attribute,
+     *         or its values can't be sorted by the attribute index
+     */
+    public static PropertyDescriptor resolveAttribute(RevFeatureType featureType,
+            String attributeName) {
+        checkArgument(attributeName != null, "attribute name not provided");
+        PropertyDescriptor prop;
+        try {
+            prop = featureType.type().getDescriptor(attributeName);
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException(
+                    String.format("property %s does not exist", attributeName));
+        }
+        checkArgument(!prop.isGeometryDescriptor(),
+                "property %s is a geometry attribute, use a spatial index instead", attributeName);
+        checkArgument(AttributeTreeBuilder.isSupported(prop.getBinding()),
+                "property %s of type %s can't be indexed", attributeName,
+                prop.getBinding().getSimpleName());
+        return prop;
+    }
+
+    /**
+     * Resolves a date/time attribute of a feature type to create a temporal index for.
+     * 
+     * @param featureType the feature type
+     * @param attributeName the name of the attribute
+     * @return the {@link PropertyDescriptor} of the attribute
+     * @throws IllegalArgumentException if the attribute does not exist or is not a date/time
+     *         attribute
+     */
+    public static PropertyDescriptor resolveTemporalAttribute(RevFeatureType featureType,
+            String attributeName) {
+        PropertyDescriptor prop = resolveAttribute(featureType, attributeName);
+        checkArgument(java.util.Date.class.isAssignableFrom(prop.getBinding()),
+                "property %s of type %s is not a date/time attribute", attributeName,
+                prop.getBinding().getSimpleName());
+        return prop;
+    }
 }
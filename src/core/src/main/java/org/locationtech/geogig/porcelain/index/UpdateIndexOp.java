@@ -17,13 +17,16 @@ import java.util.Optional;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.index.BuildFullHistoryIndexOp;
 import org.locationtech.geogig.plumbing.index.BuildIndexOp;
+import org.locationtech.geogig.plumbing.index.ComputeAdaptiveQuadTreeParamsOp;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -53,6 +56,8 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
 
     private Envelope bounds = null;
 
+    private @Nullable Boolean adaptive;
+
     /**
      * @param treeRefSpec the tree refspec of the index to be updated
      * @return {@code this}
@@ -127,6 +132,20 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
         return this;
     }
 
+    /**
+     * Turns the adaptive quad-tree mode on or off. If not set, the index keeps its current mode.
+     * Adaptive indexes get their structural parameters recomputed out of the current data
+     * whenever they're rebuilt by this operation.
+     * 
+     * @param adaptive whether the updated index shall be an adaptive quad-tree
+     * @return {@code this}
+     * @see CreateQuadTree#setAdaptive(boolean)
+     */
+    public UpdateIndexOp setAdaptive(boolean adaptive) {
+        this.adaptive = Boolean.valueOf(adaptive);
+        return this;
+    }
+
     /**
      * Performs the operation.
      * 
@@ -150,6 +169,10 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
                 "Multiple indexes were found for the specified tree, please specify the attribute.");
 
         IndexInfo oldIndexInfo = indexInfos.get(0);
+        checkArgument(
+                IndexType.QUADTREE == oldIndexInfo.getIndexType()
+                        || (bounds == null && adaptive == null),
+                "Bounds and adaptive mode only apply to quad-tree indexes");
 
         final @Nullable String[] newAttributes = IndexUtils
                 .resolveMaterializedAttributeNames(featureType, extraAttributes);
@@ -195,10 +218,34 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
             updated = true;
         }
 
+        final boolean wasAdaptive = IndexInfo.isAdaptive(oldIndexInfo);
+        final boolean isAdaptive = adaptive == null ? wasAdaptive : adaptive.booleanValue();
+        if (isAdaptive != wasAdaptive) {
+            updated = true;
+        }
+
         checkArgument(updated, "Nothing to update...");
 
         final RevTree canonicalTree = objectDatabase.getTree(typeTreeRef.getObjectId());
 
+        if (isAdaptive || wasAdaptive) {
+            final Envelope boundsLimit = resolveBoundsLimit(featureType, oldIndexInfo,
+                    wasAdaptive);
+            newMetadata.remove(IndexInfo.MD_QUAD_ADAPTIVE);
+            newMetadata.remove(IndexInfo.MD_QUAD_MAX_DEPTH);
+            newMetadata.remove(IndexInfo.MD_QUAD_LEVEL_CAPACITY);
+            newMetadata.remove(IndexInfo.MD_QUAD_BOUNDS_LIMIT);
+            newMetadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, boundsLimit);
+            if (isAdaptive) {
+                newMetadata.put(IndexInfo.MD_QUAD_BOUNDS_LIMIT, boundsLimit);
+                newMetadata.putAll(command(ComputeAdaptiveQuadTreeParamsOp.class)//
+                        .setCanonicalTree(canonicalTree)//
+                        .setMaxBounds(boundsLimit)//
+                        .setProgressListener(getProgressListener())//
+                        .call());
+            }
+        }
+
         newIndexInfo = indexDatabase.updateIndexInfo(treeName, oldIndexInfo.getAttributeName(),
                 oldIndexInfo.getIndexType(), newMetadata);
 
@@ -244,6 +291,42 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
         return new Index(newIndexInfo, indexedTreeId, indexDatabase);
     }
 
+    /**
+     * Resolves the upper limit for the max bounds of an index switching to or from adaptive mode,
+     * or being rebuilt in adaptive mode: the bounds given to this operation if any, otherwise the
+     * ones the index was created or last updated with, and the CRS area of validity only if the
+     * user never gave any.
+     */
+    private Envelope resolveBoundsLimit(RevFeatureType featureType, IndexInfo oldIndexInfo,
+            boolean wasAdaptive) {
+        if (bounds != null) {
+            return bounds;
+        }
+        Envelope limit = (Envelope) oldIndexInfo.getMetadata().get(IndexInfo.MD_QUAD_BOUNDS_LIMIT);
+        if (limit != null) {
+            return limit;
+        }
+        if (!wasAdaptive) {
+            // non adaptive max bounds are either the user given ones or the CRS ones already
+            Envelope maxBounds = IndexInfo.getMaxBounds(oldIndexInfo);
+            if (maxBounds != null) {
+                return maxBounds;
+            }
+        }
+        // adaptive max bounds are tightened to the data, go back to the CRS bounds as the limit
+        return resolveCrsBounds(featureType, oldIndexInfo);
+    }
+
+    private Envelope resolveCrsBounds(RevFeatureType featureType, IndexInfo indexInfo) {
+        try {
+            PropertyDescriptor geometryAtt = IndexUtils.resolveGeometryAttribute(featureType,
+                    indexInfo.getAttributeName());
+            return IndexUtils.resolveMaxBounds(geometryAtt);
+        } catch (IllegalArgumentException e) {
+            return IndexInfo.getMaxBounds(indexInfo);
+        }
+    }
+
     private boolean contentsEqual(@Nullable String[] left, @Nullable String[] right) {
         if (left == right) {
             return true;
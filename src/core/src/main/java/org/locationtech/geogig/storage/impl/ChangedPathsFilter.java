@@ -0,0 +1,76 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Bloom filter of the tree and feature paths a commit changed, stored as a plain byte array in the
+ * {@link CommitGraphIndex}.
+ * <p>
+ * Uses {@code 10} bits per path and {@code 7} hash functions, for a false positive rate of about
+ * 1%, derived from a single 128-bit murmur3 hash through double hashing.
+ */
+final class ChangedPathsFilter {
+
+    private static final int BITS_PER_PATH = 10;
+
+    private static final int NUM_HASHES = 7;
+
+    private static final int MIN_BITS = 64;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private ChangedPathsFilter() {
+        // static utility
+    }
+
+    static byte[] create(Collection<String> paths) {
+        final int numBits = Math.max(MIN_BITS, paths.size() * BITS_PER_PATH);
+        final byte[] filter = new byte[(numBits + 7) / 8];
+        for (String path : paths) {
+            final long hash = hash(path);
+            for (int i = 1; i <= NUM_HASHES; i++) {
+                int bit = bit(hash, i, filter.length * 8);
+                filter[bit >>> 3] |= (1 << (bit & 7));
+            }
+        }
+        return filter;
+    }
+
+    static boolean mightContain(byte[] filter, String path) {
+        final long hash = hash(path);
+        for (int i = 1; i <= NUM_HASHES; i++) {
+            int bit = bit(hash, i, filter.length * 8);
+            if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String path) {
+        return HASH.hashString(path, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static int bit(long hash, int i, int numBits) {
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        int combined = hash1 + i * hash2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % numBits;
+    }
+}
@@ -0,0 +1,1122 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.Varint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A compact, immutable-layered index of the commit graph, persisted to a repository's
+ * {@link BlobStore}, that allows to answer reachability queries without walking the
+ * {@link org.locationtech.geogig.storage.GraphDatabase GraphDatabase} one commit at a time.
+ * <p>
+ * For each indexed commit it keeps its parents, committer timestamp, depth (the distance to the
+ * closest root commit, as {@code GraphDatabase.getDepth()} computes it), and generation number:
+ * {@code 1} for root commits and {@code 1 + max(generation of parents)} otherwise. Generation
+ * numbers allow reachability walks to stop as soon as they reach commits whose generation is
+ * lower than the one of the commit they're looking for, since a commit can only be reached from
+ * commits with a higher generation.
+ * <p>
+ * Commits are stored in arrays sorted by id, in at most two layers: a large base layer and a
+ * small tip layer holding the commits added since the base was last written, so that
+ * {@link #update(ObjectStore, Iterable) adding} a few commits only rewrites the small tip layer,
+ * which is merged into the base layer once it grows past a tenth of its size. Each layer is
+ * stored in its own blob, {@link #BLOB_NAME commit_graph} and {@link #TIP_BLOB_NAME
+ * commit_graph.tip}.
+ * <p>
+ * Parents missing from the object database (e.g. at the boundary of a shallow clone) are
+ * ignored. Should they be found on a later update, the whole index is rebuilt, since the
+ * generation numbers of their descendants change.
+ * <p>
+ * Commits may also carry a Bloom filter of the tree and feature paths they changed with respect to
+ * any of their parents, which allows path limited history queries to skip the commits that
+ * {@link #mayHaveChanged(ObjectId, String) didn't change a path} without comparing their trees.
+ * Computing a filter takes a diff of the commit trees, so they're not computed when commits are
+ * added, but afterwards through {@link #updateChangedPaths(ObjectStore, Iterable)} for up to
+ * {@code 256} of the most recent commits reachable from some tips, which
+ * {@code UpdateCommitGraphHook} does in the background after ref updates, or backfilled for the
+ * whole index with {@link #updateChangedPaths(ObjectStore, ProgressListener)}. Commits changing
+ * more than {@code 512} paths get no filter.
+ * <p>
+ * There's a single instance per {@link BlobStore}, obtained through {@link #of(Context)} or
+ * {@link #of(BlobStore)}, which is loaded lazily. Queries for commits that are not indexed throw
+ * an {@link IllegalArgumentException}, so callers shall check they're {@link #contains(ObjectId)
+ * contained} and fall back to walking the graph database otherwise. The index can be disabled
+ * through the {@code geogig.commitGraph.enabled} System property.
+ */
+public class CommitGraphIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CommitGraphIndex.class);
+
+    static final String BLOB_NAME = "commit_graph";
+
+    static final String TIP_BLOB_NAME = "commit_graph.tip";
+
+    static final boolean ENABLED = Boolean
+            .parseBoolean(System.getProperty("geogig.commitGraph.enabled", "true"));
+
+    private static final byte FORMAT_VERSION = 2;
+
+    /**
+     * Format version of layers without changed path filters
+     */
+    private static final byte FORMAT_VERSION_1 = 1;
+
+    private static final int MIN_TIP_MERGE_SIZE = 1024;
+
+    private static final int MAX_FILTERED_COMMITS = 256;
+
+    private static final int MAX_CHANGED_PATHS = 512;
+
+    /**
+     * Filter marker for commits that changed too many paths to have a filter
+     */
+    private static final byte[] TOO_MANY_PATHS = new byte[0];
+
+    private static final int LEFT = 1, RIGHT = 2, STALE = 4;
+
+    private static final LoadingCache<BlobStore, CommitGraphIndex> INSTANCES = CacheBuilder
+            .newBuilder()//
+            .weakKeys()//
+            .build(CacheLoader.from(CommitGraphIndex::new));
+
+    /**
+     * The number of commits reachable from one commit and not from another, and vice versa
+     */
+    public static @Value class AheadBehind {
+        private int ahead;
+
+        private int behind;
+    }
+
+    private final BlobStore blobStore;
+
+    private volatile Snapshot snapshot;
+
+    @VisibleForTesting
+    CommitGraphIndex(@NonNull BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    public static CommitGraphIndex of(@NonNull BlobStore blobStore) {
+        return INSTANCES.getUnchecked(blobStore);
+    }
+
+    /**
+     * @return the index for the repository's object database {@link BlobStore}, or
+     *         {@link Optional#empty() empty} if the context has no object database or the index is
+     *         disabled
+     */
+    public static Optional<CommitGraphIndex> of(@NonNull Context context) {
+        ObjectDatabase odb = context.objectDatabase();
+        if (!ENABLED || odb == null) {
+            return Optional.empty();
+        }
+        return Optional.of(of(odb.getBlobStore()));
+    }
+
+    /**
+     * @return the number of indexed commits
+     */
+    public int size() {
+        return snapshot().size();
+    }
+
+    public boolean contains(@NonNull ObjectId commitId) {
+        return snapshot().position(commitId) != -1;
+    }
+
+    /**
+     * @return the generation number of the commit, if indexed
+     */
+    public OptionalInt generation(@NonNull ObjectId commitId) {
+        Snapshot s = snapshot();
+        int pos = s.position(commitId);
+        return pos == -1 ? OptionalInt.empty() : OptionalInt.of(s.generation(pos));
+    }
+
+    /**
+     * @return the distance of the commit to its closest root commit, if indexed
+     */
+    public OptionalInt depth(@NonNull ObjectId commitId) {
+        Snapshot s = snapshot();
+        int pos = s.position(commitId);
+        return pos == -1 ? OptionalInt.empty() : OptionalInt.of(s.depth(pos));
+    }
+
+    /**
+     * @return {@code true} if {@code ancestor} is reachable from {@code descendant}, including
+     *         them being the same commit
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public boolean isAncestor(@NonNull ObjectId ancestor, @NonNull ObjectId descendant) {
+        final Snapshot s = snapshot();
+        final int target = s.require(ancestor);
+        final int start = s.require(descendant);
+        final int minGeneration = s.generation(target);
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            int pos = stack.pop();
+            if (pos == target) {
+                return true;
+            }
+            if (s.generation(pos) <= minGeneration || !visited.add(pos)) {
+                // commits with lower or equal generation can't reach the target
+                continue;
+            }
+            for (int i = 0; i < s.parentCount(pos); i++) {
+                stack.push(s.parent(pos, i));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the best common ancestor of two commits, that is, among the common ancestors that are
+     * not ancestors of any other common ancestor, the first one in {@link #mergeBaseOrder}.
+     *
+     * @return the merge base, or {@link Optional#empty() empty} if the commits have no common
+     *         ancestor
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public Optional<ObjectId> mergeBase(@NonNull ObjectId left, @NonNull ObjectId right) {
+        final Snapshot s = snapshot();
+        final int l = s.require(left);
+        final int r = s.require(right);
+        if (l == r) {
+            return Optional.of(left);
+        }
+        final Map<Integer, Integer> flags = new HashMap<>();
+        final PriorityQueue<Integer> queue = s.newQueue();
+        paint(l, LEFT, flags, queue);
+        paint(r, RIGHT, flags, queue);
+
+        List<Integer> bases = new ArrayList<>();
+        while (hasNonStale(queue, flags)) {
+            final int pos = queue.poll();
+            int f = flags.get(pos);
+            if ((f & (LEFT | RIGHT)) == (LEFT | RIGHT) && (f & STALE) == 0) {
+                bases.add(pos);
+                f |= STALE;
+                flags.put(pos, f);
+            }
+            for (int i = 0; i < s.parentCount(pos); i++) {
+                paint(s.parent(pos, i), f, flags, queue);
+            }
+        }
+        // STALE propagates in generation order, so ancestors of a base are never reported
+        return bases.stream().map(s::id)
+                .min(mergeBaseOrder(id -> s.timestamp(s.position(id))));
+    }
+
+    /**
+     * The order to pick a merge base by when two commits have more than one best common
+     * ancestor, as after criss-cross merges: most recent committer timestamp first, then by id.
+     * It only depends on the commits, so the merge base is the same whether it's found through the
+     * index or by walking the graph database.
+     *
+     * @param timestamp the committer timestamp of a candidate commit
+     */
+    public static Comparator<ObjectId> mergeBaseOrder(@NonNull ToLongFunction<ObjectId> timestamp) {
+        Comparator<ObjectId> newestFirst = Comparator.comparingLong(timestamp).reversed();
+        return newestFirst.thenComparing(Comparator.naturalOrder());
+    }
+
+    /**
+     * @return the number of commits reachable from {@code left} and not from {@code right}
+     *         ({@link AheadBehind#getAhead() ahead}), and vice versa
+     *         ({@link AheadBehind#getBehind() behind})
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public AheadBehind aheadBehind(@NonNull ObjectId left, @NonNull ObjectId right) {
+        final Snapshot s = snapshot();
+        final Map<Integer, Integer> flags = paintExclusive(s, Collections.singleton(left),
+                Collections.singleton(right));
+        int ahead = 0, behind = 0;
+        for (int f : flags.values()) {
+            if ((f & (LEFT | RIGHT)) == LEFT) {
+                ahead++;
+            } else if ((f & (LEFT | RIGHT)) == RIGHT) {
+                behind++;
+            }
+        }
+        return new AheadBehind(ahead, behind);
+    }
+
+    /**
+     * @return the commits reachable from any of {@code from} and not from any of
+     *         {@code excluding}, in no particular order
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public List<ObjectId> reachable(@NonNull Iterable<ObjectId> from,
+            @NonNull Iterable<ObjectId> excluding) {
+        final Snapshot s = snapshot();
+        final Map<Integer, Integer> flags = paintExclusive(s, from, excluding);
+        List<ObjectId> reachable = new ArrayList<>();
+        flags.forEach((pos, f) -> {
+            if ((f & (LEFT | RIGHT)) == LEFT) {
+                reachable.add(s.id(pos));
+            }
+        });
+        return reachable;
+    }
+
+    /**
+     * @return the {@code candidates} that are reachable from {@code from}, including itself, most
+     *         recent first, ignoring the candidates that are not indexed
+     * @throws IllegalArgumentException if {@code from} is not indexed
+     */
+    public List<ObjectId> reachableFrom(@NonNull ObjectId from,
+            @NonNull Collection<ObjectId> candidates) {
+        final Snapshot s = snapshot();
+        final int start = s.require(from);
+        final Set<Integer> targets = new HashSet<>();
+        int minGeneration = Integer.MAX_VALUE;
+        for (ObjectId id : candidates) {
+            int pos = s.position(id);
+            if (pos != -1) {
+                targets.add(pos);
+                minGeneration = Math.min(minGeneration, s.generation(pos));
+            }
+        }
+        List<Integer> found = new ArrayList<>();
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty() && found.size() < targets.size()) {
+            int pos = stack.pop();
+            if (s.generation(pos) < minGeneration || !visited.add(pos)) {
+                continue;
+            }
+            if (targets.contains(pos)) {
+                found.add(pos);
+            }
+            for (int i = 0; i < s.parentCount(pos); i++) {
+                stack.push(s.parent(pos, i));
+            }
+        }
+        found.sort(s.newestFirst());
+        return found.stream().map(s::id).collect(Collectors.toList());
+    }
+
+    /**
+     * Paints the commits reachable from {@code left} with {@link #LEFT} and the ones reachable
+     * from {@code right} with {@link #RIGHT}, until the only commits left to visit are reachable
+     * from both sides
+     */
+    private Map<Integer, Integer> paintExclusive(Snapshot s, Iterable<ObjectId> left,
+            Iterable<ObjectId> right) {
+        final Map<Integer, Integer> flags = new HashMap<>();
+        final PriorityQueue<Integer> queue = s.newQueue();
+        left.forEach(id -> paint(s.require(id), LEFT, flags, queue));
+        right.forEach(id -> paint(s.require(id), RIGHT, flags, queue));
+        while (hasNonStale(queue, flags)) {
+            final int pos = queue.poll();
+            int f = flags.get(pos);
+            if ((f & (LEFT | RIGHT)) == (LEFT | RIGHT)) {
+                f |= STALE;
+                flags.put(pos, f);
+            }
+            for (int i = 0; i < s.parentCount(pos); i++) {
+                paint(s.parent(pos, i), f, flags, queue);
+            }
+        }
+        return flags;
+    }
+
+    private static void paint(int pos, int flag, Map<Integer, Integer> flags,
+            PriorityQueue<Integer> queue) {
+        final int current = flags.getOrDefault(pos, 0);
+        final int updated = current | flag;
+        if (updated != current) {
+            flags.put(pos, updated);
+            queue.add(pos);
+        }
+    }
+
+    private static boolean hasNonStale(PriorityQueue<Integer> queue, Map<Integer, Integer> flags) {
+        for (Integer pos : queue) {
+            if ((flags.get(pos) & STALE) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the commits reachable from the given ones that are not yet indexed, walking the object
+     * database until reaching indexed commits.
+     *
+     * @param source where to get the commits from
+     * @param commitIds the commits to index along with their ancestors, ids that don't correspond
+     *        to commits are ignored
+     * @return {@code true} if the index was modified
+     */
+    public synchronized boolean update(@NonNull ObjectStore source,
+            @NonNull Iterable<ObjectId> commitIds) {
+        Snapshot current = snapshot();
+        Map<ObjectId, RevCommit> added;
+        if (current.anyUnresolvedExists(source)) {
+            log.info("Rebuilding commit graph index, missing parent commits were added");
+            List<ObjectId> all = new ArrayList<>(current.size());
+            for (int pos = 0; pos < current.size(); pos++) {
+                all.add(current.id(pos));
+            }
+            commitIds.forEach(all::add);
+            current = Snapshot.EMPTY;
+            added = collect(source, current, all);
+        } else {
+            added = collect(source, current, commitIds);
+        }
+        if (added.isEmpty()) {
+            return false;
+        }
+        final Set<ObjectId> unresolved = new HashSet<>();
+        final List<Entry> entries = computeEntries(current, added, unresolved);
+
+        final Snapshot updated;
+        final int tipSize = (current.tip == null ? 0 : current.tip.size()) + entries.size();
+        if (current.base.size() == 0
+                || tipSize > Math.max(MIN_TIP_MERGE_SIZE, current.base.size() / 10)) {
+            List<Entry> all = current.entries();
+            all.addAll(entries);
+            unresolved.addAll(current.unresolved());
+            updated = writeBase(all, unresolved);
+        } else {
+            List<Entry> tipEntries = current.tip == null ? new ArrayList<>()
+                    : current.tip.entries(current);
+            tipEntries.addAll(entries);
+            if (current.tip != null) {
+                unresolved.addAll(Arrays.asList(current.tip.unresolved));
+            }
+            Snapshot baseOnly = new Snapshot(current.base, null);
+            Layer tip = Layer.build(current.base.size(), tipEntries, unresolved, baseOnly);
+            updated = new Snapshot(current.base, tip);
+            blobStore.putBlob(TIP_BLOB_NAME, tip.encode());
+        }
+        this.snapshot = updated;
+        return true;
+    }
+
+    private Snapshot writeBase(List<Entry> entries, Set<ObjectId> unresolved) {
+        Layer base = Layer.build(0, entries, unresolved, Snapshot.EMPTY);
+        blobStore.putBlob(BLOB_NAME, base.encode());
+        blobStore.removeBlob(TIP_BLOB_NAME);
+        return new Snapshot(base, null);
+    }
+
+    /**
+     * @return {@code false} if the commit is known to not have changed the tree or feature at the
+     *         given path with respect to any of its parents, {@code true} if it did or it can't be
+     *         determined, either because the commit is not indexed or has no changed paths filter
+     */
+    public boolean mayHaveChanged(@NonNull ObjectId commitId, @NonNull String path) {
+        Snapshot s = snapshot();
+        int pos = s.position(commitId);
+        if (pos == -1) {
+            return true;
+        }
+        byte[] filter = s.changedPaths(pos);
+        return filter == null || filter.length == 0
+                || ChangedPathsFilter.mightContain(filter, path);
+    }
+
+    /**
+     * Computes the changed paths filters of up to {@code 256} indexed commits reachable from the
+     * given ones that don't have one yet, most recent first, without walking past commits that
+     * have one. The trees are compared without holding the index lock, so it can be called while
+     * the index is being updated.
+     *
+     * @param tips where to start looking for commits without filters, ids that are not indexed
+     *        are ignored
+     * @return the number of filters computed
+     */
+    public int updateChangedPaths(@NonNull ObjectStore source, @NonNull Iterable<ObjectId> tips) {
+        final Snapshot s = snapshot();
+        final PriorityQueue<Integer> queue = s.newQueue();
+        final Set<Integer> visited = new HashSet<>();
+        for (ObjectId id : tips) {
+            int pos = s.position(id);
+            if (pos != -1 && visited.add(pos)) {
+                queue.add(pos);
+            }
+        }
+        final Map<ObjectId, byte[]> filters = new HashMap<>();
+        int missing = 0;
+        while (!queue.isEmpty() && missing < MAX_FILTERED_COMMITS) {
+            final int pos = queue.poll();
+            if (s.changedPaths(pos) != null) {
+                continue;
+            }
+            missing++;
+            RevCommit commit = source.getIfPresent(s.id(pos), RevCommit.class);
+            byte[] filter = commit == null ? null : changedPaths(source, commit);
+            if (filter != null) {
+                filters.put(commit.getId(), filter);
+            }
+            for (int i = 0; i < s.parentCount(pos); i++) {
+                int parent = s.parent(pos, i);
+                if (visited.add(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        if (!filters.isEmpty()) {
+            setChangedPaths(filters);
+        }
+        return filters.size();
+    }
+
+    /**
+     * Adds the filters to the indexed commits, rewriting only the tip layer if all of them are in
+     * it, commits no longer indexed (e.g. if the index was rebuilt) are ignored
+     */
+    private synchronized void setChangedPaths(Map<ObjectId, byte[]> filters) {
+        final Snapshot current = snapshot();
+        final Layer tip = current.tip;
+        if (tip != null && filters.keySet().stream().allMatch(id -> tip.position(id) != -1)) {
+            List<Entry> tipEntries = withChangedPaths(tip.entries(current), filters);
+            Set<ObjectId> unresolved = new HashSet<>(Arrays.asList(tip.unresolved));
+            Snapshot baseOnly = new Snapshot(current.base, null);
+            Layer updated = Layer.build(current.base.size(), tipEntries, unresolved, baseOnly);
+            blobStore.putBlob(TIP_BLOB_NAME, updated.encode());
+            this.snapshot = new Snapshot(current.base, updated);
+        } else {
+            List<Entry> entries = withChangedPaths(current.entries(), filters);
+            this.snapshot = writeBase(entries, current.unresolved());
+        }
+    }
+
+    private static List<Entry> withChangedPaths(List<Entry> entries,
+            Map<ObjectId, byte[]> filters) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            byte[] filter = filters.get(e.getId());
+            if (filter != null) {
+                entries.set(i, new Entry(e.getId(), e.getTimestamp(), e.getGeneration(),
+                        e.getDepth(), e.getParents(), filter));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Computes the changed paths filters of all the indexed commits that don't have one yet, and
+     * writes the whole index as a single layer.
+     *
+     * @return the number of filters computed
+     */
+    public synchronized int updateChangedPaths(@NonNull ObjectStore source,
+            @NonNull ProgressListener listener) {
+        final Snapshot current = snapshot();
+        final List<Entry> entries = current.entries();
+        final int size = entries.size();
+        int computed = 0;
+        listener.started();
+        for (int i = 0; i < size && !listener.isCanceled(); i++) {
+            Entry e = entries.get(i);
+            if (e.getChangedPaths() == null) {
+                RevCommit commit = source.getIfPresent(e.getId(), RevCommit.class);
+                byte[] filter = commit == null ? null : changedPaths(source, commit);
+                if (filter != null) {
+                    entries.set(i, new Entry(e.getId(), e.getTimestamp(), e.getGeneration(),
+                            e.getDepth(), e.getParents(), filter));
+                    computed++;
+                }
+            }
+            listener.setProgress((i + 1) * 100f / size);
+        }
+        if (computed > 0) {
+            this.snapshot = writeBase(entries, current.unresolved());
+        }
+        listener.complete();
+        return computed;
+    }
+
+    /**
+     * @return the changed paths filter of the commit with respect to all its parents, or the empty
+     *         array if it changed too many paths, or {@code null} if it can't be computed
+     */
+    private static @Nullable byte[] changedPaths(ObjectStore source, RevCommit commit) {
+        final Set<String> paths = new HashSet<>();
+        try {
+            final RevTree tree = tree(source, commit.getTreeId());
+            if (commit.getParentIds().isEmpty()) {
+                if (!collectChangedPaths(source, RevTree.EMPTY, tree, paths)) {
+                    return TOO_MANY_PATHS;
+                }
+            }
+            for (ObjectId parentId : commit.getParentIds()) {
+                // missing parents compare as the empty tree, like LogOp does
+                RevCommit parent = source.getIfPresent(parentId, RevCommit.class);
+                RevTree parentTree = parent == null ? RevTree.EMPTY
+                        : tree(source, parent.getTreeId());
+                if (!collectChangedPaths(source, parentTree, tree, paths)) {
+                    return TOO_MANY_PATHS;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Unable to compute the changed paths of commit {}", commit.getId(), e);
+            return null;
+        }
+        return ChangedPathsFilter.create(paths);
+    }
+
+    private static RevTree tree(ObjectStore source, ObjectId treeId) {
+        return RevTree.EMPTY_TREE_ID.equals(treeId) ? RevTree.EMPTY : source.getTree(treeId);
+    }
+
+    /**
+     * @return {@code false} if the trees differ in more than {@link #MAX_CHANGED_PATHS} paths
+     */
+    private static boolean collectChangedPaths(ObjectStore source, RevTree left, RevTree right,
+            Set<String> paths) {
+        final boolean preserveIterationOrder = true;
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(left, right, source, source,
+                preserveIterationOrder);
+        walk.walk(new PreOrderDiffWalk.AbstractConsumer() {
+            public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+                NodeRef node = left == null ? right : left;
+                return node.getParentPath() == null || add(node);
+            }
+
+            public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                return add(left == null ? right : left);
+            }
+
+            private boolean add(NodeRef node) {
+                paths.add(node.path());
+                return paths.size() <= MAX_CHANGED_PATHS;
+            }
+        });
+        return paths.size() <= MAX_CHANGED_PATHS;
+    }
+
+    private Map<ObjectId, RevCommit> collect(ObjectStore source, Snapshot snapshot,
+            Iterable<ObjectId> commitIds) {
+        final Map<ObjectId, RevCommit> found = new HashMap<>();
+        Set<ObjectId> frontier = new HashSet<>();
+        for (ObjectId id : commitIds) {
+            if (!id.isNull() && snapshot.position(id) == -1) {
+                frontier.add(id);
+            }
+        }
+        while (!frontier.isEmpty()) {
+            final Set<ObjectId> next = new HashSet<>();
+            Iterator<RevCommit> commits = source.getAll(frontier, BulkOpListener.NOOP_LISTENER,
+                    RevCommit.class);
+            while (commits.hasNext()) {
+                RevCommit commit = commits.next();
+                found.put(commit.getId(), commit);
+                for (ObjectId parent : commit.getParentIds()) {
+                    if (!found.containsKey(parent) && !frontier.contains(parent)
+                            && snapshot.position(parent) == -1) {
+                        next.add(parent);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return found;
+    }
+
+    /**
+     * Computes the generation and depth of the new commits, parents before children
+     */
+    private List<Entry> computeEntries(Snapshot snapshot, Map<ObjectId, RevCommit> commits,
+            Set<ObjectId> unresolved) {
+        final Map<ObjectId, Entry> computed = new HashMap<>();
+        final Deque<RevCommit> stack = new ArrayDeque<>();
+        for (RevCommit commit : commits.values()) {
+            stack.push(commit);
+            while (!stack.isEmpty()) {
+                final RevCommit c = stack.peek();
+                if (computed.containsKey(c.getId())) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                for (ObjectId parent : c.getParentIds()) {
+                    RevCommit p = commits.get(parent);
+                    if (p != null && !computed.containsKey(parent)) {
+                        stack.push(p);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    computed.put(c.getId(), entry(c, snapshot, computed, unresolved));
+                }
+            }
+        }
+        return new ArrayList<>(computed.values());
+    }
+
+    private Entry entry(RevCommit commit, Snapshot snapshot, Map<ObjectId, Entry> computed,
+            Set<ObjectId> unresolved) {
+        final List<ObjectId> parentIds = commit.getParentIds();
+        final List<ObjectId> parents = new ArrayList<>(parentIds.size());
+        int generation = 0;
+        int depth = parentIds.isEmpty() ? -1 : Integer.MAX_VALUE;
+        for (ObjectId parentId : parentIds) {
+            final int pos = snapshot.position(parentId);
+            final Entry p = pos == -1 ? computed.get(parentId) : null;
+            if (pos != -1) {
+                generation = Math.max(generation, snapshot.generation(pos));
+                depth = Math.min(depth, snapshot.depth(pos));
+                parents.add(parentId);
+            } else if (p != null) {
+                generation = Math.max(generation, p.generation);
+                depth = Math.min(depth, p.depth);
+                parents.add(parentId);
+            } else {
+                // missing parent, it's a graph leaf at depth zero
+                unresolved.add(parentId);
+                depth = 0;
+            }
+        }
+        long timestamp = commit.getCommitter().getTimestamp();
+        return new Entry(commit.getId(), timestamp, generation + 1, depth + 1, parents, null);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = this.snapshot;
+        if (s == null) {
+            synchronized (this) {
+                s = this.snapshot;
+                if (s == null) {
+                    this.snapshot = s = load();
+                }
+            }
+        }
+        return s;
+    }
+
+    private Snapshot load() {
+        final Layer base;
+        try {
+            Optional<byte[]> blob = blobStore.getBlob(BLOB_NAME);
+            if (!blob.isPresent()) {
+                return Snapshot.EMPTY;
+            }
+            base = Layer.decode(blob.get(), Snapshot.EMPTY);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to load the commit graph index, starting with an empty one", e);
+            return Snapshot.EMPTY;
+        }
+        Layer tip = null;
+        try {
+            Optional<byte[]> blob = blobStore.getBlob(TIP_BLOB_NAME);
+            if (blob.isPresent()) {
+                tip = Layer.decode(blob.get(), new Snapshot(base, null));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to load the commit graph index tip, ignoring it", e);
+        }
+        return new Snapshot(base, tip);
+    }
+
+    /**
+     * A commit to be added to a layer, with parents referenced by id
+     */
+    private static @Value class Entry {
+        private ObjectId id;
+
+        private long timestamp;
+
+        private int generation;
+
+        private int depth;
+
+        private List<ObjectId> parents;
+
+        private @Nullable byte[] changedPaths;
+    }
+
+    /**
+     * An immutable view of the base layer and optional tip layer, where commits are addressed by
+     * position: the base layer commits first, then the tip layer ones, each in id order
+     */
+    private static class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Layer.EMPTY, null);
+
+        final Layer base;
+
+        final @Nullable Layer tip;
+
+        Snapshot(Layer base, @Nullable Layer tip) {
+            this.base = base;
+            this.tip = tip;
+        }
+
+        int size() {
+            return base.size() + (tip == null ? 0 : tip.size());
+        }
+
+        /**
+         * @return the position of the commit, or {@code -1} if not indexed
+         */
+        int position(ObjectId id) {
+            int pos = base.position(id);
+            if (pos == -1 && tip != null) {
+                pos = tip.position(id);
+            }
+            return pos;
+        }
+
+        int require(ObjectId id) {
+            int pos = position(id);
+            checkArgument(pos != -1, "Commit %s is not in the commit graph index", id);
+            return pos;
+        }
+
+        private Layer layer(int pos) {
+            return pos < base.size() ? base : tip;
+        }
+
+        ObjectId id(int pos) {
+            Layer l = layer(pos);
+            return l.ids[pos - l.offset];
+        }
+
+        int generation(int pos) {
+            Layer l = layer(pos);
+            return l.generations[pos - l.offset];
+        }
+
+        int depth(int pos) {
+            Layer l = layer(pos);
+            return l.depths[pos - l.offset];
+        }
+
+        long timestamp(int pos) {
+            Layer l = layer(pos);
+            return l.timestamps[pos - l.offset];
+        }
+
+        @Nullable
+        byte[] changedPaths(int pos) {
+            Layer l = layer(pos);
+            return l.changedPaths[pos - l.offset];
+        }
+
+        int parentCount(int pos) {
+            Layer l = layer(pos);
+            int i = pos - l.offset;
+            return l.parentStart[i + 1] - l.parentStart[i];
+        }
+
+        int parent(int pos, int index) {
+            Layer l = layer(pos);
+            return l.parents[l.parentStart[pos - l.offset] + index];
+        }
+
+        /**
+         * Orders positions by generation descending, then by timestamp descending
+         */
+        Comparator<Integer> newestFirst() {
+            Comparator<Integer> generation = Comparator.comparingInt(this::generation);
+            Comparator<Integer> timestamp = Comparator.comparingLong(this::timestamp);
+            return generation.thenComparing(timestamp).reversed();
+        }
+
+        PriorityQueue<Integer> newQueue() {
+            return new PriorityQueue<>(newestFirst());
+        }
+
+        boolean anyUnresolvedExists(ObjectStore source) {
+            return base.anyUnresolvedExists(source)
+                    || (tip != null && tip.anyUnresolvedExists(source));
+        }
+
+        Set<ObjectId> unresolved() {
+            Set<ObjectId> unresolved = new HashSet<>(Arrays.asList(base.unresolved));
+            if (tip != null) {
+                unresolved.addAll(Arrays.asList(tip.unresolved));
+            }
+            return unresolved;
+        }
+
+        List<Entry> entries() {
+            List<Entry> entries = base.entries(this);
+            if (tip != null) {
+                entries.addAll(tip.entries(this));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * A set of commits sorted by id, whose positions start at {@code offset}, with parents
+     * referenced by position in this or the lower layer
+     */
+    private static class Layer {
+
+        static final Layer EMPTY = new Layer(0, new ObjectId[0], new long[0], new int[0],
+                new int[0], new int[] { 0 }, new int[0], new byte[0][], new ObjectId[0]);
+
+        final int offset;
+
+        final ObjectId[] ids;
+
+        final long[] timestamps;
+
+        final int[] generations;
+
+        final int[] depths;
+
+        /**
+         * The parents of the commit at index {@code i} are at
+         * {@code parents[parentStart[i]..parentStart[i + 1])}
+         */
+        final int[] parentStart;
+
+        final int[] parents;
+
+        /**
+         * Changed paths filters, {@code null} for commits that have none
+         */
+        final byte[][] changedPaths;
+
+        /**
+         * Sorted ids of parent commits that were missing when the layer was built
+         */
+        final ObjectId[] unresolved;
+
+        Layer(int offset, ObjectId[] ids, long[] timestamps, int[] generations, int[] depths,
+                int[] parentStart, int[] parents, byte[][] changedPaths, ObjectId[] unresolved) {
+            this.offset = offset;
+            this.ids = ids;
+            this.timestamps = timestamps;
+            this.generations = generations;
+            this.depths = depths;
+            this.parentStart = parentStart;
+            this.parents = parents;
+            this.changedPaths = changedPaths;
+            this.unresolved = unresolved;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int position(ObjectId id) {
+            int index = Arrays.binarySearch(ids, id);
+            return index < 0 ? -1 : offset + index;
+        }
+
+        boolean anyUnresolvedExists(ObjectStore source) {
+            for (ObjectId id : unresolved) {
+                if (source.exists(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<Entry> entries(Snapshot snapshot) {
+            List<Entry> entries = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                List<ObjectId> parentIds = new ArrayList<>(parentStart[i + 1] - parentStart[i]);
+                for (int p = parentStart[i]; p < parentStart[i + 1]; p++) {
+                    parentIds.add(snapshot.id(parents[p]));
+                }
+                entries.add(new Entry(ids[i], timestamps[i], generations[i], depths[i],
+                        parentIds, changedPaths[i]));
+            }
+            return entries;
+        }
+
+        /**
+         * @param lower the snapshot holding the layer below the one being built, if any
+         */
+        static Layer build(int offset, List<Entry> entries, Set<ObjectId> unresolved,
+                Snapshot lower) {
+            entries.sort(Comparator.comparing(Entry::getId));
+            final int size = entries.size();
+            final ObjectId[] ids = new ObjectId[size];
+            final long[] timestamps = new long[size];
+            final int[] generations = new int[size];
+            final int[] depths = new int[size];
+            final int[] parentStart = new int[size + 1];
+            final byte[][] changedPaths = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                Entry e = entries.get(i);
+                changedPaths[i] = e.getChangedPaths();
+                ids[i] = e.getId();
+                timestamps[i] = e.getTimestamp();
+                generations[i] = e.getGeneration();
+                depths[i] = e.getDepth();
+                parentStart[i + 1] = parentStart[i] + e.getParents().size();
+            }
+            final int[] parents = new int[parentStart[size]];
+            int p = 0;
+            for (Entry e : entries) {
+                for (ObjectId parentId : e.getParents()) {
+                    int pos = lower.position(parentId);
+                    if (pos == -1) {
+                        pos = offset + Arrays.binarySearch(ids, parentId);
+                    }
+                    parents[p++] = pos;
+                }
+            }
+            ObjectId[] missing = unresolved.toArray(new ObjectId[unresolved.size()]);
+            Arrays.sort(missing);
+            return new Layer(offset, ids, timestamps, generations, depths, parentStart, parents,
+                    changedPaths, missing);
+        }
+
+        byte[] encode() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * (1 + size()));
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeByte(FORMAT_VERSION);
+                Varint.writeUnsignedVarInt(offset, out);
+                Varint.writeUnsignedVarInt(size(), out);
+                for (int i = 0; i < size(); i++) {
+                    ids[i].writeTo(out);
+                    Varint.writeSignedVarLong(timestamps[i], out);
+                    Varint.writeUnsignedVarInt(generations[i], out);
+                    Varint.writeUnsignedVarInt(depths[i], out);
+                    Varint.writeUnsignedVarInt(parentStart[i + 1] - parentStart[i], out);
+                    for (int p = parentStart[i]; p < parentStart[i + 1]; p++) {
+                        Varint.writeUnsignedVarInt(parents[p], out);
+                    }
+                    // zero for no filter, length + 1 otherwise
+                    byte[] filter = changedPaths[i];
+                    Varint.writeUnsignedVarInt(filter == null ? 0 : filter.length + 1, out);
+                    if (filter != null) {
+                        out.write(filter);
+                    }
+                }
+                writeIds(unresolved, out);
+                out.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * @param lower the snapshot holding the layer below the one being decoded, if any
+         */
+        static Layer decode(byte[] blob, Snapshot lower) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+            final byte version = in.readByte();
+            checkArgument(FORMAT_VERSION == version || FORMAT_VERSION_1 == version,
+                    "Unknown commit graph format: %s", version);
+            final int offset = Varint.readUnsignedVarInt(in);
+            checkArgument(offset == lower.size(), "Expected layer offset %s, got %s",
+                    lower.size(), offset);
+            final int size = Varint.readUnsignedVarInt(in);
+            final ObjectId[] ids = new ObjectId[size];
+            final long[] timestamps = new long[size];
+            final int[] generations = new int[size];
+            final int[] depths = new int[size];
+            final int[] parentStart = new int[size + 1];
+            final byte[][] changedPaths = new byte[size][];
+            int[] parents = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = ObjectId.readFrom(in);
+                timestamps[i] = Varint.readSignedVarLong(in);
+                generations[i] = Varint.readUnsignedVarInt(in);
+                depths[i] = Varint.readUnsignedVarInt(in);
+                final int count = Varint.readUnsignedVarInt(in);
+                parentStart[i + 1] = parentStart[i] + count;
+                if (parents.length < parentStart[i + 1]) {
+                    parents = Arrays.copyOf(parents,
+                            Math.max(2 * parents.length, parentStart[i + 1]));
+                }
+                for (int p = parentStart[i]; p < parentStart[i + 1]; p++) {
+                    parents[p] = Varint.readUnsignedVarInt(in);
+                    checkArgument(parents[p] < offset + size, "Invalid parent position");
+                }
+                if (version != FORMAT_VERSION_1) {
+                    final int filterLength = Varint.readUnsignedVarInt(in);
+                    if (filterLength > 0) {
+                        changedPaths[i] = new byte[filterLength - 1];
+                        in.readFully(changedPaths[i]);
+                    }
+                }
+            }
+            parents = Arrays.copyOf(parents, parentStart[size]);
+            ObjectId[] unresolved = readIds(in);
+            return new Layer(offset, ids, timestamps, generations, depths, parentStart, parents,
+                    changedPaths, unresolved);
+        }
+
+        private static void writeIds(ObjectId[] ids, DataOutput out) throws IOException {
+            Varint.writeUnsignedVarInt(ids.length, out);
+            for (ObjectId id : ids) {
+                id.writeTo(out);
+            }
+        }
+
+        private static ObjectId[] readIds(DataInput in) throws IOException {
+            ObjectId[] ids = new ObjectId[Varint.readUnsignedVarInt(in)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ObjectId.readFrom(in);
+            }
+            return ids;
+        }
+    }
+}
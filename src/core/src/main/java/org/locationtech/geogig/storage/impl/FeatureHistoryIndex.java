@@ -0,0 +1,597 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.Varint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * An optional index of the versions of each feature across the history of a repository, mapping
+ * feature paths to the commits that changed them and the feature object and metadata ids they set,
+ * persisted to the repository's {@link BlobStore}.
+ * <p>
+ * It allows to compute the history of a single feature, like {@code BlameOp} and path limited
+ * {@code LogOp} queries do, in time proportional to the number of versions of the feature instead
+ * of the size of the repository history.
+ * <p>
+ * A commit changes a feature if the feature's object id at the commit's tree differs from the one
+ * at any of its parents' trees, a missing feature meaning {@link ObjectId#NULL}, which is recorded
+ * as a removal. Parents missing from the object database compare as the empty tree.
+ * <p>
+ * The index is {@link #isEnabled() enabled} once it is first {@link #update built}, and is kept up
+ * to date from then on by indexing the commits reachable from updated refs that are not reachable
+ * from the previously indexed ones, as computed by the {@link CommitGraphIndex}.
+ * <p>
+ * Features are split in a fixed number of shards by path hash, and the versions of each shard are
+ * stored in up to 32 segment blobs, one per level, where the segment of level {@code n} holds at
+ * most {@code 256 * 2^n} versions. An update writes the new versions of each shard it changed as a
+ * segment of the lowest level they fit in, merging it with the existing segments of the levels it
+ * doesn't fit beside, so each version is rewritten a bounded number of times per level and the cost
+ * of an update is proportional to its number of changes rather than to the size of the index, like
+ * the layers of the {@link CommitGraphIndex}. Segments carry a table of their feature path hashes,
+ * so looking up the versions of a feature only decodes that feature's entry of each segment.
+ */
+public class FeatureHistoryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FeatureHistoryIndex.class);
+
+    static final String TIPS_BLOB_NAME = "feature_history.tips";
+
+    static final String LEVELS_BLOB_NAME = "feature_history.levels";
+
+    static final String SHARD_BLOB_PREFIX = "feature_history.";
+
+    private static final int NUM_SHARDS = 256;
+
+    /**
+     * Max number of versions of the first level segment of a shard, each level doubles it
+     */
+    private static final int MIN_SEGMENT_SIZE = 256;
+
+    private static final int MAX_LEVELS = 32;
+
+    /**
+     * Size of the segment header: the format version and the number of features
+     */
+    private static final int HEADER_SIZE = 5;
+
+    /**
+     * Size of each entry of the segment table: the path hash and the offset of its data
+     */
+    private static final int TABLE_ENTRY_SIZE = 8;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Max number of pending versions to keep in memory while indexing before writing them out
+     */
+    private static final int MAX_PENDING_VERSIONS = 1_000_000;
+
+    private static final LoadingCache<BlobStore, FeatureHistoryIndex> INSTANCES = CacheBuilder
+            .newBuilder()//
+            .weakKeys()//
+            .build(CacheLoader.from(FeatureHistoryIndex::new));
+
+    /**
+     * A version of a feature, as set by a commit
+     */
+    public static @Value class Version {
+        private ObjectId commitId;
+
+        /**
+         * The feature id, {@link ObjectId#NULL} if the commit removed the feature
+         */
+        private ObjectId objectId;
+
+        /**
+         * The feature type id, {@link ObjectId#NULL} if the commit removed the feature
+         */
+        private ObjectId metadataId;
+
+        public boolean isRemoval() {
+            return objectId.isNull();
+        }
+    }
+
+    private final BlobStore blobStore;
+
+    private Set<ObjectId> tips;
+
+    /**
+     * The existing segment levels of each shard, as a bit mask
+     */
+    private int[] levels;
+
+    @VisibleForTesting
+    FeatureHistoryIndex(@NonNull BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    public static FeatureHistoryIndex of(@NonNull BlobStore blobStore) {
+        return INSTANCES.getUnchecked(blobStore);
+    }
+
+    /**
+     * @return the feature history index of the repository's object database {@link BlobStore},
+     *         if it has one and the index is {@link #isEnabled() enabled}
+     */
+    public static Optional<FeatureHistoryIndex> of(@NonNull Context context) {
+        ObjectDatabase odb = context.objectDatabase();
+        if (odb == null) {
+            return Optional.empty();
+        }
+        FeatureHistoryIndex index = of(odb.getBlobStore());
+        return index.isEnabled() ? Optional.of(index) : Optional.empty();
+    }
+
+    /**
+     * @return whether the index has been built
+     */
+    public synchronized boolean isEnabled() {
+        return !tips().isEmpty();
+    }
+
+    /**
+     * @return whether the history of the given commit is indexed, i.e. it's reachable from the
+     *         indexed commits
+     */
+    public boolean covers(@NonNull ObjectId commitId, @NonNull CommitGraphIndex commitGraph) {
+        if (!commitGraph.contains(commitId)) {
+            return false;
+        }
+        Set<ObjectId> tips;
+        synchronized (this) {
+            tips = new HashSet<>(tips());
+        }
+        return tips.stream().anyMatch(
+                tip -> commitGraph.contains(tip) && commitGraph.isAncestor(commitId, tip));
+    }
+
+    /**
+     * @return all the indexed versions of the feature at the given path, in no particular order
+     */
+    public synchronized List<Version> versions(@NonNull String featurePath) {
+        final int shard = shard(featurePath);
+        final int shardLevels = levels()[shard];
+        // an interrupted update may have written some versions to more than one segment
+        final Map<ObjectId, Version> versions = new LinkedHashMap<>();
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            if ((shardLevels & (1 << level)) != 0) {
+                find(shard, level, featurePath)
+                        .forEach(v -> versions.putIfAbsent(v.getCommitId(), v));
+            }
+        }
+        return new ArrayList<>(versions.values());
+    }
+
+    /**
+     * @return the versions of the feature at the given path set by {@code commitId} or its
+     *         ancestors, most recent first
+     */
+    public List<Version> history(@NonNull String featurePath, @NonNull ObjectId commitId,
+            @NonNull CommitGraphIndex commitGraph) {
+        final Map<ObjectId, Version> byCommit = versions(featurePath).stream()
+                .collect(Collectors.toMap(Version::getCommitId, Function.identity()));
+        return commitGraph.reachableFrom(commitId, byCommit.keySet()).stream()
+                .map(byCommit::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Indexes the feature versions set by the commits reachable from {@code commitIds} that are
+     * not reachable from the already indexed ones, enabling the index if it wasn't.
+     * <p>
+     * Returns immediately if none of the commits is in the commit graph or all of them are
+     * already indexed tips, and the tips are only written if they changed, so that calling it
+     * after every ref update is cheap.
+     *
+     * @param source where to get the commits and trees from
+     * @param commitGraph the commit graph index, commits not in it are ignored
+     * @return the number of commits indexed
+     */
+    public synchronized int update(@NonNull ObjectStore source,
+            @NonNull CommitGraphIndex commitGraph, @NonNull Iterable<ObjectId> commitIds,
+            @NonNull ProgressListener listener) {
+
+        final Set<ObjectId> indexedTips = tips().stream().filter(commitGraph::contains)
+                .collect(Collectors.toSet());
+        final Set<ObjectId> newTips = new LinkedHashSet<>();
+        commitIds.forEach(id -> {
+            if (commitGraph.contains(id)) {
+                newTips.add(id);
+            }
+        });
+        if (newTips.isEmpty() || indexedTips.containsAll(newTips)) {
+            return 0;
+        }
+        final List<ObjectId> commits = commitGraph.reachable(newTips, indexedTips);
+        final Map<Integer, Map<String, List<Version>>> pending = new HashMap<>();
+        int pendingCount = 0;
+        listener.started();
+        for (int i = 0; i < commits.size() && !listener.isCanceled(); i++) {
+            RevCommit commit = source.getIfPresent(commits.get(i), RevCommit.class);
+            if (commit != null) {
+                for (Map.Entry<String, Version> v : changedFeatures(source, commit).entrySet()) {
+                    pending.computeIfAbsent(shard(v.getKey()), s -> new HashMap<>())
+                            .computeIfAbsent(v.getKey(), p -> new ArrayList<>())
+                            .add(v.getValue());
+                    pendingCount++;
+                }
+            }
+            if (pendingCount > MAX_PENDING_VERSIONS) {
+                flush(pending);
+                pendingCount = 0;
+            }
+            listener.setProgress((i + 1) * 100f / commits.size());
+        }
+        if (listener.isCanceled()) {
+            // leave the tips untouched so the next update indexes the same commits
+            listener.complete();
+            return 0;
+        }
+        flush(pending);
+
+        Set<ObjectId> updatedTips = new LinkedHashSet<>(indexedTips);
+        updatedTips.addAll(newTips);
+        // keep only the tips that are not reachable from other tips
+        updatedTips.removeIf(tip -> updatedTips.stream()
+                .anyMatch(other -> !other.equals(tip) && commitGraph.isAncestor(tip, other)));
+        if (!updatedTips.equals(tips())) {
+            writeTips(updatedTips);
+        }
+        listener.complete();
+        return commits.size();
+    }
+
+    /**
+     * @return the feature paths changed by the commit with respect to any of its parents, and the
+     *         version of the feature set by the commit
+     */
+    private Map<String, Version> changedFeatures(ObjectStore source, RevCommit commit) {
+        final Map<String, Version> changes = new HashMap<>();
+        final RevTree tree = tree(source, commit.getTreeId());
+        final List<ObjectId> parentIds = commit.getParentIds().isEmpty()
+                ? Collections.singletonList(ObjectId.NULL)
+                : commit.getParentIds();
+        for (ObjectId parentId : parentIds) {
+            RevCommit parent = parentId.isNull() ? null
+                    : source.getIfPresent(parentId, RevCommit.class);
+            RevTree parentTree = parent == null ? RevTree.EMPTY : tree(source, parent.getTreeId());
+            final boolean preserveIterationOrder = true;
+            new PreOrderDiffWalk(parentTree, tree, source, source, preserveIterationOrder)
+                    .walk(new PreOrderDiffWalk.AbstractConsumer() {
+                        public @Override boolean feature(@Nullable NodeRef left,
+                                @Nullable NodeRef right) {
+                            Version version = right == null
+                                    ? new Version(commit.getId(), ObjectId.NULL, ObjectId.NULL)
+                                    : new Version(commit.getId(), right.getObjectId(),
+                                            right.getMetadataId());
+                            changes.put((left == null ? right : left).path(), version);
+                            return true;
+                        }
+                    });
+        }
+        return changes;
+    }
+
+    private static RevTree tree(ObjectStore source, ObjectId treeId) {
+        return RevTree.EMPTY_TREE_ID.equals(treeId) ? RevTree.EMPTY : source.getTree(treeId);
+    }
+
+    /**
+     * Writes the pending versions of each shard as a new segment, merging it with the segments of
+     * the lower levels it doesn't fit beside, like a binary counter carry. Levels are updated
+     * before removing the merged segments, so that an interrupted flush leaves the previous ones in
+     * place.
+     */
+    private void flush(Map<Integer, Map<String, List<Version>>> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final int[] levels = levels().clone();
+        final List<String> merged = new ArrayList<>();
+        pending.forEach((shard, versions) -> {
+            Map<String, List<Version>> carry = versions;
+            for (int level = startLevel(size(carry));; level++) {
+                final int bit = 1 << level;
+                final boolean exists = (levels[shard] & bit) != 0;
+                if (exists) {
+                    carry = merge(loadSegment(shard, level), carry);
+                }
+                if (size(carry) <= capacity(level) || level == MAX_LEVELS - 1) {
+                    blobStore.putBlob(segmentBlob(shard, level), encode(carry));
+                    levels[shard] |= bit;
+                    break;
+                }
+                if (exists) {
+                    levels[shard] &= ~bit;
+                    merged.add(segmentBlob(shard, level));
+                }
+            }
+        });
+        writeLevels(levels);
+        merged.forEach(blobStore::removeBlob);
+        pending.clear();
+    }
+
+    private static long capacity(int level) {
+        return (long) MIN_SEGMENT_SIZE << level;
+    }
+
+    /**
+     * @return the lowest level whose capacity is at least {@code size}
+     */
+    private static int startLevel(long size) {
+        int level = 0;
+        while (level < MAX_LEVELS - 1 && capacity(level) < size) {
+            level++;
+        }
+        return level;
+    }
+
+    private static long size(Map<String, List<Version>> versions) {
+        return versions.values().stream().mapToLong(List::size).sum();
+    }
+
+    private static Map<String, List<Version>> merge(Map<String, List<Version>> stored,
+            Map<String, List<Version>> added) {
+        added.forEach((path, versions) -> {
+            List<Version> list = stored.computeIfAbsent(path, p -> new ArrayList<>());
+            // an interrupted update may have already written some of the versions
+            Set<ObjectId> present = list.stream().map(Version::getCommitId)
+                    .collect(Collectors.toSet());
+            versions.stream().filter(v -> !present.contains(v.getCommitId()))
+                    .forEach(list::add);
+        });
+        return stored;
+    }
+
+    private static int shard(String featurePath) {
+        int hash = Hashing.murmur3_32().hashString(featurePath, StandardCharsets.UTF_8).asInt();
+        return Math.floorMod(hash, NUM_SHARDS);
+    }
+
+    private static String segmentBlob(int shard, int level) {
+        return SHARD_BLOB_PREFIX + shard + "." + level;
+    }
+
+    private Optional<byte[]> getSegment(int shard, int level) {
+        try {
+            return blobStore.getBlob(segmentBlob(shard, level));
+        } catch (RuntimeException e) {
+            log.warn("Unable to load feature history index segment {}, ignoring it",
+                    segmentBlob(shard, level), e);
+            return Optional.empty();
+        }
+    }
+
+    private Map<String, List<Version>> loadSegment(int shard, int level) {
+        Optional<byte[]> blob = getSegment(shard, level);
+        try {
+            return blob.isPresent() ? decode(blob.get()) : new HashMap<>();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to decode feature history index segment {}, ignoring it",
+                    segmentBlob(shard, level), e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * @return the versions of the feature at {@code path} in the segment, looked up through the
+     *         segment's table of path hashes without decoding the other features
+     */
+    private List<Version> find(int shard, int level, String path) {
+        Optional<byte[]> blob = getSegment(shard, level);
+        if (!blob.isPresent()) {
+            return Collections.emptyList();
+        }
+        final byte[] segment = blob.get();
+        try {
+            final ByteBuffer buff = ByteBuffer.wrap(segment);
+            final byte version = buff.get(0);
+            checkArgument(FORMAT_VERSION == version, "Unknown feature history format: %s",
+                    version);
+            final int size = buff.getInt(1);
+            final int dataStart = HEADER_SIZE + TABLE_ENTRY_SIZE * size;
+            final int hash = path.hashCode();
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (buff.getInt(HEADER_SIZE + TABLE_ENTRY_SIZE * mid) < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < size
+                    && buff.getInt(HEADER_SIZE + TABLE_ENTRY_SIZE * i) == hash; i++) {
+                final int offset = dataStart + buff.getInt(HEADER_SIZE + TABLE_ENTRY_SIZE * i + 4);
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(segment, offset, segment.length - offset));
+                if (path.equals(in.readUTF())) {
+                    return readVersions(in);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to decode feature history index segment {}, ignoring it",
+                    segmentBlob(shard, level), e);
+        }
+        return Collections.emptyList();
+    }
+
+    private int[] levels() {
+        if (levels == null) {
+            int[] loaded = new int[NUM_SHARDS];
+            try {
+                Optional<byte[]> blob = blobStore.getBlob(LEVELS_BLOB_NAME);
+                if (blob.isPresent()) {
+                    DataInputStream in = new DataInputStream(
+                            new ByteArrayInputStream(blob.get()));
+                    final byte version = in.readByte();
+                    checkArgument(FORMAT_VERSION == version,
+                            "Unknown feature history format: %s", version);
+                    for (int i = 0; i < NUM_SHARDS; i++) {
+                        loaded[i] = in.readInt();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to load the feature history index levels, ignoring them", e);
+                loaded = new int[NUM_SHARDS];
+            }
+            levels = loaded;
+        }
+        return levels;
+    }
+
+    private void writeLevels(int[] updated) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(FORMAT_VERSION);
+            for (int i = 0; i < NUM_SHARDS; i++) {
+                out.writeInt(updated[i]);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        blobStore.putBlob(LEVELS_BLOB_NAME, bytes.toByteArray());
+        this.levels = updated;
+    }
+
+    private Set<ObjectId> tips() {
+        if (tips == null) {
+            Set<ObjectId> loaded = new LinkedHashSet<>();
+            try {
+                Blobs.getBlobAsString(blobStore, TIPS_BLOB_NAME)
+                        .ifPresent(s -> Splitter.on('\n').omitEmptyStrings().trimResults()
+                                .split(s).forEach(id -> loaded.add(ObjectId.valueOf(id))));
+            } catch (RuntimeException e) {
+                log.warn("Unable to load the feature history index tips, it'll be rebuilt", e);
+                loaded.clear();
+            }
+            tips = loaded;
+        }
+        return tips;
+    }
+
+    private void writeTips(Set<ObjectId> updated) {
+        String contents = updated.stream().map(ObjectId::toString)
+                .collect(Collectors.joining("\n"));
+        Blobs.putBlob(blobStore, TIPS_BLOB_NAME, contents);
+        this.tips = updated;
+    }
+
+    /**
+     * Encodes a segment as a format version byte, the number of features, a table of feature path
+     * hash and offset pairs sorted by hash, and the features data: the path followed by its
+     * versions, in the same order as the table
+     */
+    private static byte[] encode(Map<String, List<Version>> versions) {
+        final List<String> paths = new ArrayList<>(versions.keySet());
+        paths.sort(Comparator.comparingInt(String::hashCode)
+                .thenComparing(Comparator.naturalOrder()));
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream dataOut = new DataOutputStream(data);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(paths.size());
+            for (String path : paths) {
+                out.writeInt(path.hashCode());
+                out.writeInt(dataOut.size());
+                dataOut.writeUTF(path);
+                List<Version> list = versions.get(path);
+                Varint.writeUnsignedVarInt(list.size(), dataOut);
+                for (Version v : list) {
+                    v.getCommitId().writeTo(dataOut);
+                    v.getObjectId().writeTo(dataOut);
+                    v.getMetadataId().writeTo(dataOut);
+                }
+            }
+            dataOut.flush();
+            data.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, List<Version>> decode(byte[] segment) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(segment));
+        final byte version = in.readByte();
+        checkArgument(FORMAT_VERSION == version, "Unknown feature history format: %s", version);
+        final int size = in.readInt();
+        in.skipBytes(TABLE_ENTRY_SIZE * size);
+        Map<String, List<Version>> versions = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String path = in.readUTF();
+            versions.put(path, readVersions(in));
+        }
+        return versions;
+    }
+
+    private static List<Version> readVersions(DataInput in) throws IOException {
+        int count = Varint.readUnsignedVarInt(in);
+        List<Version> list = new ArrayList<>(count);
+        for (int v = 0; v < count; v++) {
+            list.add(new Version(ObjectId.readFrom(in), ObjectId.readFrom(in),
+                    ObjectId.readFrom(in)));
+        }
+        return list;
+    }
+}
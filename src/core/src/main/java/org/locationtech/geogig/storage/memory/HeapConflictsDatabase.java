@@ -9,158 +9,386 @@
  */
 package org.locationtech.geogig.storage.memory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.locationtech.geogig.storage.impl.PersistedIterable.newStringIterable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.storage.AbstractStore;
 import org.locationtech.geogig.storage.ConflictsDatabase;
+import org.locationtech.geogig.storage.impl.PersistedIterable;
 
-import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
-import com.google.common.collect.Maps;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Streams;
 
 import lombok.NonNull;
 
 /**
  * Volatile implementation of a GeoGig {@link ConflictsDatabase} that utilizes the heap for storage.
+ * <p>
+ * Conflicts are kept sorted by path on the heap until a namespace holds
+ * {@link #DEFAULT_SPILL_THRESHOLD the spill threshold} of them, at which point they're written to
+ * a temporary {@link SpilledConflicts sorted run file} and the heap is freed. Lookups check the
+ * heap and then the run files from newest to oldest, and prefix scans merge them all in path
+ * order, so merges with millions of conflicts run in bounded memory. Once a namespace has more than
+ * {@link #MAX_RUNS} run files they're compacted into a single one, dropping the conflicts removed
+ * since they were spilled. Run files are deleted when their namespace is cleared or the database
+ * is closed.
  */
 public class HeapConflictsDatabase extends AbstractStore implements ConflictsDatabase {
 
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Conflict>> conflicts = new ConcurrentHashMap<>();
+    public static final int DEFAULT_SPILL_THRESHOLD = 100_000;
+
+    /**
+     * The number of run files per namespace above which they're compacted into one
+     */
+    static final int MAX_RUNS = 8;
+
+    private final ConcurrentHashMap<String, Namespace> conflicts = new ConcurrentHashMap<>();
+
+    private final int spillThreshold;
 
     public HeapConflictsDatabase() {
-        super(false);
+        this(false);
     }
 
     public HeapConflictsDatabase(boolean ro) {
+        this(ro, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * @param spillThreshold the number of conflicts per namespace kept on the heap before spilling
+     *        them to disk
+     */
+    public HeapConflictsDatabase(boolean ro, int spillThreshold) {
         super(ro);
+        checkArgument(spillThreshold > 0, "spillThreshold must be > 0: %s", spillThreshold);
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Closes the database, discarding the conflicts of all namespaces and deleting the files they
+     * were spilled to.
+     */
+    public @Override void close() {
+        super.close();
+        for (String namespace : new ArrayList<>(conflicts.keySet())) {
+            Namespace ns = conflicts.remove(namespace);
+            if (ns != null) {
+                ns.clear();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    List<SpilledConflicts> runs(@Nullable String namespace) {
+        return new ArrayList<>(get(namespace).runs);
     }
 
     private String namespace(@Nullable String namespace) {
         return namespace == null ? "" : namespace;
     }
 
-    private synchronized ConcurrentHashMap<String, Conflict> get(@Nullable String namespace) {
-        namespace = namespace(namespace);
-        ConcurrentHashMap<String, Conflict> nsmap = this.conflicts.get(namespace);
-        if (nsmap == null) {
-            nsmap = new ConcurrentHashMap<>();
-            this.conflicts.put(namespace, nsmap);
-        }
-        return nsmap;
+    private Namespace get(@Nullable String namespace) {
+        return this.conflicts.computeIfAbsent(namespace(namespace), ns -> new Namespace());
     }
 
     /**
      * Adds a conflict to the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param conflict the conflict to add
      */
     public @Override void addConflict(@Nullable String namespace, Conflict conflict) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        map.put(conflict.getPath(), conflict);
+        get(namespace).put(conflict);
     }
 
     public @Override void addConflicts(@Nullable String namespace, Iterable<Conflict> conflicts) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        map.putAll(Maps.uniqueIndex(conflicts, (c) -> c.getPath()));
+        Namespace ns = get(namespace);
+        for (Conflict c : conflicts) {
+            ns.put(c);
+        }
     }
 
     /**
      * Removes a conflict from the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param path the path of feature whose conflict should be removed
      */
     public @Override void removeConflict(@Nullable String namespace, String path) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        map.remove(path);
+        get(namespace).remove(path);
     }
 
     public @Override void removeConflicts(@Nullable String namespace, Iterable<String> paths) {
+        Namespace ns = get(namespace);
         for (String path : paths) {
-            removeConflict(namespace, path);
+            ns.remove(path);
         }
     }
 
     /**
      * Gets the specified conflict from the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param path the conflict to retrieve
      * @return the conflict, or {@link Optional#empty()} if it was not found
      */
     public @Override Optional<Conflict> getConflict(@Nullable String namespace, String path) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        return Optional.ofNullable(map.get(path));
+        return get(namespace).get(path);
     }
 
     /**
      * Removes all conflicts from the database.
-     * 
+     *
      * @param namespace the namespace of the conflicts to remove
      */
     public @Override void removeConflicts(@Nullable String namespace) {
-        conflicts.remove(namespace(namespace));
+        Namespace ns = conflicts.remove(namespace(namespace));
+        if (ns != null) {
+            ns.clear();
+        }
     }
 
     public @Override boolean hasConflicts(String namespace) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        return !map.isEmpty();
+        return get(namespace).iterator(null).hasNext();
     }
 
     public @Override Iterator<Conflict> getByPrefix(@Nullable String namespace,
             @Nullable String prefixFilter) {
+        Namespace ns = get(namespace);
+        if (prefixFilter == null) {
+            return ns.iterator(null);
+        }
+        final String prefix = prefixFilter + "/";
+        Iterator<Conflict> children = new AbstractIterator<Conflict>() {
+            final Iterator<Conflict> it = ns.iterator(prefix);
 
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        Predicate<String> filter;
-        filter = prefixFilter == null ? Predicates.alwaysTrue() : new PathFilter(prefixFilter);
-
-        return Maps.filterKeys(map, filter).values().iterator();
+            protected @Override Conflict computeNext() {
+                if (it.hasNext()) {
+                    Conflict c = it.next();
+                    if (c.getPath().startsWith(prefix)) {
+                        return c;
+                    }
+                }
+                return endOfData();
+            }
+        };
+        Optional<Conflict> self = ns.get(prefixFilter);
+        if (!self.isPresent()) {
+            return children;
+        }
+        return Iterators.concat(Iterators.singletonIterator(self.get()), children);
     }
 
     public @Override long getCountByPrefix(@Nullable String namespace, @Nullable String treePath) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        Predicate<String> filter;
-        filter = treePath == null ? Predicates.alwaysTrue() : new PathFilter(treePath);
+        return Iterators.size(getByPrefix(namespace, treePath));
+    }
 
-        int count = Maps.filterKeys(map, filter).size();
-        return count;
+    public @Override Set<String> findConflicts(@Nullable String namespace,
+            @NonNull Iterable<String> paths) {
+        Namespace ns = get(namespace);
+        return Streams.stream(paths).filter(p -> ns.get(p).isPresent())
+                .collect(Collectors.toSet());
     }
 
-    private static class PathFilter implements Predicate<String> {
+    public @Override void removeByPrefix(@Nullable String namespace, @Nullable String pathPrefix) {
+        Namespace ns = get(namespace);
+        if (pathPrefix == null) {
+            ns.clear();
+            return;
+        }
+        try (PersistedIterable<String> paths = newStringIterable(10_000, true)) {
+            getByPrefix(namespace, pathPrefix).forEachRemaining(c -> paths.add(c.getPath()));
+            paths.forEach(ns::remove);
+        }
+    }
 
-        private String prefix;
+    /**
+     * The conflicts of a single namespace, as the ones on the heap plus the ones spilled to disk.
+     * An empty value on the heap or in a run is the removal of a conflict that lives in an older
+     * run.
+     */
+    private class Namespace {
+
+        private final ConcurrentSkipListMap<String, Optional<Conflict>> recent = new ConcurrentSkipListMap<>();
 
-        private String treePath;
+        private int recentSize;
 
-        PathFilter(final @NonNull String treePath) {
-            this.prefix = treePath + "/";
-            this.treePath = treePath;
+        /**
+         * Newest first
+         */
+        private final List<SpilledConflicts> runs = new CopyOnWriteArrayList<>();
+
+        synchronized void put(Conflict conflict) {
+            set(conflict.getPath(), Optional.of(conflict));
         }
 
-        public @Override boolean apply(String path) {
-            boolean matches = treePath.equals(path) || path.startsWith(prefix);
-            return matches;
+        synchronized void remove(String path) {
+            if (runs.isEmpty()) {
+                if (recent.remove(path) != null) {
+                    recentSize--;
+                }
+            } else if (get(path).isPresent()) {
+                set(path, Optional.empty());
+            }
         }
 
-    }
+        synchronized void clear() {
+            recent.clear();
+            recentSize = 0;
+            List<SpilledConflicts> spilled = new ArrayList<>(runs);
+            runs.clear();
+            spilled.forEach(SpilledConflicts::dispose);
+        }
 
-    public @Override Set<String> findConflicts(@Nullable String namespace,
-            @NonNull Iterable<String> paths) {
-        Map<String, Conflict> nsmap = get(namespace);
-        return Streams.stream(paths).filter(nsmap::containsKey).collect(Collectors.toSet());
+        private void set(String path, Optional<Conflict> value) {
+            if (recent.put(path, value) == null) {
+                recentSize++;
+            }
+            if (recentSize >= spillThreshold) {
+                spill();
+            }
+        }
+
+        private void spill() {
+            SpilledConflicts run;
+            try {
+                run = SpilledConflicts.write(recent.entrySet().iterator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // readers may see the entries in both places for a moment, but never in neither
+            runs.add(0, run);
+            recent.clear();
+            recentSize = 0;
+            if (runs.size() > MAX_RUNS) {
+                compact();
+            }
+        }
+
+        /**
+         * Merges all the runs into a single one. Being the oldest, it doesn't need to keep the
+         * removals of conflicts, they have nothing left to shadow.
+         */
+        private void compact() {
+            final List<SpilledConflicts> compacted = new ArrayList<>(runs);
+            List<Iterator<Entry<String, Optional<Conflict>>>> sources = new ArrayList<>();
+            compacted.forEach(run -> sources.add(run.iterator(null)));
+            Iterator<Entry<String, Optional<Conflict>>> live = Iterators.filter(newest(sources),
+                    e -> e.getValue().isPresent());
+            if (live.hasNext()) {
+                try {
+                    runs.add(SpilledConflicts.write(live));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            // as in spill(), readers may see the entries twice for a moment, but never miss them
+            runs.removeAll(compacted);
+            compacted.forEach(SpilledConflicts::dispose);
+        }
+
+        Optional<Conflict> get(String path) {
+            Optional<Conflict> value = recent.get(path);
+            if (value != null) {
+                return value;
+            }
+            for (SpilledConflicts run : runs) {
+                Entry<String, Optional<Conflict>> entry = run.find(path);
+                if (entry != null) {
+                    return entry.getValue();
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * @return the conflicts sorted by path, starting at {@code fromPath} if given
+         */
+        Iterator<Conflict> iterator(@Nullable String fromPath) {
+            NavigableMap<String, Optional<Conflict>> heap = fromPath == null ? recent
+                    : recent.tailMap(fromPath, true);
+            List<Iterator<Entry<String, Optional<Conflict>>>> sources = new ArrayList<>();
+            sources.add(heap.entrySet().iterator());
+            for (SpilledConflicts run : runs) {
+                sources.add(run.iterator(fromPath));
+            }
+            Iterator<Entry<String, Optional<Conflict>>> live = Iterators.filter(newest(sources),
+                    e -> e.getValue().isPresent());
+            return Iterators.transform(live, e -> e.getValue().get());
+        }
+
+        /**
+         * @param newestFirst sources of entries sorted by path, from newest to oldest
+         * @return the newest entry of each path, removals included, sorted by path
+         */
+        private Iterator<Entry<String, Optional<Conflict>>> newest(
+                List<Iterator<Entry<String, Optional<Conflict>>>> newestFirst) {
+            List<Iterator<Ranked>> sources = new ArrayList<>();
+            int rank = 0;
+            for (Iterator<Entry<String, Optional<Conflict>>> source : newestFirst) {
+                sources.add(ranked(source, rank++));
+            }
+            final Iterator<Ranked> merged = Iterators.mergeSorted(sources, Ranked.ORDER);
+
+            return new AbstractIterator<Entry<String, Optional<Conflict>>>() {
+                private String last;
+
+                protected @Override Entry<String, Optional<Conflict>> computeNext() {
+                    while (merged.hasNext()) {
+                        Ranked next = merged.next();
+                        String path = next.entry.getKey();
+                        if (path.equals(last)) {
+                            continue;// shadowed by a newer entry
+                        }
+                        last = path;
+                        return next.entry;
+                    }
+                    return endOfData();
+                }
+            };
+        }
+
+        private Iterator<Ranked> ranked(Iterator<Entry<String, Optional<Conflict>>> entries,
+                int rank) {
+            return Iterators.transform(entries, e -> new Ranked(e, rank));
+        }
     }
 
-    public @Override void removeByPrefix(@Nullable String namespace, @Nullable String pathPrefix) {
-        ConcurrentHashMap<String, Conflict> map = get(namespace);
-        getByPrefix(namespace, pathPrefix).forEachRemaining(c -> map.remove(c.getPath()));
+    /**
+     * An entry tagged with the age of its source, so that newer entries come first for the same
+     * path
+     */
+    private static class Ranked {
+
+        static final Comparator<Ranked> ORDER = Comparator
+                .comparing((Ranked r) -> r.entry.getKey()).thenComparingInt(r -> r.rank);
+
+        final Entry<String, Optional<Conflict>> entry;
+
+        final int rank;
+
+        Ranked(Entry<String, Optional<Conflict>> entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
     }
 }
@@ -0,0 +1,270 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.memory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.Conflict;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.Longs;
+
+/**
+ * An immutable run of conflicts sorted by path, spilled to a temporary file by
+ * {@link HeapConflictsDatabase}.
+ * <p>
+ * Entries map a path to either a conflict or, if empty, to the removal of a conflict spilled to an
+ * older run. Only the path and file offset of every {@link #INDEX_INTERVAL}th entry are kept in
+ * memory, so looking up a path reads a single block of the file, and prefix scans start at the
+ * block where the prefix would be.
+ */
+final class SpilledConflicts {
+
+    static final int INDEX_INTERVAL = 128;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final String[] indexPaths;
+
+    private final long[] indexOffsets;
+
+    private final String lastPath;
+
+    private SpilledConflicts(Path file, long size, String[] indexPaths, long[] indexOffsets,
+            String lastPath) throws IOException {
+        this.file = file;
+        this.size = size;
+        this.indexPaths = indexPaths;
+        this.indexOffsets = indexOffsets;
+        this.lastPath = lastPath;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Writes the entries to a new temporary file.
+     *
+     * @param entries the entries to write, sorted by path
+     */
+    static SpilledConflicts write(Iterator<Entry<String, Optional<Conflict>>> entries)
+            throws IOException {
+        checkArgument(entries.hasNext(), "nothing to spill");
+        // deleted by dispose(), HeapConflictsDatabase disposes its runs when cleared or closed
+        final Path file = Files.createTempFile("geogig-conflicts-", ".run");
+
+        List<String> indexPaths = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        long size = 0;
+        String lastPath = null;
+        try (CountingOutputStream counting = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)));
+                DataOutputStream out = new DataOutputStream(counting)) {
+            while (entries.hasNext()) {
+                Entry<String, Optional<Conflict>> entry = entries.next();
+                final String path = entry.getKey();
+                checkArgument(lastPath == null || lastPath.compareTo(path) < 0,
+                        "entries are not sorted: %s, %s", lastPath, path);
+                if (size % INDEX_INTERVAL == 0) {
+                    indexPaths.add(path);
+                    indexOffsets.add(counting.getCount());
+                }
+                write(out, path, entry.getValue());
+                lastPath = path;
+                size++;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new SpilledConflicts(file, size, indexPaths.toArray(new String[indexPaths.size()]),
+                Longs.toArray(indexOffsets), lastPath);
+    }
+
+    /**
+     * @return the entry for the path, or {@code null} if this run has none
+     */
+    @Nullable
+    Entry<String, Optional<Conflict>> find(String path) {
+        final int block = block(path);
+        if (block < 0 || path.compareTo(lastPath) > 0) {
+            return null;
+        }
+        final long blockSize = Math.min(INDEX_INTERVAL, size - (long) block * INDEX_INTERVAL);
+        try (DataInputStream in = new DataInputStream(open(indexOffsets[block]))) {
+            for (int i = 0; i < blockSize; i++) {
+                Entry<String, Optional<Conflict>> entry = read(in);
+                int c = entry.getKey().compareTo(path);
+                if (c == 0) {
+                    return entry;
+                }
+                if (c > 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    /**
+     * @param fromPath if given, only the entries whose path is greater than or equal to it are
+     *        returned
+     * @return the entries of this run sorted by path, read in pages
+     */
+    Iterator<Entry<String, Optional<Conflict>>> iterator(@Nullable String fromPath) {
+        final int startBlock = fromPath == null ? 0 : Math.max(0, block(fromPath));
+        return new AbstractIterator<Entry<String, Optional<Conflict>>>() {
+
+            private long next = (long) startBlock * INDEX_INTERVAL;
+
+            private long offset = indexOffsets[startBlock];
+
+            private Iterator<Entry<String, Optional<Conflict>>> page = Collections
+                    .emptyIterator();
+
+            protected @Override Entry<String, Optional<Conflict>> computeNext() {
+                while (true) {
+                    while (page.hasNext()) {
+                        Entry<String, Optional<Conflict>> entry = page.next();
+                        if (fromPath == null || entry.getKey().compareTo(fromPath) >= 0) {
+                            return entry;
+                        }
+                    }
+                    if (next >= size) {
+                        return endOfData();
+                    }
+                    page = readPage();
+                }
+            }
+
+            private Iterator<Entry<String, Optional<Conflict>>> readPage() {
+                final int pageSize = (int) Math.min(PAGE_SIZE, size - next);
+                List<Entry<String, Optional<Conflict>>> entries = new ArrayList<>(pageSize);
+                try (CountingInputStream counting = new CountingInputStream(open(offset));
+                        DataInputStream in = new DataInputStream(counting)) {
+                    for (int i = 0; i < pageSize; i++) {
+                        entries.add(read(in));
+                    }
+                    offset += counting.getCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                next += pageSize;
+                return entries.iterator();
+            }
+        };
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Closes and deletes the run's file
+     */
+    void dispose() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the index of the block the path would be in, or {@code -1} if it's lower than the
+     *         first path in the run
+     */
+    private int block(String path) {
+        int index = Arrays.binarySearch(indexPaths, path);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @return a stream reading the file from the given offset, through positional reads so that
+     *         concurrent readers don't interfere with each other
+     */
+    private InputStream open(final long offset) {
+        InputStream in = new InputStream() {
+            private long position = offset;
+
+            public @Override int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            public @Override int read(byte[] b, int off, int len) throws IOException {
+                int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+        };
+        return new BufferedInputStream(in, 16 * 1024);
+    }
+
+    private static void write(DataOutput out, String path, Optional<Conflict> conflict)
+            throws IOException {
+        out.writeUTF(path);
+        out.writeBoolean(conflict.isPresent());
+        if (conflict.isPresent()) {
+            Conflict c = conflict.get();
+            c.getAncestor().writeTo(out);
+            c.getOurs().writeTo(out);
+            c.getTheirs().writeTo(out);
+        }
+    }
+
+    private static Entry<String, Optional<Conflict>> read(DataInput in) throws IOException {
+        final String path = in.readUTF();
+        Optional<Conflict> conflict = Optional.empty();
+        if (in.readBoolean()) {
+            ObjectId ancestor = ObjectId.readFrom(in);
+            ObjectId ours = ObjectId.readFrom(in);
+            ObjectId theirs = ObjectId.readFrom(in);
+            conflict = Optional.of(new Conflict(path, ancestor, ours, theirs));
+        }
+        return Maps.immutableEntry(path, conflict);
+    }
+}
@@ -0,0 +1,294 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class AttributeTreeBuilderTest {
+
+    private static final int LEAF_CAPACITY = 16;
+
+    private static final int FANOUT = 4;
+
+    private static final String ATTRIBUTE = "value";
+
+    private ObjectStore store;
+
+    private Random random;
+
+    public @Before void before() {
+        store = new HeapObjectStore();
+        store.open();
+        random = new Random(1);
+    }
+
+    public @After void after() {
+        store.close();
+    }
+
+    private AttributeTreeBuilder builder(RevTree original) {
+        return AttributeTreeBuilder.create(store, store, original, ATTRIBUTE, LEAF_CAPACITY,
+                FANOUT);
+    }
+
+    private Node node(int i, @Nullable Object value) {
+        ObjectId oid = RevObjectTestSupport.hashString("node-" + i);
+        Map<String, Object> atts = new HashMap<>();
+        atts.put(ATTRIBUTE, value);
+        Map<String, Object> extraData = new HashMap<>();
+        extraData.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts);
+        return RevObjectFactory.defaultInstance().createNode(String.valueOf(i), oid,
+                ObjectId.NULL, TYPE.FEATURE, new Envelope(i, i, i, i), extraData);
+    }
+
+    private List<Node> randomValues(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(node(i, Integer.valueOf(random.nextInt(10_000))));
+        }
+        return nodes;
+    }
+
+    private RevTree build(List<Node> nodes) {
+        AttributeTreeBuilder builder = builder(RevTree.EMPTY);
+        nodes.forEach(builder::put);
+        return builder.build();
+    }
+
+    private @Nullable Double key(Node node) {
+        return AttributeTreeBuilder.sortKey(IndexInfo.getMaterializedAttribute(ATTRIBUTE, node));
+    }
+
+    public @Test void testEmpty() {
+        RevTree tree = builder(RevTree.EMPTY).build();
+        assertSame(RevTree.EMPTY, tree);
+    }
+
+    public @Test void testStructure() {
+        final int size = 1000;
+        List<Node> nodes = randomValues(size);
+        nodes.add(node(size, null));
+        RevTree tree = build(nodes);
+
+        assertEquals(size + 1, tree.size());
+        assertEquals(new HashSet<>(nodes), RevObjectTestSupport.getTreeNodes(tree, store));
+        // the node with no value is in a subtree of its own, next to the 1000 other nodes one
+        final int depth = RevObjectTestSupport.depth(store, tree);
+        assertEquals(4, depth);
+        verify(tree, 0, depth);
+    }
+
+    private void verify(RevTree tree, int level, int depth) {
+        if (level == depth) {
+            assertEquals(0, tree.bucketsSize());
+            assertTrue(tree.featuresSize() <= LEAF_CAPACITY);
+            return;
+        }
+        assertTrue(tree.bucketsSize() <= FANOUT);
+        double previousMax = Double.NEGATIVE_INFINITY;
+        for (Bucket b : tree.getBuckets()) {
+            RevTree child = store.getTree(b.getObjectId());
+            Envelope keyRange = b.bounds().orElse(null);
+            for (Node n : RevObjectTestSupport.getTreeNodes(child, store)) {
+                Double key = key(n);
+                if (key != null) {
+                    assertTrue(keyRange.getMinX() <= key && keyRange.getMaxX() >= key);
+                }
+            }
+            if (keyRange != null) {
+                // buckets are sorted by key range
+                assertTrue(keyRange.getMinX() >= previousMax);
+                previousMax = keyRange.getMaxX();
+            }
+            verify(child, level + 1, depth);
+        }
+    }
+
+    public @Test void testDeterministic() {
+        List<Node> nodes = randomValues(500);
+        RevTree tree1 = build(nodes);
+        Collections.shuffle(nodes, random);
+        RevTree tree2 = build(nodes);
+        assertEquals(tree1.getId(), tree2.getId());
+    }
+
+    public @Test void testOriginal() {
+        List<Node> nodes = randomValues(500);
+        RevTree original = build(nodes);
+
+        AttributeTreeBuilder builder = builder(original);
+        List<Node> removed = nodes.subList(0, 100);
+        removed.forEach(n -> assertTrue(builder.remove(n)));
+        Node added = node(1000, Integer.valueOf(-1));
+        assertTrue(builder.put(added));
+        Node updated = node(100, Integer.valueOf(20_000));
+        assertTrue(builder.update(nodes.get(100), updated));
+        RevTree tree = builder.build();
+
+        List<Node> expected = new ArrayList<>(nodes.subList(101, nodes.size()));
+        expected.add(added);
+        expected.add(updated);
+        assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+        verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+    }
+
+    public @Test void testIncrementalUpdate() {
+        List<Node> nodes = randomValues(1000);
+        RevTree original = build(nodes);
+        final int depth = RevObjectTestSupport.depth(store, original);
+
+        AttributeTreeBuilder builder = builder(original);
+        List<Node> expected = new ArrayList<>(nodes);
+        for (int i = 0; i < 5; i++) {
+            Node added = node(1000 + i, Integer.valueOf(5_000 + i));
+            assertTrue(builder.put(added));
+            expected.add(added);
+        }
+        assertTrue(builder.remove(expected.remove(0)));
+        RevTree tree = builder.build();
+
+        assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+        verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+
+        // only the paths to the changed leaves are rebuilt
+        Set<RevTree> newTrees = RevObjectTestSupport.getAllTrees(store, tree);
+        newTrees.removeAll(RevObjectTestSupport.getAllTrees(store, original));
+        assertTrue(newTrees.size() < 3 * (depth + 2));
+    }
+
+    public @Test void testSuccessiveUpdates() {
+        List<Node> expected = randomValues(1000);
+        RevTree tree = build(expected);
+        int next = expected.size();
+        for (int round = 0; round < 10; round++) {
+            AttributeTreeBuilder builder = builder(tree);
+            for (int i = 0; i < 20; i++) {
+                Node removed = expected.remove(random.nextInt(expected.size()));
+                Node updated = node(Integer.parseInt(removed.getName()),
+                        Integer.valueOf(random.nextInt(10_000)));
+                builder.update(removed, updated);
+                expected.add(updated);
+                Node added = node(next++, Integer.valueOf(random.nextInt(10_000)));
+                builder.put(added);
+                expected.add(added);
+            }
+            Node noValue = node(next++, null);
+            builder.put(noValue);
+            expected.add(noValue);
+            tree = builder.build();
+
+            assertEquals(expected.size(), tree.size());
+            assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+            verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+        }
+    }
+
+    public @Test void testIntervals() {
+        final String end = "end";
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ObjectId oid = RevObjectTestSupport.hashString("node-" + i);
+            Map<String, Object> atts = new HashMap<>();
+            atts.put(ATTRIBUTE, Integer.valueOf(i));
+            // every 10th node is open ended
+            atts.put(end, i % 10 == 0 ? null : Integer.valueOf(i + 1000));
+            Map<String, Object> extraData = new HashMap<>();
+            extraData.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts);
+            nodes.add(RevObjectFactory.defaultInstance().createNode(String.valueOf(i), oid,
+                    ObjectId.NULL, TYPE.FEATURE, new Envelope(i, i, i, i), extraData));
+        }
+        AttributeTreeBuilder builder = AttributeTreeBuilder.create(store, store, RevTree.EMPTY,
+                ATTRIBUTE, end, LEAF_CAPACITY, FANOUT);
+        nodes.forEach(builder::put);
+        RevTree tree = builder.build();
+        assertEquals(nodes.size(), tree.size());
+
+        for (Bucket b : tree.getBuckets()) {
+            RevTree child = store.getTree(b.getObjectId());
+            Envelope keyRange = b.bounds().get();
+            for (Node n : RevObjectTestSupport.getTreeNodes(child, store)) {
+                double start = key(n).doubleValue();
+                Double endKey = AttributeTreeBuilder
+                        .sortKey(IndexInfo.getMaterializedAttribute(end, n));
+                double max = endKey == null ? Float.MAX_VALUE : endKey.doubleValue();
+                assertTrue(keyRange.getMinX() <= start && keyRange.getMaxX() >= max);
+            }
+        }
+    }
+
+    public @Test void testSortKey() {
+        assertNull(AttributeTreeBuilder.sortKey(null));
+        assertNull(AttributeTreeBuilder.sortKey(Double.NaN));
+        assertNull(AttributeTreeBuilder.sortKey(new Envelope()));
+
+        assertEquals(1d, AttributeTreeBuilder.sortKey(Integer.valueOf(1)), 0d);
+        assertEquals(1000d, AttributeTreeBuilder.sortKey(new Date(1000)), 0d);
+        assertEquals(0d, AttributeTreeBuilder.sortKey(Boolean.FALSE), 0d);
+        assertEquals(1d, AttributeTreeBuilder.sortKey(Boolean.TRUE), 0d);
+        assertEquals(Float.MAX_VALUE, AttributeTreeBuilder.sortKey(Double.MAX_VALUE), 0d);
+
+        List<String> values = new ArrayList<>();
+        values.add("");
+        values.add("a");
+        values.add("ab");
+        values.add("abc");
+        values.add("abcd");
+        values.add("abd");
+        values.add("b");
+        values.add("Z");
+        Collections.sort(values);
+        for (int i = 1; i < values.size(); i++) {
+            String v1 = values.get(i - 1);
+            String v2 = values.get(i);
+            assertTrue(v1 + " <= " + v2, AttributeTreeBuilder.sortKey(v1) <= AttributeTreeBuilder
+                    .sortKey(v2));
+        }
+        assertEquals(AttributeTreeBuilder.sortKey("abc"), AttributeTreeBuilder.sortKey("abcd"));
+    }
+
+    public @Test void testIsSupported() {
+        assertTrue(AttributeTreeBuilder.isSupported(Integer.class));
+        assertTrue(AttributeTreeBuilder.isSupported(Double.class));
+        assertTrue(AttributeTreeBuilder.isSupported(String.class));
+        assertTrue(AttributeTreeBuilder.isSupported(java.sql.Timestamp.class));
+        assertTrue(AttributeTreeBuilder.isSupported(Boolean.class));
+        assertFalse(AttributeTreeBuilder.isSupported(Envelope.class));
+        assertFalse(AttributeTreeBuilder.isSupported(Object.class));
+    }
+}
@@ -0,0 +1,255 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class STRTreeBuilderTest {
+
+    private static final int LEAF_CAPACITY = 16;
+
+    private static final int FANOUT = 4;
+
+    private ObjectStore store;
+
+    private Random random;
+
+    public @Before void before() {
+        store = new HeapObjectStore();
+        store.open();
+        random = new Random(1);
+    }
+
+    public @After void after() {
+        store.close();
+    }
+
+    private STRTreeBuilder builder(RevTree original) {
+        return STRTreeBuilder.create(store, store, original, LEAF_CAPACITY, FANOUT);
+    }
+
+    private Node node(int i, @Nullable Envelope bounds) {
+        ObjectId oid = RevObjectTestSupport.hashString("node-" + i);
+        return RevObjectFactory.defaultInstance().createNode(String.valueOf(i), oid,
+                ObjectId.NULL, TYPE.FEATURE, bounds, null);
+    }
+
+    private Node randomPoint(int i) {
+        double x = -180 + 360 * random.nextDouble();
+        double y = -90 + 180 * random.nextDouble();
+        return node(i, new Envelope(x, x, y, y));
+    }
+
+    private List<Node> randomPoints(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(randomPoint(i));
+        }
+        return nodes;
+    }
+
+    private RevTree build(List<Node> nodes) {
+        STRTreeBuilder builder = builder(RevTree.EMPTY);
+        nodes.forEach(builder::put);
+        return builder.build();
+    }
+
+    public @Test void testEmpty() {
+        RevTree tree = builder(RevTree.EMPTY).build();
+        assertSame(RevTree.EMPTY, tree);
+        assertTrue(store.exists(RevTree.EMPTY_TREE_ID));
+    }
+
+    public @Test void testSingleLeaf() {
+        RevTree tree = build(randomPoints(LEAF_CAPACITY));
+        assertEquals(LEAF_CAPACITY, tree.size());
+        assertEquals(0, tree.bucketsSize());
+        assertEquals(LEAF_CAPACITY, tree.featuresSize());
+    }
+
+    public @Test void testStructure() {
+        final int size = 1000;
+        List<Node> nodes = randomPoints(size);
+        nodes.add(node(size, null));
+        RevTree tree = build(nodes);
+
+        assertEquals(size + 1, tree.size());
+        assertEquals(new HashSet<>(nodes), RevObjectTestSupport.getTreeNodes(tree, store));
+
+        // 63 leaves, 16 parents, 4 grand parents and 1 great grand parent, next to a chain of
+        // trees of the same height for the node with no bounds, under the root
+        final int depth = RevObjectTestSupport.depth(store, tree);
+        assertEquals(4, depth);
+        verify(tree, 0, depth);
+    }
+
+    private void verify(RevTree tree, int level, int depth) {
+        if (level == depth) {
+            assertEquals(0, tree.bucketsSize());
+            assertTrue(tree.featuresSize() <= LEAF_CAPACITY);
+            return;
+        }
+        assertTrue(tree.bucketsSize() <= FANOUT);
+        long size = 0;
+        for (Bucket b : tree.getBuckets()) {
+            RevTree child = store.getTree(b.getObjectId());
+            size += child.size();
+            Envelope childBounds = new Envelope();
+            RevObjectTestSupport.getTreeNodes(child, store).forEach(n -> n.expand(childBounds));
+            assertTrue(childBounds.isNull() || b.bounds().get().contains(childBounds));
+            verify(child, level + 1, depth);
+        }
+        assertEquals(tree.size(), size);
+    }
+
+    public @Test void testDeterministic() {
+        List<Node> nodes = randomPoints(500);
+        RevTree tree1 = build(nodes);
+        Collections.shuffle(nodes, random);
+        RevTree tree2 = build(nodes);
+        assertEquals(tree1.getId(), tree2.getId());
+    }
+
+    public @Test void testOriginal() {
+        List<Node> nodes = randomPoints(500);
+        RevTree original = build(nodes);
+
+        STRTreeBuilder builder = builder(original);
+        List<Node> removed = nodes.subList(0, 100);
+        removed.forEach(n -> assertTrue(builder.remove(n)));
+        Node added = node(1000, new Envelope(1, 1, 1, 1));
+        assertTrue(builder.put(added));
+        Node old = nodes.get(100);
+        Node updated = RevObjectFactory.defaultInstance().createNode(old.getName(),
+                RevObjectTestSupport.hashString("updated"), ObjectId.NULL, TYPE.FEATURE,
+                new Envelope(2, 2, 2, 2), null);
+        assertTrue(builder.update(old, updated));
+        RevTree tree = builder.build();
+
+        List<Node> expected = new ArrayList<>(nodes.subList(101, nodes.size()));
+        expected.add(added);
+        expected.add(updated);
+        assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+        verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+    }
+
+    public @Test void testIncrementalUpdate() {
+        List<Node> nodes = randomPoints(1000);
+        RevTree original = build(nodes);
+        final int depth = RevObjectTestSupport.depth(store, original);
+
+        STRTreeBuilder builder = builder(original);
+        List<Node> expected = new ArrayList<>(nodes);
+        for (int i = 0; i < 5; i++) {
+            Node added = node(1000 + i, new Envelope(10 + i, 10 + i, 10, 10));
+            assertTrue(builder.put(added));
+            expected.add(added);
+        }
+        assertTrue(builder.remove(expected.remove(0)));
+        RevTree tree = builder.build();
+
+        assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+        verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+
+        // only the paths to the changed leaves are rebuilt
+        Set<RevTree> newTrees = RevObjectTestSupport.getAllTrees(store, tree);
+        newTrees.removeAll(RevObjectTestSupport.getAllTrees(store, original));
+        assertTrue(newTrees.size() < 3 * (depth + 2));
+    }
+
+    public @Test void testSuccessiveUpdates() {
+        List<Node> expected = randomPoints(1000);
+        RevTree tree = build(expected);
+        int next = expected.size();
+        for (int round = 0; round < 10; round++) {
+            STRTreeBuilder builder = builder(tree);
+            for (int i = 0; i < 20; i++) {
+                builder.remove(expected.remove(random.nextInt(expected.size())));
+                Node added = randomPoint(next++);
+                builder.put(added);
+                expected.add(added);
+            }
+            Node noBounds = node(next++, null);
+            builder.put(noBounds);
+            expected.add(noBounds);
+            tree = builder.build();
+
+            assertEquals(expected.size(), tree.size());
+            assertEquals(new HashSet<>(expected), RevObjectTestSupport.getTreeNodes(tree, store));
+            verify(tree, 0, RevObjectTestSupport.depth(store, tree));
+        }
+    }
+
+    public @Test void testRemoveNotWhereExpected() {
+        List<Node> nodes = randomPoints(500);
+        RevTree original = build(nodes);
+
+        // the node is looked up by name when it's not found by its bounds
+        STRTreeBuilder builder = builder(original);
+        builder.remove(node(0, new Envelope(1000, 1000, 1000, 1000)));
+        RevTree tree = builder.build();
+        assertEquals(new HashSet<>(nodes.subList(1, nodes.size())),
+                RevObjectTestSupport.getTreeNodes(tree, store));
+
+        STRTreeBuilder builder2 = builder(original);
+        builder2.remove(node(1000, new Envelope(1, 1, 1, 1)));
+        try {
+            builder2.build();
+            fail("Expected ISE");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("is not in the original tree"));
+        }
+    }
+
+    public @Test void testStrPartition() {
+        // a 4x4 grid of points, partitioned in groups of 4 makes 2x2 tiles
+        List<Envelope> points = new ArrayList<>();
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                points.add(new Envelope(x, x, y, y));
+            }
+        }
+        Collections.shuffle(points, random);
+        List<List<Envelope>> groups = STRTreeBuilder.strPartition(points, e -> e,
+                (e1, e2) -> e1.compareTo(e2), 4);
+        assertEquals(4, groups.size());
+        for (List<Envelope> group : groups) {
+            assertEquals(4, group.size());
+            Envelope bounds = new Envelope();
+            group.forEach(bounds::expandToInclude);
+            assertEquals(1d, bounds.getWidth(), 0d);
+            assertEquals(1d, bounds.getHeight(), 0d);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+public class QuadTreeDensityProfileTest {
+
+    private static final Envelope WGS84 = new Envelope(-180, 180, -90, 90);
+
+    private QuadTreeDensityProfile profile;
+
+    public @Before void before() {
+        profile = new QuadTreeDensityProfile(WGS84, 8);
+    }
+
+    private static Envelope point(double x, double y) {
+        return new Envelope(x, x, y, y);
+    }
+
+    public @Test void testIgnoresNullAndEmptyBounds() {
+        profile.add(null);
+        profile.add(new Envelope());
+        assertEquals(0, profile.size());
+        assertTrue(profile.getDataBounds().isNull());
+    }
+
+    public @Test void testUnpromotableAtRoot() {
+        // crosses the root quadrants boundaries
+        profile.add(new Envelope(-1, 1, -1, 1));
+        assertEquals(1, profile.size());
+        assertEquals(0, profile.occupiedQuadrants(0));
+        assertEquals(0, profile.promotableSize(0));
+    }
+
+    public @Test void testQuadrantCounts() {
+        profile.add(point(10, 10));
+        profile.add(point(100, 10));
+        profile.add(point(-10, -10));
+        assertEquals(3, profile.size());
+        assertEquals(2, profile.occupiedQuadrants(0));
+        assertEquals(2, profile.maxQuadrantSize(0));
+        assertEquals(3, profile.promotableSize(0));
+        assertEquals(3, profile.occupiedQuadrants(1));
+        assertEquals(1, profile.maxQuadrantSize(1));
+        assertEquals(new Envelope(-10, 100, -10, 10), profile.getDataBounds());
+    }
+
+    public @Test void testComputeMaxDepth() {
+        // 200 points on the same spot overflow a 128 capacity leaf at any sampled depth
+        for (int i = 0; i < 200; i++) {
+            profile.add(point(10, 10));
+        }
+        assertEquals(20, profile.computeMaxDepth(128, 20));
+
+        QuadTreeDensityProfile sparse = new QuadTreeDensityProfile(WGS84, 8);
+        for (int i = 0; i < 100; i++) {
+            sparse.add(point(10, 10));
+        }
+        // fits at depth index 0, plus one level of slack
+        assertEquals(2, sparse.computeMaxDepth(128, 20));
+    }
+
+    public @Test void testCapacity() {
+        assertEquals(128, QuadTreeDensityProfile.capacity(128, 32, 32));
+        assertEquals(128, QuadTreeDensityProfile.capacity(128, 32, 100));
+        assertEquals(512, QuadTreeDensityProfile.capacity(128, 32, 8));
+        assertEquals(QuadTreeDensityProfile.MAX_CAPACITY,
+                QuadTreeDensityProfile.capacity(128, 32, 1));
+    }
+
+    public @Test void testComputeLevelCapacities() {
+        // one point per quadrant at any depth, sparse all the way down
+        profile.add(point(10, 10));
+        profile.add(point(-100, 50));
+        int[] capacities = profile.computeLevelCapacities(128, 10);
+        assertEquals(11, capacities.length);
+        for (int c : capacities) {
+            assertEquals(QuadTreeDensityProfile.MAX_CAPACITY, c);
+        }
+    }
+
+    public @Test void testComputeMaxBounds() {
+        Envelope data = new Envelope(-10, 10, 20, 30);
+        Envelope bounds = QuadTreeDensityProfile.computeMaxBounds(data, WGS84, 0.25);
+        assertEquals(new Envelope(-15, 15, 17, 33), bounds);
+
+        assertEquals(WGS84, QuadTreeDensityProfile.computeMaxBounds(null, WGS84, 0.25));
+        assertEquals(WGS84, QuadTreeDensityProfile.computeMaxBounds(new Envelope(-200, 200,
+                -100, 100), WGS84, 0.25));
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import static org.locationtech.geogig.plumbing.index.IndexTestSupport.getPointFid;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.index.IndexTestSupport;
+import org.locationtech.geogig.porcelain.RemoveOp;
+import org.locationtech.geogig.porcelain.index.CreateQuadTree;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.locationtech.jts.geom.Envelope;
+
+public class DiffTreeSpatialIndexTest extends RepositoryTestCase {
+
+    private NodeRef worldPointsLayer;
+
+    private RevCommit commit1, commit2;
+
+    private final Envelope filter = new Envelope(-20, 20, -20, 20);
+
+    protected @Override void setUpInternal() throws Exception {
+        worldPointsLayer = IndexTestSupport.createWorldPointsLayer(getRepository());
+        add();
+        commit1 = commit("created world points layer");
+        repo.command(CreateQuadTree.class)//
+                .setTreeRefSpec(worldPointsLayer.path())//
+                .setGeometryAttributeName("geom")//
+                .setIndexHistory(true)//
+                .call();
+
+        // moved out of the filter
+        insertAndAdd(move(0, 0, 100, 50));
+        // moved into the filter
+        insertAndAdd(move(100, 40, 1, 1));
+        // moved within the filter
+        insertAndAdd(move(5, 5, 6, 6));
+        // moved outside the filter
+        insertAndAdd(move(-100, -40, -100, -45));
+        // changed attributes only
+        insertAndAdd(move(-5, -5, -5, -5));
+        repo.command(RemoveOp.class)
+                .addPathToRemove(NodeRef.appendChild(worldPointsLayer.path(), getPointFid(10, 10)))
+                .call();
+        add();
+        commit2 = commit("changes");
+    }
+
+    private Feature move(int x, int y, int newX, int newY) {
+        return feature(IndexTestSupport.featureType, getPointFid(x, y),
+                String.format("POINT(%d %d)", newX, newY), Double.valueOf(newX),
+                Double.valueOf(newY), "moved");
+    }
+
+    private DiffTree diff(boolean useIndex) {
+        return repo.command(DiffTree.class)//
+                .setOldVersion(commit1.getId().toString())//
+                .setNewVersion(commit2.getId().toString())//
+                .setBoundsFilter(filter)//
+                .setUseSpatialIndex(useIndex)//
+                .recordStats();
+    }
+
+    private Set<DiffEntry> entries(DiffTree diff) {
+        Set<DiffEntry> entries = new HashSet<>();
+        try (AutoCloseableIterator<DiffEntry> it = diff.call()) {
+            it.forEachRemaining(entries::add);
+        }
+        return entries;
+    }
+
+    @Test
+    public void testSameEntriesAsCanonicalDiff() {
+        Set<DiffEntry> expected = entries(diff(false));
+        Set<DiffEntry> actual = entries(diff(true));
+        assertEquals(5, expected.size());
+        assertEquals(expected, actual);
+
+        long removed = actual.stream().filter(e -> e.changeType() == ChangeType.REMOVED).count();
+        long modified = actual.stream().filter(e -> e.changeType() == ChangeType.MODIFIED)
+                .count();
+        assertEquals(1, removed);
+        assertEquals(4, modified);
+    }
+
+    @Test
+    public void testCanonicalBucketsNotTraversed() {
+        DiffTree canonical = diff(false);
+        entries(canonical);
+        assertTrue(canonical.getStats().get().allBuckets.get() > 0);
+
+        DiffTree indexed = diff(true);
+        entries(indexed);
+        assertEquals(0, indexed.getStats().get().allBuckets.get());
+        assertEquals(5, indexed.getStats().get().acceptedFeatures.get());
+    }
+}
@@ -0,0 +1,85 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DiffObjectCount;
+
+public class ChangeSummaryTest {
+
+    private ObjectId left, right;
+
+    public @Before void before() {
+        left = RevObjectTestSupport.hashString("left");
+        right = RevObjectTestSupport.hashString("right");
+    }
+
+    private DiffObjectCount count(long added, long removed, long changed) {
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(added);
+        count.removedFeatures(removed);
+        count.changedFeatures(changed);
+        count.changedTrees(1);
+        return count;
+    }
+
+    public @Test void testCount() {
+        SortedMap<String, DiffObjectCount> paths = new TreeMap<>();
+        paths.put("Points", count(1, 2, 3));
+        paths.put("Lines", count(4, 5, 6));
+        ChangeSummary summary = new ChangeSummary(left, right, paths);
+        DiffObjectCount total = summary.getCount();
+        assertEquals(5, total.getFeaturesAdded());
+        assertEquals(7, total.getFeaturesRemoved());
+        assertEquals(9, total.getFeaturesChanged());
+        assertEquals(2, total.getTreesChanged());
+        assertEquals(23, total.count());
+        assertTrue(summary.isSummaryOf(left, right));
+        assertFalse(summary.isSummaryOf(right, left));
+    }
+
+    public @Test void testEncodeDecode() {
+        SortedMap<String, DiffObjectCount> paths = new TreeMap<>();
+        paths.put("Points", count(1, 2, 3));
+        paths.put("roads/Lines", count(4, 5, 6));
+        ChangeSummary summary = new ChangeSummary(left, right, paths);
+
+        ChangeSummary decoded = ChangeSummary.decode(summary.encode()).get();
+        assertTrue(decoded.isSummaryOf(left, right));
+        assertEquals(paths.keySet(), decoded.getPaths().keySet());
+        assertEquals(count(1, 2, 3).toString(), decoded.getPaths().get("Points").toString());
+        assertEquals(count(4, 5, 6).toString(), decoded.getPaths().get("roads/Lines").toString());
+    }
+
+    public @Test void testEncodeDecodeEmpty() {
+        ChangeSummary summary = new ChangeSummary(left, left, new TreeMap<>());
+        ChangeSummary decoded = ChangeSummary.decode(summary.encode()).get();
+        assertTrue(decoded.isSummaryOf(left, left));
+        assertTrue(decoded.getPaths().isEmpty());
+        assertEquals(0, decoded.getCount().count());
+    }
+
+    public @Test void testMalformed() {
+        assertFalse(ChangeSummary.decode("").isPresent());
+        assertFalse(ChangeSummary.decode("garbage\nmore\tgarbage").isPresent());
+        String valid = new ChangeSummary(left, right, new TreeMap<>()).encode();
+        assertFalse(ChangeSummary.decode(valid + "Points\t1,2\n").isPresent());
+    }
+}
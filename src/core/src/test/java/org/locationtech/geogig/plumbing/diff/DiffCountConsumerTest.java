@@ -24,6 +24,7 @@ import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
 import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
 
 /**
@@ -175,6 +176,51 @@ public class DiffCountConsumerTest extends Assert {
         assertEquals(3, count(childrenFeatureTypesTree, newRoot).featureCount());
     }
 
+    @Test
+    public void testChildrenChildrenNestedTreesCached() {
+        RevTreeBuilder rootBuilder = RevTreeBuilder.builder(odb);
+        RevTree tree1 = createFeaturesTree("tree1", 10).build();
+        createFeatureTypesTree(rootBuilder, "tree1", tree1);
+        RevTree tree2 = createFeaturesTree("tree2", 5).build();
+        createFeatureTypesTree(rootBuilder, "tree2", tree2);
+        RevTree root = rootBuilder.build();
+        odb.put(root);
+
+        RevTreeBuilder childBuilder = CanonicalTreeBuilder.create(odb, tree1);
+        childBuilder.put(featureRef("tree1", 1000));
+        RevTree changed1 = childBuilder.build();
+        rootBuilder = CanonicalTreeBuilder.create(odb, root);
+        createFeatureTypesTree(rootBuilder, "tree1", changed1);
+        RevTree newRoot = rootBuilder.build();
+        odb.put(newRoot);
+
+        DiffResultCache cache = new DiffResultCache(new HeapBlobStore(), 10);
+        DiffCountConsumer consumer = new DiffCountConsumer(odb).setCache(cache);
+        new PreOrderDiffWalk(root, newRoot, odb, odb).walk(consumer);
+        DiffObjectCount expected = count(root, newRoot);
+        assertEquals(expected.toString(), consumer.get().toString());
+        assertEquals(1, consumer.get().getFeaturesAdded());
+        assertEquals(1, consumer.get().getTreesChanged());
+
+        // the changed subtree pair count has been memoized
+        assertEquals(1, cache.getCount(tree1.getId(), changed1.getId()).get().featureCount());
+
+        // a diff between other roots containing the same subtree pair reuses it
+        rootBuilder = CanonicalTreeBuilder.create(odb, newRoot);
+        childBuilder = CanonicalTreeBuilder.create(odb, tree2);
+        childBuilder.remove(featureRef("tree2", 2));
+        RevTree changed2 = childBuilder.build();
+        createFeatureTypesTree(rootBuilder, "tree2", changed2);
+        RevTree newRoot2 = rootBuilder.build();
+        odb.put(newRoot2);
+
+        consumer = new DiffCountConsumer(odb).setCache(cache);
+        new PreOrderDiffWalk(root, newRoot2, odb, odb).walk(consumer);
+        assertEquals(count(root, newRoot2).toString(), consumer.get().toString());
+        assertEquals(2, consumer.get().featureCount());
+        assertEquals(1, cache.getCount(tree2.getId(), changed2.getId()).get().featureCount());
+    }
+
     @Test
     public void testBucketBucketAdd() {
         RevTreeBuilder builder = CanonicalTreeBuilder.create(odb, bucketsFeatureTree);
@@ -0,0 +1,154 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+public class DiffCursorTest {
+
+    private ObjectDatabase db;
+
+    private RevTree left, right;
+
+    @Before
+    public void before() {
+        db = new HeapObjectDatabase();
+        db.open();
+        ObjectId metadataId = RevObjectTestSupport.hashString("fake");
+        left = RevObjectTestSupport.INSTANCE.createTreesTree(db, 3, 1000, metadataId);
+        right = RevObjectTestSupport.INSTANCE.createTreesTree(db, 4, 1500, metadataId);
+    }
+
+    /**
+     * Collects feature and tree (other than root) diffs in order
+     */
+    private static class CollectingConsumer extends PreOrderDiffWalk.AbstractConsumer {
+
+        final List<DiffEntry> entries = new ArrayList<>();
+
+        public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            entries.add(new DiffEntry(left, right));
+            return true;
+        }
+
+        public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if ((left == null ? right : left).getParentPath() != null) {
+                entries.add(new DiffEntry(left, right));
+            }
+            return true;
+        }
+    }
+
+    private List<DiffEntry> walk(@Nullable DiffCursor cursor, AtomicInteger featureCalls) {
+        CollectingConsumer collector = new CollectingConsumer();
+        PreOrderDiffWalk.Consumer consumer = collector;
+        if (cursor != null) {
+            consumer = new CursorFilteringDiffConsumer(cursor, consumer);
+        }
+        consumer = new PreOrderDiffWalk.ForwardingConsumer(consumer) {
+            public @Override boolean feature(NodeRef left, NodeRef right) {
+                featureCalls.incrementAndGet();
+                return super.feature(left, right);
+            }
+        };
+        final boolean preserveIterationOrder = true;
+        new PreOrderDiffWalk(left, right, db, db, preserveIterationOrder).walk(consumer);
+        return collector.entries;
+    }
+
+    @Test
+    public void testResume() {
+        final List<DiffEntry> full = walk(null, new AtomicInteger());
+        // 500 features added to each of the 3 common subtrees, plus a new subtree of 1500
+        assertEquals(3 * 500 + 1500 + 4, full.size());
+
+        final int size = full.size();
+        for (int index : new int[] { 0, 1, 2, 499, 500, 501, 1501, 2000, size - 2, size - 1 }) {
+            DiffCursor cursor = DiffCursor.after(full.get(index));
+            List<DiffEntry> resumed = walk(cursor, new AtomicInteger());
+            assertEquals(cursor.toString(), full.subList(index + 1, size), resumed);
+        }
+    }
+
+    @Test
+    public void testResumeAtTree() {
+        final List<DiffEntry> full = walk(null, new AtomicInteger());
+        for (int index = 0; index < full.size(); index++) {
+            if (isTree(full.get(index))) {
+                DiffCursor cursor = DiffCursor.after(full.get(index));
+                List<DiffEntry> resumed = walk(cursor, new AtomicInteger());
+                assertEquals(full.subList(index + 1, full.size()), resumed);
+            }
+        }
+    }
+
+    private boolean isTree(DiffEntry e) {
+        return (e.getNewObject() == null ? e.getOldObject() : e.getNewObject())
+                .getType() == TYPE.TREE;
+    }
+
+    @Test
+    public void testSkipsBucketsBeforeCursor() {
+        AtomicInteger allCalls = new AtomicInteger();
+        final List<DiffEntry> full = walk(null, allCalls);
+        AtomicInteger resumedCalls = new AtomicInteger();
+        walk(DiffCursor.after(full.get(full.size() - 2)), resumedCalls);
+        assertTrue(resumedCalls.get() < allCalls.get() / 10);
+    }
+
+    @Test
+    public void testBucketsDeeperThanCursorBuckets() {
+        final DiffCursor cursor = DiffCursor.of("roads/road.1");
+        final int[] cursorBuckets = CanonicalNodeNameOrder.allBuckets("road.1");
+        final NodeRef roads = NodeRef.tree("roads", RevTree.EMPTY_TREE_ID, ObjectId.NULL);
+        BucketIndex index = BucketIndex.root(RevTree.EMPTY, RevTree.EMPTY);
+        for (int bucket : cursorBuckets) {
+            index = index.append(bucket, RevTree.EMPTY, RevTree.EMPTY);
+        }
+        index = index.append(0, RevTree.EMPTY, RevTree.EMPTY);
+
+        CursorFilteringDiffConsumer consumer = new CursorFilteringDiffConsumer(cursor,
+                new PreOrderDiffWalk.AbstractConsumer() {
+                });
+        // on the cursor path, traversed so that its nodes are compared to the cursor by name
+        assertTrue(consumer.bucket(roads, roads, index, null, null));
+    }
+
+    @Test
+    public void testToken() {
+        DiffCursor cursor = DiffCursor.of("roads/road.1");
+        assertEquals(cursor, DiffCursor.parse(cursor.toToken()));
+        assertTrue(cursor.toToken().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidToken() {
+        DiffCursor.parse("not a token");
+    }
+}
@@ -0,0 +1,176 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class DiffResultCacheTest {
+
+    private HeapBlobStore blobStore;
+
+    private ObjectId left, right;
+
+    public @Before void before() {
+        blobStore = new HeapBlobStore();
+        left = RevObjectTestSupport.hashString("left");
+        right = RevObjectTestSupport.hashString("right");
+    }
+
+    private DiffObjectCount count(long added, long removed, long changed) {
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(added);
+        count.removedFeatures(removed);
+        count.changedFeatures(changed);
+        count.changedTrees(1);
+        return count;
+    }
+
+    public @Test void testCount() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 10);
+        assertFalse(cache.getCount(left, right).isPresent());
+        cache.putCount(left, right, count(1, 2, 3));
+        assertEquals(count(1, 2, 3).toString(), cache.getCount(left, right).get().toString());
+        // keys are ordered pairs
+        assertFalse(cache.getCount(right, left).isPresent());
+        assertFalse(cache.getBounds(left, right).isPresent());
+    }
+
+    public @Test void testBounds() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 10);
+        cache.putBounds(left, right,
+                DiffResultCache.summary(new Envelope(0, 1, 0, 1), new Envelope()), 1);
+        DiffSummary<Envelope, Envelope> bounds = cache.getBounds(left, right).get();
+        assertEquals(new Envelope(0, 1, 0, 1), bounds.getLeft());
+        assertTrue(bounds.getRight().isNull());
+        assertEquals(new Envelope(0, 1, 0, 1), bounds.getMergedResult().get());
+        assertFalse(cache.getCount(left, right).isPresent());
+    }
+
+    public @Test void testPersistence() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 10);
+        cache.putCount(left, right, count(1, 2, 3));
+        cache.putBounds(left, right,
+                DiffResultCache.summary(new Envelope(-1.5, 1, 0, 1), new Envelope(2, 3, 2, 3)), 1);
+        cache.putBounds(right, left,
+                DiffResultCache.summary(new Envelope(), new Envelope(2, 3, 2, 3)), 1);
+        assertFalse(blobStore.getBlob(DiffResultCache.BLOB_NAME).isPresent());
+        cache.flush();
+        assertTrue(blobStore.getBlob(DiffResultCache.BLOB_NAME).isPresent());
+
+        DiffResultCache loaded = new DiffResultCache(blobStore, 10);
+        assertEquals(count(1, 2, 3).toString(), loaded.getCount(left, right).get().toString());
+        DiffSummary<Envelope, Envelope> bounds = loaded.getBounds(left, right).get();
+        assertEquals(new Envelope(-1.5, 1, 0, 1), bounds.getLeft());
+        assertEquals(new Envelope(2, 3, 2, 3), bounds.getRight());
+        bounds = loaded.getBounds(right, left).get();
+        assertTrue(bounds.getLeft().isNull());
+        assertEquals(new Envelope(2, 3, 2, 3), bounds.getRight());
+        assertFalse(loaded.getCount(right, left).isPresent());
+    }
+
+    public @Test void testFlushWritesTipLayer() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 1000);
+        cache.putCount(left, right, count(1, 2, 3));
+        cache.flush();
+        final byte[] base = blobStore.getBlob(DiffResultCache.BLOB_NAME).get();
+        assertFalse(blobStore.getBlob(DiffResultCache.TIP_BLOB_NAME).isPresent());
+
+        cache.putCount(right, left, count(3, 2, 1));
+        cache.flush();
+        assertArrayEquals(base, blobStore.getBlob(DiffResultCache.BLOB_NAME).get());
+        assertTrue(blobStore.getBlob(DiffResultCache.TIP_BLOB_NAME).isPresent());
+
+        DiffResultCache loaded = new DiffResultCache(blobStore, 1000);
+        assertEquals(count(1, 2, 3).toString(), loaded.getCount(left, right).get().toString());
+        assertEquals(count(3, 2, 1).toString(), loaded.getCount(right, left).get().toString());
+    }
+
+    public @Test void testTipLayerMergedIntoBase() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 1000);
+        cache.putCount(left, right, count(1, 2, 3));
+        cache.flush();
+        final byte[] base = blobStore.getBlob(DiffResultCache.BLOB_NAME).get();
+        for (int i = 0; i <= 100; i++) {
+            ObjectId other = RevObjectTestSupport.hashString("other-" + i);
+            cache.putCount(left, other, count(i, 0, 0));
+            cache.flush();
+        }
+        // the tip grew past a tenth of the cache size on the last flush
+        assertFalse(Arrays.equals(base, blobStore.getBlob(DiffResultCache.BLOB_NAME).get()));
+        assertFalse(blobStore.getBlob(DiffResultCache.TIP_BLOB_NAME).isPresent());
+
+        DiffResultCache loaded = new DiffResultCache(blobStore, 1000);
+        assertTrue(loaded.getCount(left, right).isPresent());
+        for (int i = 0; i <= 100; i++) {
+            ObjectId other = RevObjectTestSupport.hashString("other-" + i);
+            assertEquals(count(i, 0, 0).toString(), loaded.getCount(left, other).get().toString());
+        }
+    }
+
+    public @Test void testCheapResultsNotPersisted() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 10, 100);
+        ObjectId other = RevObjectTestSupport.hashString("other");
+        cache.putCount(left, right, count(1, 2, 3));
+        cache.putBounds(right, left,
+                DiffResultCache.summary(new Envelope(0, 1, 0, 1), new Envelope()), 99);
+        cache.putCount(left, other, count(50, 0, 50));
+        // all of them are reused from memory
+        assertTrue(cache.getCount(left, right).isPresent());
+        assertTrue(cache.getBounds(right, left).isPresent());
+        cache.flush();
+
+        DiffResultCache loaded = new DiffResultCache(blobStore, 10, 100);
+        assertFalse(loaded.getCount(left, right).isPresent());
+        assertFalse(loaded.getBounds(right, left).isPresent());
+        assertEquals(count(50, 0, 50).toString(), loaded.getCount(left, other).get().toString());
+    }
+
+    public @Test void testNothingToPersist() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 10, 100);
+        cache.putCount(left, right, count(1, 2, 3));
+        cache.flush();
+        assertFalse(blobStore.getBlob(DiffResultCache.BLOB_NAME).isPresent());
+    }
+
+    public @Test void testLeastRecentlyUsedEviction() {
+        DiffResultCache cache = new DiffResultCache(blobStore, 2);
+        ObjectId other = RevObjectTestSupport.hashString("other");
+        cache.putCount(left, right, count(1, 0, 0));
+        cache.putCount(right, left, count(0, 1, 0));
+        // access left/right so that right/left is the least recently used one
+        assertTrue(cache.getCount(left, right).isPresent());
+        cache.putCount(left, other, count(0, 0, 1));
+
+        assertTrue(cache.getCount(left, right).isPresent());
+        assertTrue(cache.getCount(left, other).isPresent());
+        assertFalse(cache.getCount(right, left).isPresent());
+    }
+
+    public @Test void testMalformedBlob() {
+        blobStore.putBlob(DiffResultCache.BLOB_NAME, "garbage\nmore\tgarbage\t-".getBytes());
+        DiffResultCache cache = new DiffResultCache(blobStore, 10);
+        assertFalse(cache.getCount(left, right).isPresent());
+        cache.putCount(left, right, count(1, 2, 3));
+        assertTrue(cache.getCount(left, right).isPresent());
+    }
+}
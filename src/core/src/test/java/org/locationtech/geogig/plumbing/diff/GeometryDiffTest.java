@@ -21,6 +21,7 @@ import java.util.Random;
 import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.WKTReader;
 
 import com.google.common.collect.Lists;
@@ -84,6 +85,50 @@ public class GeometryDiffTest {
         assertNull(resultingGeom);
     }
 
+    @Test
+    public void testTolerance() throws Exception {
+        Geometry oldGeom = new WKTReader()
+                .read("LINESTRING (40 40, 20 45, 45 30, 40 40, 10 10)");
+        Geometry newGeom = new WKTReader()
+                .read("LINESTRING (40 40, 20.0001 45, 45 30.0001, 40 40, 11 11)");
+        LCSGeometryDiffImpl diff = new LCSGeometryDiffImpl(oldGeom, newGeom);
+        assertEquals("0 point(s) deleted, 0 new point(s) added, 3 point(s) moved",
+                diff.toString());
+
+        LCSGeometryDiffImpl toleranceDiff = new LCSGeometryDiffImpl(oldGeom, newGeom, 0.001);
+        assertEquals("0 point(s) deleted, 0 new point(s) added, 1 point(s) moved",
+                toleranceDiff.toString());
+        // the tolerance doesn't affect the patch
+        assertEquals(diff, toleranceDiff);
+        assertEquals(newGeom, toleranceDiff.applyOn(oldGeom));
+    }
+
+    @Test
+    public void testLargeGeometry() throws Exception {
+        final int numCoords = 100_000;
+        Coordinate[] oldCoords = new Coordinate[numCoords];
+        Coordinate[] newCoords = new Coordinate[numCoords];
+        for (int i = 0; i < numCoords; i++) {
+            oldCoords[i] = new Coordinate(i, i % 1000);
+            newCoords[i] = new Coordinate(oldCoords[i]);
+        }
+        newCoords[10].y = -1;
+        newCoords[50_000].y = -1;
+        newCoords[99_000].y = -1;
+        GeometryFactory gf = new GeometryFactory();
+        Geometry oldGeom = gf.createLineString(oldCoords);
+        Geometry newGeom = gf.createLineString(newCoords);
+
+        LCSGeometryDiffImpl diff = new LCSGeometryDiffImpl(oldGeom, newGeom);
+        assertEquals("0 point(s) deleted, 0 new point(s) added, 3 point(s) moved",
+                diff.toString());
+        LCSGeometryDiffImpl deserializedDiff = new LCSGeometryDiffImpl(diff.asText());
+        assertEquals(diff, deserializedDiff);
+        assertTrue(diff.asText().length() < 1000);
+        assertTrue(newGeom.equalsExact(diff.applyOn(oldGeom)));
+        assertTrue(oldGeom.equalsExact(diff.reversed().applyOn(newGeom)));
+    }
+
     @Test
     public void testDoubleReverseEquality() throws Exception {
         Geometry oldGeom = new WKTReader().read(
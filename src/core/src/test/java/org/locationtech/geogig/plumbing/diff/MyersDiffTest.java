@@ -0,0 +1,71 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.plumbing.diff.DiffMatchPatch.Operation;
+import org.locationtech.geogig.plumbing.diff.MyersDiff.Edit;
+
+public class MyersDiffTest {
+
+    private List<Edit> diff(String a, String b, long maxSteps) {
+        return MyersDiff.diff(a.length(), b.length(), (i, j) -> a.charAt(i) == b.charAt(j),
+                maxSteps);
+    }
+
+    /**
+     * Applies the edits to {@code a}, checking deleted and equal runs are taken in order
+     */
+    private String apply(String a, String b, List<Edit> edits) {
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+        for (Edit e : edits) {
+            if (e.operation == Operation.INSERT) {
+                sb.append(b, e.start, e.end());
+            } else {
+                assertEquals(index, e.start);
+                if (e.operation == Operation.EQUAL) {
+                    sb.append(a, e.start, e.end());
+                }
+                index = e.end();
+            }
+        }
+        assertEquals(a.length(), index);
+        return sb.toString();
+    }
+
+    private int edited(List<Edit> edits) {
+        return edits.stream().filter(e -> e.operation != Operation.EQUAL)
+                .mapToInt(e -> e.length).sum();
+    }
+
+    public @Test void testShortestEditScript() {
+        String a = "ABCABBA", b = "CBABAC";
+        List<Edit> edits = diff(a, b, Long.MAX_VALUE);
+        assertEquals(b, apply(a, b, edits));
+        assertEquals(5, edited(edits));
+    }
+
+    public @Test void testStepBudgetExhausted() {
+        String a = "xxABCABBAyyDEFzz", b = "xxCBABACyyFEDzz";
+        List<Edit> full = diff(a, b, Long.MAX_VALUE);
+        List<Edit> limited = diff(a, b, 1);
+        assertEquals(b, apply(a, b, limited));
+        // the common prefix and suffix are still found
+        assertEquals(Operation.EQUAL, limited.get(0).operation);
+        assertEquals(Operation.EQUAL, limited.get(limited.size() - 1).operation);
+        assertEquals(a.length() + b.length() - 8, edited(limited));
+        assertEquals(edited(full), edited(diff(a, b, 1_000)));
+    }
+}
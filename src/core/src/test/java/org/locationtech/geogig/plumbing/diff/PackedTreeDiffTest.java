@@ -0,0 +1,191 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.PackedTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.model.impl.STRTreeBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class PackedTreeDiffTest {
+
+    private ObjectStore store;
+
+    private Random random;
+
+    public @Before void before() {
+        store = new HeapObjectStore();
+        store.open();
+        random = new Random(1);
+    }
+
+    public @After void after() {
+        store.close();
+    }
+
+    private STRTreeBuilder builder(RevTree original) {
+        return STRTreeBuilder.create(store, store, original, 16, 4);
+    }
+
+    private Node node(int i, String version) {
+        double x = -180 + 360 * random.nextDouble();
+        double y = -90 + 180 * random.nextDouble();
+        ObjectId oid = RevObjectTestSupport.hashString("node-" + i + version);
+        return RevObjectFactory.defaultInstance().createNode(String.valueOf(i), oid,
+                ObjectId.NULL, TYPE.FEATURE, new Envelope(x, x, y, y), null);
+    }
+
+    private List<Node> nodes(int from, int to) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            nodes.add(node(i, ""));
+        }
+        return nodes;
+    }
+
+    private RevTree build(RevTree original, List<Node> puts, List<Node> removes) {
+        STRTreeBuilder builder = builder(original);
+        removes.forEach(builder::remove);
+        puts.forEach(builder::put);
+        return builder.build();
+    }
+
+    /**
+     * Walks the diff and collects the removed, added, and changed nodes by name, as
+     * {@code [left, right]} pairs
+     */
+    private Map<String, Node[]> diff(RevTree left, RevTree right) {
+        Map<String, Node[]> changes = new ConcurrentHashMap<>();
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(left, right, store, store);
+        walk.nodeOrder(PackedTreeBuilder.nodeOrdering());
+        walk.walk(new PreOrderDiffWalk.AbstractConsumer() {
+            public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                String name = (left == null ? right : left).name();
+                Node[] pair = new Node[] { left == null ? null : left.getNode(),
+                        right == null ? null : right.getNode() };
+                assertEquals(null, changes.put(name, pair));
+                return true;
+            }
+        });
+        return changes;
+    }
+
+    public @Test void testNoBucketPairing() {
+        assertFalse(PackedTreeBuilder.nodeOrdering().supportsBucketPairing());
+    }
+
+    public @Test void testIncrementalChanges() {
+        final List<Node> nodes = nodes(0, 1000);
+        final RevTree left = build(RevTree.EMPTY, nodes, new ArrayList<>());
+
+        List<Node> removed = nodes.subList(0, 10);
+        List<Node> added = nodes(1000, 1010);
+        List<Node> changed = new ArrayList<>();
+        for (int i = 10; i < 15; i++) {
+            changed.add(node(i, "changed"));
+        }
+        STRTreeBuilder builder = builder(left);
+        removed.forEach(builder::remove);
+        added.forEach(builder::put);
+        for (int i = 0; i < changed.size(); i++) {
+            builder.update(nodes.get(10 + i), changed.get(i));
+        }
+        final RevTree right = builder.build();
+
+        Map<String, Node[]> changes = diff(left, right);
+        assertEquals(25, changes.size());
+        removed.forEach(n -> assertEquals(n, changes.get(n.getName())[0]));
+        removed.forEach(n -> assertEquals(null, changes.get(n.getName())[1]));
+        added.forEach(n -> assertEquals(null, changes.get(n.getName())[0]));
+        added.forEach(n -> assertEquals(n, changes.get(n.getName())[1]));
+        for (int i = 0; i < changed.size(); i++) {
+            Node[] pair = changes.get(changed.get(i).getName());
+            assertEquals(nodes.get(10 + i), pair[0]);
+            assertEquals(changed.get(i), pair[1]);
+        }
+
+        Map<String, Node[]> reverse = diff(right, left);
+        assertEquals(25, reverse.size());
+        removed.forEach(n -> assertEquals(n, reverse.get(n.getName())[1]));
+    }
+
+    public @Test void testSameNodesDifferentStructure() {
+        final List<Node> nodes = nodes(0, 1000);
+
+        // adding nodes to a tree leaves them in different leaf trees than a bulk load
+        List<Node> some = nodes.subList(0, 100);
+        RevTree removed = build(RevTree.EMPTY, nodes.subList(100, 1000), new ArrayList<>());
+        RevTree left = build(removed, some, new ArrayList<>());
+        RevTree right = build(RevTree.EMPTY, nodes, new ArrayList<>());
+        assertNotEquals(left.getId(), right.getId());
+
+        assertTrue(diff(left, right).isEmpty());
+        assertEquals(100, diff(removed, right).size());
+    }
+
+    public @Test void testLeafAgainstBuckets() {
+        final List<Node> nodes = nodes(0, 100);
+        final RevTree left = build(RevTree.EMPTY, nodes.subList(0, 10), new ArrayList<>());
+        final RevTree right = build(RevTree.EMPTY, nodes, new ArrayList<>());
+        assertEquals(0, left.bucketsSize());
+        assertTrue(right.bucketsSize() > 0);
+
+        Map<String, Node[]> changes = diff(left, right);
+        assertEquals(90, changes.size());
+        nodes.subList(10, 100).forEach(n -> assertEquals(n, changes.get(n.getName())[1]));
+        assertEquals(90, diff(right, left).size());
+    }
+
+    public @Test void testRightTrees() {
+        final List<Node> nodes = nodes(0, 1000);
+        final RevTree left = build(RevTree.EMPTY, nodes, new ArrayList<>());
+        final RevTree right = build(left, nodes(1000, 1005), nodes.subList(0, 5));
+
+        Set<RevTree> allRight = RevObjectTestSupport.getAllTrees(store, right);
+        Set<RevTree> newTrees = RevObjectTestSupport.getAllTrees(store, right);
+        newTrees.removeAll(RevObjectTestSupport.getAllTrees(store, left));
+
+        Set<ObjectId> allRightIds = allRight.stream().map(RevTree::getId).collect(toSet());
+        Set<ObjectId> rightTrees = new PackedTreeDiff(store, store).diff(left, right)
+                .getRightTrees();
+        newTrees.forEach(t -> assertTrue(rightTrees.contains(t.getId())));
+        assertTrue(allRightIds.containsAll(rightTrees));
+        assertTrue(rightTrees.size() < allRightIds.size());
+
+        Set<ObjectId> all = new PackedTreeDiff(store, store).diff(RevTree.EMPTY, right)
+                .getRightTrees();
+        assertEquals(allRight.size(), all.size());
+    }
+}
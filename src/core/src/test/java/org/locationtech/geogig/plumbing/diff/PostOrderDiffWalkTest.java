@@ -10,7 +10,9 @@
 package org.locationtech.geogig.plumbing.diff;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.stream.Collectors.toSet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -18,6 +20,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -293,6 +297,55 @@ public class PostOrderDiffWalkTest {
         walkTree(origRight.getId(), rightSource);
     }
 
+    @Test
+    public void testParallelWalk() {
+        final RevTree origLeft = RevTree.EMPTY;
+        final RevTree origRight = RevObjectTestSupport.INSTANCE.createFeaturesTree(leftSource, "f",
+                CanonicalNodeNameOrder.normalizedSizeLimit(0)
+                        * CanonicalNodeNameOrder.maxBucketsForLevel(0));
+
+        TestConsumer sequential = new TestConsumer();
+        new PostOrderDiffWalk(origLeft, origRight, leftSource, leftSource).walk(sequential);
+
+        final List<Bounded> reported = Collections.synchronizedList(new ArrayList<>());
+        final List<BucketIndex> buckets = Collections.synchronizedList(new ArrayList<>());
+        Consumer threadSafeConsumer = new Consumer() {
+            public @Override void tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+                reported.add(right);
+            }
+
+            public @Override void feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                reported.add(right);
+            }
+
+            public @Override void bucket(@Nullable NodeRef leftParent,
+                    @Nullable NodeRef rightParent, BucketIndex bucketIndex, @Nullable Bucket left,
+                    @Nullable Bucket right) {
+                reported.add(right);
+                buckets.add(bucketIndex);
+            }
+        };
+        new PostOrderDiffWalk(origLeft, origRight, leftSource, leftSource)//
+                .threadSafeConsumer(true)//
+                .walk(threadSafeConsumer);
+
+        assertEquals(sequential.orderedRight.size(), reported.size());
+        assertEquals(sequential.orderedRight.stream().collect(toSet()),
+                reported.stream().collect(toSet()));
+        // the root tree goes last
+        assertEquals(nodeFor(origRight), reported.get(reported.size() - 1));
+        // and no bucket is reported before any of its descendants
+        for (int i = 0; i < buckets.size(); i++) {
+            int[] parent = buckets.get(i).getIndexPath();
+            for (int j = i + 1; j < buckets.size(); j++) {
+                int[] child = buckets.get(j).getIndexPath();
+                boolean isDescendant = child.length > parent.length
+                        && Arrays.equals(parent, Arrays.copyOf(child, parent.length));
+                assertFalse(isDescendant);
+            }
+        }
+    }
+
     private void walkTree(ObjectId treeId, ObjectDatabase source) {
         assertTrue(source.exists(treeId));
         RevTree tree = source.getTree(treeId);
@@ -1036,6 +1036,24 @@ public class PreOrderDiffWalkTest {
         assertEquals(3, abortedAtCount);
     }
 
+    @Test
+    public void testBucketPrefetching() {
+        RevTree left = RevObjectTestSupport.INSTANCE.createFeaturesTree(leftSource, "f", 20_000, 0,
+                true);
+        RevTree right = RevObjectTestSupport.INSTANCE.createFeaturesTree(rightSource, "f", 30_000,
+                10_000, true);
+        assertTrue(left.bucketsSize() > 0);
+        assertTrue(right.bucketsSize() > 0);
+
+        // no prefetching, a budget too small to prefetch a whole level, and the default one
+        for (int maxTrees : new int[] { 0, 4, 1024 }) {
+            FeatureCountingConsumer counter = new FeatureCountingConsumer();
+            newVisitor(left, right).prefetch(maxTrees).walk(counter);
+            // 10k removed, 10k changed (random ids), and 20k added
+            assertEquals("prefetch: " + maxTrees, 40_000, counter.count.get());
+        }
+    }
+
     private static final class FeatureCountingConsumer extends PreOrderDiffWalk.AbstractConsumer {
 
         final AtomicLong count = new AtomicLong();
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.plumbing.index;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -128,6 +129,37 @@ public class BuildFullHistoryIndexOpTest extends RepositoryTestCase {
         IndexTestSupport.verifyIndex(repo.context(), indexedTreeId.get(), canonicalFeatureTreeId);
     }
 
+    @Test
+    public void testRebuildRecomputesAdaptiveParams() {
+        final int[] staleCapacities = { 1, 1 };
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(IndexInfo.MD_QUAD_ADAPTIVE, Boolean.TRUE);
+        metadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, new Envelope(-180, 180, -90, 90));
+        metadata.put(IndexInfo.MD_QUAD_BOUNDS_LIMIT, new Envelope(-180, 180, -90, 90));
+        metadata.put(IndexInfo.MD_QUAD_MAX_DEPTH, Integer.valueOf(1));
+        metadata.put(IndexInfo.MD_QUAD_LEVEL_CAPACITY, staleCapacities);
+        indexdb.createIndexInfo(worldPointsLayer.getName(), "geom", IndexType.QUADTREE, metadata);
+
+        int treesUpdated = repo.command(BuildFullHistoryIndexOp.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAttributeName("geom")//
+                .call();
+        assertEquals(4, treesUpdated);
+
+        indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "geom").get();
+        assertTrue(IndexInfo.isAdaptive(indexInfo));
+        int[] capacities = IndexInfo.getLevelCapacities(indexInfo);
+        assertFalse(Arrays.equals(staleCapacities, capacities));
+        assertEquals(IndexInfo.getMaxDepth(indexInfo).intValue() + 1, capacities.length);
+
+        ObjectId canonicalFeatureTreeId = repo.command(ResolveTreeish.class)
+                .setTreeish("HEAD:" + worldPointsLayer.getName()).call().get();
+        Optional<ObjectId> indexedTreeId = indexdb.resolveIndexedTree(indexInfo,
+                canonicalFeatureTreeId);
+        assertTrue(indexedTreeId.isPresent());
+        IndexTestSupport.verifyIndex(repo.context(), indexedTreeId.get(), canonicalFeatureTreeId);
+    }
+
     @Test
     public void testBuildFullHistoryNoAttributeName() {
         indexInfo = createIndex("x", "xystr");
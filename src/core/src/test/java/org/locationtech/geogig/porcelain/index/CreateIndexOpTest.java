@@ -16,6 +16,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -114,6 +115,87 @@ public class CreateIndexOpTest extends RepositoryTestCase {
         IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId());
     }
 
+    @Test
+    public void testCreateAdaptiveQuadTree() {
+        Index index = repo.command(CreateQuadTree.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setGeometryAttributeName("geom")//
+                .setBounds(new Envelope(-180, 180, -90, 90))//
+                .setAdaptive(true)//
+                .call();
+
+        IndexInfo indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "geom").get();
+        assertEquals(indexInfo, index.info());
+        assertTrue(IndexInfo.isAdaptive(indexInfo));
+        assertNotNull(IndexInfo.getMaxDepth(indexInfo));
+        int[] capacities = IndexInfo.getLevelCapacities(indexInfo);
+        assertNotNull(capacities);
+        assertEquals(IndexInfo.getMaxDepth(indexInfo).intValue() + 1, capacities.length);
+        Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
+        assertTrue(new Envelope(-180, 180, -90, 90).contains(maxBounds));
+
+        IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId());
+    }
+
+    @Test
+    public void testCreateRTree() {
+        Index index = repo.command(CreateRTree.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setGeometryAttributeName("geom")//
+                .setLeafCapacity(16)//
+                .setFanout(4)//
+                .call();
+
+        IndexInfo indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "geom").get();
+        assertEquals(indexInfo, index.info());
+        assertEquals(IndexType.RTREE, indexInfo.getIndexType());
+        assertEquals(Integer.valueOf(16), IndexInfo.getLeafCapacity(indexInfo));
+        assertEquals(Integer.valueOf(4), IndexInfo.getFanout(indexInfo));
+        assertNull(IndexInfo.getMaxBounds(indexInfo));
+
+        IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId());
+    }
+
+    @Test
+    public void testCreateAttributeIndex() {
+        Index index = repo.command(CreateAttributeIndex.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAttributeName("x")//
+                .setLeafCapacity(16)//
+                .setFanout(4)//
+                .call();
+
+        IndexInfo indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "x").get();
+        assertEquals(indexInfo, index.info());
+        assertEquals(IndexType.ATTRIBUTE, indexInfo.getIndexType());
+        assertEquals(Integer.valueOf(16), IndexInfo.getLeafCapacity(indexInfo));
+        assertEquals(Integer.valueOf(4), IndexInfo.getFanout(indexInfo));
+        assertEquals(Collections.singleton("x"), IndexInfo.getMaterializedAttributeNames(indexInfo));
+
+        IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId(),
+                "x");
+    }
+
+    @Test
+    public void testCreateAttributeIndexGeometryAttribute() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("property geom is a geometry attribute");
+        repo.command(CreateAttributeIndex.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAttributeName("geom")//
+                .call();
+    }
+
+    @Test
+    public void testCreateTemporalIndexNonDateAttribute() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("property x of type Double is not a date/time attribute");
+        repo.command(CreateTemporalIndex.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAttributeName("x")//
+                .call();
+    }
+
     public @Test void testAbortsCleanly() {
 
         RuntimeException expected = new RuntimeException("expected");
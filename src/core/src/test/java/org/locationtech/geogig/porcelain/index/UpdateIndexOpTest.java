@@ -268,6 +268,32 @@ public class UpdateIndexOpTest extends RepositoryTestCase {
         IndexTestSupport.verifyIndex(repo.context(), indexedTreeId.get(), canonicalFeatureTreeId);
     }
 
+    @Test
+    public void testSwitchAdaptiveKeepsUserBounds() {
+        final Envelope userBounds = new Envelope(-60, 60, -45, 45);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, userBounds);
+        indexdb.createIndexInfo(worldPointsLayer.getName(), "geom", IndexType.QUADTREE, metadata);
+
+        repo.command(UpdateIndexOp.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAdaptive(true)//
+                .call();
+        IndexInfo indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "geom").get();
+        assertTrue(IndexInfo.isAdaptive(indexInfo));
+        assertTrue(userBounds.contains(IndexInfo.getMaxBounds(indexInfo)));
+        assertEquals(userBounds, indexInfo.getMetadata().get(IndexInfo.MD_QUAD_BOUNDS_LIMIT));
+
+        repo.command(UpdateIndexOp.class)//
+                .setTreeRefSpec(worldPointsLayer.getName())//
+                .setAdaptive(false)//
+                .call();
+        indexInfo = indexdb.getIndexInfo(worldPointsLayer.getName(), "geom").get();
+        assertFalse(IndexInfo.isAdaptive(indexInfo));
+        assertEquals(userBounds, IndexInfo.getMaxBounds(indexInfo));
+        assertFalse(indexInfo.getMetadata().containsKey(IndexInfo.MD_QUAD_BOUNDS_LIMIT));
+    }
+
     @Test
     public void testUpdateIndexAttributesNoFlagSpecified() {
         createIndex("x");
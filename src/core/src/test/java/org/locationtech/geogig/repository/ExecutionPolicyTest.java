@@ -0,0 +1,175 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.memory.HeapConfigDatabase;
+
+public class ExecutionPolicyTest {
+
+    private ExecutionPolicy policy;
+
+    public @After void after() {
+        if (policy != null) {
+            policy.shutdown();
+        }
+    }
+
+    /**
+     * Sums up the range splitting it in halves, recording the threads it ran on
+     */
+    @SuppressWarnings("serial")
+    private static class SumTask extends RecursiveTask<Long> {
+
+        private final int from, to;
+
+        private final Set<String> threads;
+
+        SumTask(int from, int to, Set<String> threads) {
+            this.from = from;
+            this.to = to;
+            this.threads = threads;
+        }
+
+        protected @Override Long compute() {
+            threads.add(Thread.currentThread().getName());
+            if (to - from <= 10) {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            int mid = (from + to) >>> 1;
+            SumTask left = new SumTask(from, mid, threads);
+            SumTask right = new SumTask(mid, to, threads);
+            invokeAll(left, right);
+            return left.join() + right.join();
+        }
+    }
+
+    public @Test void testInvoke() {
+        policy = ExecutionPolicy.create("test", 4, 2, false);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        assertEquals(Long.valueOf(49_995_000L), policy.invoke(new SumTask(0, 10_000, threads)));
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("test-")));
+    }
+
+    public @Test void testOperationRunsInASingleLane() {
+        policy = ExecutionPolicy.create("test", 4, 2, false);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        policy.invoke(new SumTask(0, 100_000, threads));
+        // thread names are <policy name>-<lane>-<worker index>
+        Set<String> lanes = ConcurrentHashMap.newKeySet();
+        threads.forEach(name -> lanes.add(name.substring(0, name.lastIndexOf('-'))));
+        assertEquals(threads.toString(), 1, lanes.size());
+    }
+
+    public @Test void testConcurrentOperationsUseDifferentLanes() throws Exception {
+        policy = ExecutionPolicy.create("test", 2, 1, false);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<ForkJoinPool> blockedPool = new AtomicReference<>();
+
+        Thread longRunning = new Thread(() -> policy.invoke(ForkJoinTask.adapt(() -> {
+            blockedPool.set(ForkJoinTask.getPool());
+            started.countDown();
+            release.await();
+            return null;
+        })));
+        longRunning.start();
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // runs although the only thread of the other lane is blocked
+            ForkJoinPool pool = policy.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.getPool()));
+            assertNotEquals(blockedPool.get(), pool);
+        } finally {
+            release.countDown();
+            longRunning.join();
+        }
+    }
+
+    public @Test void testNestedOperationRunsInSameLane() {
+        policy = ExecutionPolicy.create("test", 4, 1, false);
+        ForkJoinPool[] pools = policy.invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinPool outer = ForkJoinTask.getPool();
+            ForkJoinPool inner = policy.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.getPool()));
+            return new ForkJoinPool[] { outer, inner };
+        }));
+        assertSame(pools[0], pools[1]);
+    }
+
+    public @Test void testDefaultPolicy() {
+        ExecutionPolicy defaultPolicy = ExecutionPolicy.defaultPolicy();
+        assertSame(defaultPolicy, ExecutionPolicy.defaultPolicy());
+        ExecutionPolicy custom = ExecutionPolicy.create("custom", 2, 1, false);
+        try {
+            assertSame(defaultPolicy, ExecutionPolicy.setDefault(custom));
+            assertSame(custom, ExecutionPolicy.defaultPolicy());
+        } finally {
+            ExecutionPolicy.setDefault(defaultPolicy);
+            custom.shutdown();
+        }
+    }
+
+    public @Test void testRepositoryPolicy() {
+        assertSame(ExecutionPolicy.defaultPolicy(), ExecutionPolicy.of(new HeapConfigDatabase()));
+        assertSame(ExecutionPolicy.defaultPolicy(), ExecutionPolicy.of((ConfigDatabase) null));
+
+        ConfigDatabase repo1 = new HeapConfigDatabase();
+        repo1.put(ExecutionPolicy.POOL_SIZE_KEY, 97);
+        ExecutionPolicy policy1 = ExecutionPolicy.of(repo1);
+        assertNotSame(ExecutionPolicy.defaultPolicy(), policy1);
+        assertEquals(97, policy1.getPoolSize());
+        assertEquals(97, policy1.getOperationParallelism());
+        assertFalse(policy1.isIoBound());
+        assertSame(policy1, ExecutionPolicy.of(repo1));
+
+        // repositories with the same settings share the policy
+        ConfigDatabase repo2 = new HeapConfigDatabase();
+        repo2.put(ExecutionPolicy.POOL_SIZE_KEY, 97);
+        repo2.put(ExecutionPolicy.OPERATION_PARALLELISM_KEY, 97);
+        assertSame(policy1, ExecutionPolicy.of(repo2));
+
+        ConfigDatabase repo3 = new HeapConfigDatabase();
+        repo3.put(ExecutionPolicy.POOL_SIZE_KEY, 97);
+        repo3.put(ExecutionPolicy.IO_BOUND_KEY, true);
+        ExecutionPolicy policy3 = ExecutionPolicy.of(repo3);
+        assertNotSame(policy1, policy3);
+        assertEquals(97, policy3.getPoolSize());
+        assertTrue(policy3.isIoBound());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRepositoryPolicyInvalidSettings() {
+        ConfigDatabase repo = new HeapConfigDatabase();
+        repo.put(ExecutionPolicy.POOL_SIZE_KEY, 2);
+        repo.put(ExecutionPolicy.OPERATION_PARALLELISM_KEY, 3);
+        ExecutionPolicy.of(repo);
+    }
+}
@@ -0,0 +1,279 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex.AheadBehind;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+public class CommitGraphIndexTest {
+
+    private HeapObjectDatabase db;
+
+    private HeapBlobStore blobStore;
+
+    private long timestamp = 1000;
+
+    public @Before void before() {
+        db = new HeapObjectDatabase();
+        db.open();
+        blobStore = new HeapBlobStore();
+    }
+
+    private RevCommit commit(String message, RevCommit... parents) {
+        return commit(RevTree.EMPTY, message, parents);
+    }
+
+    private RevCommit commit(RevTree tree, String message, RevCommit... parents) {
+        ObjectId[] parentIds = Arrays.stream(parents).map(RevCommit::getId)
+                .toArray(ObjectId[]::new);
+        return commit(tree, message, parentIds);
+    }
+
+    private RevCommit commit(String message, ObjectId... parentIds) {
+        return commit(RevTree.EMPTY, message, parentIds);
+    }
+
+    private RevCommit commit(RevTree tree, String message, ObjectId... parentIds) {
+        timestamp++;
+        RevCommit commit = RevCommit.builder()//
+                .treeId(tree.getId())//
+                .parentIds(Arrays.asList(parentIds))//
+                .author("gabe").authorEmail("gabe@example.com")//
+                .committer("gabe").committerEmail("gabe@example.com")//
+                .authorTimestamp(timestamp).committerTimestamp(timestamp)//
+                .authorTimeZoneOffset(0).committerTimeZoneOffset(0)//
+                .message(message)//
+                .build();
+        db.put(commit);
+        return commit;
+    }
+
+    private CommitGraphIndex update(RevCommit... tips) {
+        CommitGraphIndex index = new CommitGraphIndex(blobStore);
+        index.update(db, Arrays.stream(tips).map(RevCommit::getId)::iterator);
+        return index;
+    }
+
+    @Test
+    public void testGenerationAndDepth() {
+        RevCommit root = commit("root");
+        RevCommit a1 = commit("a1", root);
+        RevCommit a2 = commit("a2", a1);
+        RevCommit b1 = commit("b1", root);
+        RevCommit merge = commit("merge", a2, b1);
+
+        CommitGraphIndex index = update(merge);
+        assertEquals(5, index.size());
+        assertEquals(1, index.generation(root.getId()).getAsInt());
+        assertEquals(3, index.generation(a2.getId()).getAsInt());
+        assertEquals(4, index.generation(merge.getId()).getAsInt());
+        assertEquals(0, index.depth(root.getId()).getAsInt());
+        // depth is the distance to the closest root
+        assertEquals(2, index.depth(merge.getId()).getAsInt());
+        assertFalse(index.generation(RevTree.EMPTY_TREE_ID).isPresent());
+    }
+
+    @Test
+    public void testMergeBaseAndAheadBehind() {
+        RevCommit root = commit("root");
+        RevCommit a1 = commit("a1", root);
+        RevCommit a2 = commit("a2", a1);
+        RevCommit a3 = commit("a3", a2);
+        RevCommit b1 = commit("b1", a1);
+        RevCommit b2 = commit("b2", b1);
+
+        CommitGraphIndex index = update(a3, b2);
+        assertEquals(Optional.of(a1.getId()), index.mergeBase(a3.getId(), b2.getId()));
+        assertEquals(Optional.of(a1.getId()), index.mergeBase(b2.getId(), a3.getId()));
+        assertEquals(Optional.of(a2.getId()), index.mergeBase(a3.getId(), a2.getId()));
+
+        assertEquals(new AheadBehind(2, 2), index.aheadBehind(a3.getId(), b2.getId()));
+        assertEquals(new AheadBehind(0, 2), index.aheadBehind(a1.getId(), a3.getId()));
+
+        assertTrue(index.isAncestor(root.getId(), b2.getId()));
+        assertTrue(index.isAncestor(a1.getId(), a3.getId()));
+        assertFalse(index.isAncestor(b1.getId(), a3.getId()));
+        assertFalse(index.isAncestor(a3.getId(), a1.getId()));
+
+        RevCommit merge = commit("merge", a3, b2);
+        index.update(db, Collections.singleton(merge.getId()));
+        assertEquals(Optional.of(b2.getId()), index.mergeBase(merge.getId(), b2.getId()));
+        assertEquals(new AheadBehind(3, 0), index.aheadBehind(merge.getId(), b2.getId()));
+    }
+
+    @Test
+    public void testCrissCrossMergeBase() {
+        RevCommit root = commit("root");
+        RevCommit a1 = commit("a1", root);
+        RevCommit b1 = commit("b1", root);
+        RevCommit a2 = commit("a2", a1, b1);
+        RevCommit b2 = commit("b2", b1, a1);
+
+        CommitGraphIndex index = update(a2, b2);
+        ObjectId base = index.mergeBase(a2.getId(), b2.getId()).get();
+        // both are best common ancestors, the most recent one is picked
+        assertEquals(b1.getId(), base);
+    }
+
+    @Test
+    public void testNoCommonAncestor() {
+        RevCommit a = commit("a");
+        RevCommit b = commit("b");
+        CommitGraphIndex index = update(a, b);
+        assertFalse(index.mergeBase(a.getId(), b.getId()).isPresent());
+        assertEquals(new AheadBehind(1, 1), index.aheadBehind(a.getId(), b.getId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotIndexed() {
+        RevCommit a = commit("a");
+        RevCommit b = commit("b");
+        update(a).mergeBase(a.getId(), b.getId());
+    }
+
+    @Test
+    public void testPersistenceAndTipLayer() {
+        RevCommit c = commit("root");
+        for (int i = 0; i < 100; i++) {
+            c = commit("c" + i, c);
+        }
+        CommitGraphIndex index = update(c);
+        assertTrue(blobStore.getBlob(CommitGraphIndex.BLOB_NAME).isPresent());
+        assertFalse(blobStore.getBlob(CommitGraphIndex.TIP_BLOB_NAME).isPresent());
+
+        RevCommit branch = commit("branch", c);
+        RevCommit head = commit("head", c);
+        assertTrue(index.update(db, Collections.singleton(head.getId())));
+        assertTrue(index.update(db, Collections.singleton(branch.getId())));
+        assertFalse(index.update(db, Collections.singleton(branch.getId())));
+        assertTrue(blobStore.getBlob(CommitGraphIndex.TIP_BLOB_NAME).isPresent());
+
+        CommitGraphIndex loaded = new CommitGraphIndex(blobStore);
+        assertEquals(103, loaded.size());
+        assertEquals(102, loaded.generation(head.getId()).getAsInt());
+        assertEquals(101, loaded.depth(branch.getId()).getAsInt());
+        assertEquals(Optional.of(c.getId()), loaded.mergeBase(head.getId(), branch.getId()));
+
+        // a large enough update merges the tip layer into the base layer
+        for (int i = 0; i < 1100; i++) {
+            head = commit("h" + i, head);
+        }
+        loaded.update(db, Collections.singleton(head.getId()));
+        assertFalse(blobStore.getBlob(CommitGraphIndex.TIP_BLOB_NAME).isPresent());
+        loaded = new CommitGraphIndex(blobStore);
+        assertEquals(1203, loaded.size());
+        assertEquals(Optional.of(c.getId()), loaded.mergeBase(head.getId(), branch.getId()));
+    }
+
+    @Test
+    public void testMissingParents() {
+        RevCommit root = commit("root");
+        RevCommit a1 = commit("a1", root);
+        RevCommit a2 = commit("a2", a1);
+        // simulate a shallow clone by removing the root commit
+        db.delete(root.getId());
+
+        CommitGraphIndex index = update(a2);
+        assertEquals(2, index.size());
+        assertEquals(1, index.generation(a1.getId()).getAsInt());
+        assertEquals(1, index.depth(a1.getId()).getAsInt());
+
+        // deepening the history rebuilds the index
+        db.put(root);
+        RevCommit a3 = commit("a3", a2);
+        index.update(db, Collections.singleton(a3.getId()));
+        assertEquals(4, index.size());
+        assertEquals(2, index.generation(a1.getId()).getAsInt());
+        assertEquals(4, index.generation(a3.getId()).getAsInt());
+        assertEquals(3, index.depth(a3.getId()).getAsInt());
+    }
+
+    @Test
+    public void testChangedPaths() {
+        RevTree tree1 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 10);
+        RevTree tree2 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 5, 10, false);
+        RevCommit root = commit(tree1, "root");
+        RevCommit c1 = commit(tree2, "c1", root);
+        RevCommit c2 = commit(tree2, "c2", c1);
+
+        CommitGraphIndex index = update(c2);
+        String a1 = path(1), a12 = path(12);
+        // filters are not computed on update
+        assertTrue(index.mayHaveChanged(c2.getId(), a1));
+        assertEquals(3, index.updateChangedPaths(db, Collections.singleton(c2.getId())));
+        assertEquals(0, index.updateChangedPaths(db, Collections.singleton(c2.getId())));
+        assertTrue(index.mayHaveChanged(root.getId(), a1));
+        assertTrue(index.mayHaveChanged(c1.getId(), a1));
+        assertTrue(index.mayHaveChanged(c1.getId(), a12));
+        assertFalse(index.mayHaveChanged(c2.getId(), a1));
+        assertFalse(index.mayHaveChanged(c2.getId(), a12));
+        assertTrue(index.mayHaveChanged(RevTree.EMPTY_TREE_ID, a1));
+        assertFalse(new CommitGraphIndex(blobStore).mayHaveChanged(c2.getId(), a12));
+
+        // false positives are possible, but rare
+        long falsePositives = IntStream.range(100, 200)
+                .filter(i -> index.mayHaveChanged(c1.getId(), path(i))).count();
+        assertTrue(falsePositives < 10);
+    }
+
+    @Test
+    public void testChangedPathsBackfill() {
+        RevTree tree = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 10);
+        RevCommit root = commit(tree, "root");
+        RevCommit c = root;
+        for (int i = 0; i < 300; i++) {
+            c = commit(tree, "c" + i, c);
+        }
+        CommitGraphIndex index = update(c);
+        assertTrue(index.mayHaveChanged(c.getId(), path(1)));
+
+        // only the most recent commits get their filters computed from the tips
+        assertEquals(256, index.updateChangedPaths(db, Collections.singleton(c.getId())));
+        assertFalse(index.mayHaveChanged(c.getId(), path(1)));
+        assertEquals(45, index.updateChangedPaths(db, new DefaultProgressListener()));
+        assertFalse(index.mayHaveChanged(c.getId(), path(1)));
+        assertTrue(index.mayHaveChanged(root.getId(), path(1)));
+        assertEquals(0, index.updateChangedPaths(db, new DefaultProgressListener()));
+
+        CommitGraphIndex loaded = new CommitGraphIndex(blobStore);
+        assertFalse(loaded.mayHaveChanged(c.getId(), path(1)));
+    }
+
+    private static String path(int index) {
+        return RevObjectTestSupport.featureNode("a", index).getName();
+    }
+
+    @Test
+    public void testMalformedBlob() {
+        blobStore.putBlob(CommitGraphIndex.BLOB_NAME, "garbage".getBytes());
+        RevCommit a = commit("a");
+        CommitGraphIndex index = new CommitGraphIndex(blobStore);
+        assertEquals(0, index.size());
+        index.update(db, Collections.singleton(a.getId()));
+        assertTrue(index.contains(a.getId()));
+    }
+}
@@ -0,0 +1,173 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.storage.impl.FeatureHistoryIndex.Version;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+public class FeatureHistoryIndexTest {
+
+    private HeapObjectDatabase db;
+
+    private HeapBlobStore blobStore;
+
+    private CommitGraphIndex commitGraph;
+
+    private long timestamp = 1000;
+
+    public @Before void before() {
+        db = new HeapObjectDatabase();
+        db.open();
+        blobStore = new HeapBlobStore();
+        commitGraph = new CommitGraphIndex(blobStore);
+    }
+
+    private RevCommit commit(RevTree tree, String message, RevCommit... parents) {
+        timestamp++;
+        RevCommit commit = RevCommit.builder()//
+                .treeId(tree.getId())//
+                .parentIds(Arrays.stream(parents).map(RevCommit::getId)
+                        .collect(Collectors.toList()))//
+                .author("gabe").authorEmail("gabe@example.com")//
+                .committer("gabe").committerEmail("gabe@example.com")//
+                .authorTimestamp(timestamp).committerTimestamp(timestamp)//
+                .authorTimeZoneOffset(0).committerTimeZoneOffset(0)//
+                .message(message)//
+                .build();
+        db.put(commit);
+        return commit;
+    }
+
+    private int update(FeatureHistoryIndex index, RevCommit tip) {
+        commitGraph.update(db, Collections.singleton(tip.getId()));
+        return index.update(db, commitGraph, Collections.singleton(tip.getId()),
+                new DefaultProgressListener());
+    }
+
+    private List<ObjectId> history(FeatureHistoryIndex index, String path, RevCommit from) {
+        return index.history(path, from.getId(), commitGraph).stream()
+                .map(Version::getCommitId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testHistory() {
+        RevTree tree1 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 10);
+        RevTree tree2 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 10, 0, true);
+        RevTree tree3 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 5);
+        RevCommit root = commit(tree1, "root");
+        RevCommit c1 = commit(tree2, "c1", root);
+        RevCommit c2 = commit(tree2, "c2", c1);
+        RevCommit b1 = commit(tree3, "b1", root);
+
+        FeatureHistoryIndex index = new FeatureHistoryIndex(blobStore);
+        assertFalse(index.isEnabled());
+        assertEquals(3, update(index, c2));
+        assertTrue(index.isEnabled());
+        assertTrue(index.covers(c1.getId(), commitGraph));
+        assertFalse(index.covers(b1.getId(), commitGraph));
+
+        assertEquals(Arrays.asList(c1.getId(), root.getId()), history(index, "a1", c2));
+        assertEquals(Arrays.asList(root.getId()), history(index, "a1", root));
+        Version version = index.history("a1", c2.getId(), commitGraph).get(0);
+        assertEquals(RevObjectTestSupport.findNode("a1", tree2, db).get(0).getObjectId(),
+                version.getObjectId());
+
+        // only the new commit gets indexed
+        assertEquals(1, update(index, b1));
+        assertTrue(index.covers(b1.getId(), commitGraph));
+        assertEquals(Arrays.asList(root.getId()), history(index, "a1", b1));
+        List<Version> removed = index.history("a7", b1.getId(), commitGraph);
+        assertEquals(2, removed.size());
+        assertTrue(removed.get(0).isRemoval());
+        assertEquals(b1.getId(), removed.get(0).getCommitId());
+        assertEquals(0, update(index, b1));
+
+        FeatureHistoryIndex loaded = new FeatureHistoryIndex(blobStore);
+        assertTrue(loaded.isEnabled());
+        assertTrue(loaded.covers(b1.getId(), commitGraph));
+        assertEquals(3, loaded.versions("a7").size());
+        assertTrue(loaded.versions("a100").isEmpty());
+    }
+
+    @Test
+    public void testUpdateWithIndexedTips() {
+        RevTree tree1 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 2);
+        RevTree tree2 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 2, 0, true);
+        RevCommit root = commit(tree1, "root");
+        RevCommit c1 = commit(tree2, "c1", root);
+
+        FeatureHistoryIndex index = new FeatureHistoryIndex(blobStore);
+        assertEquals(2, update(index, c1));
+        blobStore.removeBlob(FeatureHistoryIndex.TIPS_BLOB_NAME);
+
+        // neither an already indexed tip nor one reachable from it rewrite the tips
+        assertEquals(0, update(index, c1));
+        assertEquals(0, update(index, root));
+        assertEquals(0, index.update(db, commitGraph, Collections.emptySet(),
+                new DefaultProgressListener()));
+        assertFalse(blobStore.getBlob(FeatureHistoryIndex.TIPS_BLOB_NAME).isPresent());
+    }
+
+    @Test
+    public void testManyUpdates() {
+        // enough versions of a single feature to span several segment levels
+        final int numCommits = 600;
+        List<ObjectId> commits = new ArrayList<>();
+        FeatureHistoryIndex index = new FeatureHistoryIndex(blobStore);
+        RevCommit parent = null;
+        for (int i = 0; i < numCommits; i++) {
+            RevTree tree = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 1, 0, true);
+            parent = parent == null ? commit(tree, "c" + i) : commit(tree, "c" + i, parent);
+            commits.add(0, parent.getId());
+            assertEquals(1, update(index, parent));
+        }
+        assertEquals(commits, history(index, "a0", parent));
+
+        FeatureHistoryIndex loaded = new FeatureHistoryIndex(blobStore);
+        assertEquals(numCommits, loaded.versions("a0").size());
+        assertEquals(commits, history(loaded, "a0", parent));
+        assertTrue(loaded.versions("a1").isEmpty());
+    }
+
+    @Test
+    public void testMergeCommit() {
+        RevTree tree1 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 2);
+        RevTree tree2 = RevObjectTestSupport.INSTANCE.createFeaturesTree(db, "a", 2, 0, true);
+        RevCommit root = commit(tree1, "root");
+        RevCommit left = commit(tree2, "left", root);
+        RevCommit right = commit(tree1, "right", root);
+        RevCommit merge = commit(tree2, "merge", left, right);
+
+        FeatureHistoryIndex index = new FeatureHistoryIndex(blobStore);
+        assertEquals(4, update(index, merge));
+        // the merge changed the features with respect to its second parent
+        assertEquals(Arrays.asList(merge.getId(), left.getId(), root.getId()),
+                history(index, "a0", merge));
+        assertEquals(Arrays.asList(root.getId()), history(index, "a0", right));
+    }
+}
@@ -0,0 +1,110 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.storage.impl.ConflictsDatabaseConformanceTest;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Runs the conformance tests with a low spill threshold, so that conflicts are read from and
+ * removed across several spilled run files
+ */
+public class SpillingHeapConflictsDatabaseConformanceTest
+        extends ConflictsDatabaseConformanceTest<HeapConflictsDatabase> {
+
+    protected @Override HeapConflictsDatabase createConflictsDatabase() throws Exception {
+        return new HeapConflictsDatabase(false, 100);
+    }
+
+    protected @Override void dispose(HeapConflictsDatabase conflicts) throws Exception {
+        if (conflicts != null) {
+            conflicts.close();
+        }
+    }
+
+    @Test
+    public void testRemoveAndReAddSpilled() {
+        List<Conflict> all = createConflicts("rivers", 450);
+        conflicts.addConflicts(null, all);
+
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += 3) {
+            removed.add(all.get(i).getPath());
+        }
+        conflicts.removeConflicts(null, removed);
+        assertEquals(300, conflicts.getCountByPrefix(null, "rivers"));
+        assertFalse(conflicts.getConflict(null, removed.get(0)).isPresent());
+        assertTrue(conflicts.getConflict(null, all.get(1).getPath()).isPresent());
+
+        conflicts.addConflict(null, all.get(0));
+        assertEquals(all.get(0), conflicts.getConflict(null, all.get(0).getPath()).get());
+
+        List<String> paths = Lists.newArrayList(conflicts.getByPrefix(null, "rivers")).stream()
+                .map(Conflict::getPath).collect(Collectors.toList());
+        assertEquals(301, paths.size());
+        assertEquals(paths.stream().sorted().collect(Collectors.toList()), paths);
+
+        conflicts.removeByPrefix(null, "rivers");
+        assertFalse(conflicts.hasConflicts(null));
+    }
+
+    @Test
+    public void testCompactsRuns() {
+        final int runs = HeapConflictsDatabase.MAX_RUNS + 1;
+        List<Conflict> all = createConflicts("rivers", 100 * runs);
+        conflicts.addConflicts(null, all.subList(0, 100 * HeapConflictsDatabase.MAX_RUNS));
+        assertEquals(HeapConflictsDatabase.MAX_RUNS, conflicts.runs(null).size());
+
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            removed.add(all.get(2 * i).getPath());
+        }
+        // spills the removals as a new run, which triggers the compaction
+        conflicts.removeConflicts(null, removed);
+        assertEquals(1, conflicts.runs(null).size());
+        assertEquals(all.size() - 100 - 100, conflicts.getCountByPrefix(null, "rivers"));
+        assertFalse(conflicts.getConflict(null, removed.get(0)).isPresent());
+        assertEquals(all.get(1), conflicts.getConflict(null, all.get(1).getPath()).get());
+    }
+
+    @Test
+    public void testRemoveDeletesRunFiles() {
+        conflicts.addConflicts(null, createConflicts("rivers", 250));
+        List<Path> files = conflicts.runs(null).stream().map(SpilledConflicts::file)
+                .collect(Collectors.toList());
+        assertEquals(2, files.size());
+        files.forEach(f -> assertTrue(Files.exists(f)));
+
+        conflicts.removeConflicts(null);
+        files.forEach(f -> assertFalse(Files.exists(f)));
+    }
+
+    @Test
+    public void testCloseDisposesAllNamespaces() {
+        conflicts.addConflicts(null, createConflicts("rivers", 250));
+        conflicts.addConflicts("ns1", createConflicts("roads", 250));
+        conflicts.close();
+        assertFalse(conflicts.hasConflicts(null));
+        assertFalse(conflicts.hasConflicts("ns1"));
+    }
+}
@@ -24,6 +24,7 @@ import org.locationtech.geogig.porcelain.ConfigOp;
 import org.locationtech.geogig.porcelain.ConfigOp.ConfigAction;
 import org.locationtech.geogig.porcelain.MergeOp;
 import org.locationtech.geogig.porcelain.MergeOp.MergeReport;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
 
 public class FindCommonAncestorTest extends RepositoryTestCase {
     @Rule
@@ -322,4 +323,46 @@ public class FindCommonAncestorTest extends RepositoryTestCase {
         assertTrue(commonAncestor.isPresent());
         assertEquals(commonAncestor.get(), commit4);
     }
+
+    @Test
+    public void testCrissCrossSameBaseWithAndWithoutIndex() throws Exception {
+        // Create the following revision graph
+        // o - root commit Add Points 1
+        // |\
+        // o | - a1 Add Points 2
+        // | o - b1 Add Points 3
+        // |X|
+        // o | - a2 Merge b1 into master
+        // | o - b2 Merge a1 into branch1
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).setMessage("root commit").call();
+        repo.command(BranchCreateOp.class).setAutoCheckout(false).setName("branch1").call();
+
+        insertAndAdd(points2);
+        final RevCommit a1 = repo.command(CommitOp.class).setMessage("a1").call();
+
+        repo.command(CheckoutOp.class).setSource("branch1").call();
+        insertAndAdd(points3);
+        final RevCommit b1 = repo.command(CommitOp.class).setMessage("b1").call();
+
+        repo.command(CheckoutOp.class).setSource("master").call();
+        final RevCommit a2 = repo.command(MergeOp.class).setMessage("a2")
+                .addCommit(b1.getId()).call().getMergeCommit();
+
+        repo.command(CheckoutOp.class).setSource("branch1").call();
+        final RevCommit b2 = repo.command(MergeOp.class).setMessage("b2")
+                .addCommit(a1.getId()).call().getMergeCommit();
+
+        CommitGraphIndex index = CommitGraphIndex.of(repo.context()).get();
+        assertTrue(index.contains(a2.getId()));
+        assertTrue(index.contains(b2.getId()));
+
+        FindCommonAncestor command = repo.command(FindCommonAncestor.class);
+        Optional<ObjectId> indexed = command.setLeft(a2).setRight(b2).call();
+        Optional<ObjectId> walked = command.findLowestCommonAncestor(a2.getId(), b2.getId());
+        assertTrue(indexed.isPresent());
+        assertTrue(a1.getId().equals(indexed.get()) || b1.getId().equals(indexed.get()));
+        assertEquals(indexed, walked);
+        assertEquals(indexed, command.findLowestCommonAncestor(b2.getId(), a2.getId()));
+    }
 }
@@ -37,6 +37,7 @@ import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.RevParse;
 import org.locationtech.geogig.plumbing.UpdateRef;
 import org.locationtech.geogig.plumbing.UpdateSymRef;
+import org.locationtech.geogig.plumbing.merge.ConflictResolvers;
 import org.locationtech.geogig.plumbing.merge.ConflictsQueryOp;
 import org.locationtech.geogig.plumbing.merge.ReadMergeCommitMessageOp;
 import org.locationtech.geogig.porcelain.AddOp;
@@ -759,6 +760,36 @@ public class MergeOpTest extends RepositoryTestCase {
         mergeOp.call();
     }
 
+    @Test
+    public void testConflictResolverWithStagedChanges() throws Exception {
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).call();
+        repo.command(BranchCreateOp.class).setName("TestBranch").call();
+        insertAndAdd(points1_modified);
+        repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("TestBranch").call();
+        Feature points1ModifiedB = feature(pointsType, idP1, "StringProp1_3", new Integer(2000),
+                "POINT(1 1)");
+        insertAndAdd(points1ModifiedB);
+        repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("master").call();
+        insertAndAdd(points2);
+
+        final Ref head = repo.command(RefParse.class).setName(Ref.HEAD).call().get();
+        final ObjectId stageHead = repo.context().stagingArea().getTree().getId();
+        Ref branch = repo.command(RefParse.class).setName("TestBranch").call().get();
+        try {
+            repo.command(MergeOp.class).addCommit(branch.getObjectId())
+                    .setConflictResolver(ConflictResolvers.ours()).call();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("staging area has changes"));
+        }
+        assertEquals(head, repo.command(RefParse.class).setName(Ref.HEAD).call().get());
+        assertEquals(stageHead, repo.context().stagingArea().getTree().getId());
+        assertFalse(repo.context().conflictsDatabase().hasConflicts(null));
+    }
+
     @Test
     public void testNoFastForward() throws Exception {
         // Create the following revision graph
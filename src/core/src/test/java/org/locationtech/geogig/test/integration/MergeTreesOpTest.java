@@ -0,0 +1,199 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.merge.ConflictResolvers;
+import org.locationtech.geogig.plumbing.merge.ConflictResolvers.AttributeStrategy;
+import org.locationtech.geogig.plumbing.merge.MergeScenarioConsumer;
+import org.locationtech.geogig.plumbing.merge.MergeScenarioReport;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp;
+import org.locationtech.geogig.plumbing.merge.MergeTreesOp.MergeTreesResult;
+import org.locationtech.geogig.plumbing.merge.ReportMergeScenarioOp;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.repository.Conflict;
+
+public class MergeTreesOpTest extends RepositoryTestCase {
+
+    private RevCommit base;
+
+    protected @Override void setUpInternal() throws Exception {
+        insertAndAdd(points1, points2);
+        base = repo.command(CommitOp.class).call();
+        repo.command(BranchCreateOp.class).setName("branch").call();
+    }
+
+    private static class ConflictsConsumer extends MergeScenarioConsumer {
+        final List<Conflict> conflicts = new ArrayList<>();
+
+        public @Override void conflicted(Conflict conflict) {
+            conflicts.add(conflict);
+        }
+    }
+
+    private RevTree tree(RevCommit commit) {
+        return repo.context().objectDatabase().getTree(commit.getTreeId());
+    }
+
+    private ObjectId featureId(RevTree tree, String treePath, String id) {
+        return repo.command(FindTreeChild.class).setParent(tree)
+                .setChildPath(NodeRef.appendChild(treePath, id)).call()
+                .map(NodeRef::getObjectId).orElse(ObjectId.NULL);
+    }
+
+    private MergeTreesResult merge(RevCommit ours, RevCommit theirs,
+            MergeScenarioConsumer consumer) {
+        MergeTreesResult result = repo.command(MergeTreesOp.class).setAncestor(tree(base))
+                .setOurs(tree(ours)).setTheirs(tree(theirs)).setConsumer(consumer).call();
+
+        // the scenario is reported the same way ReportMergeScenarioOp does
+        MergeScenarioReport expected = repo.command(ReportMergeScenarioOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).call();
+        MergeScenarioReport report = result.getReport();
+        assertEquals(expected.getConflicts(), report.getConflicts());
+        assertEquals(expected.getMerged(), report.getMerged());
+        assertEquals(expected.getUnconflictedFeatures(), report.getUnconflictedFeatures());
+        assertEquals(expected.getUnconflictedTrees(), report.getUnconflictedTrees());
+        return result;
+    }
+
+    @Test
+    public void testUnconflictedChanges() throws Exception {
+        insertAndAdd(points3);
+        RevCommit master = repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("branch").call();
+        insertAndAdd(points1_modified, lines1);
+        RevCommit branch = repo.command(CommitOp.class).call();
+
+        MergeTreesResult result = merge(master, branch, new MergeScenarioConsumer());
+        MergeScenarioReport report = result.getReport();
+        assertEquals(0, report.getConflicts());
+        assertEquals(2, report.getUnconflictedFeatures());
+        // the Lines tree was adopted as a whole
+        assertEquals(1, report.getUnconflictedTrees());
+
+        RevTree merged = result.getMergedTree();
+        assertEquals(featureId(tree(branch), pointsName, idP1),
+                featureId(merged, pointsName, idP1));
+        assertEquals(featureId(tree(base), pointsName, idP2), featureId(merged, pointsName, idP2));
+        assertEquals(featureId(tree(master), pointsName, idP3),
+                featureId(merged, pointsName, idP3));
+        assertEquals(featureId(tree(branch), linesName, idL1), featureId(merged, linesName, idL1));
+    }
+
+    @Test
+    public void testMergedAndConflicted() throws Exception {
+        Feature points1Master = feature(pointsType, idP1, "StringProp1_2", 1000, "POINT(1 1)");
+        insertAndAdd(points1Master, points2_modified);
+        RevCommit master = repo.command(CommitOp.class).call();
+
+        repo.command(CheckoutOp.class).setSource("branch").call();
+        Feature points1Branch = feature(pointsType, idP1, "StringProp1_1", 2000, "POINT(1 1)");
+        Feature points2Branch = feature(pointsType, idP2, "StringProp1_2b", 2000, "POINT(2 2)");
+        insertAndAdd(points1Branch, points2Branch);
+        RevCommit branch = repo.command(CommitOp.class).call();
+
+        ConflictsConsumer consumer = new ConflictsConsumer();
+        MergeTreesResult result = merge(master, branch, consumer);
+        assertEquals(1, result.getReport().getConflicts());
+        assertEquals(1, result.getReport().getMerged());
+        assertEquals(1, consumer.conflicts.size());
+        assertEquals(NodeRef.appendChild(pointsName, idP2), consumer.conflicts.get(0).getPath());
+
+        RevTree merged = result.getMergedTree();
+        // conflicting features are left as in "ours"
+        assertEquals(featureId(tree(master), pointsName, idP2),
+                featureId(merged, pointsName, idP2));
+        Feature expected = feature(pointsType, idP1, "StringProp1_2", 2000, "POINT(1 1)");
+        assertEquals(RevFeature.builder().build(expected).getId(),
+                featureId(merged, pointsName, idP1));
+    }
+
+    @Test
+    public void testConflictResolvedByAttribute() throws Exception {
+        insertAndAdd(points2_modified);
+        RevCommit master = repo.command(CommitOp.class).call();
+
+        repo.command(CheckoutOp.class).setSource("branch").call();
+        Feature points2Branch = feature(pointsType, idP2, "StringProp1_2b", 2000, "POINT(2 2)");
+        insertAndAdd(points2Branch);
+        RevCommit branch = repo.command(CommitOp.class).call();
+
+        ConflictsConsumer consumer = new ConflictsConsumer();
+        MergeTreesResult result = repo.command(MergeTreesOp.class).setAncestor(tree(base))
+                .setOurs(tree(master)).setTheirs(tree(branch)).setConsumer(consumer)
+                .setConflictResolver(ConflictResolvers
+                        .byAttribute(Collections.singletonMap("sp", AttributeStrategy.THEIRS)))
+                .call();
+        assertEquals(0, result.getReport().getConflicts());
+        assertEquals(1, result.getReport().getResolved());
+        assertTrue(consumer.conflicts.isEmpty());
+
+        Feature expected = feature(pointsType, idP2, "StringProp1_2b", 2001, "POINT(2 3)");
+        ObjectId resolvedId = featureId(result.getMergedTree(), pointsName, idP2);
+        assertEquals(RevFeature.builder().build(expected).getId(), resolvedId);
+        assertTrue(repo.context().objectDatabase().exists(resolvedId));
+
+        // an attribute with no strategy is left as a conflict
+        result = repo.command(MergeTreesOp.class).setAncestor(tree(base)).setOurs(tree(master))
+                .setTheirs(tree(branch)).setConflictResolver(ConflictResolvers
+                        .byAttribute(Collections.singletonMap("ip", AttributeStrategy.THEIRS)))
+                .call();
+        assertEquals(1, result.getReport().getConflicts());
+        assertEquals(0, result.getReport().getResolved());
+    }
+
+    @Test
+    public void testConflictResolvedByLastWriter() throws Exception {
+        insertAndAdd(points1_modified);
+        RevCommit master = repo.command(CommitOp.class).call();
+
+        repo.command(CheckoutOp.class).setSource("branch").call();
+        delete(points1);
+        RevCommit branch = repo.command(CommitOp.class).setAll(true).call();
+
+        MergeTreesResult result = repo.command(MergeTreesOp.class).setAncestor(tree(base))
+                .setOurs(tree(master)).setTheirs(tree(branch))
+                .setConflictResolver(ConflictResolvers.lastWriterWins())
+                .setCommitTimestamps(1000, 2000).call();
+        assertEquals(0, result.getReport().getConflicts());
+        assertEquals(ObjectId.NULL, featureId(result.getMergedTree(), pointsName, idP1));
+
+        result = repo.command(MergeTreesOp.class).setAncestor(tree(base)).setOurs(tree(master))
+                .setTheirs(tree(branch)).setConflictResolver(ConflictResolvers.lastWriterWins())
+                .setCommitTimestamps(2000, 1000).call();
+        assertEquals(tree(master), result.getMergedTree());
+        assertEquals(1, result.getReport().getResolved());
+    }
+
+    @Test
+    public void testOursUnchanged() throws Exception {
+        repo.command(CheckoutOp.class).setSource("branch").call();
+        insertAndAdd(points3, lines1);
+        RevCommit branch = repo.command(CommitOp.class).call();
+
+        MergeTreesResult result = merge(base, branch, new MergeScenarioConsumer());
+        assertEquals(tree(branch), result.getMergedTree());
+        assertEquals(2, result.getReport().getUnconflictedFeatures());
+    }
+}
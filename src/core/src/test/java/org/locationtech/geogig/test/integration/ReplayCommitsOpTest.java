@@ -0,0 +1,101 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.merge.ReplayCommitsOp;
+import org.locationtech.geogig.plumbing.merge.ReplayCommitsOp.ReplayCommitsResult;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+
+public class ReplayCommitsOpTest extends RepositoryTestCase {
+
+    private RevCommit master;
+
+    protected @Override void setUpInternal() throws Exception {
+        insertAndAdd(points1, points2);
+        repo.command(CommitOp.class).call();
+        repo.command(BranchCreateOp.class).setName("branch").call();
+        insertAndAdd(points3);
+        master = repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("branch").call();
+    }
+
+    private ObjectId featureId(ObjectId treeId, String treePath, String id) {
+        RevTree tree = repo.context().objectDatabase().getTree(treeId);
+        return repo.command(FindTreeChild.class).setParent(tree)
+                .setChildPath(NodeRef.appendChild(treePath, id)).call()
+                .map(NodeRef::getObjectId).orElse(ObjectId.NULL);
+    }
+
+    private ObjectId ref(String name) {
+        return repo.command(RefParse.class).setName(name).call().get().getObjectId();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        insertAndAdd(points1_modified);
+        RevCommit c1 = repo.command(CommitOp.class).setMessage("c1").call();
+        insertAndAdd(lines1);
+        RevCommit c2 = repo.command(CommitOp.class).setMessage("c2").call();
+        final ObjectId workHead = ref(Ref.WORK_HEAD);
+
+        ReplayCommitsResult result = repo.command(ReplayCommitsOp.class).setOnto(master.getId())
+                .setCommits(Arrays.asList(c1, c2)).call();
+        assertNull(result.getConflicted());
+        List<RevCommit> replayed = result.getReplayed();
+        assertEquals(2, replayed.size());
+        assertEquals(replayed.get(1).getId(), result.getHead());
+        assertEquals(Arrays.asList(master.getId()), replayed.get(0).getParentIds());
+        assertEquals(Arrays.asList(replayed.get(0).getId()), replayed.get(1).getParentIds());
+        assertEquals(c2.getMessage(), replayed.get(1).getMessage());
+        assertEquals(c2.getAuthor(), replayed.get(1).getAuthor());
+
+        ObjectId tree = replayed.get(1).getTreeId();
+        assertEquals(featureId(c1.getTreeId(), pointsName, idP1),
+                featureId(tree, pointsName, idP1));
+        assertEquals(featureId(master.getTreeId(), pointsName, idP3),
+                featureId(tree, pointsName, idP3));
+        assertEquals(featureId(c2.getTreeId(), linesName, idL1), featureId(tree, linesName, idL1));
+
+        // nor the refs nor the working tree were touched
+        assertEquals(c2.getId(), ref("branch"));
+        assertEquals(workHead, ref(Ref.WORK_HEAD));
+    }
+
+    @Test
+    public void testStopsAtConflict() throws Exception {
+        insertAndAdd(lines1);
+        RevCommit c1 = repo.command(CommitOp.class).setMessage("c1").call();
+        Feature points3Branch = feature(pointsType, idP3, "StringProp1_3b", 3000, "POINT(3 3)");
+        insertAndAdd(points3Branch);
+        RevCommit c2 = repo.command(CommitOp.class).setMessage("c2").call();
+        insertAndAdd(points1_modified);
+        RevCommit c3 = repo.command(CommitOp.class).setMessage("c3").call();
+
+        ReplayCommitsResult result = repo.command(ReplayCommitsOp.class).setOnto(master.getId())
+                .setCommits(Arrays.asList(c1, c2, c3)).call();
+        assertEquals(c2, result.getConflicted());
+        assertEquals(1, result.getReplayed().size());
+        assertEquals(result.getReplayed().get(0).getId(), result.getHead());
+    }
+}
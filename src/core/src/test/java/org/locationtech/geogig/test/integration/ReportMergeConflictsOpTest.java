@@ -11,6 +11,7 @@ package org.locationtech.geogig.test.integration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.locationtech.geogig.feature.Feature;
@@ -366,4 +367,54 @@ public class ReportMergeConflictsOpTest extends RepositoryTestCase {
         assertFalse(hasConflicts.booleanValue());
     }
 
+    @Test
+    public void testManyFeaturesModifiedInBothBranches() throws Exception {
+        final int count = 500;
+        Feature[] features = new Feature[count];
+        Feature[] masterFeatures = new Feature[count];
+        Feature[] branchFeatures = new Feature[count];
+        for (int i = 0; i < count; i++) {
+            String id = "p" + i;
+            features[i] = feature(pointsType, id, "StringProp1_" + i, i, "POINT(1 1)");
+            masterFeatures[i] = feature(pointsType, id, "StringProp1_" + i, -i - 1, "POINT(1 1)");
+            // every tenth feature gets a conflicting change
+            branchFeatures[i] = i % 10 == 0
+                    ? feature(pointsType, id, "StringProp1_" + i, i + 1, "POINT(1 1)")
+                    : feature(pointsType, id, "StringProp1_" + i, i, "POINT(2 2)");
+        }
+        insertAndAdd(features);
+        repo.command(CommitOp.class).call();
+        repo.command(BranchCreateOp.class).setName("TestBranch").call();
+        insertAndAdd(masterFeatures);
+        RevCommit masterCommit = repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("TestBranch").call();
+        insertAndAdd(branchFeatures);
+        RevCommit branchCommit = repo.command(CommitOp.class).call();
+
+        TestMergeScenarioConsumer consumer = new TestMergeScenarioConsumer();
+        MergeScenarioReport report = repo.command(ReportMergeScenarioOp.class)
+                .setMergeIntoCommit(masterCommit).setToMergeCommit(branchCommit)
+                .setConsumer(consumer).call();
+        assertEquals(50, report.getConflicts());
+        assertEquals(450, report.getMerged());
+        assertEquals(450, consumer.merged.size());
+
+        // events are reported in a deterministic order, so a consumer can page through them
+        TestMergeScenarioConsumer page = new TestMergeScenarioConsumer() {
+            public @Override void merged(FeatureInfo featureInfo) {
+                super.merged(featureInfo);
+                if (merged.size() == 100) {
+                    cancel();
+                }
+            }
+        };
+        repo.command(ReportMergeScenarioOp.class).setMergeIntoCommit(masterCommit)
+                .setToMergeCommit(branchCommit).setConsumer(page).call();
+        assertEquals(paths(consumer.merged.subList(0, 100)), paths(page.merged));
+    }
+
+    private List<String> paths(List<FeatureInfo> features) {
+        return features.stream().map(FeatureInfo::getPath).collect(Collectors.toList());
+    }
+
 }
@@ -9,7 +9,11 @@
  */
 package org.locationtech.geogig.test.integration;
 
+import java.util.Collections;
+
 import org.junit.Test;
+import org.locationtech.geogig.porcelain.AddOp;
+import org.locationtech.geogig.porcelain.CommitOp;
 import org.locationtech.geogig.porcelain.StatusOp;
 import org.locationtech.geogig.porcelain.StatusOp.StatusSummary;
 
@@ -65,6 +69,48 @@ public class StatusOpTest extends RepositoryTestCase {
         assertEquals(3, summary.getCountStaged());
     }
 
+    @Test
+    public void testCountsByPath() throws Exception {
+        super.insertAndAdd(points1_modified);
+        super.insert(lines1);
+        StatusSummary summary = repo.command(StatusOp.class).call();
+        assertEquals(2, summary.getCountStaged());
+        assertEquals(2, summary.getCountUnstaged());
+        assertEquals(Collections.singleton(pointsName), summary.getStagedPaths().keySet());
+        assertEquals(Collections.singleton(linesName), summary.getUnstagedPaths().keySet());
+        assertEquals(1, summary.getStagedPaths().get(pointsName).getFeaturesChanged());
+        assertEquals(1, summary.getUnstagedPaths().get(linesName).getFeaturesAdded());
+    }
+
+    @Test
+    public void testSummaryFollowsChanges() throws Exception {
+        StatusSummary summary = repo.command(StatusOp.class).call();
+        assertEquals(0, summary.getCountUnstaged());
+
+        super.insert(points2);
+        summary = repo.command(StatusOp.class).call();
+        assertEquals(2, summary.getCountUnstaged());
+        assertEquals(0, summary.getCountStaged());
+        // unchanged repository, answered from the persisted summary
+        summary = repo.command(StatusOp.class).call();
+        assertEquals(2, summary.getCountUnstaged());
+
+        super.insert(points3);
+        summary = repo.command(StatusOp.class).call();
+        assertEquals(3, summary.getCountUnstaged());
+
+        repo.command(AddOp.class).call();
+        summary = repo.command(StatusOp.class).call();
+        assertEquals(0, summary.getCountUnstaged());
+        assertEquals(3, summary.getCountStaged());
+
+        repo.command(CommitOp.class).call();
+        summary = repo.command(StatusOp.class).call();
+        assertEquals(0, summary.getCountUnstaged());
+        assertEquals(0, summary.getCountStaged());
+        assertTrue(summary.getStagedPaths().isEmpty());
+    }
+
     private void assertAllFieldsNotNull(StatusSummary summary) {
         assertNotNull(summary);
         assertNotNull(summary.getStaged());
@@ -0,0 +1,233 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.geopkg;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geopkg.FeatureEntry;
+import org.geotools.geopkg.GeoPackage;
+import org.geotools.geopkg.geom.GeoPkgGeomWriter;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.geotools.plumbing.GeoToolsOpException;
+import org.locationtech.geogig.geotools.plumbing.GeoToolsOpException.StatusCode;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import lombok.NonNull;
+
+/**
+ * Writes features straight to a new GeoPackage table, bypassing the GeoTools datastore.
+ * <p>
+ * Features are encoded to GeoPackage geometry blobs and rows directly from their
+ * {@link RevFeature}s, and inserted through batched prepared statements, committing every
+ * {@link #COMMIT_INTERVAL} features, with the rollback journal kept in memory and without syncing
+ * to disk while loading. The feature id mappings ({@code <table>_fids}) are written in the same
+ * pass, the gpkg fids being assigned sequentially from {@code 1}. The spatial index is built in
+ * bulk once all the features are in, instead of being updated by triggers on each insert.
+ */
+class GeopkgBulkWriter {
+
+    static final int BATCH_SIZE = 1_000;
+
+    static final int COMMIT_INTERVAL = 100_000;
+
+    private static final String FID_COLUMN = "fid";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final GeoPackage geopackage;
+
+    private final ProgressListener progress;
+
+    GeopkgBulkWriter(@NonNull GeoPackage geopackage, @NonNull ProgressListener progress) {
+        this.geopackage = geopackage;
+        this.progress = progress;
+    }
+
+    /**
+     * Creates the {@code tableName} table for {@code featureType} and writes {@code features} to
+     * it.
+     *
+     * @param features the features to write, all of which must be of {@code featureType}
+     * @return the number of features written
+     * @throws GeoToolsOpException with status {@link StatusCode#MIXED_FEATURE_TYPES} if a feature
+     *         is not of {@code featureType}
+     */
+    long write(final @NonNull String tableName, final @NonNull RevFeatureType featureType,
+            final @NonNull Iterator<ObjectInfo<RevFeature>> features)
+            throws IOException, SQLException {
+
+        geopackage.init();
+        checkState(geopackage.feature(tableName) == null, "Table '%s' already exists", tableName);
+
+        SimpleFeatureTypeBuilder schemaBuilder = new SimpleFeatureTypeBuilder();
+        schemaBuilder.init(GT.adapt(featureType.type()));
+        schemaBuilder.setName(tableName);
+        final SimpleFeatureType schema = schemaBuilder.buildFeatureType();
+
+        final FeatureEntry entry = new FeatureEntry();
+        geopackage.create(entry, schema);
+
+        final List<PropertyDescriptor> descriptors = featureType.descriptors();
+        final int geometryIndex = featureType.type().getGeometryDescriptor()
+                .map(descriptors::indexOf).orElse(-1);
+
+        final Envelope bounds = new Envelope();
+        long count = 0;
+        try (Connection cx = geopackage.getDataSource().getConnection()) {
+            final String journalMode = pragma(cx, "journal_mode");
+            final String synchronous = pragma(cx, "synchronous");
+            try (Statement st = cx.createStatement()) {
+                st.execute("PRAGMA journal_mode = MEMORY");
+                st.execute("PRAGMA synchronous = OFF");
+                st.execute(GeopkgGeogigMetadata.fidMappingTableCreateSql(tableName));
+            }
+            cx.setAutoCommit(false);
+            try (PreparedStatement insert = cx.prepareStatement(insertSql(tableName, descriptors));
+                    PreparedStatement fids = cx.prepareStatement(
+                            GeopkgGeogigMetadata.fidMappingInsertSql(tableName))) {
+
+                final GeoPkgGeomWriter geomWriter = new GeoPkgGeomWriter();
+                final int srid = entry.getSrid() == null ? 0 : entry.getSrid().intValue();
+
+                while (features.hasNext() && !progress.isCanceled()) {
+                    final ObjectInfo<RevFeature> info = features.next();
+                    if (!featureType.getId().equals(info.ref().getMetadataId())) {
+                        throw new GeoToolsOpException(StatusCode.MIXED_FEATURE_TYPES);
+                    }
+                    final long fid = ++count;
+                    final RevFeature feature = info.object();
+                    insert.setLong(1, fid);
+                    for (int i = 0; i < descriptors.size(); i++) {
+                        Object value = feature.get(i).orElse(null);
+                        if (value instanceof Geometry) {
+                            Geometry geom = (Geometry) value;
+                            if (i == geometryIndex) {
+                                bounds.expandToInclude(geom.getEnvelopeInternal());
+                            }
+                            geom.setSRID(srid);
+                            value = geomWriter.write(geom);
+                        }
+                        bind(insert, i + 2, value);
+                    }
+                    insert.addBatch();
+
+                    fids.setString(1, Long.toString(fid));
+                    fids.setString(2, info.node().getName());
+                    fids.addBatch();
+
+                    if (count % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                        fids.executeBatch();
+                        progress.setProgress(count);
+                    }
+                    if (count % COMMIT_INTERVAL == 0) {
+                        cx.commit();
+                    }
+                }
+                insert.executeBatch();
+                fids.executeBatch();
+                updateBounds(cx, tableName, bounds);
+                cx.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                cx.rollback();
+                throw e;
+            } finally {
+                cx.setAutoCommit(true);
+                try (Statement st = cx.createStatement()) {
+                    st.execute("PRAGMA synchronous = " + synchronous);
+                    st.execute("PRAGMA journal_mode = " + journalMode);
+                }
+            }
+        }
+        progress.setProgress(count);
+        if (geometryIndex != -1) {
+            progress.setDescription(format("Creating spatial index for table '%s'...", tableName));
+            geopackage.createSpatialIndex(entry);
+        }
+        return count;
+    }
+
+    private static String insertSql(String tableName, List<PropertyDescriptor> descriptors) {
+        String columns = descriptors.stream().map(d -> format("\"%s\"", d.getLocalName()))
+                .collect(Collectors.joining(", "));
+        String params = descriptors.stream().map(d -> "?").collect(Collectors.joining(", "));
+        return format("INSERT INTO \"%s\" (\"%s\", %s) VALUES (?, %s)", tableName, FID_COLUMN,
+                columns, params);
+    }
+
+    private static String pragma(Connection cx, String name) throws SQLException {
+        try (Statement st = cx.createStatement();
+                ResultSet rs = st.executeQuery("PRAGMA " + name)) {
+            checkState(rs.next(), "PRAGMA %s returned no value", name);
+            return rs.getString(1);
+        }
+    }
+
+    private static void updateBounds(Connection cx, String tableName, Envelope bounds)
+            throws SQLException {
+        if (bounds.isNull()) {
+            return;
+        }
+        final String sql = "UPDATE gpkg_contents SET min_x = ?, min_y = ?, max_x = ?, max_y = ? "
+                + "WHERE table_name = ?";
+        try (PreparedStatement st = cx.prepareStatement(sql)) {
+            st.setDouble(1, bounds.getMinX());
+            st.setDouble(2, bounds.getMinY());
+            st.setDouble(3, bounds.getMaxX());
+            st.setDouble(4, bounds.getMaxY());
+            st.setString(5, tableName);
+            st.executeUpdate();
+        }
+    }
+
+    /**
+     * Binds a feature attribute value the way the GeoTools geopackage datastore stores them: dates
+     * and times as ISO-8601 text, and any value with no direct SQLite mapping as its string
+     * representation
+     */
+    private static void bind(PreparedStatement st, int index, Object value) throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.NULL);
+        } else if (value instanceof Number || value instanceof String || value instanceof byte[]) {
+            st.setObject(index, value);
+        } else if (value instanceof Boolean) {
+            st.setBoolean(index, ((Boolean) value).booleanValue());
+        } else if (value instanceof java.sql.Date || value instanceof java.sql.Time) {
+            st.setString(index, value.toString());
+        } else if (value instanceof java.util.Date) {
+            st.setString(index, TIMESTAMP_FORMAT.format(((java.util.Date) value).toInstant()));
+        } else {
+            st.setString(index, String.valueOf(value));
+        }
+    }
+}
@@ -60,18 +60,27 @@ public class GeopkgDataStoreExportOp extends DataStoreExportOp<File> {
     }
 
     /**
-     * Overrides to call {@code super.export} and then enable the geopackage interchange format
-     * after the data has been exported for the given layer. {@inheritDoc}
+     * Overrides to write the layer's features and their feature id mappings straight to the
+     * geopackage file, and then enable the geopackage interchange format after the data has been
+     * exported for the given layer.
+     * <p>
+     * If a {@link #setBBoxFilter bounding box filter} is set, the features are exported through
+     * {@code super.export} instead, and their feature id mappings are written afterwards.
+     * {@inheritDoc}
      */
     protected @Override void export(final String refSpec, final DataStore targetStore,
             final String targetTableName, final ProgressListener progress) {
 
-        super.export(refSpec, targetStore, targetTableName, progress);
-
-        InterchangeFormat format = new InterchangeFormat(geopackage, context());
+        InterchangeFormat format = new InterchangeFormat(geopackage, context())
+                .setProgressListener(progress);
 
         try {
-            format.createFIDMappingTable(fidMappings, targetTableName);
+            if (getBBoxFilter() == null) {
+                format.exportFeatures(refSpec, targetTableName);
+            } else {
+                super.export(refSpec, targetStore, targetTableName, progress);
+                format.createFIDMappingTable(fidMappings, targetTableName);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -134,7 +134,7 @@ public class GeopkgGeogigMetadata implements AutoCloseable {
         if (fidMappings.containsKey(tableName)) {
             return fidMappings.get(tableName);
         }
-        String fidTable = tableName + "_fids";
+        String fidTable = fidMappingTable(tableName);
         RocksdbMap mappings = new RocksdbMap();
         DatabaseMetaData dbm = cx.getMetaData();
         ResultSet tables = dbm.getTables(null, null, fidTable, null);
@@ -226,16 +226,27 @@ public class GeopkgGeogigMetadata implements AutoCloseable {
         return op;
     }
 
+    static String fidMappingTable(final String tableName) {
+        return tableName + "_fids";
+    }
+
+    static String fidMappingTableCreateSql(final String tableName) {
+        return format(
+                "CREATE TABLE IF NOT EXISTS \"%s\" (gpkg_fid VARCHAR, geogig_fid VARCHAR, PRIMARY KEY(gpkg_fid))",
+                fidMappingTable(tableName));
+    }
+
+    static String fidMappingInsertSql(final String tableName) {
+        return format("INSERT OR REPLACE INTO \"%s\" VALUES(?,?);", fidMappingTable(tableName));
+    }
+
     public String createFidMappingTable(final @NonNull String tableName,
             @NonNull Map<String, String> fidMappings) throws SQLException {
-        final String fidMappingTable = tableName + "_fids";
+        final String fidMappingTable = fidMappingTable(tableName);
 
-        final String createSql = format(
-                "CREATE TABLE IF NOT EXISTS \"%s\" (gpkg_fid VARCHAR, geogig_fid VARCHAR, PRIMARY KEY(gpkg_fid))",
-                fidMappingTable);
+        final String createSql = fidMappingTableCreateSql(tableName);
 
-        final String insertSql = format("INSERT OR REPLACE INTO \"%s\" VALUES(?,?);",
-                fidMappingTable);
+        final String insertSql = fidMappingInsertSql(tableName);
 
         cx.setAutoCommit(false);
         try {
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -41,8 +42,11 @@ import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geopkg.FeatureEntry;
 import org.geotools.geopkg.GeoPackage;
 import org.geotools.geopkg.geom.GeoPkgGeomReader;
+import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
 import org.locationtech.geogig.feature.Feature;
 import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.geotools.plumbing.GeoToolsOpException;
+import org.locationtech.geogig.geotools.plumbing.GeoToolsOpException.StatusCode;
 import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
@@ -57,7 +61,10 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.ResolveFeatureType;
 import org.locationtech.geogig.plumbing.RevObjectParse;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
 import org.locationtech.geogig.porcelain.ConfigGet;
 import org.locationtech.geogig.porcelain.MergeConflictsException;
 import org.locationtech.geogig.porcelain.MergeOp;
@@ -66,6 +73,8 @@ import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DefaultProgressListener;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Preconditions;
@@ -86,6 +95,17 @@ import lombok.NonNull;
  */
 public class InterchangeFormat {
 
+    /**
+     * Number of audit rows fetched from the geopackage at a time while importing
+     */
+    private static final int AUDIT_FETCH_SIZE = 10_000;
+
+    /**
+     * Alias of the column holding the geogig feature id of each audit row in the
+     * {@link #netChangesQuery net changes query}
+     */
+    private static final String MAPPED_FID_COLUMN = "geogig_mapped_fid";
+
     private Context context;
 
     private ProgressListener progressListener = DefaultProgressListener.NULL;
@@ -124,6 +144,58 @@ public class InterchangeFormat {
         }
     }
 
+    /**
+     * Exports the features of a feature tree to a new table in the geopackage, along with its
+     * feature id mappings table.
+     * <p>
+     * Features are written directly to the geopackage as they're read from the repository, instead
+     * of through a GeoTools datastore, and the table's spatial index is built once they're all in.
+     * 
+     * @param sourcePathspec path to export features from (supports format
+     *        {@code <[<commit-ish>:]<treePath>>}), {@code buildings} resolves to
+     *        {@code HEAD:buildings}.
+     * @param targetTableName name of the table to create, must not exist
+     * @return the number of exported features
+     * @throws GeoToolsOpException with status {@link StatusCode#MIXED_FEATURE_TYPES} if the tree
+     *         has features of a feature type other than its default one
+     */
+    public long exportFeatures(final String sourcePathspec, final String targetTableName)
+            throws IOException {
+
+        final String refspec = sourcePathspec.contains(":") ? sourcePathspec
+                : "HEAD:" + sourcePathspec;
+        checkArgument(!refspec.endsWith(":"), "No path specified.");
+
+        final Optional<RevTree> featureTree = context.command(RevObjectParse.class)
+                .setRefSpec(refspec).call(RevTree.class);
+        checkArgument(featureTree.isPresent(), "Couldn't resolve '%s' to a tree", refspec);
+
+        final Optional<RevFeatureType> featureType = context.command(ResolveFeatureType.class)
+                .setRefSpec(refspec).call();
+        checkArgument(featureType.isPresent(), "Couldn't resolve the feature type of '%s'",
+                refspec);
+
+        info("Exporting %s to table '%s'...", refspec, targetTableName);
+        progressListener.setMaxProgress(featureTree.get().size());
+        progressListener.setProgress(0);
+
+        final ObjectStore store = context.objectDatabase();
+        final DepthTreeIterator nodes = new DepthTreeIterator("", featureType.get().getId(),
+                featureTree.get(), store, Strategy.FEATURES_ONLY);
+
+        final GeoPackage geopackage = new GeoPackage(geopackageDbFile);
+        try (AutoCloseableIterator<ObjectInfo<RevFeature>> features = new BulkFeatureRetriever(
+                store).getGeoGIGFeatures(nodes)) {
+
+            GeopkgBulkWriter writer = new GeopkgBulkWriter(geopackage, progressListener);
+            return writer.write(targetTableName, featureType.get(), features);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            geopackage.close();
+        }
+    }
+
     /**
      * Creates an audit table for a table in the geopackage. This function requires that the
      * features have already been exported to the geopackage.
@@ -276,11 +348,8 @@ public class InterchangeFormat {
             RevTreeBuilder newTreeBuilder = CanonicalTreeBuilder.create(context.objectDatabase(),
                     baseTree);
 
-            Map<String, String> fidMappings = null;
             for (AuditTable t : tables.values()) {
-                fidMappings = metadata.getFidMappings(t.getTableName());
-                AuditReport report = importAuditLog(geopackage, t, baseTree, newTreeBuilder,
-                        fidMappings);
+                AuditReport report = importAuditLog(geopackage, t, baseTree, newTreeBuilder);
                 reports.add(report);
             }
 
@@ -360,16 +429,16 @@ public class InterchangeFormat {
      * @throws SQLException
      */
     private AuditReport importAuditLog(GeoPackage geopackage, AuditTable auditTable,
-            RevTree baseTree, RevTreeBuilder newTreeBuilder, Map<String, String> fidMappings)
-            throws SQLException {
+            RevTree baseTree, RevTreeBuilder newTreeBuilder) throws SQLException {
         info("Importing changes to table %s onto feature tree %s...", auditTable.getTableName(),
                 auditTable.getFeatureTreePath());
 
         AuditReport tableReport = new AuditReport(auditTable);
 
         try (Connection cx = geopackage.getDataSource().getConnection()) {
-            final String sql = format("SELECT * FROM %s", auditTable.getAuditTable());
+            final String sql = netChangesQuery(cx, auditTable);
             try (Statement st = cx.createStatement()) {
+                st.setFetchSize(AUDIT_FETCH_SIZE);
                 try (ResultSet rs = st.executeQuery(sql)) {
 
                     final Optional<NodeRef> currentTreeRef = context.command(FindTreeChild.class)
@@ -388,7 +457,7 @@ public class InterchangeFormat {
 
                     final Iterator<Change> changes = asChanges(rs, featureType, tableReport);
                     final RevTree newFeatureTree = importAuditLog(store, currentFeatureTree,
-                            changes, fidMappings, tableReport);
+                            changes, tableReport);
 
                     Node featureTreeNode = RevObjectFactory.defaultInstance().createNode(
                             featureTreeRef.name(), newFeatureTree.getId(),
@@ -412,8 +481,7 @@ public class InterchangeFormat {
      * @throws SQLException
      */
     private RevTree importAuditLog(ObjectStore store, RevTree currentFeatureTree,
-            Iterator<Change> changes, Map<String, String> fidMappings, AuditReport report)
-            throws SQLException {
+            Iterator<Change> changes, AuditReport report) throws SQLException {
 
         CanonicalTreeBuilder builder = CanonicalTreeBuilder.create(store, currentFeatureTree);
 
@@ -429,10 +497,8 @@ public class InterchangeFormat {
                 @Nullable
                 RevFeature feature = change.getFeature();
 
-                String featureId = null;
-                if (fidMappings.containsKey(change.getFeautreId())) {
-                    featureId = fidMappings.get(change.getFeautreId());
-                } else {
+                String featureId = change.getGeogigFeatureId();
+                if (featureId == null) {
                     featureId = newFeatureId();
                     report.addMapping(change.getFeautreId(), featureId);
                 }
@@ -467,10 +533,42 @@ public class InterchangeFormat {
     }
 
     /**
-     * Converts the audit log into an iterator for all of the changes and updates an audit report
-     * with a summary of the changes.
+     * Builds the query for the net change of each feature in the audit table.
+     * <p>
+     * Only the last audit row of each feature is returned, since rows hold the whole feature as of
+     * each edit, along with its geogig feature id as given by the feature id mappings table (if
+     * any), which is resolved in the same query instead of looked up feature by feature.
+     */
+    private static String netChangesQuery(Connection cx, AuditTable auditTable)
+            throws SQLException {
+        final String audit = auditTable.getAuditTable();
+        final String fidTable = GeopkgGeogigMetadata.fidMappingTable(auditTable.getTableName());
+        final String lastRows = format(
+                "a.rowid IN (SELECT max(rowid) FROM \"%s\" GROUP BY fid)", audit);
+        if (!tableExists(cx, fidTable)) {
+            return format("SELECT a.*, NULL AS %s FROM \"%s\" a WHERE %s", MAPPED_FID_COLUMN,
+                    audit, lastRows);
+        }
+        return format("SELECT a.*, m.geogig_fid AS %s FROM \"%s\" a "
+                + "LEFT JOIN \"%s\" m ON m.gpkg_fid = CAST(a.fid AS TEXT) WHERE %s",
+                MAPPED_FID_COLUMN, audit, fidTable, lastRows);
+    }
+
+    private static boolean tableExists(Connection cx, String table) throws SQLException {
+        final String sql = "SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?";
+        try (PreparedStatement st = cx.prepareStatement(sql)) {
+            st.setString(1, table);
+            try (ResultSet rs = st.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Converts the net changes in the audit log into an iterator of changes and updates an audit
+     * report with a summary of them. Features added and then deleted since the export are skipped.
      * 
-     * @param rs the rows from the audit log
+     * @param rs the rows from the {@link #netChangesQuery net changes query}
      * @param featureType the feature type for the features in the table
      * @param report the audit report to update
      * @return
@@ -484,26 +582,33 @@ public class InterchangeFormat {
 
             protected @Override Change computeNext() {
                 try {
-                    if (rs.next()) {
+                    while (rs.next()) {
                         final String featureId = rs.getString("fid");
-                        // final long auditTimestamp = rs.getLong("audit_timestamp");
-                        // System.err.println(new Timestamp(auditTimestamp));
+                        final @Nullable String geogigFeatureId = rs.getString(MAPPED_FID_COLUMN);
                         final int auditOp = rs.getInt("audit_op");
-                        final ChangeType changeType = toChangeType(auditOp);
+                        // the net change depends on whether the feature was exported, not on
+                        // the op of its last edit
+                        ChangeType changeType = toChangeType(auditOp);
 
                         RevFeature revFeature = null;
                         if (ChangeType.REMOVED.equals(changeType)) {
+                            if (geogigFeatureId == null) {
+                                continue;// added and removed since the export
+                            }
                             report.removed.incrementAndGet();
                         } else {
                             revFeature = recordToFeature.apply(rs);
-                            if (ChangeType.ADDED.equals(changeType)) {
+                            if (geogigFeatureId == null) {
+                                changeType = ChangeType.ADDED;
                                 report.added.incrementAndGet();
                             } else {
+                                changeType = ChangeType.MODIFIED;
                                 report.changed.incrementAndGet();
                             }
                         }
 
-                        Change change = new Change(featureId, changeType, revFeature);
+                        Change change = new Change(featureId, geogigFeatureId, changeType,
+                                revFeature);
                         return change;
                     }
                 } catch (SQLException e) {
@@ -578,18 +683,29 @@ public class InterchangeFormat {
 
         private final String featureId;
 
+        private final @Nullable String geogigFeatureId;
+
         private final ChangeType changeType;
 
         private final @Nullable RevFeature feature;
 
-        public Change(final String featureId, final ChangeType changeType,
-                final @Nullable RevFeature feature) {
+        public Change(final String featureId, final @Nullable String geogigFeatureId,
+                final ChangeType changeType, final @Nullable RevFeature feature) {
             this.featureId = featureId;
+            this.geogigFeatureId = geogigFeatureId;
             this.changeType = changeType;
             this.feature = feature;
 
         }
 
+        /**
+         * @return the id of the feature in the repository, or {@code null} if it was added to the
+         *         geopackage after the export
+         */
+        public @Nullable String getGeogigFeatureId() {
+            return geogigFeatureId;
+        }
+
         public ChangeType getType() {
             return changeType;
         }
@@ -14,6 +14,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.util.Optional.ofNullable;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -34,6 +35,7 @@ import org.locationtech.geogig.plumbing.LsTreeOp;
 import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
 import org.locationtech.geogig.plumbing.ResolveFeatureType;
 import org.locationtech.geogig.plumbing.RevObjectParse;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.opengis.feature.Feature;
@@ -80,6 +82,11 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
     @Nullable
     private ReferencedEnvelope bboxFilter;
 
+    @Nullable
+    private Integer parallelism;
+
+    private int concurrentWriters = 1;
+
     public DataStoreExportOp<T> setTarget(Supplier<DataStore> supplier) {
         this.dataStore = supplier;
         return this;
@@ -115,6 +122,33 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
         return this;
     }
 
+    public @Nullable ReferencedEnvelope getBBoxFilter() {
+        return this.bboxFilter;
+    }
+
+    /**
+     * @param parallelism how many threads read each layer, defaults to the repository's
+     *        {@link ExecutionPolicy#of execution policy} operation parallelism
+     * @see ExportOp#setParallelism(int)
+     */
+    public DataStoreExportOp<T> setParallelism(int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param writers how many threads write each layer at the same time, through different
+     *        transactions, defaults to {@code 1}. Only use more than one writer with data stores
+     *        that support concurrent transactions, like PostGIS.
+     * @see ExportOp#setConcurrentWriters(int)
+     */
+    public DataStoreExportOp<T> setConcurrentWriters(int writers) {
+        checkArgument(writers > 0, "writers must be > 0: %s", writers);
+        this.concurrentWriters = writers;
+        return this;
+    }
+
     protected @Override T _call() {
 
         final ProgressListener progress = getProgressListener();
@@ -173,6 +207,16 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
                 .setTransactional(true)//
                 .setBBoxFilter(this.bboxFilter);//
 
+        cmd.setParallelism(parallelism == null
+                ? ExecutionPolicy.of(configDatabase()).getOperationParallelism()
+                : parallelism);
+        if (concurrentWriters > 1) {
+            // each writer needs its own feature store instance
+            final String typeName = featureType.getName().getLocalPart();
+            cmd.setFeatureStore(() -> getFeatureStore(targetStore, typeName))
+                    .setConcurrentWriters(concurrentWriters);
+        }
+
         Function<Feature, Optional<Feature>> transformingFunction = getTransformingFunction(
                 featureType);
 
@@ -183,6 +227,14 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
         cmd.setProgressListener(progress).call();//
     }
 
+    private SimpleFeatureStore getFeatureStore(DataStore targetStore, String typeName) {
+        try {
+            return (SimpleFeatureStore) targetStore.getFeatureSource(typeName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private Set<String> resolveExportLayerRefSpecs() {
 
         final String refSpec = ofNullable(commitIsh).orElse(Ref.HEAD);
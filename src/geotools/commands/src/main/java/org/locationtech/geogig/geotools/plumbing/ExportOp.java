@@ -12,6 +12,7 @@ package org.locationtech.geogig.geotools.plumbing;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -19,6 +20,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -53,6 +58,7 @@ import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
 import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -77,6 +83,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Internal operation for creating a FeatureCollection from a tree content.
@@ -104,6 +111,10 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
 
     private ReferencedEnvelope bboxFilter;
 
+    private int parallelism = 1;
+
+    private int concurrentWriters = 1;
+
     /**
      * Constructs a new export operation.
      */
@@ -142,64 +153,92 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
                 "Exporting from " + path + " to " + targetStore.getName().getLocalPart() + "... ");
 
         final ReferencedEnvelope bboxFilter = this.bboxFilter;
-        final Iterator<SimpleFeature> filtered;
-        {
+        if (parallelism == 1 && concurrentWriters == 1) {
             final Iterator<SimpleFeature> plainFeatures = getFeatures(typeTree, database,
                     defaultMetadataId, bboxFilter, progressListener);
-
-            Iterator<SimpleFeature> adaptedFeatures = adaptToArguments(plainFeatures,
-                    defaultMetadataId);
-
-            Iterator<Optional<Feature>> transformed = Iterators.transform(adaptedFeatures,
-                    ExportOp.this.function::apply);
-
-            Iterator<SimpleFeature> filteredIter = Iterators.filter(
-                    Iterators.transform(transformed, f -> (SimpleFeature) f.orElse(null)),
-                    Predicates.notNull());
-
-            // check the resulting schema has something to contribute
-            PeekingIterator<SimpleFeature> peekingIt = Iterators.peekingIterator(filteredIter);
-            if (peekingIt.hasNext()) {
-                SimpleFeature peek = peekingIt.peek();
-                Set<String> sourceAtts = new HashSet<String>(
-                        Lists.transform(peek.getFeatureType().getAttributeDescriptors(),
-                                AttributeDescriptor::getLocalName));
-                Set<String> targetAtts = new HashSet<String>(
-                        Lists.transform(targetStore.getSchema().getAttributeDescriptors(),
-                                AttributeDescriptor::getLocalName));
-                if (Sets.intersection(sourceAtts, targetAtts).isEmpty()) {
-                    throw new GeoToolsOpException(StatusCode.UNABLE_TO_ADD,
-                            "No common attributes between source and target feature types");
+            write(targetStore, prepare(plainFeatures, defaultMetadataId, targetStore));
+        } else {
+            Predicate<Bounded> boundsFilter = bboxFilter == null ? null
+                    : new BBoxPredicate(database, bboxFilter, defaultMetadataId);
+            progressListener.setMaxProgress(typeTree.size());
+            progressListener.setProgress(0);
+            try (ShardedFeatureReader reader = new ShardedFeatureReader(database,
+                    defaultMetadataId, boundsFilter, parallelism, progressListener)) {
+                reader.start(reader.shards(typeTree));
+                if (concurrentWriters == 1) {
+                    write(targetStore,
+                            prepare(reader.iterator(), defaultMetadataId, targetStore));
+                } else {
+                    List<SimpleFeatureStore> stores = getTargetStores(targetStore);
+                    writeConcurrently(stores, reader, defaultMetadataId);
                 }
             }
+        }
 
-            filtered = peekingIt;
+        progressListener.complete();
+
+        return targetStore;
+
+    }
+
+    /**
+     * Adapts the features to the op arguments and the conversion function, and checks the result
+     * has something to contribute to the target store
+     */
+    private Iterator<SimpleFeature> prepare(final Iterator<SimpleFeature> plainFeatures,
+            final ObjectId defaultMetadataId, final SimpleFeatureStore targetStore) {
+
+        Iterator<SimpleFeature> adaptedFeatures = adaptToArguments(plainFeatures,
+                defaultMetadataId);
+
+        Iterator<Optional<Feature>> transformed = Iterators.transform(adaptedFeatures,
+                ExportOp.this.function::apply);
+
+        Iterator<SimpleFeature> filteredIter = Iterators.filter(
+                Iterators.transform(transformed, f -> (SimpleFeature) f.orElse(null)),
+                Predicates.notNull());
+
+        // check the resulting schema has something to contribute
+        PeekingIterator<SimpleFeature> peekingIt = Iterators.peekingIterator(filteredIter);
+        if (peekingIt.hasNext()) {
+            SimpleFeature peek = peekingIt.peek();
+            Set<String> sourceAtts = new HashSet<String>(
+                    Lists.transform(peek.getFeatureType().getAttributeDescriptors(),
+                            AttributeDescriptor::getLocalName));
+            Set<String> targetAtts = new HashSet<String>(
+                    Lists.transform(targetStore.getSchema().getAttributeDescriptors(),
+                            AttributeDescriptor::getLocalName));
+            if (Sets.intersection(sourceAtts, targetAtts).isEmpty()) {
+                throw new GeoToolsOpException(StatusCode.UNABLE_TO_ADD,
+                        "No common attributes between source and target feature types");
+            }
         }
-        FeatureCollection<SimpleFeatureType, SimpleFeature> asFeatureCollection = new BaseFeatureCollection<SimpleFeatureType, SimpleFeature>() {
+        return peekingIt;
+    }
+
+    private static FeatureCollection<SimpleFeatureType, SimpleFeature> asFeatureCollection(
+            final Iterator<SimpleFeature> features) {
+        return new BaseFeatureCollection<SimpleFeatureType, SimpleFeature>() {
 
             public @Override FeatureIterator<SimpleFeature> features() {
 
-                return new DelegateFeatureIterator<SimpleFeature>(filtered);
+                return new DelegateFeatureIterator<SimpleFeature>(features);
             }
         };
+    }
+
+    private Transaction newTransaction() {
+        return transactional ? new DefaultTransaction("create") : Transaction.AUTO_COMMIT;
+    }
 
+    private void write(final SimpleFeatureStore targetStore,
+            final Iterator<SimpleFeature> filtered) {
         // add the feature collection to the feature store
-        final Transaction transaction;
-        if (transactional) {
-            transaction = new DefaultTransaction("create");
-        } else {
-            transaction = Transaction.AUTO_COMMIT;
-        }
+        final Transaction transaction = newTransaction();
         try {
             targetStore.setTransaction(transaction);
             try {
-                targetStore.addFeatures(asFeatureCollection);
-                // ArrayList al = new ArrayList();
-                // while (filtered.hasNext())
-                // al.add(filtered.next());
-                // FeatureReader<SimpleFeatureType, SimpleFeature> reader = new
-                // IteratorBackedFeatureReader(null,filtered );
-                // targetStore.setFeatures(reader);
+                targetStore.addFeatures(asFeatureCollection(filtered));
                 transaction.commit();
             } catch (final Exception e) {
                 if (transactional) {
@@ -213,11 +252,72 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         } catch (IOException e) {
             throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_ADD);
         }
+    }
 
-        progressListener.complete();
-
-        return targetStore;
-
+    /**
+     * Writes the features read by {@code reader} to all the {@code stores} at the same time, each
+     * one with its own transaction. The transactions are committed once all the writers finished
+     * successfully, and rolled back if any of them failed.
+     */
+    private void writeConcurrently(final List<SimpleFeatureStore> stores,
+            final ShardedFeatureReader reader, final ObjectId defaultMetadataId) {
+
+        final ExecutorService writers = Executors.newFixedThreadPool(stores.size(),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-export-writer-%d").build());
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Transaction> transactions = new ArrayList<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (SimpleFeatureStore store : stores) {
+                Transaction transaction = newTransaction();
+                transactions.add(transaction);
+                store.setTransaction(transaction);
+                futures.add(writers.submit(() -> {
+                    try {
+                        Iterator<SimpleFeature> features = prepare(reader.iterator(),
+                                defaultMetadataId, store);
+                        store.addFeatures(asFeatureCollection(features));
+                    } catch (Throwable e) {
+                        // taken before closing the reader, so it's the failure reported
+                        error.compareAndSet(null, e);
+                        reader.close();
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            if (error.get() == null) {
+                for (Transaction transaction : transactions) {
+                    transaction.commit();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } catch (Exception e) {
+            error.compareAndSet(null, e);
+        } finally {
+            writers.shutdownNow();
+            for (Transaction transaction : transactions) {
+                try {
+                    if (transactional && error.get() != null) {
+                        transaction.rollback();
+                    }
+                    transaction.close();
+                } catch (IOException e) {
+                    error.compareAndSet(null, e);
+                }
+            }
+        }
+        final Throwable failure = error.get();
+        if (failure != null) {
+            Throwables.throwIfInstanceOf(failure, GeoToolsOpException.class);
+            Exception cause = failure instanceof Exception ? (Exception) failure
+                    : new RuntimeException(failure);
+            throw new GeoToolsOpException(cause, StatusCode.UNABLE_TO_ADD);
+        }
     }
 
     private static AutoCloseableIterator<SimpleFeature> getFeatures(final RevTree typeTree,
@@ -399,6 +499,22 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         return targetStore;
     }
 
+    /**
+     * @return {@code first} plus as many other stores from the target store supplier as needed to
+     *         reach {@link #concurrentWriters}
+     */
+    private List<SimpleFeatureStore> getTargetStores(final SimpleFeatureStore first) {
+        List<SimpleFeatureStore> stores = new ArrayList<>(concurrentWriters);
+        stores.add(first);
+        while (stores.size() < concurrentWriters) {
+            final SimpleFeatureStore store = getTargetStore();
+            checkArgument(stores.stream().noneMatch(s -> s == store),
+                    "Concurrent writers need a feature store supplier that returns a new instance on each call");
+            stores.add(store);
+        }
+        return stores;
+    }
+
     /**
      * 
      * @param featureStore a supplier that resolves to the feature store to use for exporting
@@ -509,6 +625,33 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         return this;
     }
 
+    /**
+     * Sets how many threads fetch and adapt the exported features, each one reading a different
+     * top level bucket of the feature tree. Defaults to {@code 1}, reading the whole tree
+     * sequentially, in the tree's order. Callers that don't depend on the order can use the
+     * repository's {@link ExecutionPolicy#of execution policy} operation parallelism.
+     */
+    public ExportOp setParallelism(int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets how many threads write to the target at the same time, defaults to {@code 1}.
+     * <p>
+     * Each writer uses its own feature store and transaction, so more than one writer requires a
+     * {@link #setFeatureStore(Supplier) feature store supplier} that returns a new instance on each
+     * call, and a target that supports concurrent transactions (e.g. PostGIS). When
+     * {@link #setTransactional(boolean) transactional}, the writers' transactions are committed
+     * once all of them succeeded, one after the other.
+     */
+    public ExportOp setConcurrentWriters(int writers) {
+        checkArgument(writers > 0, "writers must be > 0: %s", writers);
+        this.concurrentWriters = writers;
+        return this;
+    }
+
     private static class BBoxPredicate implements Predicate<Bounded> {
 
         private final ObjectStore store;
@@ -14,6 +14,7 @@ import static org.geotools.data.DataUtilities.attributeNames;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,7 +31,6 @@ import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureSource;
-import org.geotools.data.store.FeatureIteratorIterator;
 import org.geotools.feature.DecoratingFeature;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
@@ -60,6 +60,7 @@ import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
 import org.locationtech.geogig.plumbing.ResolveFeatureType;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
@@ -147,6 +148,8 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
 
     private Filter filter = Filter.INCLUDE;
 
+    private @Nullable Integer parallelism;
+
     /**
      * Executes the import operation using the parameters that have been specified. Features will be
      * added to the working tree, and a new working tree will be constructed. Either {@code all} or
@@ -198,6 +201,11 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         }
 
         int tableCount = 0;
+        final boolean overwriteTables = overwrite;
+        // what to do with each table's tree right before importing it, and the table's features
+        // if not creating the schema only
+        final List<Runnable> preparations = new ArrayList<>();
+        final List<ImportPipeline.Source> sources = new ArrayList<>();
 
         for (String typeName : typeNames) {
             {
@@ -253,27 +261,28 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
                         featureSource, destPathSimpleFeatureType);
             }
 
-            ProgressListener taskProgress = subProgress(100.f / typeNames.length);
-            if (overwrite) {
-                try {
-                    workTree.delete(path);
-                    workTree.createTypeTree(path, gigType);
-                } catch (Exception e) {
-                    throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
-                }
-            }
+            final String tablePath = path;
+            preparations.add(() -> prepare(workTree, tablePath, gigType, overwriteTables,
+                    typeNames.length));
+            sources.add(createSchemaOnly ? null : source(path, featureSource));
+        }
 
-            if (alter) {
-                // first we modify the feature type and the existing features, if needed
-                workTree.updateTypeTree(path, gigType);
-                Iterator<Feature> transformedIterator = transformFeatures(gigType, path);
-                RevFeatureType type = RevFeatureType.builder().type(gigType).build();
-                objectDatabase().put(type);
-                insert(workTree, path, transformedIterator, taskProgress, type);
-            }
-            if (!createSchemaOnly) {
-                insert(workTree, path, featureSource, taskProgress);
+        if (destPathProvided && typeNames.length > 1) {
+            // import the tables one after the other, so that altering the destination tree
+            // rewrites the features of the tables imported before, and for ids present in more
+            // than one table, the feature from the table imported last is the one kept
+            for (int i = 0; i < typeNames.length; i++) {
+                preparations.get(i).run();
+                if (sources.get(i) != null) {
+                    insert(workTree, Collections.singletonList(sources.get(i)),
+                            subProgress(100.f / typeNames.length));
+                }
             }
+        } else {
+            preparations.forEach(Runnable::run);
+            insert(workTree,
+                    sources.stream().filter(s -> s != null).collect(Collectors.toList()),
+                    subProgress(100.f));
         }
 
         progressListener.setProgress(100.f);
@@ -281,6 +290,33 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         return workTree.getTree();
     }
 
+    /**
+     * Prepares the tree a table is imported to, right before inserting the table's features:
+     * recreates it if overwriting, or changes its feature type and rewrites the features it
+     * already has if altering.
+     */
+    private void prepare(WorkingTree workTree, String path, FeatureType gigType,
+            boolean overwrite, int tableCount) {
+        if (overwrite) {
+            try {
+                workTree.delete(path);
+                workTree.createTypeTree(path, gigType);
+            } catch (Exception e) {
+                throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
+            }
+        }
+
+        if (alter) {
+            // first we modify the feature type and the existing features, if needed
+            workTree.updateTypeTree(path, gigType);
+            Iterator<Feature> transformedIterator = transformFeatures(gigType, path);
+            RevFeatureType type = RevFeatureType.builder().type(gigType).build();
+            objectDatabase().put(type);
+            ProgressListener taskProgress = subProgress(100.f / tableCount);
+            insert(workTree, path, transformedIterator, taskProgress, type);
+        }
+    }
+
     private boolean hasPrimaryKey(String typeName) {
         SimpleFeatureSource featureSource;
         try {
@@ -504,29 +540,45 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         }
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    private void insert(final WorkingTree workTree, final String treePath,
-            final FeatureSource featureSource, final ProgressListener taskProgress) {
+    private ImportPipeline.Source source(final String treePath,
+            final FeatureSource<?, ?> featureSource) {
 
         final Query query = new Query();
         query.setFilter(filter);
         CoordinateSequenceFactory coordSeq = new PackedCoordinateSequenceFactory();
         query.getHints().add(new Hints(Hints.JTS_COORDINATE_SEQUENCE_FACTORY, coordSeq));
 
-        try (FeatureIterator fit = featureSource.getFeatures(query).features()) {
-            org.opengis.feature.type.FeatureType schema = featureSource.getSchema();
-            FeatureType gigSchema = GT.adapt(schema);
-            RevFeatureType featureType = RevFeatureType.builder().type(gigSchema).build();
-            objectDatabase().put(featureType);
+        org.opengis.feature.type.FeatureType schema = featureSource.getSchema();
+        FeatureType gigSchema = GT.adapt(schema);
+        RevFeatureType featureType = RevFeatureType.builder().type(gigSchema).build();
+        objectDatabase().put(featureType);
+        return new ImportPipeline.Source(treePath, featureSource, query, featureType);
+    }
 
-            if (fit.hasNext()) {
-                Iterator<Feature> features = new FeatureIteratorIterator<>(fit);
-                insert(workTree, treePath, features, taskProgress, featureType);
+    /**
+     * Reads, encodes, and inserts the features of the given tables concurrently, with an
+     * {@link ImportPipeline}
+     */
+    private void insert(final WorkingTree workTree, final List<ImportPipeline.Source> sources,
+            final ProgressListener taskProgress) {
+        final int parallelism = this.parallelism == null
+                ? ExecutionPolicy.of(configDatabase()).getOperationParallelism()
+                : this.parallelism.intValue();
+        ImportPipeline pipeline = new ImportPipeline(parallelism, getProgressListener());
+        pipeline.run(sources, features -> {
+            if (!features.hasNext()) {
+                return;
             }
-        } catch (IOException e) {
-            LOG.warn("Unable to insert into " + treePath, e);
-            throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
-        }
+            try {
+                workTree.insert(features, taskProgress);
+            } catch (GeoToolsOpException e) {
+                throw e;
+            } catch (Exception e) {
+                LOG.warn("Unable to insert " + sources.stream()
+                        .map(ImportPipeline.Source::getTreePath).collect(Collectors.toList()), e);
+                throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
+            }
+        });
     }
 
     private void insert(final WorkingTree workTree, final String treePath,
@@ -745,4 +797,17 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         this.filter = filter;
         return this;
     }
+
+    /**
+     * Sets how many tables are read at the same time, and how many threads adapt the imported
+     * features. Defaults to the repository's {@link ExecutionPolicy#of execution policy}
+     * operation parallelism.
+     * <p>
+     * Use {@code 1} for data stores that don't support concurrent reads.
+     */
+    public ImportOp setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.parallelism = Integer.valueOf(parallelism);
+        return this;
+    }
 }
@@ -0,0 +1,291 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.feature.FeatureIterator;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.geotools.plumbing.GeoToolsOpException.StatusCode;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Imports the features of several tables concurrently, as a three stage pipeline:
+ * <ol>
+ * <li>Readers: one thread per table, up to {@code parallelism} tables at a time, iterate the
+ * source features and hand them over in batches;
+ * <li>Encoders: a pool of {@code parallelism} threads adapt each batch to GeoGig features,
+ * computing their ids;
+ * <li>Writer: the calling thread, which takes the encoded batches and writes them through the
+ * {@code writer} consumer (usually {@code WorkingTree.insert}) in a single pass.
+ * </ol>
+ * The number of batches read but not yet written is bounded, so readers block when encoding or
+ * writing can't keep up. The throughput of each stage is reported as the progress listener's
+ * description.
+ */
+class ImportPipeline {
+
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Terminal token for the encoded batches queue, compared by identity
+     */
+    private static final List<FeatureInfo> END = Collections.unmodifiableList(new ArrayList<>());
+
+    private static final long REPORT_INTERVAL_MILLIS = 1000;
+
+    /**
+     * A table to import
+     */
+    static @Value class Source {
+        private String treePath;
+
+        private FeatureSource<?, ?> featureSource;
+
+        private Query query;
+
+        /**
+         * The type the features are adapted to, already saved to the object database
+         */
+        private RevFeatureType featureType;
+    }
+
+    private final int parallelism;
+
+    private final ProgressListener progress;
+
+    private final BlockingQueue<List<FeatureInfo>> encoded = new LinkedBlockingQueue<>();
+
+    /**
+     * Bounds the number of batches read but not yet taken by the writer
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Number of readers and encoding tasks not yet finished, the last one to finish signals the
+     * writer there's nothing else to write
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private final AtomicLong read = new AtomicLong(), encodedCount = new AtomicLong(),
+            written = new AtomicLong();
+
+    private final Stopwatch elapsed = Stopwatch.createUnstarted();
+
+    private long lastReport;
+
+    /**
+     * @param parallelism the max number of tables read at once, and the number of encoding threads
+     * @param progress the listener to report throughput to, and to check for cancellation
+     */
+    ImportPipeline(int parallelism, @NonNull ProgressListener progress) {
+        checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.parallelism = parallelism;
+        this.progress = progress;
+        this.inFlight = new Semaphore(4 * parallelism);
+    }
+
+    /**
+     * Imports the given sources, returning once all their features have been written or the
+     * operation was cancelled.
+     *
+     * @param writer the consumer that writes the features, called once on the calling thread
+     */
+    void run(@NonNull List<Source> sources, @NonNull Consumer<Iterator<FeatureInfo>> writer) {
+        if (sources.isEmpty()) {
+            return;
+        }
+        final ExecutorService readers = Executors.newFixedThreadPool(
+                Math.min(parallelism, sources.size()), new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-import-reader-%d").build());
+        final ExecutorService encoders = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-import-encoder-%d").build());
+        elapsed.start();
+        final Throwable failure;
+        try {
+            running.set(sources.size());
+            for (Source source : sources) {
+                readers.execute(() -> read(source, encoders));
+            }
+            writer.accept(writtenFeatures());
+            // taken before shutting down, readers interrupted by it are not failures
+            failure = error.get();
+        } finally {
+            readers.shutdownNow();
+            encoders.shutdownNow();
+            elapsed.stop();
+        }
+        if (failure != null && !progress.isCanceled()) {
+            Exception cause = failure instanceof Exception ? (Exception) failure
+                    : new RuntimeException(failure);
+            throw new GeoToolsOpException(cause, StatusCode.UNABLE_TO_INSERT);
+        }
+        report();
+    }
+
+    private boolean isAborted() {
+        if (progress.isCanceled()) {
+            // wake up the writer, readers are interrupted once it returns
+            fail(new CancellationException());
+        }
+        return error.get() != null;
+    }
+
+    private void read(Source source, ExecutorService encoders) {
+        try (FeatureIterator<?> features = source.getFeatureSource()
+                .getFeatures(source.getQuery()).features()) {
+            List<Feature> batch = new ArrayList<>(BATCH_SIZE);
+            while (features.hasNext() && !isAborted()) {
+                batch.add(features.next());
+                if (batch.size() == BATCH_SIZE) {
+                    encode(source, batch, encoders);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty() && !isAborted()) {
+                encode(source, batch, encoders);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            finished();
+        }
+    }
+
+    private void encode(Source source, List<Feature> batch, ExecutorService encoders)
+            throws InterruptedException {
+        inFlight.acquire();
+        read.addAndGet(batch.size());
+        running.incrementAndGet();
+        encoders.execute(() -> {
+            boolean queued = false;
+            try {
+                if (!isAborted()) {
+                    List<FeatureInfo> infos = new ArrayList<>(batch.size());
+                    for (Feature f : batch) {
+                        infos.add(encode(source, f));
+                    }
+                    encodedCount.addAndGet(infos.size());
+                    encoded.add(infos);
+                    queued = true;
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                if (!queued) {
+                    // the writer won't take it, don't leave readers waiting for the permit
+                    inFlight.release();
+                }
+                finished();
+            }
+        });
+    }
+
+    private FeatureInfo encode(Source source, Feature f) {
+        final RevFeatureType featureType = source.getFeatureType();
+        org.locationtech.geogig.feature.Feature gigFeature = GT.adapt(featureType.type(),
+                (SimpleFeature) f);
+        RevFeature rf = RevFeature.builder().build(gigFeature);
+        String path = NodeRef.appendChild(source.getTreePath(), f.getIdentifier().getID());
+        return FeatureInfo.insert(rf, featureType.getId(), path);
+    }
+
+    private void fail(Throwable e) {
+        if (error.compareAndSet(null, e)) {
+            // wake up the writer
+            encoded.add(END);
+        }
+    }
+
+    private void finished() {
+        if (running.decrementAndGet() == 0) {
+            encoded.add(END);
+        }
+    }
+
+    private Iterator<FeatureInfo> writtenFeatures() {
+        Iterator<List<FeatureInfo>> batches = new AbstractIterator<List<FeatureInfo>>() {
+            protected @Override List<FeatureInfo> computeNext() {
+                List<FeatureInfo> batch;
+                try {
+                    // polled to notice cancellation while all readers are blocked
+                    while ((batch = encoded.poll(REPORT_INTERVAL_MILLIS,
+                            TimeUnit.MILLISECONDS)) == null) {
+                        if (isAborted()) {
+                            return endOfData();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                    return endOfData();
+                }
+                if (batch == END || error.get() != null) {
+                    return endOfData();
+                }
+                inFlight.release();
+                written.addAndGet(batch.size());
+                if (elapsed.elapsed(TimeUnit.MILLISECONDS) - lastReport > REPORT_INTERVAL_MILLIS) {
+                    report();
+                }
+                return batch;
+            }
+        };
+        return Iterators.concat(Iterators.transform(batches, List::iterator));
+    }
+
+    private void report() {
+        final long millis = elapsed.elapsed(TimeUnit.MILLISECONDS);
+        lastReport = millis;
+        final double seconds = Math.max(1, millis) / 1000d;
+        progress.setDescription(String.format(
+                "Read %,d (%,.0f/s), encoded %,d (%,.0f/s), written %,d (%,.0f/s) features",
+                read.get(), read.get() / seconds, encodedCount.get(),
+                encodedCount.get() / seconds, written.get(), written.get() / seconds));
+    }
+}
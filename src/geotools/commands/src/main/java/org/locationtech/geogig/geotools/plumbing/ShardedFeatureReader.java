@@ -0,0 +1,282 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.model.Bounded;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+
+/**
+ * Reads the features of a feature tree concurrently, splitting it in shards by its top level
+ * buckets.
+ * <p>
+ * Each shard is walked, fetched from the object store with a {@link BulkFeatureRetriever}, and
+ * adapted to GeoTools features on its own thread, up to {@code parallelism} shards at a time. The
+ * features are handed over in batches through a bounded queue, so readers block when the
+ * consumers can't keep up. Several threads can consume the features at the same time, each one
+ * through its own {@link #iterator()}, and each batch goes to only one of them.
+ * <p>
+ * Features come out in no particular order.
+ */
+class ShardedFeatureReader implements AutoCloseable {
+
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Terminal token for the batches queue, compared by identity
+     */
+    private static final List<SimpleFeature> END = Collections.unmodifiableList(new ArrayList<>());
+
+    private final ObjectStore store;
+
+    private final ObjectId defaultMetadataId;
+
+    private final @Nullable Predicate<Bounded> boundsFilter;
+
+    private final int parallelism;
+
+    private final ProgressListener progress;
+
+    private final BlockingQueue<List<SimpleFeature>> batches;
+
+    /**
+     * Number of shards not yet read, the last one to finish signals the consumers there's nothing
+     * else to read
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private ExecutorService readers;
+
+    /**
+     * @param boundsFilter if given, only the buckets and features it applies to are read
+     * @param parallelism the max number of shards read at once
+     * @param progress the listener to report the number of features read to, and to check for
+     *        cancellation
+     */
+    ShardedFeatureReader(@NonNull ObjectStore store, @NonNull ObjectId defaultMetadataId,
+            @Nullable Predicate<Bounded> boundsFilter, int parallelism,
+            @NonNull ProgressListener progress) {
+        checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.store = store;
+        this.defaultMetadataId = defaultMetadataId;
+        this.boundsFilter = boundsFilter;
+        this.parallelism = parallelism;
+        this.progress = progress;
+        this.batches = new ArrayBlockingQueue<>(4 * parallelism);
+    }
+
+    /**
+     * @return the trees to read concurrently: the top level buckets of {@code featureTree} that
+     *         pass the bounds filter, or the tree itself if it has no buckets
+     */
+    List<RevTree> shards(@NonNull RevTree featureTree) {
+        if (featureTree.bucketsSize() == 0) {
+            return Collections.singletonList(featureTree);
+        }
+        List<RevTree> shards = new ArrayList<>(featureTree.bucketsSize());
+        for (Bucket bucket : featureTree.getBuckets()) {
+            if (boundsFilter == null || boundsFilter.apply(bucket)) {
+                shards.add(store.getTree(bucket.getObjectId()));
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Starts reading the features of the given trees in the background
+     */
+    void start(@NonNull List<RevTree> shards) {
+        checkState(readers == null, "already started");
+        readers = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, shards.size())),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-export-reader-%d").build());
+        if (shards.isEmpty()) {
+            batches.add(END);
+            return;
+        }
+        running.set(shards.size());
+        for (RevTree shard : shards) {
+            readers.execute(() -> read(shard));
+        }
+    }
+
+    /**
+     * Stops reading, making all consumers reach the end of their iterators
+     */
+    public @Override void close() {
+        error.compareAndSet(null, new IllegalStateException("reader closed"));
+        if (readers != null) {
+            readers.shutdownNow();
+        }
+        batches.clear();
+        offerEnd();
+    }
+
+    private boolean isAborted() {
+        return error.get() != null || progress.isCanceled();
+    }
+
+    private void read(RevTree shard) {
+        DepthTreeIterator nodes = new DepthTreeIterator("", defaultMetadataId, shard, store,
+                Strategy.FEATURES_ONLY);
+        if (boundsFilter != null) {
+            nodes.setBoundsFilter(boundsFilter);
+        }
+        BulkFeatureRetriever retriever = new BulkFeatureRetriever(store);
+        try (AutoCloseableIterator<Feature> features = retriever.getGeoToolsFeatures(nodes)) {
+            FeatureType lastType = null;
+            SimpleFeatureType simpleType = null;
+            List<SimpleFeature> batch = new ArrayList<>(BATCH_SIZE);
+            while (features.hasNext() && !isAborted()) {
+                Feature feature = features.next();
+                if (feature.getType() != lastType) {
+                    lastType = feature.getType();
+                    simpleType = GT.adapt(lastType);
+                }
+                batch.add(GT.adapt(simpleType, feature));
+                if (batch.size() == BATCH_SIZE) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty() && !isAborted()) {
+                batches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                end();
+            }
+        }
+    }
+
+    /**
+     * Signals the consumers there's nothing else to read once they took all the batches, waiting
+     * for room in the queue unless the batches are being discarded anyway
+     */
+    private void end() {
+        if (error.get() == null) {
+            try {
+                batches.put(END);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+        offerEnd();
+    }
+
+    private void fail(Throwable e) {
+        if (error.compareAndSet(null, e)) {
+            // wake up the consumers
+            batches.clear();
+            offerEnd();
+        }
+    }
+
+    /**
+     * Adds the terminal token dropping batches to make room for it, only to be used when the
+     * batches are being discarded
+     */
+    private void offerEnd() {
+        while (!batches.offer(END)) {
+            batches.poll();
+        }
+    }
+
+    /**
+     * @return the next batch of features, or {@code null} if there are no more
+     */
+    private @Nullable List<SimpleFeature> nextBatch() {
+        List<SimpleFeature> batch;
+        try {
+            batch = batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            batch = END;
+        }
+        if (batch == END || error.get() != null) {
+            Throwable failure = error.get();
+            // let the other consumers see it too
+            if (failure == null) {
+                // all readers finished, there are no batches left to make room for
+                batches.offer(END);
+            } else {
+                offerEnd();
+            }
+            if (failure != null && !progress.isCanceled()) {
+                Throwables.throwIfUnchecked(failure);
+                throw new IllegalStateException("Error reading features", failure);
+            }
+            return null;
+        }
+        synchronized (progress) {
+            progress.incrementBy(batch.size());
+        }
+        return batch;
+    }
+
+    /**
+     * @return an iterator over the features not taken by other consumers, to be used by a single
+     *         thread
+     */
+    Iterator<SimpleFeature> iterator() {
+        Iterator<List<SimpleFeature>> it = new AbstractIterator<List<SimpleFeature>>() {
+            protected @Override List<SimpleFeature> computeNext() {
+                List<SimpleFeature> batch = nextBatch();
+                return batch == null ? endOfData() : batch;
+            }
+        };
+        return Iterators.concat(Iterators.transform(it, List::iterator));
+    }
+}
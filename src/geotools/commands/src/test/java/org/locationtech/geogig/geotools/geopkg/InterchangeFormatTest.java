@@ -0,0 +1,130 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.geopkg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geopkg.GeoPkgDataStoreFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.plumbing.LsTreeOp;
+import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
+import org.locationtech.geogig.plumbing.RevObjectParse;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+
+public class InterchangeFormatTest extends RepositoryTestCase {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File geopackage;
+
+    private InterchangeFormat format;
+
+    protected @Override void setUpInternal() throws Exception {
+        insertAndAdd(points1, points2, points3);
+        repo.command(CommitOp.class).call();
+
+        geopackage = new File(tmp.getRoot(), "test.gpkg");
+        format = new InterchangeFormat(geopackage, repo.context());
+        assertEquals(3, format.exportFeatures(pointsName, pointsName));
+        format.export(pointsName, pointsName);
+    }
+
+    private DataStore dataStore() throws IOException {
+        Map<String, Serializable> params = new HashMap<>();
+        params.put(GeoPkgDataStoreFactory.DBTYPE.key, "geopkg");
+        params.put(GeoPkgDataStoreFactory.DATABASE.key, geopackage.getAbsolutePath());
+        return new GeoPkgDataStoreFactory().createDataStore(params);
+    }
+
+    private Filter sp(String value) {
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+        return ff.equals(ff.property("sp"), ff.literal(value));
+    }
+
+    private RevFeature headFeature(String path) {
+        return repo.command(RevObjectParse.class).setRefSpec("HEAD:" + path)
+                .call(RevFeature.class).get();
+    }
+
+    @Test
+    public void testImportNetChanges() throws Exception {
+        DataStore store = dataStore();
+        Transaction tx = new DefaultTransaction();
+        try {
+            SimpleFeatureStore points = (SimpleFeatureStore) store.getFeatureSource(pointsName);
+            points.setTransaction(tx);
+            SimpleFeature points4 = GT.adapt(feature(pointsType, "Points.4", "StringProp1_4",
+                    Integer.valueOf(4000), "POINT(4 4)"));
+            SimpleFeature points5 = GT.adapt(feature(pointsType, "Points.5", "StringProp1_5",
+                    Integer.valueOf(5000), "POINT(5 5)"));
+            points.addFeatures(DataUtilities.collection(Arrays.asList(points4, points5)));
+            // several edits to the same features, only their net outcome shall be imported
+            points.modifyFeatures("ip", Integer.valueOf(4001), sp("StringProp1_4"));
+            points.modifyFeatures("ip", Integer.valueOf(4002), sp("StringProp1_4"));
+            points.modifyFeatures("ip", Integer.valueOf(2001), sp("StringProp1_2"));
+            points.modifyFeatures("ip", Integer.valueOf(2002), sp("StringProp1_2"));
+            points.removeFeatures(sp("StringProp1_5"));
+            points.removeFeatures(sp("StringProp1_1"));
+            tx.commit();
+        } finally {
+            tx.close();
+            store.dispose();
+        }
+
+        try (GeopkgImportResult result = format.importAuditLog("net changes", null, null,
+                pointsName)) {
+            RevCommit head = repo.command(RevObjectParse.class).setRefSpec("HEAD")
+                    .call(RevCommit.class).get();
+            assertEquals(result.getNewCommit(), head);
+            assertEquals("net changes", head.getMessage());
+            assertEquals(1, result.getNewMappings().get(pointsName).size());
+        }
+
+        List<String> names = new ArrayList<>();
+        repo.command(LsTreeOp.class).setStrategy(Strategy.FEATURES_ONLY).setReference(pointsName)
+                .call().forEachRemaining(n -> names.add(n.name()));
+        assertEquals(3, names.size());
+        assertFalse(names.contains(idP1));
+        assertTrue(names.remove(idP2));
+        assertTrue(names.remove(idP3));
+
+        assertEquals(Integer.valueOf(2002), headFeature(NodeRef.appendChild(pointsName, idP2))
+                .get(1).orElse(null));
+        assertEquals(points3.getAttribute(1), headFeature(NodeRef.appendChild(pointsName, idP3))
+                .get(1).orElse(null));
+        // the added feature gets a generated id, and its last version
+        RevFeature added = headFeature(NodeRef.appendChild(pointsName, names.get(0)));
+        assertEquals(Integer.valueOf(4002), added.get(1).orElse(null));
+    }
+}
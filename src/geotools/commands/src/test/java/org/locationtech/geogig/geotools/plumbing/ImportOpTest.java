@@ -214,6 +214,26 @@ public class ImportOpTest extends RepositoryTestCase {
         assertTrue(ref.isPresent());
     }
 
+    @Test
+    public void testImportAllSequentially() throws Exception {
+        ImportOp importOp = repo.command(ImportOp.class);
+        importOp.setDataStore(
+                TestHelper.createTestFactory().createDataStore(Collections.emptyMap()));
+        importOp.setAll(true);
+        RevTree parallel = importOp.call();
+        assertNotEquals(RevTree.EMPTY_TREE_ID, parallel.getId());
+
+        // start over from an empty working tree, or importing again wouldn't change anything
+        repo.context().workingTree().updateWorkHead(RevTree.EMPTY_TREE_ID);
+        importOp = repo.command(ImportOp.class);
+        importOp.setDataStore(
+                TestHelper.createTestFactory().createDataStore(Collections.emptyMap()));
+        importOp.setAll(true);
+        importOp.setParallelism(1);
+        RevTree sequential = importOp.call();
+        assertEquals(parallel, sequential);
+    }
+
     @Test
     public void testImportAllWithDifferentFeatureTypesAndDestPath() throws Exception {
         ImportOp importOp = repo.command(ImportOp.class);
@@ -340,6 +360,29 @@ public class ImportOpTest extends RepositoryTestCase {
         assertEquals("name", featureType.get().descriptors().get(1).getName().getLocalPart());
     }
 
+    @Test
+    public void testAlterAllWithDestPath() throws Exception {
+        ImportOp importOp = repo.command(ImportOp.class);
+        importOp.setDataStore(
+                TestHelper.createTestFactory().createDataStore(Collections.emptyMap()));
+        importOp.setTable("table1");
+        importOp.call();
+        importOp.setTable(null);
+        importOp.setAll(true);
+        importOp.setDestinationPath("table1");
+        importOp.setAlter(true);
+        importOp.call();
+        Iterator<NodeRef> features = repo.command(LsTreeOp.class)
+                .setStrategy(Strategy.DEPTHFIRST_ONLY_FEATURES).call();
+        // each table alters the features imported from the previous ones
+        TreeSet<ObjectId> set = Sets.newTreeSet();
+        features.forEachRemaining(node -> set.add(node.getMetadataId()));
+        assertEquals(1, set.size());
+        Optional<RevFeatureType> featureType = repo.command(RevObjectParse.class)
+                .setObjectId(set.iterator().next()).call(RevFeatureType.class);
+        assertEquals("table1", featureType.get().getName().getLocalPart());
+    }
+
     @Test
     public void testImportWithOverriddenGeomName() throws Exception {
         ImportOp importOp = repo.command(ImportOp.class);
@@ -0,0 +1,165 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.junit.Test;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class ImportPipelineTest extends RepositoryTestCase {
+
+    private static final int BATCH_SIZE = ImportPipeline.BATCH_SIZE;
+
+    private SimpleFeature point(int i) {
+        return GT.adapt(feature(pointsType, "p." + i, "StringProp1_" + i, Integer.valueOf(i),
+                "POINT(" + (i % 180) + " " + (i % 90) + ")"));
+    }
+
+    /**
+     * A source of {@code count} features, {@code onNext} is called before returning each one
+     */
+    @SuppressWarnings("unchecked")
+    private ImportPipeline.Source source(String path, int count, IntFunction<SimpleFeature> onNext)
+            throws IOException {
+        FeatureIterator<SimpleFeature> iterator = new FeatureIterator<SimpleFeature>() {
+            private int next;
+
+            public @Override boolean hasNext() {
+                return next < count;
+            }
+
+            public @Override SimpleFeature next() {
+                return onNext.apply(next++);
+            }
+
+            public @Override void close() {
+            }
+        };
+        FeatureCollection<SimpleFeatureType, SimpleFeature> collection = mock(
+                FeatureCollection.class);
+        when(collection.features()).thenReturn(iterator);
+        FeatureSource<SimpleFeatureType, SimpleFeature> featureSource = mock(FeatureSource.class);
+        when(featureSource.getFeatures(any(Query.class))).thenReturn(collection);
+        RevFeatureType featureType = RevFeatureType.builder().type(pointsType).build();
+        return new ImportPipeline.Source(path, featureSource, Query.ALL, featureType);
+    }
+
+    @Test
+    public void testImportsAllFeatures() throws Exception {
+        final int count = 5 * BATCH_SIZE + 10;
+        List<ImportPipeline.Source> sources = Arrays.asList(source("t1", count, this::point),
+                source("t2", count, this::point), source("t3", count, this::point));
+
+        Set<String> written = new HashSet<>();
+        new ImportPipeline(2, new DefaultProgressListener()).run(sources,
+                features -> features.forEachRemaining(f -> written.add(f.getPath())));
+
+        assertEquals(3 * count, written.size());
+        assertTrue(written.contains("t1/p.0"));
+        assertTrue(written.contains("t3/p." + (count - 1)));
+    }
+
+    @Test
+    public void testReaderFailure() throws Exception {
+        final RuntimeException cause = new RuntimeException("source failed");
+        List<ImportPipeline.Source> sources = Arrays.asList(
+                source("t1", 10 * BATCH_SIZE, this::point),
+                source("t2", 10 * BATCH_SIZE, i -> {
+                    if (i == 2 * BATCH_SIZE + 1) {
+                        throw cause;
+                    }
+                    return point(i);
+                }));
+        List<FeatureInfo> written = new ArrayList<>();
+        try {
+            new ImportPipeline(2, new DefaultProgressListener()).run(sources,
+                    features -> features.forEachRemaining(written::add));
+            fail("Expected GeoToolsOpException");
+        } catch (GeoToolsOpException e) {
+            assertSame(cause, e.getCause());
+        }
+        assertTrue(written.size() < 20 * BATCH_SIZE);
+    }
+
+    @Test(timeout = 30_000)
+    public void testCancel() throws Exception {
+        final int count = 50 * BATCH_SIZE;
+        List<ImportPipeline.Source> sources = Arrays.asList(source("t1", count, this::point),
+                source("t2", count, this::point));
+        DefaultProgressListener listener = new DefaultProgressListener();
+        List<FeatureInfo> written = new ArrayList<>();
+        // cancelling is not a failure, run() returns once the writer is done
+        new ImportPipeline(1, listener).run(sources, features -> {
+            while (features.hasNext()) {
+                written.add(features.next());
+                if (written.size() == BATCH_SIZE) {
+                    listener.cancel();
+                }
+            }
+        });
+        assertTrue(written.size() < 2 * count);
+    }
+
+    /**
+     * The writer shall notice the cancellation even if no reader gets to hand over another batch,
+     * instead of waiting for them forever
+     */
+    @Test(timeout = 30_000)
+    public void testCancelWithStuckReaders() throws Exception {
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        IntFunction<SimpleFeature> stuckAfterFirstBatch = i -> {
+            if (i == BATCH_SIZE) {
+                try {
+                    neverReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            return point(i);
+        };
+        List<ImportPipeline.Source> sources = Arrays.asList(
+                source("t1", 10 * BATCH_SIZE, stuckAfterFirstBatch),
+                source("t2", 10 * BATCH_SIZE, stuckAfterFirstBatch));
+        DefaultProgressListener listener = new DefaultProgressListener();
+        List<FeatureInfo> written = new ArrayList<>();
+        new ImportPipeline(2, listener).run(sources, features -> {
+            while (features.hasNext()) {
+                written.add(features.next());
+                if (written.size() == BATCH_SIZE) {
+                    listener.cancel();
+                }
+            }
+        });
+        assertTrue(written.size() <= 2 * BATCH_SIZE);
+    }
+}
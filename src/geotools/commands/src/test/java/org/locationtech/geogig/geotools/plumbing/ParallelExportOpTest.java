@@ -0,0 +1,113 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.google.common.base.Supplier;
+
+/**
+ * Tests {@link ExportOp} walking buckets and writing features concurrently
+ */
+public class ParallelExportOpTest extends RepositoryTestCase {
+
+    private SimpleFeatureType gtPointsType;
+
+    protected @Override void setUpInternal() throws Exception {
+        gtPointsType = GT.adapt(pointsType);
+    }
+
+    private List<Feature> insertPoints(int count) {
+        List<Feature> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(feature(pointsType, "p." + i, "StringProp1_" + i, Integer.valueOf(i),
+                    "POINT(" + (i % 180) + " " + (i % 90) + ")"));
+        }
+        insert(points);
+        return points;
+    }
+
+    private Set<String> exportedIds(MemoryDataStore dataStore) throws IOException {
+        Set<String> ids = new HashSet<>();
+        try (SimpleFeatureIterator it = dataStore.getFeatureSource(dataStore.getTypeNames()[0])
+                .getFeatures().features()) {
+            while (it.hasNext()) {
+                ids.add(it.next().getID());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void testExportBucketsInParallel() throws Exception {
+        // big enough for the feature tree to have buckets
+        List<Feature> points = insertPoints(2000);
+
+        MemoryDataStore dataStore = new MemoryDataStore(gtPointsType);
+        final String typeName = dataStore.getTypeNames()[0];
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) dataStore
+                .getFeatureSource(typeName);
+        repo.command(ExportOp.class).setFeatureStore(featureStore).setPath(pointsName)
+                .setParallelism(4).call();
+
+        Set<String> expected = points.stream().map(f -> f.getId()).collect(Collectors.toSet());
+        assertEquals(expected, exportedIds(dataStore));
+    }
+
+    @Test
+    public void testExportWithConcurrentWriters() throws Exception {
+        List<Feature> points = insertPoints(2000);
+
+        MemoryDataStore dataStore = new MemoryDataStore(gtPointsType);
+        final String typeName = dataStore.getTypeNames()[0];
+        Supplier<SimpleFeatureStore> stores = () -> {
+            try {
+                return (SimpleFeatureStore) dataStore.getFeatureSource(typeName);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        repo.command(ExportOp.class).setFeatureStore(stores).setPath(pointsName)
+                .setParallelism(2).setConcurrentWriters(3).call();
+
+        Set<String> expected = points.stream().map(f -> f.getId()).collect(Collectors.toSet());
+        assertEquals(expected, exportedIds(dataStore));
+    }
+
+    @Test
+    public void testConcurrentWritersNeedDifferentStores() throws Exception {
+        insertPoints(10);
+        MemoryDataStore dataStore = new MemoryDataStore(gtPointsType);
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) dataStore
+                .getFeatureSource(dataStore.getTypeNames()[0]);
+        try {
+            repo.command(ExportOp.class).setFeatureStore(featureStore).setPath(pointsName)
+                    .setConcurrentWriters(2).call();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("new instance"));
+        }
+    }
+}
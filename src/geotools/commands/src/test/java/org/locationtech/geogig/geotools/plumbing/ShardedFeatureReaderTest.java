@@ -0,0 +1,72 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class ShardedFeatureReaderTest extends RepositoryTestCase {
+
+    private Set<String> insertPoints(int count) {
+        List<Feature> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(feature(pointsType, "p." + i, "StringProp1_" + i, Integer.valueOf(i),
+                    "POINT(" + (i % 180) + " " + (i % 90) + ")"));
+        }
+        insert(points);
+        return points.stream().map(Feature::getId).collect(Collectors.toSet());
+    }
+
+    private NodeRef pointsTree() {
+        return repo.command(FindTreeChild.class)
+                .setParent(repo.context().workingTree().getTree()).setChildPath(pointsName)
+                .call().get();
+    }
+
+    @Test
+    public void testSlowConsumerGetsAllFeatures() throws Exception {
+        final Set<String> expected = insertPoints(2000);
+        final NodeRef treeRef = pointsTree();
+        final ObjectStore store = repo.context().objectDatabase();
+        final RevTree tree = store.getTree(treeRef.getObjectId());
+
+        Set<String> read = new HashSet<>();
+        try (ShardedFeatureReader reader = new ShardedFeatureReader(store,
+                treeRef.getMetadataId(), null, 1, new DefaultProgressListener())) {
+            List<RevTree> shards = reader.shards(tree);
+            // more batches than the queue can hold, so the last shard ends with a full queue
+            assertTrue(shards.size() > 4);
+            reader.start(shards);
+            Thread.sleep(500);
+            Iterator<SimpleFeature> features = reader.iterator();
+            while (features.hasNext()) {
+                read.add(features.next().getID());
+                if (read.size() % 50 == 0) {
+                    Thread.sleep(10);
+                }
+            }
+        }
+        assertEquals(expected, read);
+    }
+}
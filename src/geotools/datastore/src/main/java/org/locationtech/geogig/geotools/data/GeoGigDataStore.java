@@ -44,6 +44,7 @@ import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.porcelain.index.UpdateIndexOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -491,6 +492,11 @@ public class GeoGigDataStore extends ContentDataStore implements DataStore {
 
         Context context = repository.context();
         for (IndexInfo indexInfo : indexInfos) {
+            if (IndexType.ATTRIBUTE == indexInfo.getIndexType()
+                    || IndexType.TEMPORAL == indexInfo.getIndexType()) {
+                // only spatial indexes are used to materialize extra attributes
+                continue;
+            }
             // get any existing attributes that are already part of the index
             final Set<String> materializedAttributeNames = IndexInfo
                     .getMaterializedAttributeNames(indexInfo);
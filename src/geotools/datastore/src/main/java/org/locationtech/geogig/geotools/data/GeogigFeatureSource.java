@@ -44,6 +44,7 @@ import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.WorkingTree;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureVisitor;
@@ -189,6 +190,13 @@ public class GeogigFeatureSource extends ContentFeatureSource {
         if (Filter.EXCLUDE.equals(filter)) {
             return ReferencedEnvelope.create(crs);
         }
+        if (query.getStartIndex() == null && query.isMaxFeaturesUnlimited()) {
+            // try to compute the bounds out of the tree nodes, without fetching the features
+            Envelope nodeBounds = visitorHandler.getBounds(filter, this);
+            if (nodeBounds != null) {
+                return new ReferencedEnvelope(nodeBounds, crs);
+            }
+        }
 
         query = new Query(query);
         query.setPropertyNames(Query.NO_NAMES);
@@ -215,12 +223,26 @@ public class GeogigFeatureSource extends ContentFeatureSource {
         final Integer maxFeatures = query.getMaxFeatures() == Integer.MAX_VALUE ? null
                 : query.getMaxFeatures();
 
-        int size;
+        query = new Query(query);
+        query.setFilter(filter);
+        query.setPropertyNames(Query.NO_NAMES);
+        query.setSortBy(null);
+
+        // the walk is built once, to count its nodes if the filter can be evaluated against them
+        // without fetching the features, or to back the feature reader otherwise
+        FeatureReaderBuilder builder = null;
+        final Long nodeCount;
         if (Filter.INCLUDE.equals(filter)) {
-            RevTree tree = getTypeTree();
-            size = (int) tree.size();
+            nodeCount = Long.valueOf(getTypeTree().size());
+        } else {
+            builder = nativeReaderBuilder(query, false);
+            nodeCount = visitorHandler.getCount(builder.buildTreeWalk());
+        }
+        int size;
+        if (nodeCount != null) {
+            size = nodeCount.intValue();
             if (offset != null) {
-                size = size - offset.intValue();
+                size = Math.max(0, size - offset.intValue());
             }
             if (maxFeatures != null) {
                 size = Math.min(size, maxFeatures.intValue());
@@ -228,13 +250,8 @@ public class GeogigFeatureSource extends ContentFeatureSource {
             return size;
         }
 
-        query = new Query(query);
-        query.setPropertyNames(Query.NO_NAMES);
-        query.setSortBy(null);
-
         int count = 0;
-        try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
-                false)) {
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> features = build(builder, query)) {
             while (features.hasNext()) {
                 features.next();
                 count++;
@@ -293,6 +310,20 @@ public class GeogigFeatureSource extends ContentFeatureSource {
      */
     private FeatureReader<SimpleFeatureType, SimpleFeature> getNativeReader(final Query query,
             final boolean retypeIfNeeded) throws IOException {
+        return build(nativeReaderBuilder(query, retypeIfNeeded), query);
+    }
+
+    private FeatureReader<SimpleFeatureType, SimpleFeature> build(FeatureReaderBuilder builder,
+            Query query) {
+        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = builder.build();
+        if (query.getHints().containsKey(GeogigFeatureSource.WALK_INFO_KEY)) {
+            WALK_INFO.set(builder.getBuiltWalkInfo());
+        }
+        return featureReader;
+    }
+
+    private FeatureReaderBuilder nativeReaderBuilder(final Query query,
+            final boolean retypeIfNeeded) {
 
         final Context context = getCommandLocator();
 
@@ -318,7 +349,7 @@ public class GeogigFeatureSource extends ContentFeatureSource {
 
         FeatureReaderBuilder builder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
 
-        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = builder//
+        return builder//
                 .targetSchema(getSchema())//
                 .filter(filter)//
                 .headRef(getRootRef())//
@@ -332,14 +363,7 @@ public class GeogigFeatureSource extends ContentFeatureSource {
                 .propertyNames(propertyNames)//
                 .screenMap(screenMap)//
                 .sortBy(sortBy)//
-                .retypeIfNeeded(retypeIfNeeded)//
-                .build();
-
-        if (query.getHints().containsKey(GeogigFeatureSource.WALK_INFO_KEY)) {
-            WALK_INFO.set(builder.getBuiltWalkInfo());
-        }
-        return featureReader;
-
+                .retypeIfNeeded(retypeIfNeeded);
     }
 
     protected @Override SimpleFeatureType buildFeatureType() throws IOException {
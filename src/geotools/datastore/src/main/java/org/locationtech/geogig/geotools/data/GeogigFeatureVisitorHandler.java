@@ -16,9 +16,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.Query;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.FeatureAttributeVisitor;
 import org.geotools.feature.visitor.FeatureCalc;
 import org.geotools.feature.visitor.MaxVisitor;
@@ -30,22 +33,28 @@ import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.geotools.data.GeoGigDataStore.ChangeType;
 import org.locationtech.geogig.geotools.data.reader.FeatureReaderBuilder;
 import org.locationtech.geogig.geotools.data.reader.WalkInfo;
+import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
 import org.opengis.feature.FeatureVisitor;
+import org.opengis.geometry.BoundingBox;
 import org.opengis.filter.Filter;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
@@ -57,7 +66,15 @@ import com.google.common.collect.Lists;
  * without having to fall back to traversing the feature collection.
  * <p>
  * Currently handles {@link UniqueVisitor unique}, {@link MinVisitor min}, {@link MaxVisitor max},
- * and {@link NearestVisitor nearest} visitors.
+ * {@link NearestVisitor nearest}, {@link CountVisitor count}, and {@link BoundsVisitor bounds}
+ * visitors.
+ * <p>
+ * Whenever the query filter can be fully evaluated against the tree {@link Node nodes} (i.e. its
+ * post filter is {@code INCLUDE}), count and bounds are computed out of the nodes alone, and
+ * min/max/unique values out of the nodes {@link IndexInfo#getMaterializedAttribute materialized
+ * attributes} if the property is materialized in the index, without fetching any
+ * {@link RevFeature}. When computing bounds for a bounding box only filter, buckets fully
+ * contained in the bounding box contribute their own bounds without traversing their contents.
  */
 class GeogigFeatureVisitorHandler {
 
@@ -100,6 +117,9 @@ class GeogigFeatureVisitorHandler {
     }
 
     public boolean handle(FeatureVisitor visitor, Query query, GeogigFeatureSource source) {
+        if (visitor instanceof CountVisitor || visitor instanceof BoundsVisitor) {
+            return acceptAggregate(query, visitor, source);
+        }
         if (visitor instanceof FeatureCalc) {
             boolean handled = acceptFeatureCalc(query.getFilter(), (FeatureCalc) visitor, source);
             return handled;
@@ -107,6 +127,122 @@ class GeogigFeatureVisitorHandler {
         return false;
     }
 
+    private boolean acceptAggregate(Query query, FeatureVisitor visitor,
+            GeogigFeatureSource source) {
+        if (query.getStartIndex() != null || !query.isMaxFeaturesUnlimited()) {
+            return false;
+        }
+        final Filter filter = query.getFilter();
+        if (visitor instanceof CountVisitor) {
+            Long count = getCount(filter, source);
+            if (count == null) {
+                return false;
+            }
+            ((CountVisitor) visitor).setValue(count.intValue());
+        } else {
+            Envelope bounds = getBounds(filter, source);
+            if (bounds == null) {
+                return false;
+            }
+            ((BoundsVisitor) visitor).getBounds().expandToInclude(bounds);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the features matching {@code filter} out of the tree nodes alone.
+     * 
+     * @return the number of matching features, or {@code null} if the filter can't be fully
+     *         evaluated against the tree nodes
+     */
+    public @Nullable Long getCount(Filter filter, GeogigFeatureSource source) {
+        return getCount(buildTreeWalk(filter, source));
+    }
+
+    /**
+     * Counts the features out of the nodes of an already built walk.
+     * <p>
+     * Unlike {@link #getBounds bounds}, every matching node is visited: the size of a bucket fully
+     * contained in a bounding box filter would over count, since the nodes without bounds under
+     * it don't match.
+     * 
+     * @return the number of matching features, or {@code null} if the walk's filter can't be
+     *         fully evaluated against the tree nodes
+     */
+    public @Nullable Long getCount(WalkInfo walkInfo) {
+        if (!walkInfo.filterIsFullySupportedByIndex) {
+            return null;
+        }
+        walkInfo.diffOp.setPreserveIterationOrder(false);
+        final AtomicLong count = new AtomicLong();
+        walkInfo.diffOp.call(new PreOrderDiffWalk.AbstractConsumer() {
+            public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                if (right != null) {
+                    count.incrementAndGet();
+                }
+                return true;
+            }
+        });
+        return Long.valueOf(count.get());
+    }
+
+    /**
+     * Computes the bounds of the features matching {@code filter} out of the tree nodes alone.
+     * 
+     * @return the bounds of the matching features in the native CRS, or {@code null} if the
+     *         filter can't be fully evaluated against the tree nodes
+     */
+    public @Nullable Envelope getBounds(Filter filter, GeogigFeatureSource source) {
+        final WalkInfo walkInfo = buildTreeWalk(filter, source);
+        if (!walkInfo.filterIsFullySupportedByIndex) {
+            return null;
+        }
+        final @Nullable Envelope queryBounds = spatialBucketsFilter(walkInfo);
+        final BoundsConsumer consumer = new BoundsConsumer(queryBounds);
+        walkInfo.diffOp.call(consumer);
+        return consumer.getBounds();
+    }
+
+    /**
+     * @return the bounding box the pre filter consists of, only if it is a bounding box filter
+     *         alone and the bucket bounds of the traversed trees are spatial bounds, {@code null}
+     *         otherwise
+     */
+    private @Nullable Envelope spatialBucketsFilter(WalkInfo walkInfo) {
+        if (!(walkInfo.preFilter instanceof BBOX)) {
+            return null;
+        }
+        if (walkInfo.diffUsesIndex) {
+            IndexType indexType = walkInfo.rightIndex.get().info().getIndexType();
+            if (IndexType.ATTRIBUTE == indexType || IndexType.TEMPORAL == indexType) {
+                return null;
+            }
+        }
+        BoundingBox bbox = ((BBOX) walkInfo.preFilter).getBounds();
+        return new Envelope(bbox.getMinX(), bbox.getMaxX(), bbox.getMinY(), bbox.getMaxY());
+    }
+
+    private WalkInfo buildTreeWalk(Filter filter, GeogigFeatureSource source,
+            String... propertyNames) {
+        final Context context = source.getCommandLocator();
+        final RevFeatureType nativeType = source.getNativeType();
+        final NodeRef typeRef = source.getTypeRef();
+
+        final FeatureReaderBuilder builder;
+        builder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
+        WalkInfo walkInfo = builder//
+                .targetSchema(source.getSchema())//
+                .filter(filter)//
+                .headRef(source.getRootRef())//
+                .propertyNames(propertyNames)//
+                .retypeIfNeeded(false)// don't force retyping, we don't need to return the schema
+                                      // matching Query properties
+                .buildTreeWalk();
+
+        walkInfo.diffOp.setPreserveIterationOrder(false);
+        return walkInfo;
+    }
+
     private boolean acceptFeatureCalc(Filter filter, FeatureCalc visitor,
             GeogigFeatureSource source) {
         if (!(UniqueVisitor.class.isInstance(visitor) || MinVisitor.class.isInstance(visitor)
@@ -165,22 +301,14 @@ class GeogigFeatureVisitorHandler {
             }
         }
 
-        final Context context = source.getCommandLocator();
         final RevFeatureType nativeType = source.getNativeType();
-
-        final FeatureReaderBuilder builder;
-        builder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
-        WalkInfo walkInfo = builder//
-                .targetSchema(source.getSchema())//
-                .filter(filter)//
-                .headRef(source.getRootRef())//
-                .propertyNames(propertyName)//
-                .retypeIfNeeded(false)// don't force retyping, we don't need to return the schema
-                                      // matching Query properties
-                .buildTreeWalk();
-
+        final WalkInfo walkInfo = buildTreeWalk(filter, source, propertyName);
+        if (!walkInfo.filterIsFullySupportedByIndex) {
+            // features would need to be post filtered, let the caller fall back to traversing the
+            // feature collection
+            return null;
+        }
         DiffTree diff = walkInfo.diffOp;
-        diff.setPreserveIterationOrder(false);
 
         final Set<String> materializedIndexProperties = walkInfo.materializedIndexProperties;
         final boolean attributeIsMaterialized = materializedIndexProperties.contains(propertyName);
@@ -228,6 +356,46 @@ class GeogigFeatureVisitorHandler {
                 String.format("Property %s not found in %s", propertyName, nativeType.type()));
     }
 
+    private static class BoundsConsumer extends PreOrderDiffWalk.AbstractConsumer {
+
+        private final @Nullable Envelope queryBounds;
+
+        private final Envelope bounds = new Envelope();
+
+        public BoundsConsumer(@Nullable Envelope queryBounds) {
+            this.queryBounds = queryBounds;
+        }
+
+        public synchronized Envelope getBounds() {
+            return new Envelope(bounds);
+        }
+
+        public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if (right != null) {
+                synchronized (this) {
+                    right.getNode().expand(bounds);
+                }
+            }
+            return true;
+        }
+
+        public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
+                BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+            if (queryBounds == null || right == null) {
+                return true;
+            }
+            Envelope bucketBounds = right.bounds().orElse(null);
+            if (bucketBounds == null || !queryBounds.contains(bucketBounds)) {
+                return true;
+            }
+            // all the nodes under the bucket match, and the bucket bounds are their bounds
+            synchronized (this) {
+                bounds.expandToInclude(bucketBounds);
+            }
+            return false;
+        }
+    }
+
     private static class MaterializedConsumer extends PreOrderDiffWalk.AbstractConsumer {
         private final NavigableSet<Object> uniqueValues;
 
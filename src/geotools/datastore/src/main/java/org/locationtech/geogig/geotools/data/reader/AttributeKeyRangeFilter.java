@@ -0,0 +1,448 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bounded;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.temporal.After;
+import org.opengis.filter.temporal.Before;
+import org.opengis.filter.temporal.BinaryTemporalOperator;
+import org.opengis.temporal.Instant;
+import org.opengis.temporal.Period;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+
+/**
+ * A {@link Predicate} that prunes the buckets of an {@link AttributeTreeBuilder attribute index}
+ * tree whose key range can't contain any feature matching a query filter.
+ * <p>
+ * The key ranges are extracted from the equality, range ({@code <, <=, >, >=, BETWEEN}), and
+ * {@code IN} comparisons, as well as the temporal operators ({@code AFTER}, {@code BEFORE},
+ * {@code DURING}, etc.), against the indexed attributes in the query filter, combined through
+ * {@link And} and {@link Or}. Any other filter on the indexed attributes (e.g. {@code NOT},
+ * {@code LIKE}, case insensitive string comparisons) leaves it unconstrained.
+ * <p>
+ * For temporal indexes whose buckets span the validity period of their features, the start and
+ * end of period attributes are both indexed attributes, as the value of either falls into the
+ * bucket key range. Hence the key ranges are kept per attribute, in disjunctive normal form: a
+ * bucket is traversed if for any of the {@link #terms}, the bucket key range intersects the key
+ * ranges of each attribute in the term.
+ * <p>
+ * The evaluation returns {@code true} for any object other than a {@link Bucket}, evaluating
+ * feature nodes is up to the {@link PreFilter}.
+ */
+final class AttributeKeyRangeFilter implements Predicate<Bounded> {
+
+    private static final double MAX_KEY = Double.MAX_VALUE;
+
+    /**
+     * Max number of terms an {@code AND} of {@code OR}s can expand to before giving up on some of
+     * the {@code AND} operands
+     */
+    private static final int MAX_TERMS = 256;
+
+    /**
+     * ORed terms, each one mapping attribute names to the ranges their value falls into
+     */
+    @VisibleForTesting
+    final List<Map<String, List<Envelope>>> terms;
+
+    private AttributeKeyRangeFilter(List<Map<String, List<Envelope>>> terms) {
+        this.terms = terms;
+    }
+
+    public @Override boolean apply(@Nullable Bounded bounded) {
+        if (!(bounded instanceof Bucket)) {
+            return true;
+        }
+        // a bucket with no bounds contains only null values, which match no comparison
+        Envelope bucketRange = ((Bucket) bounded).bounds().orElse(null);
+        if (bucketRange == null) {
+            return false;
+        }
+        for (Map<String, List<Envelope>> term : terms) {
+            if (term.values().stream().allMatch(ranges -> intersects(ranges, bucketRange))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersects(List<Envelope> ranges, Envelope bucketRange) {
+        for (Envelope range : ranges) {
+            if (range.intersects(bucketRange)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public @Override String toString() {
+        return String.format("AttributeKeyRangeFilter(%s)", terms);
+    }
+
+    /**
+     * @param filter the query filter, in native CRS
+     * @param attributeName the name of the indexed attribute
+     * @param binding the indexed attribute value type
+     * @return the key range filter, or {@code null} if {@code filter} doesn't constrain the values
+     *         of {@code attributeName}
+     */
+    public static @Nullable AttributeKeyRangeFilter forFilter(Filter filter, String attributeName,
+            Class<?> binding) {
+        return forFilter(filter, Collections.singletonList(attributeName), binding);
+    }
+
+    /**
+     * @param filter the query filter, in native CRS
+     * @param attributeNames the names of the indexed attributes, whose values fall into the key
+     *        range of the index bucket their features are under
+     * @param binding the indexed attributes value type
+     * @return the key range filter, or {@code null} if {@code filter} doesn't constrain the values
+     *         of any of {@code attributeNames}
+     */
+    public static @Nullable AttributeKeyRangeFilter forFilter(Filter filter,
+            List<String> attributeNames, Class<?> binding) {
+        List<Map<String, List<Envelope>>> terms = new KeyRangeExtractor(attributeNames, binding)
+                .terms(filter);
+        return terms == null ? null : new AttributeKeyRangeFilter(terms);
+    }
+
+    private static class KeyRangeExtractor {
+
+        private final Set<String> attributeNames;
+
+        private final Class<?> binding;
+
+        private final boolean isText;
+
+        KeyRangeExtractor(List<String> attributeNames, Class<?> binding) {
+            this.attributeNames = new HashSet<>(attributeNames);
+            this.binding = binding;
+            this.isText = CharSequence.class.isAssignableFrom(binding)
+                    || Character.class.equals(binding);
+        }
+
+        /**
+         * @return the ORed terms of per attribute key ranges a feature matching {@code filter}
+         *         falls into, or {@code null} if unconstrained
+         */
+        public @Nullable List<Map<String, List<Envelope>>> terms(Filter filter) {
+            if (filter instanceof And) {
+                return and(((And) filter).getChildren());
+            }
+            if (filter instanceof Or) {
+                return or(((Or) filter).getChildren());
+            }
+            if (filter instanceof PropertyIsBetween) {
+                return between((PropertyIsBetween) filter);
+            }
+            if (filter instanceof PropertyIsEqualTo) {
+                List<Map<String, List<Envelope>>> in = in((PropertyIsEqualTo) filter);
+                if (in != null) {
+                    return in;
+                }
+            }
+            if (filter instanceof BinaryComparisonOperator) {
+                return comparison((BinaryComparisonOperator) filter);
+            }
+            if (filter instanceof BinaryTemporalOperator) {
+                return temporal((BinaryTemporalOperator) filter);
+            }
+            return null;
+        }
+
+        private @Nullable List<Map<String, List<Envelope>>> and(List<Filter> children) {
+            List<Map<String, List<Envelope>>> result = null;
+            for (Filter child : children) {
+                List<Map<String, List<Envelope>>> childTerms = terms(child);
+                if (childTerms == null) {
+                    continue;
+                }
+                if (result == null) {
+                    result = childTerms;
+                } else if (result.size() * childTerms.size() <= MAX_TERMS) {
+                    result = and(result, childTerms);
+                }
+                // otherwise ignoring the child constraint is less selective but still correct
+            }
+            return result;
+        }
+
+        private List<Map<String, List<Envelope>>> and(List<Map<String, List<Envelope>>> terms1,
+                List<Map<String, List<Envelope>>> terms2) {
+            List<Map<String, List<Envelope>>> result = new ArrayList<>();
+            for (Map<String, List<Envelope>> t1 : terms1) {
+                for (Map<String, List<Envelope>> t2 : terms2) {
+                    Map<String, List<Envelope>> term = new HashMap<>(t1);
+                    t2.forEach((att, ranges) -> term.merge(att, ranges, this::intersection));
+                    // a term with no range for an attribute can't be satisfied
+                    if (!term.values().stream().anyMatch(List::isEmpty)) {
+                        result.add(term);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private @Nullable List<Map<String, List<Envelope>>> or(List<Filter> children) {
+            List<Map<String, List<Envelope>>> result = new ArrayList<>();
+            for (Filter child : children) {
+                List<Map<String, List<Envelope>>> childTerms = terms(child);
+                if (childTerms == null) {
+                    return null;
+                }
+                result.addAll(childTerms);
+            }
+            return result;
+        }
+
+        private List<Map<String, List<Envelope>>> term(String attribute, List<Envelope> ranges) {
+            if (ranges.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Map<String, List<Envelope>> term = new HashMap<>();
+            term.put(attribute, ranges);
+            return Collections.singletonList(term);
+        }
+
+        private List<Envelope> intersection(List<Envelope> ranges1, List<Envelope> ranges2) {
+            List<Envelope> result = new ArrayList<>();
+            for (Envelope r1 : ranges1) {
+                for (Envelope r2 : ranges2) {
+                    Envelope intersection = r1.intersection(r2);
+                    if (!intersection.isNull()) {
+                        result.add(intersection);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private @Nullable List<Map<String, List<Envelope>>> between(PropertyIsBetween between) {
+            if (!isIndexedProperty(between.getExpression())
+                    || !(between.getLowerBoundary() instanceof Literal)
+                    || !(between.getUpperBoundary() instanceof Literal)) {
+                return null;
+            }
+            Double lower = key((Literal) between.getLowerBoundary());
+            Double upper = key((Literal) between.getUpperBoundary());
+            if (lower == null || upper == null) {
+                return null;
+            }
+            final String attribute = propertyName(between.getExpression());
+            if (lower.doubleValue() > upper.doubleValue()) {
+                return Collections.emptyList();
+            }
+            return term(attribute, Collections.singletonList(range(lower, upper)));
+        }
+
+        /**
+         * Handles the {@code in(<property>, <value>...) = true} form the
+         * {@link InReplacingFilterVisitor} turns ORed equality filters into
+         */
+        private @Nullable List<Map<String, List<Envelope>>> in(PropertyIsEqualTo equals) {
+            final Expression e1 = equals.getExpression1();
+            final Expression e2 = equals.getExpression2();
+            final Function in;
+            if (isInFunction(e1) && isTrue(e2)) {
+                in = (Function) e1;
+            } else if (isInFunction(e2) && isTrue(e1)) {
+                in = (Function) e2;
+            } else {
+                return null;
+            }
+            List<Expression> params = in.getParameters();
+            if (params.isEmpty() || !isIndexedProperty(params.get(0))) {
+                return null;
+            }
+            if (isText && !equals.isMatchingCase()) {
+                return null;
+            }
+            List<Envelope> result = new ArrayList<>();
+            for (Expression value : params.subList(1, params.size())) {
+                Double key = value instanceof Literal ? key((Literal) value) : null;
+                if (key == null) {
+                    return null;
+                }
+                result.add(range(key, key));
+            }
+            return term(propertyName(params.get(0)), result);
+        }
+
+        private @Nullable List<Map<String, List<Envelope>>> comparison(
+                BinaryComparisonOperator op) {
+            final Expression e1 = op.getExpression1();
+            final Expression e2 = op.getExpression2();
+            final boolean propertyFirst;
+            final Literal literal;
+            if (isIndexedProperty(e1) && e2 instanceof Literal) {
+                propertyFirst = true;
+                literal = (Literal) e2;
+            } else if (isIndexedProperty(e2) && e1 instanceof Literal) {
+                propertyFirst = false;
+                literal = (Literal) e1;
+            } else {
+                return null;
+            }
+            if (isText && !op.isMatchingCase()) {
+                return null;
+            }
+            final Double key = key(literal);
+            if (key == null) {
+                return null;
+            }
+            final String attribute = propertyName(propertyFirst ? e1 : e2);
+            if (op instanceof PropertyIsEqualTo) {
+                return term(attribute, Collections.singletonList(range(key, key)));
+            }
+            boolean greater = op instanceof PropertyIsGreaterThan
+                    || op instanceof PropertyIsGreaterThanOrEqualTo;
+            boolean less = op instanceof PropertyIsLessThan
+                    || op instanceof PropertyIsLessThanOrEqualTo;
+            if (!(greater || less)) {
+                return null;
+            }
+            // <literal> > <property> is <property> < <literal>
+            if (!propertyFirst) {
+                greater = !greater;
+            }
+            // strict comparisons use inclusive ranges too, keys are not unique for strings
+            return term(attribute, Collections.singletonList(
+                    greater ? range(key, Double.valueOf(MAX_KEY))
+                            : range(Double.valueOf(-MAX_KEY), key)));
+        }
+
+        /**
+         * Handles temporal operators against a time instant property: {@code AFTER} and
+         * {@code BEFORE} leave the property after the end or before the start of the literal,
+         * while any other operator (e.g. {@code DURING}, {@code TEQUALS}, {@code BEGINS}) makes
+         * it fall into the literal time period
+         */
+        private @Nullable List<Map<String, List<Envelope>>> temporal(
+                BinaryTemporalOperator op) {
+            final Expression e1 = op.getExpression1();
+            final Expression e2 = op.getExpression2();
+            final boolean propertyFirst;
+            final Literal literal;
+            if (isIndexedProperty(e1) && e2 instanceof Literal) {
+                propertyFirst = true;
+                literal = (Literal) e2;
+            } else if (isIndexedProperty(e2) && e1 instanceof Literal) {
+                propertyFirst = false;
+                literal = (Literal) e1;
+            } else {
+                return null;
+            }
+            final Object value = literal.getValue();
+            final Date begin;
+            final Date end;
+            if (value instanceof Period) {
+                begin = date(((Period) value).getBeginning());
+                end = date(((Period) value).getEnding());
+            } else if (value instanceof Instant) {
+                begin = end = date((Instant) value);
+            } else {
+                begin = end = literal.evaluate(null, Date.class);
+            }
+            final Double beginKey = AttributeTreeBuilder.sortKey(begin);
+            final Double endKey = AttributeTreeBuilder.sortKey(end);
+            if (beginKey == null || endKey == null) {
+                return null;
+            }
+            final String attribute = propertyName(propertyFirst ? e1 : e2);
+            boolean after = op instanceof After;
+            boolean before = op instanceof Before;
+            // <literal> AFTER <property> is <property> BEFORE <literal>
+            if (!propertyFirst) {
+                boolean swap = after;
+                after = before;
+                before = swap;
+            }
+            final Envelope range;
+            if (after) {
+                range = range(endKey, Double.valueOf(MAX_KEY));
+            } else if (before) {
+                range = range(Double.valueOf(-MAX_KEY), beginKey);
+            } else {
+                range = range(beginKey, endKey);
+            }
+            return term(attribute, Collections.singletonList(range));
+        }
+
+        private @Nullable Date date(@Nullable Instant instant) {
+            if (instant == null || instant.getPosition() == null) {
+                return null;
+            }
+            return instant.getPosition().getDate();
+        }
+
+        private boolean isIndexedProperty(Expression e) {
+            return e instanceof PropertyName && attributeNames.contains(propertyName(e));
+        }
+
+        private String propertyName(Expression indexedProperty) {
+            return ((PropertyName) indexedProperty).getPropertyName();
+        }
+
+        private boolean isInFunction(Expression e) {
+            return e instanceof Function && "in".equalsIgnoreCase(((Function) e).getName());
+        }
+
+        private boolean isTrue(Expression e) {
+            return e instanceof Literal && Boolean.TRUE.equals(((Literal) e).getValue());
+        }
+
+        private @Nullable Double key(Literal literal) {
+            Object value = literal.evaluate(null, binding);
+            if (value == null) {
+                // e.g. a decimal literal compared against an integral attribute
+                value = literal.getValue();
+                boolean comparable = binding.isInstance(value) || (value instanceof Number
+                        && Number.class.isAssignableFrom(binding));
+                if (!comparable) {
+                    return null;
+                }
+            }
+            return AttributeTreeBuilder.sortKey(value);
+        }
+
+        private Envelope range(Double min, Double max) {
+            return AttributeTreeBuilder.keyRange(min.doubleValue(), max.doubleValue());
+        }
+    }
+}
@@ -44,6 +44,7 @@ import org.locationtech.geogig.feature.Name;
 import org.locationtech.geogig.geotools.adapt.GT;
 import org.locationtech.geogig.geotools.data.GeoGigDataStore.ChangeType;
 import org.locationtech.geogig.model.Bounded;
+import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.CanonicalNodeOrder;
 import org.locationtech.geogig.model.DiffEntry;
 import org.locationtech.geogig.model.NodeOrdering;
@@ -53,6 +54,7 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.PackedTreeBuilder;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
@@ -62,6 +64,7 @@ import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -330,14 +333,14 @@ public class FeatureReaderBuilder {
                 rightSource = rightRepo.indexDatabase();
                 IndexInfo indexInfo = leftIndex.info();
 
-                Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
-                if (maxBounds == null) {
-                    maxBounds = IndexInfo.getMaxBounds(indexInfo);
-                }
-                Preconditions.checkNotNull(maxBounds);
-                diffNodeOrdering = QuadTreeBuilder.nodeOrdering(maxBounds);
+                diffNodeOrdering = indexNodeOrdering(indexInfo);
                 info.diffUsesIndex = true;
                 info.materializedIndexProperties = resolveMaterializedProperties(indexInfo);
+                if (isAttributeIndex(indexInfo)) {
+                    info.keyRangeFilter = createKeyRangeFilter(indexInfo, info.nativeFilter);
+                    // attribute index bucket bounds are key ranges, not spatial bounds
+                    boundsPreFilter = null;
+                }
             }
 
             PrePostFilterSplitter filterSplitter;
@@ -378,6 +381,48 @@ public class FeatureReaderBuilder {
         return info;
     }
 
+    /**
+     * @return whether the index tree is sorted by attribute value, as opposed to spatially
+     */
+    private boolean isAttributeIndex(IndexInfo indexInfo) {
+        final IndexType indexType = indexInfo.getIndexType();
+        return IndexType.ATTRIBUTE == indexType || IndexType.TEMPORAL == indexType;
+    }
+
+    private @Nullable AttributeKeyRangeFilter createKeyRangeFilter(IndexInfo indexInfo,
+            Filter nativeFilter) {
+        final String attributeName = indexInfo.getAttributeName();
+        final AttributeDescriptor descriptor = nativeSchema.getDescriptor(attributeName);
+        if (descriptor == null) {
+            return null;
+        }
+        final Class<?> binding = descriptor.getType().getBinding();
+        final List<String> indexedAttributes = new ArrayList<>();
+        indexedAttributes.add(attributeName);
+        // the validity period end of a temporal index also falls into the bucket key ranges
+        final @Nullable String endAttributeName = IndexInfo.getEndAttributeName(indexInfo);
+        if (endAttributeName != null) {
+            indexedAttributes.add(endAttributeName);
+        }
+        return AttributeKeyRangeFilter.forFilter(nativeFilter, indexedAttributes, binding);
+    }
+
+    private NodeOrdering indexNodeOrdering(IndexInfo indexInfo) {
+        final IndexType indexType = indexInfo.getIndexType();
+        switch (indexType) {
+        case QUADTREE:
+            Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
+            Preconditions.checkNotNull(maxBounds);
+            return QuadTreeBuilder.nodeOrdering(maxBounds, IndexInfo.getMaxDepth(indexInfo));
+        case RTREE:
+        case ATTRIBUTE:
+        case TEMPORAL:
+            return PackedTreeBuilder.nodeOrdering();
+        default:
+            throw new UnsupportedOperationException("Uknown index type: " + indexType);
+        }
+    }
+
     private Optional<Index>[] resolveIndexes(final ObjectId oldCanonicalTreeId,
             final ObjectId newCanonicalTreeId, final Filter nativeFilter) {
         Optional<Index> indexes[];
@@ -394,16 +439,48 @@ public class FeatureReaderBuilder {
 
         // if native filter is a simple "fid filter" then force ignoring the index for a faster
         // look-up (looking up for a fid in the canonical tree is much faster)
-        final boolean ignoreIndex = ignoreIndexVmArg || geometryAttribute == null
-                || this.ignoreIndex || nativeFilter instanceof Id;
-        indexes = ignoreIndex ? NO_INDEX
-                : resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
-                        geometryAttribute.getLocalName());
+        final boolean ignoreIndex = ignoreIndexVmArg || this.ignoreIndex
+                || nativeFilter instanceof Id;
+        if (ignoreIndex) {
+            return NO_INDEX;
+        }
+        // attribute and temporal indexes take precedence over the spatial index if the filter
+        // constrains the indexed attribute, as equality and range filters are usually more
+        // selective. Spatial filters are still evaluated against the attribute index nodes
+        // bounds
+        indexes = resolveAttributeIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
+                nativeFilter);
+        if (!indexes[0].isPresent() && geometryAttribute != null) {
+            indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
+                    geometryAttribute.getLocalName());
+        }
         return indexes;
     }
 
+    /**
+     * Looks up an attribute or temporal index for an attribute {@code nativeFilter} constrains.
+     */
+    private Optional<Index>[] resolveAttributeIndex(final ObjectId oldCanonicalTreeId,
+            final ObjectId newCanonicalTreeId, final String typeName, final Filter nativeFilter) {
+        for (IndexInfo indexInfo : rightRepo.indexDatabase().getIndexInfos(typeName)) {
+            if (isAttributeIndex(indexInfo)
+                    && null != createKeyRangeFilter(indexInfo, nativeFilter)) {
+                Optional<Index>[] indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId,
+                        typeName, indexInfo.getAttributeName());
+                if (indexes[0].isPresent()) {
+                    return indexes;
+                }
+            }
+        }
+        return NO_INDEX;
+    }
+
+    /**
+     * Builds the feature reader, backed by the walk of a prior {@link #buildTreeWalk()} call if
+     * there was one, so callers can check the walk before deciding to read the features
+     */
     public FeatureReader<SimpleFeatureType, SimpleFeature> build() {
-        WalkInfo info = buildTreeWalk();
+        WalkInfo info = builtWalkInfo == null ? buildTreeWalk() : builtWalkInfo;
 
         AutoCloseableIterator<DiffEntry> diffs = info.diffOp.call();
 
@@ -870,7 +947,8 @@ public class FeatureReaderBuilder {
         if (screenMap != null && !ignore && indexFullySupportsQuery) {
             ScreenMapPredicate screenMapFilter = new ScreenMapPredicate(screenMap);
             walkInfo.screenMapFilter = screenMapFilter;
-            final boolean filterBuckets = canFilterBuckets(preFilter);
+            final boolean filterBuckets = walkInfo.keyRangeFilter == null
+                    && canFilterBuckets(preFilter);
             if (filterBuckets) {
                 screenMapFilter.filterTrees();
             }
@@ -879,7 +957,14 @@ public class FeatureReaderBuilder {
             }
             predicates.add(screenMapFilter);
         }
-        return Predicates.and(predicates);
+        final Predicate<Bounded> nodesPredicate = Predicates.and(predicates);
+        final @Nullable AttributeKeyRangeFilter keyRangeFilter = walkInfo.keyRangeFilter;
+        if (keyRangeFilter == null) {
+            return nodesPredicate;
+        }
+        // attribute index buckets can only be evaluated by key range, their bounds are not
+        // spatial bounds
+        return b -> b instanceof Bucket ? keyRangeFilter.apply(b) : nodesPredicate.apply(b);
     }
 
     /**
@@ -48,6 +48,11 @@ public class WalkInfo {
 
     public boolean diffUsesIndex;
 
+    // prunes attribute index buckets by key range, only set if diffUsesIndex and the index is an
+    // attribute index
+    @Nullable
+    AttributeKeyRangeFilter keyRangeFilter;
+
     public DiffTree diffOp;
 
     public ScreenMapPredicate screenMapFilter;
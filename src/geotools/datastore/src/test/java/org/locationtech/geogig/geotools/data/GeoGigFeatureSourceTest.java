@@ -26,7 +26,9 @@ import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.data.util.ScreenMap;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.NameImpl;
+import org.geotools.feature.visitor.BoundsVisitor;
 import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.FeatureCalc;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
@@ -622,6 +624,63 @@ public class GeoGigFeatureSourceTest extends RepositoryTestCase {
         testVisitor(new NearestVisitor(ff.property("ip"), valueToMatch), expectedResult);
     }
 
+    /**
+     * @see GeogigFeatureVisitorHandler
+     */
+    public @Test void handleUniqueVisitorMaterializedAttributeFiltered() throws Exception {
+        NodeRef typeRef = pointsSource.delegate.getTypeRef();
+        createIndex(typeRef, Collections.singletonList("ip"));
+        GeogigFeatureVisitorHandler.clearCache();
+
+        UniqueVisitor visitor = new UniqueVisitor("ip");
+        assertTrue(pointsSource.handleVisitor(new Query(pointsName, ECQL.toFilter("ip > 1000")),
+                visitor));
+        assertEquals(Sets.newHashSet(2000, 3000), visitor.getResult().getValue());
+
+        // sp is not materialized, can't be evaluated out of the index nodes
+        visitor = new UniqueVisitor("ip");
+        assertFalse(pointsSource.handleVisitor(
+                new Query(pointsName, ECQL.toFilter("sp = 'StringProp1_1'")), visitor));
+    }
+
+    /**
+     * @see GeogigFeatureVisitorHandler
+     */
+    public @Test void handleCountAndBoundsVisitors() throws Exception {
+        NodeRef typeRef = pointsSource.delegate.getTypeRef();
+        createIndex(typeRef, Collections.singletonList("ip"));
+
+        ReferencedEnvelope queryBounds = new ReferencedEnvelope(
+                pointsSource.getSchema().getCoordinateReferenceSystem());
+        queryBounds.init(boundsOf(points1, points2));
+        String geom = pointsType.getGeometryDescriptor().get().getLocalName();
+        Filter bbox = ff.bbox(ff.property(geom), queryBounds);
+
+        CountVisitor count = new CountVisitor();
+        assertTrue(pointsSource.handleVisitor(new Query(pointsName, bbox), count));
+        assertEquals(2, count.getCount());
+
+        BoundsVisitor bounds = new BoundsVisitor();
+        assertTrue(pointsSource.handleVisitor(new Query(pointsName, bbox), bounds));
+        assertEquals(boundsOf(points1, points2), bounds.getBounds());
+
+        Filter materialized = ff.and(bbox, ECQL.toFilter("ip > 1000"));
+        count = new CountVisitor();
+        assertTrue(pointsSource.handleVisitor(new Query(pointsName, materialized), count));
+        assertEquals(1, count.getCount());
+        assertEquals(1, pointsSource.getCount(new Query(pointsName, materialized)));
+        assertEquals(boundsOf(points2),
+                pointsSource.getBounds(new Query(pointsName, materialized)));
+
+        // sp is not materialized, the features need to be fetched
+        Filter notMaterialized = ECQL.toFilter("sp = 'StringProp1_1'");
+        assertFalse(pointsSource.handleVisitor(new Query(pointsName, notMaterialized),
+                new CountVisitor()));
+        assertFalse(pointsSource.handleVisitor(new Query(pointsName, notMaterialized),
+                new BoundsVisitor()));
+        assertEquals(1, pointsSource.getCount(new Query(pointsName, notMaterialized)));
+    }
+
     private void testVisitor(FeatureCalc visitor, Object expectedResult) {
         GeogigFeatureVisitorHandler.clearCache();
         boolean handled = pointsSource.handleVisitor(Query.ALL, visitor);
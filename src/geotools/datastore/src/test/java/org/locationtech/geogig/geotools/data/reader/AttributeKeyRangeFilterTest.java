@@ -0,0 +1,195 @@
+/* Copyright (c) 2019 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.geotools.filter.text.ecql.ECQL.toFilter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.hashString;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.geotools.util.Converters;
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.opengis.filter.Filter;
+
+public class AttributeKeyRangeFilterTest {
+
+    private AttributeKeyRangeFilter intFilter(String cql) throws Exception {
+        return AttributeKeyRangeFilter.forFilter(toFilter(cql), "a", Integer.class);
+    }
+
+    private Bucket bucket(double minKey, double maxKey) {
+        return RevObjectFactory.defaultInstance().createBucket(hashString("bucket"), 0,
+                AttributeTreeBuilder.keyRange(minKey, maxKey));
+    }
+
+    private void assertMatches(AttributeKeyRangeFilter filter, double minKey, double maxKey) {
+        assertTrue(filter.apply(bucket(minKey, maxKey)));
+    }
+
+    private void assertPrunes(AttributeKeyRangeFilter filter, double minKey, double maxKey) {
+        assertFalse(filter.apply(bucket(minKey, maxKey)));
+    }
+
+    public @Test void testUnconstrained() throws Exception {
+        assertNull(intFilter("INCLUDE"));
+        assertNull(intFilter("b = 1"));
+        assertNull(intFilter("a <> 1"));
+        assertNull(intFilter("NOT a = 1"));
+        assertNull(intFilter("a IS NULL"));
+        assertNull(intFilter("a = 1 OR b = 1"));
+    }
+
+    public @Test void testEquals() throws Exception {
+        AttributeKeyRangeFilter filter = intFilter("a = 5");
+        assertNotNull(filter);
+        assertMatches(filter, 0, 10);
+        assertMatches(filter, 5, 5);
+        assertPrunes(filter, 6, 10);
+        assertPrunes(filter, 0, 4);
+
+        filter = intFilter("5 = a");
+        assertMatches(filter, 5, 5);
+        assertPrunes(filter, 6, 10);
+    }
+
+    public @Test void testRanges() throws Exception {
+        AttributeKeyRangeFilter filter = intFilter("a > 5");
+        assertMatches(filter, 0, 5);
+        assertMatches(filter, 100, 1000);
+        assertPrunes(filter, 0, 4);
+
+        filter = intFilter("a <= 5");
+        assertMatches(filter, -1000, 0);
+        assertPrunes(filter, 6, 10);
+
+        filter = intFilter("5 < a");
+        assertMatches(filter, 100, 1000);
+        assertPrunes(filter, 0, 4);
+
+        filter = intFilter("a BETWEEN 5 AND 10");
+        assertMatches(filter, 0, 5);
+        assertMatches(filter, 10, 20);
+        assertPrunes(filter, 11, 20);
+        assertPrunes(filter, 0, 4);
+    }
+
+    public @Test void testLogicalOperators() throws Exception {
+        AttributeKeyRangeFilter filter = intFilter("a > 5 AND a < 10 AND b = 1");
+        assertMatches(filter, 7, 8);
+        assertPrunes(filter, 11, 20);
+        assertPrunes(filter, 0, 4);
+
+        filter = intFilter("a = 1 OR a = 100");
+        assertMatches(filter, 0, 1);
+        assertMatches(filter, 100, 200);
+        assertPrunes(filter, 2, 99);
+
+        filter = intFilter("a > 10 AND a < 5");
+        assertNotNull(filter);
+        assertPrunes(filter, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public @Test void testInFunction() throws Exception {
+        Filter in = toFilter("a = 1 OR a = 3 OR a = 100");
+        in = (Filter) in.accept(new InReplacingFilterVisitor(), null);
+        AttributeKeyRangeFilter filter = AttributeKeyRangeFilter.forFilter(in, "a",
+                Integer.class);
+        assertNotNull(filter);
+        assertEquals(3, filter.terms.get(0).get("a").size());
+        assertMatches(filter, 2, 3);
+        assertPrunes(filter, 4, 99);
+    }
+
+    public @Test void testLiteralConversion() throws Exception {
+        AttributeKeyRangeFilter filter = intFilter("a = '5'");
+        assertMatches(filter, 5, 5);
+        assertPrunes(filter, 6, 10);
+    }
+
+    public @Test void testStrings() throws Exception {
+        AttributeKeyRangeFilter filter = AttributeKeyRangeFilter.forFilter(toFilter("s = 'abc'"),
+                "s", String.class);
+        double key = AttributeTreeBuilder.sortKey("abc").doubleValue();
+        assertMatches(filter, key, key);
+        // bucket bounds are float32, leave room for rounding
+        assertPrunes(filter, key * 2, key * 3);
+
+        filter = AttributeKeyRangeFilter.forFilter(toFilter("s ILIKE 'abc'"), "s", String.class);
+        assertNull(filter);
+    }
+
+    private double dateKey(String isoDate) {
+        Date date = Converters.convert(isoDate, Date.class);
+        return AttributeTreeBuilder.sortKey(date).doubleValue();
+    }
+
+    private AttributeKeyRangeFilter periodFilter(String cql) throws Exception {
+        return AttributeKeyRangeFilter.forFilter(toFilter(cql), Arrays.asList("start", "end"),
+                Date.class);
+    }
+
+    public @Test void testTemporalOperators() throws Exception {
+        final double y2000 = dateKey("2000-01-01T00:00:00Z");
+        final double y2005 = dateKey("2005-01-01T00:00:00Z");
+        final double y2010 = dateKey("2010-01-01T00:00:00Z");
+        final double y2015 = dateKey("2015-01-01T00:00:00Z");
+
+        AttributeKeyRangeFilter filter = periodFilter("start AFTER 2010-01-01T00:00:00Z");
+        assertMatches(filter, y2005, y2015);
+        assertPrunes(filter, y2000, y2005);
+
+        filter = periodFilter("start BEFORE 2005-01-01T00:00:00Z");
+        assertMatches(filter, y2000, y2015);
+        assertPrunes(filter, y2010, y2015);
+
+        filter = periodFilter("start DURING 2004-01-01T00:00:00Z/2006-01-01T00:00:00Z");
+        assertMatches(filter, y2000, y2005);
+        assertPrunes(filter, y2010, y2015);
+    }
+
+    public @Test void testValidityPeriodOverlap() throws Exception {
+        final double y2000 = dateKey("2000-01-01T00:00:00Z");
+        final double y2005 = dateKey("2005-01-01T00:00:00Z");
+        final double y2010 = dateKey("2010-01-01T00:00:00Z");
+        final double y2015 = dateKey("2015-01-01T00:00:00Z");
+
+        // features valid at some point in 2006-2007, with a bucket spanning from the lowest start
+        // to the highest end of its features validity
+        AttributeKeyRangeFilter filter = periodFilter(
+                "start <= 2008-01-01T00:00:00Z AND end >= 2006-01-01T00:00:00Z");
+        // a feature valid from 2000 to 2015 matches, although neither start nor end are in the
+        // query period
+        assertMatches(filter, y2000, y2015);
+        assertPrunes(filter, y2000, y2005);
+        assertPrunes(filter, y2010, y2015);
+    }
+
+    public @Test void testNonBucketsAndNullBuckets() throws Exception {
+        AttributeKeyRangeFilter filter = intFilter("a = 5");
+        Node node = RevObjectFactory.defaultInstance().createNode("n", hashString("n"),
+                ObjectId.NULL, TYPE.FEATURE, null, null);
+        assertTrue(filter.apply(node));
+        Bucket nullValues = RevObjectFactory.defaultInstance().createBucket(hashString("b"), 0,
+                null);
+        assertFalse(filter.apply(nullValues));
+    }
+}
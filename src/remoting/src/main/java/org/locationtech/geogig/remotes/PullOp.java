@@ -10,6 +10,7 @@
 package org.locationtech.geogig.remotes;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,7 +19,10 @@ import java.util.Optional;
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.merge.ConflictResolver;
 import org.locationtech.geogig.plumbing.remotes.RemoteResolve;
 import org.locationtech.geogig.porcelain.BranchResolveOp;
 import org.locationtech.geogig.porcelain.MergeOp;
@@ -64,6 +68,8 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
 
     private String message;
 
+    private ConflictResolver conflictResolver;
+
     /**
      * @param all if {@code true}, pull from all remotes.
      * @return {@code this}
@@ -87,6 +93,18 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
         return this;
     }
 
+    /**
+     * @param conflictResolver a strategy to automatically resolve the conflicts found when merging
+     *        the pulled changes, not used when {@link #setRebase rebasing}. Conflicts can't be
+     *        resolved this way if the staging area has changes, in which case the pull fails with
+     *        an {@link IllegalStateException} before fetching anything
+     * @see MergeOp#setConflictResolver
+     */
+    public PullOp setConflictResolver(@Nullable ConflictResolver conflictResolver) {
+        this.conflictResolver = conflictResolver;
+        return this;
+    }
+
     /**
      * @param rebase if {@code true}, perform a rebase on the remote branch instead of a merge
      * @return {@code this}
@@ -216,6 +234,8 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
         checkArgument(suppliedRemote != null, "Remote could not be resolved.");
 
         final Ref currentBranch = resolveCurrentBranch();
+        checkState(conflictResolver == null || rebase || isStagingAreaClean(),
+                "Conflicts can't be resolved automatically when the staging area has changes");
 
         if (refSpecs.isEmpty()) {
             // TODO: use the Remote to resolve the local current branch to the remote branch
@@ -278,6 +298,7 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
                             .addCommit(localRemoteRef.getObjectId())//
                             .setNoFastForward(noFastForward)//
                             .setMessage(message)//
+                            .setConflictResolver(conflictResolver)//
                             .setProgressListener(getProgressListener())//
                             .call();
                     pullOpResult.setMergeReport(Optional.of(report));
@@ -300,4 +321,10 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
         return command(BranchResolveOp.class).call().orElseThrow(
                 () -> new IllegalStateException("Repository has no HEAD, can't pull."));
     }
+
+    private boolean isStagingAreaClean() {
+        ObjectId headTree = command(ResolveTreeish.class).setTreeish(Ref.HEAD).call()
+                .orElse(RevTree.EMPTY_TREE_ID);
+        return stagingArea().getTree().getId().equals(headTree);
+    }
 }
@@ -251,7 +251,10 @@ public class LocalRemoteRepo extends AbstractRemoteRepo {
 
         // the diff walk uses fromDb as both left and right data source since we're comparing what
         // we have in the "origin" database against trees on the same repository
-        PostOrderDiffWalk diffWalk = new PostOrderDiffWalk(oldTree, newTree, fromDb, fromDb);
+        // both the filter and the consumer below guard their state with the lock, so let the
+        // walk visit sibling subtrees in parallel
+        PostOrderDiffWalk diffWalk = new PostOrderDiffWalk(oldTree, newTree, fromDb, fromDb)
+                .threadSafeConsumer(true);
 
         // holds object ids that need to be copied to the target db. Pruned when it reaches a
         // threshold.
@@ -16,6 +16,7 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.plumbing.diff.PackedTreeDiff;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
@@ -42,14 +43,25 @@ class ContentIdsProducer implements java.util.function.Consumer<ObjectId>, Runna
             @NonNull IndexDatabase sourceStore, @NonNull List<ObjectId[]> treeIds,
             @NonNull Deduplicator deduplicator, @NonNull ObjectReporter objectReport) {
 
-        Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
-        Preconditions.checkNotNull(maxBounds);
-        NodeOrdering diffNodeOrdering = QuadTreeBuilder.nodeOrdering(maxBounds);
-
         boolean reportFeatures = false;
         ContentIdsProducer producer = new ContentIdsProducer(sourceStore, treeIds, deduplicator,
                 objectReport, reportFeatures);
-        producer.diffOrder = diffNodeOrdering;
+        switch (indexInfo.getIndexType()) {
+        case RTREE:
+        case ATTRIBUTE:
+        case TEMPORAL:
+            // R-tree, attribute, and temporal index tree buckets can't be paired by index, their
+            // new trees are found by PackedTreeDiff instead
+            producer.packed = true;
+            break;
+        case QUADTREE:
+        default:
+            Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
+            Preconditions.checkNotNull(maxBounds);
+            producer.diffOrder = QuadTreeBuilder.nodeOrdering(maxBounds,
+                    IndexInfo.getMaxDepth(indexInfo));
+            break;
+        }
         return producer;
     }
 
@@ -67,6 +79,8 @@ class ContentIdsProducer implements java.util.function.Consumer<ObjectId>, Runna
 
     private NodeOrdering diffOrder = CanonicalNodeOrder.INSTANCE;
 
+    private boolean packed = false;
+
     private ContentIdsProducer(ObjectStore source, List<ObjectId[]> diffTreeIds,
             Deduplicator deduplicator, ObjectReporter objectReport, boolean reportFeatures) {
         this.source = source;
@@ -85,7 +99,11 @@ class ContentIdsProducer implements java.util.function.Consumer<ObjectId>, Runna
         for (ObjectId[] oldNewTreeId : this.roots) {
             ObjectId leftRootId = oldNewTreeId[0];
             ObjectId rightRootId = oldNewTreeId[1];
-            visitPreorder(leftRootId, rightRootId, deduplicator, objectReport, this);
+            if (packed) {
+                visitPacked(leftRootId, rightRootId, deduplicator, objectReport, this);
+            } else {
+                visitPreorder(leftRootId, rightRootId, deduplicator, objectReport, this);
+            }
         }
         accept(ObjectId.NULL);// terminal token
     }
@@ -99,6 +117,28 @@ class ContentIdsProducer implements java.util.function.Consumer<ObjectId>, Runna
         }
     }
 
+    private void visitPacked(final ObjectId leftTreeId, final ObjectId rightTreeId,
+            Deduplicator deduplicator, ObjectReporter progress, Consumer<ObjectId> consumer) {
+        if (deduplicator.isDuplicate(rightTreeId)) {
+            return;
+        }
+        final RevTree left = EMPTY_TREE_ID.equals(leftTreeId) ? EMPTY : source.getTree(leftTreeId);
+        final RevTree right = EMPTY_TREE_ID.equals(rightTreeId) ? EMPTY
+                : source.getTree(rightTreeId);
+
+        PackedTreeDiff.Result diff = new PackedTreeDiff(source, source).diff(left, right);
+        for (ObjectId treeId : diff.getRightTrees()) {
+            if (deduplicator.visit(treeId)) {
+                consumer.accept(treeId);
+                if (treeId.equals(rightTreeId)) {
+                    progress.addTree();
+                } else {
+                    progress.addBucket();
+                }
+            }
+        }
+    }
+
     private void visitPreorder(final ObjectId leftTreeId, final ObjectId rightTreeId,
             Deduplicator deduplicator, ObjectReporter progress, Consumer<ObjectId> consumer) {
         if (deduplicator.isDuplicate(rightTreeId)) {
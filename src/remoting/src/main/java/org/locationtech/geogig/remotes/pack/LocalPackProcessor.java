@@ -15,14 +15,14 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
 import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
@@ -63,7 +63,7 @@ public class LocalPackProcessor implements PackProcessor {
             sourceStore.copyIndexTo(indexDef.getIndex(), indexdb);
             return;
         }
-        final ExecutorService producerThread = Executors.newSingleThreadExecutor();
+        Future<?> producerTask = null;
         Iterator<RevTree> missingContents;
         try {
             final ObjectId oldIndexTreeId = indexDef.getParentIndexTreeId();
@@ -74,7 +74,7 @@ public class LocalPackProcessor implements PackProcessor {
             final ContentIdsProducer producer = ContentIdsProducer.forIndex(indexDef.getIndex(),
                     sourceStore, treeIds, deduplicator, objectReport);
 
-            producerThread.submit(producer);
+            producerTask = ExecutionPolicy.defaultPolicy().ioExecutor().submit(producer);
             Iterator<ObjectId> missingContentIds = producer.iterator();
 
             missingContents = sourceStore.getAll(() -> missingContentIds, NOOP_LISTENER,
@@ -87,7 +87,9 @@ public class LocalPackProcessor implements PackProcessor {
             ObjectId indexedTree = indexDef.getIndexTreeId();
             indexdb.addIndexedTree(indexInfo, originalTree, indexedTree);
         } finally {
-            producerThread.shutdownNow();
+            if (producerTask != null) {
+                producerTask.cancel(true);
+            }
         }
     }
 
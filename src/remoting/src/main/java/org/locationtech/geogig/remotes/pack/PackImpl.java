@@ -19,8 +19,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -33,6 +32,7 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.remotes.RefDiff;
 import org.locationtech.geogig.remotes.internal.DeduplicationService;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
+import org.locationtech.geogig.repository.ExecutionPolicy;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -132,9 +132,9 @@ class PackImpl implements Pack {
         final ContentIdsProducer producer = ContentIdsProducer.forCommits(sourceStore,
                 diffRootTreeIds, deduplicator, objectReport);
 
-        final ExecutorService producerThread = Executors.newSingleThreadExecutor();
+        final Future<?> producerTask = ExecutionPolicy.defaultPolicy().ioExecutor()
+                .submit(producer);
         try {
-            producerThread.submit(producer);
             Iterator<ObjectId> missingContentIds = producer.iterator();
 
             Iterator<RevObject> allObjects;
@@ -169,7 +169,7 @@ class PackImpl implements Pack {
                 progress.setDescription(description);
             }
         } finally {
-            producerThread.shutdownNow();
+            producerTask.cancel(true);
             // restore previous progress indicator
             progress.setProgressIndicator(defaultProgressIndicator);
         }
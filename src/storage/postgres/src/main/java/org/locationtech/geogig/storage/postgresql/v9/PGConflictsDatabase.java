@@ -79,6 +79,11 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
 
     private static final String NULL_NAMESPACE = "";
 
+    /**
+     * Number of rows sent to the server at once when adding conflicts in bulk
+     */
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
     private final Environment environment;
 
     private final String conflictsTable;
@@ -183,6 +188,7 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
         try (Connection cx = PGStorage.newConnection(dataSource)) {
             cx.setAutoCommit(false);
             try (PreparedStatement ps = cx.prepareStatement(sql)) {
+                int pending = 0;
                 for (Conflict conflict : conflicts) {
                     final String path = conflict.getPath();
                     Preconditions.checkNotNull(path);
@@ -199,8 +205,14 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
                     ps.setBytes(5, conflict.getOurs().getRawValue());
                     ps.setBytes(6, conflict.getTheirs().getRawValue());
                     ps.addBatch();
+                    if (++pending == INSERT_BATCH_SIZE) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
                 }
-                ps.executeBatch();
                 cx.commit();
             } catch (SQLException e) {
                 cx.rollback();
@@ -213,6 +225,15 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
         }
     }
 
+    /**
+     * @return the {@code LIKE} pattern matching the paths of the children of {@code treePath}, with
+     *         the wildcards in {@code treePath} escaped so they match literally
+     */
+    static String childrenPattern(String treePath) {
+        String escaped = treePath.replace("\\", "\\\\").replace("%", "\\%");
+        return escaped.replace("_", "\\_") + "/%";
+    }
+
     public @Override Optional<Conflict> getConflict(@Nullable String namespace,
             @NonNull String path) {
         namespace = namespace(namespace);
@@ -274,10 +295,15 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
         return new ConflictsIterator(this, namespace, treePath);
     }
 
-    List<Conflict> getBatch(@Nullable String namespace, @Nullable String treePath, int offset,
-            int limit) throws SQLException {
+    /**
+     * Pages by path rather than by offset, so that fetching each page costs the same regardless of
+     * how deep into the result set it is.
+     *
+     * @param afterPath if given, only the conflicts whose path sorts after it are returned
+     */
+    List<Conflict> getBatch(@Nullable String namespace, @Nullable String treePath,
+            @Nullable String afterPath, int limit) throws SQLException {
 
-        checkArgument(offset >= 0);
         checkArgument(limit > 0);
 
         final String sql;
@@ -287,8 +313,10 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
             if (treePath != null) {
                 sb.append(" AND (path = ? OR path LIKE ?)");
             }
-            sb.append(" ORDER BY repository, namespace, path OFFSET ").append(offset)
-                    .append(" LIMIT ").append(limit);
+            if (afterPath != null) {
+                sb.append(" AND path > ?");
+            }
+            sb.append(" ORDER BY repository, namespace, path LIMIT ").append(limit);
             sql = sb.toString();
         }
 
@@ -297,9 +325,13 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
             try (PreparedStatement ps = cx.prepareStatement(sql)) {
                 ps.setInt(1, repositoryId);
                 ps.setString(2, namespace(namespace));
+                int index = 3;
                 if (treePath != null) {
-                    ps.setString(3, treePath);
-                    ps.setString(4, treePath + "/%");
+                    ps.setString(index++, treePath);
+                    ps.setString(index++, childrenPattern(treePath));
+                }
+                if (afterPath != null) {
+                    ps.setString(index, afterPath);
                 }
                 log(sql, LOG, repositoryId, namespace);
                 try (ResultSet rs = ps.executeQuery()) {
@@ -329,7 +361,7 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
 
         private final int pageSize = 1000;
 
-        private int offset = 0;
+        private String lastPath;
 
         private int currentPageSize;
 
@@ -357,12 +389,14 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
         private Iterator<Conflict> nextPage() {
             List<Conflict> batch;
             try {
-                batch = db.getBatch(namespace, treePath, offset, pageSize);
+                batch = db.getBatch(namespace, treePath, lastPath, pageSize);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
-            this.offset += pageSize;
             this.currentPageSize = batch.size();
+            if (!batch.isEmpty()) {
+                this.lastPath = batch.get(batch.size() - 1).getPath();
+            }
             return batch.iterator();
         }
     }
@@ -385,7 +419,7 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
                 ps.setInt(1, repositoryId);
                 ps.setString(2, namespace);
                 if (null != treePath) {
-                    String likeArg = treePath + "/%";
+                    String likeArg = childrenPattern(treePath);
                     ps.setString(3, treePath);
                     ps.setString(4, likeArg);
                 }
@@ -552,7 +586,7 @@ public class PGConflictsDatabase extends AbstractStore implements ConflictsDatab
                 ps.setString(2, namespace(namespace));
                 if (pathPrefix != null) {
                     ps.setString(3, pathPrefix);
-                    ps.setString(4, pathPrefix + "/%");
+                    ps.setString(4, childrenPattern(pathPrefix));
                 }
                 ps.executeUpdate();
             }
@@ -58,6 +58,11 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
 
     private static final String NULL_TX_ID = ".default";
 
+    /**
+     * Max number of conflicts held in a {@link WriteBatch} before it's written out
+     */
+    private static final int WRITE_BATCH_SIZE = 10_000;
+
     private ConcurrentMap<String/* TxID */, DBHandle> dbsByTransaction = new ConcurrentHashMap<>();
 
     public RocksdbConflictsDatabase(@NonNull File baseDirectory) {
@@ -252,14 +257,19 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     public @Override void addConflicts(@Nullable String txId, Iterable<Conflict> conflicts) {
         try (RocksDBReference dbRef = getOrCreateDb(txId)) {
             ConflictSerializer serializer = new ConflictSerializer();
-            try (WriteBatch batch = new WriteBatch()) {
+            try (WriteBatch batch = new WriteBatch();
+                    WriteOptions writeOptions = new WriteOptions()) {
+                writeOptions.setSync(true);
                 for (Conflict c : conflicts) {
                     byte[] key = key(c.getPath());
                     byte[] value = serializer.write(c);
                     batch.put(key, value);
+                    if (batch.count() == WRITE_BATCH_SIZE) {
+                        dbRef.db().write(writeOptions, batch);
+                        batch.clear();
+                    }
                 }
-                try (WriteOptions writeOptions = new WriteOptions()) {
-                    writeOptions.setSync(true);
+                if (batch.count() > 0) {
                     dbRef.db().write(writeOptions, batch);
                 }
             } catch (RocksDBException | IOException e) {
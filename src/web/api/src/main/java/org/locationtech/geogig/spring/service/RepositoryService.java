@@ -12,6 +12,7 @@ package org.locationtech.geogig.spring.service;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.locationtech.geogig.feature.PropertyDescriptor;
@@ -40,6 +41,7 @@ import org.locationtech.geogig.spring.dto.MergeFeatureRequest;
 import org.locationtech.geogig.spring.dto.Parents;
 import org.locationtech.geogig.spring.dto.RepositoryInfo;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.impl.CommitGraphIndex;
 import org.locationtech.geogig.web.api.CommandSpecException;
 import org.opengis.feature.simple.SimpleFeature;
 import org.springframework.stereotype.Service;
@@ -102,7 +104,10 @@ public class RepositoryService extends AbstractRepositoryService {
         Repository repository = getRepository(provider, repoName);
         if (repository != null) {
             if (commitId != null) {
-                depth = Optional.of(repository.context().graphDatabase().getDepth(commitId));
+                OptionalInt indexed = CommitGraphIndex.of(repository.context())
+                        .map(index -> index.depth(commitId)).orElse(OptionalInt.empty());
+                depth = Optional.of(indexed.isPresent() ? indexed.getAsInt()
+                        : repository.context().graphDatabase().getDepth(commitId));
             } else {
                 depth = repository.getDepth();
             }
@@ -230,18 +230,20 @@ public class ResponseWriter {
      * @param start the change number to start writing from
      * @param length the number of changes to write
      * @param entries an iterator for the DiffEntries to write
+     * @return the last entry written, or {@code null} if none
      * @throws StreamWriterException
      */
-    public void writeDiffEntries(String name, int start, int length, Iterator<DiffEntry> entries)
-            throws StreamWriterException {
+    public @Nullable DiffEntry writeDiffEntries(String name, int start, int length,
+            Iterator<DiffEntry> entries) throws StreamWriterException {
         Iterators.advance(entries, start);
         if (length < 0) {
             length = Integer.MAX_VALUE;
         }
         int counter = 0;
+        DiffEntry entry = null;
         out.writeStartArray(name);
         while (entries.hasNext() && counter < length) {
-            DiffEntry entry = entries.next();
+            entry = entries.next();
             out.writeStartArrayElement(name);
             writeElement("changeType", entry.changeType().toString());
             NodeRef oldObject = entry.getOldObject();
@@ -269,6 +271,7 @@ public class ResponseWriter {
         if (entries.hasNext()) {
             writeElement("nextPage", "true");
         }
+        return entry;
     }
 
     public void writeCommit(RevCommit commit, String tag, @Nullable Integer adds,
@@ -436,6 +439,13 @@ public class ResponseWriter {
         if (metadata.containsKey(IndexInfo.MD_QUAD_MAX_BOUNDS)) {
             writeElement("bounds", metadata.get(IndexInfo.MD_QUAD_MAX_BOUNDS).toString());
         }
+        if (IndexInfo.isAdaptive(indexInfo)) {
+            writeElement("adaptive", Boolean.TRUE.toString());
+            Integer maxDepth = IndexInfo.getMaxDepth(indexInfo);
+            if (maxDepth != null) {
+                writeElement("maxDepth", maxDepth.toString());
+            }
+        }
         if (metadata.containsKey(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA)) {
             String[] extraAttributes = (String[]) metadata
                     .get(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA);
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.web.api.commands;
 
 import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.plumbing.diff.DiffCursor;
 import org.locationtech.geogig.porcelain.DiffOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -39,6 +40,8 @@ public class Diff extends AbstractWebAPICommand {
 
     int elementsPerPage;
 
+    String cursor;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setOldRefSpec(options.getRequiredValue("oldRefSpec"));
@@ -48,6 +51,7 @@ public class Diff extends AbstractWebAPICommand {
                 Boolean.parseBoolean(options.getFirstValue("showGeometryChanges", "false")));
         setPage(parseInt(options, "page", 0));
         setElementsPerPage(parseInt(options, "show", 30));
+        setCursor(options.getFirstValue("cursor", null));
     }
 
     @Override
@@ -109,6 +113,18 @@ public class Diff extends AbstractWebAPICommand {
         this.elementsPerPage = elementsPerPage;
     }
 
+    /**
+     * Mutator for the cursor variable. When set, the response contains the diff entries right
+     * after the position of the cursor instead of the ones of the requested page, and a
+     * {@code nextCursor} element to request the following ones. An empty cursor starts at the
+     * beginning of the diff.
+     * 
+     * @param cursor - the {@code nextCursor} token returned by a previous diff request
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     /**
      * Runs the command and builds the appropriate response
      * 
@@ -122,6 +138,18 @@ public class Diff extends AbstractWebAPICommand {
             throw new CommandSpecException("Invalid old ref spec");
         }
 
+        final boolean cursorPaging = cursor != null;
+        final DiffCursor diffCursor;
+        try {
+            diffCursor = cursor == null || cursor.isEmpty() ? null : DiffCursor.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new CommandSpecException(e.getMessage());
+        }
+        if (cursorPaging && (showGeometryChanges || newRefSpec == null)) {
+            throw new CommandSpecException(
+                    "cursor is only supported when comparing two revisions without showGeometryChanges");
+        }
+
         final Context geogig = this.getRepositoryContext(context);
 
         context.setResponseContent(new CommandResponse() {
@@ -129,10 +157,15 @@ public class Diff extends AbstractWebAPICommand {
             public void write(ResponseWriter out) throws Exception {
                 try (AutoCloseableIterator<DiffEntry> diff = geogig.command(DiffOp.class)
                         .setOldVersion(oldRefSpec).setNewVersion(newRefSpec).setFilter(pathFilter)
-                        .setPreserveIterationOrder(true).call()) {
+                        .setPreserveIterationOrder(true).setCursor(diffCursor).call()) {
                     out.start();
                     if (showGeometryChanges) {
                         out.writeGeometryChanges(geogig, diff, page, elementsPerPage);
+                    } else if (cursorPaging) {
+                        DiffEntry last = out.writeDiffEntries("diff", 0, elementsPerPage, diff);
+                        if (last != null && diff.hasNext()) {
+                            out.writeElement("nextCursor", DiffCursor.after(last).toToken());
+                        }
                     } else {
                         out.writeDiffEntries("diff", page * elementsPerPage, elementsPerPage, diff);
                     }
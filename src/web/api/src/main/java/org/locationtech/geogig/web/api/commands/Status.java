@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.web.api.commands;
 
+import java.util.Collections;
 import java.util.Optional;
 
 import org.locationtech.geogig.model.Ref;
@@ -17,6 +18,8 @@ import org.locationtech.geogig.plumbing.DiffIndex;
 import org.locationtech.geogig.plumbing.DiffWorkTree;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.merge.ConflictsQueryOp;
+import org.locationtech.geogig.porcelain.StatusOp;
+import org.locationtech.geogig.porcelain.StatusOp.StatusSummary;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.CommandContext;
@@ -76,6 +79,9 @@ public class Status extends AbstractWebAPICommand {
 
         final String pathFilter = null;
         final Optional<Ref> currHead = geogig.command(RefParse.class).setName(Ref.HEAD).call();
+        // answered from the persisted change summaries, so that polling an unchanged repository
+        // doesn't diff its trees
+        final StatusSummary summary = geogig.command(StatusOp.class).setReportLimit(0L).call();
 
         context.setResponseContent(new CommandResponse() {
             @Override
@@ -90,11 +96,26 @@ public class Status extends AbstractWebAPICommand {
                     }
                 }
 
-                writer.writeStaged(geogig.command(DiffIndex.class).addFilter(pathFilter), offset,
-                        limit);
-                writer.writeUnstaged(geogig.command(DiffWorkTree.class).setFilter(pathFilter),
-                        offset, limit);
-                writer.writeUnmerged(geogig.command(ConflictsQueryOp.class).call(), offset, limit);
+                if (summary.getCountStaged() > 0) {
+                    writer.writeStaged(geogig.command(DiffIndex.class).addFilter(pathFilter),
+                            offset, limit);
+                } else {
+                    writer.writeDiffEntries("staged", offset, limit,
+                            Collections.emptyIterator());
+                }
+                if (summary.getCountUnstaged() > 0) {
+                    writer.writeUnstaged(geogig.command(DiffWorkTree.class).setFilter(pathFilter),
+                            offset, limit);
+                } else {
+                    writer.writeDiffEntries("unstaged", offset, limit,
+                            Collections.emptyIterator());
+                }
+                if (summary.getCountConflicts() > 0) {
+                    writer.writeUnmerged(geogig.command(ConflictsQueryOp.class).call(), offset,
+                            limit);
+                } else {
+                    writer.writeUnmerged(Collections.emptyIterator(), offset, limit);
+                }
 
                 writer.finish();
             }
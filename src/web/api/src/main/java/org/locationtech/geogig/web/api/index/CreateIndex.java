@@ -12,8 +12,12 @@ package org.locationtech.geogig.web.api.index;
 import java.util.Arrays;
 import java.util.List;
 
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
+import org.locationtech.geogig.porcelain.index.CreateRTree;
+import org.locationtech.geogig.porcelain.index.CreateTemporalIndex;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.web.api.AbstractWebAPICommand;
@@ -27,9 +31,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 /**
- * The interface for the Create Quad Tree operation in GeoGig.
+ * The interface for the Create Index operation in GeoGig.
  * 
- * Web interface for {@link CreateQuadTree}
+ * Web interface for {@link CreateQuadTree} and {@link CreateRTree}
  */
 
 public class CreateIndex extends AbstractWebAPICommand {
@@ -38,16 +42,26 @@ public class CreateIndex extends AbstractWebAPICommand {
 
     String geometryAttributeName;
 
+    String attributeName;
+
+    String endAttributeName;
+
     List<String> extraAttributes;
 
     boolean indexHistory;
 
     String bbox;
 
+    boolean adaptive;
+
+    IndexType indexType = IndexType.QUADTREE;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setTreeRefSpec(options.getRequiredValue("treeRefSpec"));
         setGeometryAttributeName(options.getFirstValue("geometryAttributeName", null));
+        setAttributeName(options.getFirstValue("attributeName", null));
+        setEndAttributeName(options.getFirstValue("endAttributeName", null));
         String[] extraAttributes = options.getValuesArray("extraAttributes");
         if (extraAttributes == null) {
             setExtraAttributes(null);
@@ -56,6 +70,13 @@ public class CreateIndex extends AbstractWebAPICommand {
         }
         setIndexHistory(Boolean.valueOf(options.getFirstValue("indexHistory", "false")));
         setBBox(options.getFirstValue("bounds", null));
+        setAdaptive(Boolean.valueOf(options.getFirstValue("adaptive", "false")));
+        String indexType = options.getFirstValue("indexType", IndexType.QUADTREE.name());
+        try {
+            setIndexType(IndexType.valueOf(indexType.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new CommandSpecException("Invalid index type: " + indexType);
+        }
     }
 
     public void setTreeRefSpec(String treeRefSpec) {
@@ -66,6 +87,14 @@ public class CreateIndex extends AbstractWebAPICommand {
         this.geometryAttributeName = geometryAttributeName;
     }
 
+    public void setAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+    }
+
+    public void setEndAttributeName(String endAttributeName) {
+        this.endAttributeName = endAttributeName;
+    }
+
     public void setExtraAttributes(List<String> extraAttributes) {
         this.extraAttributes = extraAttributes;
     }
@@ -78,6 +107,14 @@ public class CreateIndex extends AbstractWebAPICommand {
         this.bbox = bbox;
     }
 
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public void setIndexType(IndexType indexType) {
+        this.indexType = indexType;
+    }
+
     @Override
     public boolean supports(final RequestMethod method) {
         return RequestMethod.PUT.equals(method);
@@ -106,13 +143,60 @@ public class CreateIndex extends AbstractWebAPICommand {
 
         Envelope bounds = SpatialOps.parseNonReferencedBBOX(bbox);
 
-        final Index index = repository.command(CreateQuadTree.class)//
-                .setTreeRefSpec(treeRefSpec)//
-                .setGeometryAttributeName(geometryAttributeName)//
-                .setExtraAttributes(extraAttributes)//
-                .setIndexHistory(indexHistory)//
-                .setBounds(bounds)//
-                .call();
+        if (endAttributeName != null && IndexType.TEMPORAL != indexType) {
+            throw new CommandSpecException("endAttributeName only applies to TEMPORAL indexes");
+        }
+        final Index index;
+        if (IndexType.TEMPORAL == indexType) {
+            if (bounds != null || adaptive) {
+                throw new CommandSpecException(
+                        "bounds and adaptive only apply to QUADTREE indexes");
+            }
+            if (attributeName == null) {
+                throw new CommandSpecException("attributeName is mandatory for TEMPORAL indexes");
+            }
+            index = repository.command(CreateTemporalIndex.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setAttributeName(attributeName)//
+                    .setEndAttributeName(endAttributeName)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .call();
+        } else if (IndexType.ATTRIBUTE == indexType) {
+            if (bounds != null || adaptive) {
+                throw new CommandSpecException(
+                        "bounds and adaptive only apply to QUADTREE indexes");
+            }
+            if (attributeName == null) {
+                throw new CommandSpecException("attributeName is mandatory for ATTRIBUTE indexes");
+            }
+            index = repository.command(CreateAttributeIndex.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setAttributeName(attributeName)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .call();
+        } else if (IndexType.RTREE == indexType) {
+            if (bounds != null || adaptive) {
+                throw new CommandSpecException(
+                        "bounds and adaptive only apply to QUADTREE indexes");
+            }
+            index = repository.command(CreateRTree.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setGeometryAttributeName(geometryAttributeName)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .call();
+        } else {
+            index = repository.command(CreateQuadTree.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setGeometryAttributeName(geometryAttributeName)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .setBounds(bounds)//
+                    .setAdaptive(adaptive)//
+                    .call();
+        }
 
         context.setResponseContent(new CommandResponse() {
             @Override
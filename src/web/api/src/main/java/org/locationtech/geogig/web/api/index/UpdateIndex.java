@@ -48,6 +48,8 @@ public class UpdateIndex extends AbstractWebAPICommand {
 
     String bbox;
 
+    Boolean adaptive;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setTreeRefSpec(options.getRequiredValue("treeRefSpec"));
@@ -62,6 +64,8 @@ public class UpdateIndex extends AbstractWebAPICommand {
         setAdd(Boolean.valueOf(options.getFirstValue("add", "false")));
         setOverwrite(Boolean.valueOf(options.getFirstValue("overwrite", "false")));
         setBBox(options.getFirstValue("bounds", null));
+        String adaptive = options.getFirstValue("adaptive", null);
+        setAdaptive(adaptive == null ? null : Boolean.valueOf(adaptive));
     }
 
     public void setTreeRefSpec(String treeRefSpec) {
@@ -92,6 +96,10 @@ public class UpdateIndex extends AbstractWebAPICommand {
         this.bbox = bbox;
     }
 
+    public void setAdaptive(Boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
     @Override
     public boolean supports(final RequestMethod method) {
         return RequestMethod.POST.equals(method);
@@ -120,15 +128,18 @@ public class UpdateIndex extends AbstractWebAPICommand {
 
         Envelope bounds = SpatialOps.parseNonReferencedBBOX(bbox);
 
-        final Index index = repository.command(UpdateIndexOp.class)//
+        final UpdateIndexOp command = repository.command(UpdateIndexOp.class)//
                 .setTreeRefSpec(treeRefSpec)//
                 .setAttributeName(geometryAttributeName)//
                 .setExtraAttributes(extraAttributes)//
                 .setIndexHistory(indexHistory)//
                 .setAdd(add)//
                 .setOverwrite(overwrite)//
-                .setBounds(bounds)//
-                .call();
+                .setBounds(bounds);
+        if (adaptive != null) {
+            command.setAdaptive(adaptive.booleanValue());
+        }
+        final Index index = command.call();
 
         context.setResponseContent(new CommandResponse() {
             @Override
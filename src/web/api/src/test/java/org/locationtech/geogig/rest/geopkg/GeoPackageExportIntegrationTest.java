@@ -33,6 +33,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,7 @@ import org.geotools.data.Transaction;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geopkg.FeatureEntry;
 import org.geotools.geopkg.GeoPackage;
 import org.geotools.geopkg.GeoPkgDataStoreFactory;
 import org.geotools.jdbc.JDBCDataStore;
@@ -157,6 +159,34 @@ public class GeoPackageExportIntegrationTest extends AbstractWebOpTest {
                 getAuditTableNames(result));
     }
 
+    @Test
+    public void testExportCreatesSpatialIndexAndBounds() throws Exception {
+        Repository repo = context.getRepository();
+        new TestData(repo).init().loadDefaultData();
+
+        Export op = buildCommand(TestParams.of("format", "gpkg"));
+
+        File result = run(op);
+        GeoPackage geoPackage = new GeoPackage(result);
+        try {
+            for (String typeName : Arrays.asList(pointsType.getName().getLocalPart(),
+                    linesType.getName().getLocalPart(), polysType.getName().getLocalPart())) {
+                FeatureEntry entry = geoPackage.feature(typeName);
+                assertNotNull(typeName, entry);
+                assertTrue(typeName, geoPackage.hasSpatialIndex(entry));
+                assertFalse(typeName, entry.getBounds().isEmpty());
+            }
+            Envelope pointsBounds = new Envelope();
+            pointsBounds.expandToInclude(point1.getDefaultGeometryBounds());
+            pointsBounds.expandToInclude(point2.getDefaultGeometryBounds());
+            pointsBounds.expandToInclude(point3.getDefaultGeometryBounds());
+            assertEquals(pointsBounds, new Envelope(
+                    geoPackage.feature(pointsType.getName().getLocalPart()).getBounds()));
+        } finally {
+            geoPackage.close();
+        }
+    }
+
     @Test
     public void testExportBranch() throws Exception {
         Repository repo = context.getRepository();